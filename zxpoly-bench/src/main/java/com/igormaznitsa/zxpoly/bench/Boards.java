@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2014-2024 Igor Maznitsa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.igormaznitsa.zxpoly.bench;
+
+import com.igormaznitsa.zxpoly.Bounds;
+import com.igormaznitsa.zxpoly.components.BoardMode;
+import com.igormaznitsa.zxpoly.components.IoDevice;
+import com.igormaznitsa.zxpoly.components.Motherboard;
+import com.igormaznitsa.zxpoly.components.RomData;
+import com.igormaznitsa.zxpoly.components.snd.VolumeProfile;
+import com.igormaznitsa.zxpoly.components.video.BorderWidth;
+import com.igormaznitsa.zxpoly.components.video.VirtualKeyboardLook;
+import com.igormaznitsa.zxpoly.components.video.timings.TimingProfile;
+import com.igormaznitsa.zxpoly.utils.AppOptions;
+import com.igormaznitsa.zxpoly.utils.Utils;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Factory of headless motherboards for benchmarks, the embedded test ROM is used.
+ */
+final class Boards {
+
+  static final TimingProfile TIMING = TimingProfile.SPECTRUM128;
+
+  private Boards() {
+  }
+
+  static RomData loadTestRom() throws IOException {
+    try (final InputStream in = Utils
+        .findResourceOrError("com/igormaznitsa/zxpoly/rom/" + AppOptions.TEST_ROM)) {
+      return RomData.read(AppOptions.TEST_ROM, in);
+    }
+  }
+
+  static Motherboard make(final BoardMode mode) throws IOException {
+    final Motherboard board = new Motherboard(
+        BorderWidth.FULL,
+        VolumeProfile.EXPONENTIAL,
+        TIMING,
+        loadTestRom(),
+        new Bounds(0, 0, -1, -1),
+        mode,
+        false,
+        false,
+        false,
+        false,
+        false,
+        false,
+        VirtualKeyboardLook.DEFAULT.load(),
+        false
+    );
+    board.findIoDevices().forEach(IoDevice::init);
+    board.reset();
+    return board;
+  }
+
+  /**
+   * Execute board steps until end of the current frame and start new frame, the same way as
+   * the main loop does it in turbo mode.
+   *
+   * @param board board to be executed, must not be null
+   * @return number of executed steps
+   */
+  static int runFrame(final Motherboard board) {
+    int steps = 0;
+    while (board.getFrameTiStates() < TIMING.tstatesFrame) {
+      board.step(false, false, false, false, true);
+      steps++;
+    }
+    board.step(true, true, false, true, true);
+    return steps + 1;
+  }
+
+  /**
+   * Execute board until end of the current frame by batch execution and start new frame.
+   *
+   * @param board board to be executed, must not be null
+   * @return detected triggers
+   */
+  static int runFrameBatched(final Motherboard board) {
+    int triggers = Motherboard.TRIGGER_NONE;
+    while (board.getFrameTiStates() < TIMING.tstatesFrame) {
+      triggers |= board.runUntil(TIMING.tstatesFrame);
+    }
+    return triggers | board.step(true, true, false, true, true);
+  }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) 2014-2024 Igor Maznitsa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.igormaznitsa.zxpoly.bench;
+
+import java.util.Random;
+
+/**
+ * Generators of deterministic code blocks used by CPU benchmarks.
+ */
+public enum CodeBlocks {
+  /**
+   * Whole 64K filled by random bytes (except HALT), the same as in Z80RandomCodeBlockTest.
+   */
+  RANDOM(0x0000),
+  /**
+   * Linear code in lower 32K composed of instructions from all prefix groups without
+   * control flow changes (like ZEXALL test loops), ends by JP 0000.
+   */
+  MIX(0x8000),
+  /**
+   * Linear code in lower 32K composed of only DDCB and FDCB instructions, ends by JP 0000.
+   */
+  INDEXED_BITS(0x8000);
+
+  static final long SEED = 8962L;
+  static final int INDEX_REG_BASE = 0xC000;
+  private static final int CODE_END = 0x7FFD;
+
+  private final int writeProtectedTop;
+
+  CodeBlocks(final int writeProtectedTop) {
+    this.writeProtectedTop = writeProtectedTop;
+  }
+
+  private static boolean isFlowChange(final int code) {
+    switch (code) {
+      case 0x10:
+      case 0x18:
+      case 0x20:
+      case 0x28:
+      case 0x30:
+      case 0x38:
+      case 0x76:
+      case 0xC3:
+      case 0xC9:
+      case 0xCD:
+      case 0xE9:
+        return true;
+      default: {
+        if (code >= 0xC0) {
+          final int z = code & 7;
+          return z == 0 || z == 2 || z == 4 || z == 7;
+        }
+        return false;
+      }
+    }
+  }
+
+  private static boolean isPrefix(final int code) {
+    return code == 0xCB || code == 0xDD || code == 0xED || code == 0xFD;
+  }
+
+  private static int mainOperandBytes(final int code) {
+    if ((code & 0xCF) == 0x01 || code == 0x22 || code == 0x2A || code == 0x32
+        || code == 0x3A) {
+      return 2;
+    }
+    if ((code & 0xC7) == 0x06 || (code & 0xC7) == 0xC6 || code == 0xD3 || code == 0xDB) {
+      return 1;
+    }
+    return 0;
+  }
+
+  private static boolean isIndexedMemoryAccess(final int code) {
+    if (code == 0x76) {
+      return false;
+    }
+    return code == 0x34 || code == 0x35 || code == 0x36
+        || (code & 0xC7) == 0x46 || (code & 0xF8) == 0x70 || (code & 0xC7) == 0x86;
+  }
+
+  private static int nextMainCode(final Random rnd) {
+    int code;
+    do {
+      code = rnd.nextInt(0x100);
+    } while (isFlowChange(code) || isPrefix(code));
+    return code;
+  }
+
+  private static int writeMain(final byte[] memory, int pos, final Random rnd) {
+    final int code = nextMainCode(rnd);
+    memory[pos++] = (byte) code;
+    for (int i = mainOperandBytes(code); i > 0; i--) {
+      memory[pos++] = (byte) rnd.nextInt(0x100);
+    }
+    return pos;
+  }
+
+  private static int writeIndexed(final byte[] memory, int pos, final Random rnd) {
+    memory[pos++] = (byte) (rnd.nextBoolean() ? 0xDD : 0xFD);
+    final int code = nextMainCode(rnd);
+    memory[pos++] = (byte) code;
+    if (isIndexedMemoryAccess(code)) {
+      memory[pos++] = (byte) rnd.nextInt(0x100);
+    }
+    for (int i = mainOperandBytes(code); i > 0; i--) {
+      memory[pos++] = (byte) rnd.nextInt(0x100);
+    }
+    return pos;
+  }
+
+  private static int writeIndexedBits(final byte[] memory, int pos, final Random rnd) {
+    memory[pos++] = (byte) (rnd.nextBoolean() ? 0xDD : 0xFD);
+    memory[pos++] = (byte) 0xCB;
+    memory[pos++] = (byte) rnd.nextInt(0x100);
+    memory[pos++] = (byte) rnd.nextInt(0x100);
+    return pos;
+  }
+
+  private static int writeEd(final byte[] memory, int pos, final Random rnd) {
+    int code;
+    do {
+      code = rnd.nextInt(0x100);
+    } while ((code & 0xC7) == 0x45);
+    memory[pos++] = (byte) 0xED;
+    memory[pos++] = (byte) code;
+    if ((code & 0xC7) == 0x43) {
+      memory[pos++] = (byte) rnd.nextInt(0x100);
+      memory[pos++] = (byte) rnd.nextInt(0x100);
+    }
+    return pos;
+  }
+
+  private static void endByJumpToStart(final byte[] memory, final int pos) {
+    for (int i = pos; i < CODE_END; i++) {
+      memory[i] = 0;
+    }
+    memory[CODE_END] = (byte) 0xC3;
+    memory[CODE_END + 1] = 0;
+    memory[CODE_END + 2] = 0;
+  }
+
+  int getWriteProtectedTop() {
+    return this.writeProtectedTop;
+  }
+
+  byte[] make() {
+    final Random rnd = new Random(SEED);
+    final byte[] memory = new byte[0x10000];
+    int pos = 0;
+    switch (this) {
+      case RANDOM: {
+        for (int i = 0; i < memory.length; i++) {
+          byte code = (byte) rnd.nextInt(0xFFFFFF);
+          while (code == (byte) 0x76) {
+            code = (byte) rnd.nextInt(0xFFFFFF);
+          }
+          memory[i] = code;
+        }
+      }
+      break;
+      case MIX: {
+        while (pos < CODE_END - 8) {
+          switch (rnd.nextInt(7)) {
+            case 0:
+            case 1:
+            case 2: {
+              pos = writeMain(memory, pos, rnd);
+            }
+            break;
+            case 3: {
+              memory[pos++] = (byte) 0xCB;
+              memory[pos++] = (byte) rnd.nextInt(0x100);
+            }
+            break;
+            case 4: {
+              pos = writeEd(memory, pos, rnd);
+            }
+            break;
+            case 5: {
+              pos = writeIndexed(memory, pos, rnd);
+            }
+            break;
+            default: {
+              pos = writeIndexedBits(memory, pos, rnd);
+            }
+            break;
+          }
+        }
+        endByJumpToStart(memory, pos);
+      }
+      break;
+      case INDEXED_BITS: {
+        while (pos < CODE_END - 4) {
+          pos = writeIndexedBits(memory, pos, rnd);
+        }
+        endByJumpToStart(memory, pos);
+      }
+      break;
+      default:
+        throw new Error("Unexpected code block: " + this);
+    }
+    return memory;
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2014-2024 Igor Maznitsa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.igormaznitsa.zxpoly.bench;
+
+import com.igormaznitsa.z80.Z80;
+import com.igormaznitsa.z80.Z80CPUBus;
+
+/**
+ * Minimal 64K bus for CPU benchmarks, area below write protection address is read only
+ * so that generated code can't be destroyed by itself.
+ */
+final class FlatBus implements Z80CPUBus {
+
+  private final byte[] memory;
+  private final int writeProtectedTop;
+
+  FlatBus(final byte[] memory, final int writeProtectedTop) {
+    if (memory.length != 0x10000) {
+      throw new IllegalArgumentException("Memory must be 64K");
+    }
+    this.memory = memory;
+    this.writeProtectedTop = writeProtectedTop;
+  }
+
+  @Override
+  public byte readMemory(final Z80 cpu, final int ctx, final int address, final boolean m1,
+                         final boolean cmdOrPrefix) {
+    return this.memory[address];
+  }
+
+  @Override
+  public void writeMemory(final Z80 cpu, final int ctx, final int address, final byte data) {
+    if (address >= this.writeProtectedTop) {
+      this.memory[address] = data;
+    }
+  }
+
+  @Override
+  public int readPtr(final Z80 cpu, final int ctx, final int reg, final int valueInReg) {
+    return valueInReg;
+  }
+
+  @Override
+  public int readSpecRegValue(final Z80 cpu, final int ctx, final int reg, final int origValue) {
+    return origValue;
+  }
+
+  @Override
+  public int readSpecRegPairValue(final Z80 cpu, final int ctx, final int regPair,
+                                  final int origValue) {
+    return origValue;
+  }
+
+  @Override
+  public int readRegPortAddr(final Z80 cpu, final int ctx, final int reg, final int valueInReg) {
+    return valueInReg;
+  }
+
+  @Override
+  public int postProcessXor(final Z80 cpu, final int ctx, final int regIndex, final int valueA,
+                            final int value, final int result) {
+    return result;
+  }
+
+  @Override
+  public int postProcessAnd(final Z80 cpu, final int ctx, final int regIndex, final int valueA,
+                            final int value, final int result) {
+    return result;
+  }
+
+  @Override
+  public int postProcessOr(final Z80 cpu, final int ctx, final int regIndex, final int valueA,
+                           final int value, final int result) {
+    return result;
+  }
+
+  @Override
+  public byte readPort(final Z80 cpu, final int ctx, final int port) {
+    return (byte) 0xFF;
+  }
+
+  @Override
+  public void writePort(final Z80 cpu, final int ctx, final int port, final byte data) {
+  }
+
+  @Override
+  public byte onCPURequestDataLines(final Z80 cpu, final int ctx) {
+    return (byte) 0xFF;
+  }
+
+  @Override
+  public void onRETI(final Z80 cpu, final int ctx) {
+  }
+
+  @Override
+  public void onInterrupt(final Z80 cpu, final int ctx, final boolean nmi) {
+  }
+}
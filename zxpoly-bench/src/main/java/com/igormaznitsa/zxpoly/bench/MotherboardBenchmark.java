@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2014-2024 Igor Maznitsa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.igormaznitsa.zxpoly.bench;
+
+import com.igormaznitsa.zxpoly.components.BoardMode;
+import com.igormaznitsa.zxpoly.components.Motherboard;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to emulate one whole frame (interrupt period) by motherboard in different board modes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = "-Djava.awt.headless=true")
+public class MotherboardBenchmark {
+
+  @Param({"ZX128", "ZXPOLY", "SPEC256"})
+  public BoardMode boardMode;
+
+  private Motherboard board;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    this.board = Boards.make(this.boardMode);
+    for (int i = 0; i < 50; i++) {
+      Boards.runFrame(this.board);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    this.board.dispose();
+  }
+
+  @Benchmark
+  public int frame() {
+    return Boards.runFrame(this.board);
+  }
+
+  @Benchmark
+  public int frameBatched() {
+    return Boards.runFrameBatched(this.board);
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2014-2024 Igor Maznitsa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.igormaznitsa.zxpoly.bench;
+
+import com.igormaznitsa.zxpoly.components.BoardMode;
+import com.igormaznitsa.zxpoly.components.Motherboard;
+import com.igormaznitsa.zxpoly.components.ZxPolyModule;
+import com.igormaznitsa.zxpoly.components.video.VideoController;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to fill whole video buffer of video controller for different video modes,
+ * the video memory contains random garbage made by motherboard at power on. Before every fill
+ * some bytes of video memory are changed in all modules, only changed cells are rendered.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Djava.awt.headless=true")
+public class VideoControllerBenchmark {
+
+  /**
+   * Video modes: 0 - ZX-Spectrum 128, 4 - ZX-Poly 256x192, 5 - ZX-Poly 512x384,
+   * 6 - ZX-Poly 256x192 ink-paper mask, 7 - ZX-Poly 256x192 flash mask, 8 - Spec256.
+   */
+  @Param({"0", "4", "5", "6", "7", "8"})
+  public int videoMode;
+
+  @Param({"ALL", "EVEN"})
+  public VideoController.LineRenderMode lines;
+
+  /**
+   * Number of changed bytes of video memory (pixels and attributes) before every fill.
+   */
+  @Param({"0", "256", "6912"})
+  public int changedBytes;
+
+  private final Random random = new Random(12345L);
+  private Motherboard board;
+  private VideoController video;
+  private int changeOffset;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    this.board = Boards.make(BoardMode.ZXPOLY);
+    this.video = this.board.getVideoController();
+    this.video.setVideoMode(this.videoMode);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    this.board.dispose();
+  }
+
+  private void changeVideoMemory() {
+    for (int i = 0; i < this.changedBytes; i++) {
+      final int address = 0x4000 + this.changeOffset;
+      this.changeOffset = (this.changeOffset + 1) % 0x1B00;
+      for (final ZxPolyModule module : this.board.getModules()) {
+        module.writeMemory(module.getCpu(), 0, address, (byte) this.random.nextInt());
+      }
+    }
+  }
+
+  @Benchmark
+  public VideoController fillBuffer() {
+    this.changeVideoMemory();
+    this.video.syncUpdateBuffer(0, VideoController.ZXSCREEN_ROWS, this.lines);
+    return this.video;
+  }
+
+  @Benchmark
+  public int[] fillBufferAndCopy() {
+    this.changeVideoMemory();
+    this.video.syncUpdateBuffer(0, VideoController.ZXSCREEN_ROWS, this.lines);
+    this.video.copyWorkScreenToOutputScreen(0, 0, VideoController.ZXSCREEN_COLS,
+        VideoController.ZXSCREEN_ROWS);
+    return this.video.makeCopyOfVideoBuffer(false);
+  }
+}
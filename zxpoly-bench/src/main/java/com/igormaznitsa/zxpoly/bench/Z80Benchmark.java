@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2014-2024 Igor Maznitsa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.igormaznitsa.zxpoly.bench;
+
+import com.igormaznitsa.z80.Z80;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of Z80 core for different kinds of code, result is time per one step or one
+ * instruction.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class Z80Benchmark {
+
+  private static final int BATCH = 1024;
+  private static final int CTX = 111;
+  private static final int RUN_TSTATES = 4096;
+
+  @Param({"RANDOM", "MIX", "INDEXED_BITS"})
+  public CodeBlocks code;
+
+  @Param({"true", "false"})
+  public boolean tableDecoder;
+
+  private Z80 cpu;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    this.cpu = new Z80(new FlatBus(this.code.make(), this.code.getWriteProtectedTop()))
+        .setTableDecoder(this.tableDecoder);
+    this.cpu.setRegisterPair(Z80.REGPAIR_HL, 0xA000);
+    this.cpu.setRegister(Z80.REG_IX, CodeBlocks.INDEX_REG_BASE);
+    this.cpu.setRegister(Z80.REG_IY, CodeBlocks.INDEX_REG_BASE);
+    this.cpu.setRegister(Z80.REG_SP, 0xF000);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH)
+  public boolean step() {
+    final Z80 theCpu = this.cpu;
+    boolean result = false;
+    for (int i = 0; i < BATCH; i++) {
+      result ^= theCpu.step(CTX, Z80.SIGNAL_IN_ALL_INACTIVE);
+    }
+    return result;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH)
+  public int nextInstruction() {
+    final Z80 theCpu = this.cpu;
+    int result = 0;
+    for (int i = 0; i < BATCH; i++) {
+      result += theCpu.nextInstruction(CTX, false, false, false);
+    }
+    return result;
+  }
+
+  @Benchmark
+  public int runFor() {
+    final Z80 theCpu = this.cpu;
+    int spent = 0;
+    while (spent < RUN_TSTATES) {
+      spent += theCpu.runFor(CTX, RUN_TSTATES - spent, Z80.SIGNAL_IN_ALL_INACTIVE);
+    }
+    return spent;
+  }
+}
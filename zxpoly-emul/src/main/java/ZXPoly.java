@@ -19,6 +19,7 @@ import static java.util.Objects.requireNonNullElse;
 import static java.util.Objects.requireNonNullElseGet;
 
 import com.igormaznitsa.zxpoly.Bounds;
+import com.igormaznitsa.zxpoly.HeadlessRunner;
 import com.igormaznitsa.zxpoly.MainForm;
 import com.igormaznitsa.zxpoly.MainFormParameters;
 import com.igormaznitsa.zxpoly.Version;
@@ -39,7 +40,8 @@ import picocli.CommandLine;
 @CommandLine.Command(name = "zxpoly-emulator", mixinStandardHelpOptions = true,
     version = Version.VERSION_MAJOR + "." + Version.VERSION_MINOR + "." + Version.VERSION_BUILD,
     description = "Emulator of ZXPoly platform (a multi-CPU ZX-Spectrum 128 clone)",
-    showAtFileInUsageHelp = true
+    showAtFileInUsageHelp = true,
+    subcommands = {HeadlessRunner.class}
 )
 public class ZXPoly implements Runnable, Version {
 
@@ -77,6 +79,18 @@ public class ZXPoly implements Runnable, Version {
   )
   private boolean forceAcbSound = false;
 
+  @CommandLine.Option(
+      names = {"--parallel-modules"},
+      description = "execute ZX-Poly modules on separate threads"
+  )
+  private boolean parallelModules = false;
+
+  @CommandLine.Option(
+      names = {"--parallel-render"},
+      description = "render ZX-Poly and Spec256 screen by bands on separate threads"
+  )
+  private boolean parallelRender = false;
+
   @CommandLine.Option(
       names = {"--bounds"},
       description = "define main frame bounds as X,Y,W,H or W,H",
@@ -234,6 +248,8 @@ public class ZXPoly implements Runnable, Version {
             .setUndecorated(this.undecorated)
             .setForceAcbChannelSound(this.forceAcbSound)
             .setActivateSound(this.activateSound)
+            .setParallelModules(this.parallelModules)
+            .setParallelRender(this.parallelRender)
             .setShowIndicatorPanel(this.showIndicators)
             .setVirtualKeyboardLook(requireNonNullElseGet(this.virtualKeyboardLook,
                 () -> AppOptions.getInstance().getKeyboardLook()))
@@ -0,0 +1,358 @@
+/*
+ * Copyright (C) 2014-2024 Igor Maznitsa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.igormaznitsa.zxpoly;
+
+import com.igormaznitsa.zxpoly.components.BoardMode;
+import com.igormaznitsa.zxpoly.components.IoDevice;
+import com.igormaznitsa.zxpoly.components.KeyboardKempstonAndTapeIn;
+import com.igormaznitsa.zxpoly.components.Motherboard;
+import com.igormaznitsa.zxpoly.components.RomData;
+import com.igormaznitsa.zxpoly.components.betadisk.TrDosDisk;
+import com.igormaznitsa.zxpoly.components.snd.VolumeProfile;
+import com.igormaznitsa.zxpoly.components.tapereader.TapeContext;
+import com.igormaznitsa.zxpoly.components.tapereader.TapeSource;
+import com.igormaznitsa.zxpoly.components.tapereader.TapeSourceFactory;
+import com.igormaznitsa.zxpoly.components.video.BorderWidth;
+import com.igormaznitsa.zxpoly.components.video.VideoController;
+import com.igormaznitsa.zxpoly.components.video.VirtualKeyboardLook;
+import com.igormaznitsa.zxpoly.components.video.timings.TimingProfile;
+import com.igormaznitsa.zxpoly.formats.FormatPRom;
+import com.igormaznitsa.zxpoly.formats.FormatRom;
+import com.igormaznitsa.zxpoly.formats.FormatSNA;
+import com.igormaznitsa.zxpoly.formats.FormatSZX;
+import com.igormaznitsa.zxpoly.formats.FormatSpec256;
+import com.igormaznitsa.zxpoly.formats.FormatZ80;
+import com.igormaznitsa.zxpoly.formats.FormatZXP;
+import com.igormaznitsa.zxpoly.formats.Snapshot;
+import com.igormaznitsa.zxpoly.utils.AppOptions;
+import com.igormaznitsa.zxpoly.utils.Utils;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import javax.imageio.ImageIO;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+import picocli.CommandLine;
+
+/**
+ * Emulator runner without any UI and wall clock synchronization, allows to execute the emulator
+ * on build servers without display to make screenshots, frame hashes and audio for regression
+ * checks.
+ */
+@CommandLine.Command(name = "headless", mixinStandardHelpOptions = true,
+    description = "Run emulator without UI for defined number of frames as fast as possible"
+)
+public final class HeadlessRunner implements Callable<Integer> {
+
+  private static final Logger LOGGER = Logger.getLogger(HeadlessRunner.class.getName());
+
+  private static final List<Snapshot> SNAPSHOT_FORMATS = List.of(
+      new FormatPRom(),
+      new FormatRom(),
+      new FormatZ80(),
+      new FormatSZX(),
+      new FormatSNA(),
+      new FormatZXP(),
+      new FormatSpec256()
+  );
+
+  @CommandLine.Option(
+      names = {"-r", "--rom"},
+      description = "bootstrap ROM as a single file, embedded test ROM if not defined"
+  )
+  private File romFile = null;
+
+  @CommandLine.Option(
+      names = {"-m", "--mode"},
+      description = "start board mode, Valid values: ${COMPLETION-CANDIDATES}",
+      defaultValue = "ZX128"
+  )
+  private BoardMode boardMode = BoardMode.ZX128;
+
+  @CommandLine.Option(
+      names = {"-t", "--timing"},
+      description = "timing profile, Valid values: ${COMPLETION-CANDIDATES}",
+      defaultValue = "SPECTRUM128"
+  )
+  private TimingProfile timingProfile = TimingProfile.SPECTRUM128;
+
+  @CommandLine.Option(
+      names = {"-s", "--snapshot"},
+      description = "open snapshot file, type will be recognized by file extension"
+  )
+  private File snapshotFile = null;
+
+  @CommandLine.Option(
+      names = {"--tape"},
+      description = "tape file (TAP, TZX or WAV) to be played since start"
+  )
+  private File tapeFile = null;
+
+  @CommandLine.Option(
+      names = {"--fast-load"},
+      description = "load standard tape blocks instantly through ROM LD-BYTES trap"
+  )
+  private boolean fastLoad = false;
+
+  @CommandLine.Option(
+      names = {"--disk"},
+      description = "TRD or SCL disk image for drive A, needs ROM with TR-DOS"
+  )
+  private File diskFile = null;
+
+  @CommandLine.Option(
+      names = {"-n", "--frames"},
+      description = "number of frames to be executed",
+      defaultValue = "500"
+  )
+  private int frames = 500;
+
+  @CommandLine.Option(
+      names = {"--png-dir"},
+      description = "folder to save screenshots as PNG"
+  )
+  private File pngFolder = null;
+
+  @CommandLine.Option(
+      names = {"--png-every"},
+      description = "save screenshot for every N-th frame, 0 means only the last frame",
+      defaultValue = "0"
+  )
+  private int pngEvery = 0;
+
+  @CommandLine.Option(
+      names = {"--hashes"},
+      description = "text file to write CRC32 hash of every frame"
+  )
+  private File hashesFile = null;
+
+  @CommandLine.Option(
+      names = {"--wav"},
+      description = "WAV file to write sound"
+  )
+  private File wavFile = null;
+
+  @CommandLine.Option(
+      names = {"--parallel-modules"},
+      description = "execute ZX-Poly modules on separate threads"
+  )
+  private boolean parallelModules = false;
+
+  @CommandLine.Option(
+      names = {"--parallel-render"},
+      description = "render ZX-Poly and Spec256 screen by bands on separate threads"
+  )
+  private boolean parallelRender = false;
+
+  @CommandLine.Option(
+      names = {"--seed"},
+      description = "seed for RAM garbage after power on to make runs repeatable",
+      defaultValue = "0"
+  )
+  private long seed = 0L;
+
+  private PrintStream out = System.out;
+
+  public HeadlessRunner() {
+  }
+
+  HeadlessRunner setOut(final PrintStream out) {
+    this.out = out;
+    return this;
+  }
+
+  private static Snapshot findSnapshotFormat(final File file) {
+    return SNAPSHOT_FORMATS.stream()
+        .filter(x -> x.accept(file))
+        .findFirst()
+        .orElseThrow(() -> new IllegalArgumentException("Unsupported snapshot: " + file));
+  }
+
+  private static long calcFrameHash(final VideoController videoController) {
+    final int[] buffer = videoController.makeCopyOfVideoBuffer(false);
+    final ByteBuffer bytes = ByteBuffer.allocate(buffer.length * 4);
+    bytes.asIntBuffer().put(buffer);
+    final CRC32 crc = new CRC32();
+    crc.update(bytes);
+    return crc.getValue();
+  }
+
+  private RomData loadRom() throws IOException {
+    if (this.romFile == null) {
+      try (final InputStream in = Utils
+          .findResourceOrError("com/igormaznitsa/zxpoly/rom/" + AppOptions.TEST_ROM)) {
+        return RomData.read(AppOptions.TEST_ROM, in);
+      }
+    } else {
+      return RomData.read(this.romFile);
+    }
+  }
+
+  private Motherboard makeBoard(final RomData rom) throws IOException {
+    final Motherboard board = new Motherboard(
+        BorderWidth.FULL,
+        VolumeProfile.EXPONENTIAL,
+        this.timingProfile,
+        rom,
+        new Bounds(0, 0, -1, -1),
+        this.boardMode,
+        false,
+        false,
+        false,
+        false,
+        false,
+        false,
+        VirtualKeyboardLook.DEFAULT.load(),
+        false
+    );
+    board.fillRamByGarbage(new Random(this.seed));
+    board.setParallelModules(this.parallelModules);
+    board.getVideoController().setParallelRender(this.parallelRender);
+    board.findIoDevices().forEach(IoDevice::init);
+    board.reset();
+    return board;
+  }
+
+  private void prepareMedia(final Motherboard board) throws IOException {
+    if (this.snapshotFile != null) {
+      final Snapshot format = findSnapshotFormat(this.snapshotFile);
+      LOGGER.info("Loading snapshot " + format.getName());
+      format.loadFromArray(this.snapshotFile, board, board.getVideoController(),
+          FileUtils.readFileToByteArray(this.snapshotFile));
+    }
+
+    if (this.diskFile != null) {
+      if (board.getBetaDiskInterface() == null) {
+        throw new IllegalArgumentException("Disk image needs ROM with TR-DOS");
+      }
+      final boolean scl = "scl".equals(
+          FilenameUtils.getExtension(this.diskFile.getName()).toLowerCase(Locale.ENGLISH));
+      board.getBetaDiskInterface().insertDiskIntoDrive(0,
+          new TrDosDisk(this.diskFile,
+              scl ? TrDosDisk.SourceDataType.SCL : TrDosDisk.SourceDataType.TRD,
+              FileUtils.readFileToByteArray(this.diskFile), false));
+    }
+
+    if (this.tapeFile != null) {
+      final TapeContext tapeContext = (tape, signal) -> {
+        if (signal == TapeContext.ControlSignal.STOP_TAPE
+            || (signal == TapeContext.ControlSignal.STOP_TAPE_IF_ZX48 && board.isMode48k())) {
+          tape.stopPlay();
+        }
+      };
+      final TapeSource source =
+          TapeSourceFactory.makeSource(tapeContext, this.timingProfile, this.tapeFile);
+      final KeyboardKempstonAndTapeIn tapeIn =
+          board.findIoDevice(KeyboardKempstonAndTapeIn.class);
+      tapeIn.setFastLoad(this.fastLoad);
+      tapeIn.setTap(source);
+      source.startPlay();
+    }
+
+    if (this.wavFile != null) {
+      board.getBeeper().setTargetWav(this.wavFile);
+    }
+  }
+
+  private void runFrame(final Motherboard board) {
+    final int tstatesFrame = this.timingProfile.tstatesFrame;
+    while (board.getFrameTiStates() < tstatesFrame) {
+      board.runUntil(tstatesFrame);
+    }
+    board.step(true, true, false, true, true);
+  }
+
+  private void saveScreen(final VideoController videoController, final int frame)
+      throws IOException {
+    final File pngFile = new File(this.pngFolder, String.format("frame%06d.png", frame));
+    ImageIO.write(videoController.makeCopyOfCurrentPicture(), "png", pngFile);
+  }
+
+  @Override
+  public Integer call() throws Exception {
+    System.setProperty("java.awt.headless", "true");
+
+    if (this.frames <= 0) {
+      throw new IllegalArgumentException("Number of frames must be positive: " + this.frames);
+    }
+    if (this.pngFolder != null) {
+      FileUtils.forceMkdir(this.pngFolder);
+    }
+
+    final RomData rom = loadRom();
+    MainForm.BASE_ROM = rom;
+
+    final Motherboard board = makeBoard(rom);
+    try (final PrintWriter hashes = this.hashesFile == null ? null
+        : new PrintWriter(this.hashesFile, StandardCharsets.UTF_8)) {
+      prepareMedia(board);
+
+      final VideoController videoController = board.getVideoController();
+      long lastHash = 0L;
+      long renderNanos = 0L;
+      final long start = System.nanoTime();
+      for (int frame = 1; frame <= this.frames; frame++) {
+        runFrame(board);
+
+        final long renderStart = System.nanoTime();
+        // parallel render of the previous frame goes on during emulation, it must not be skipped
+        videoController.waitFrameRender();
+        videoController.renderBeamLines(0, 192, VideoController.LineRenderMode.ALL);
+        final boolean savePng = this.pngFolder != null
+            && (frame == this.frames || (this.pngEvery > 0 && frame % this.pngEvery == 0));
+        if (hashes != null || frame == this.frames || savePng) {
+          videoController.waitFrameRender();
+        }
+        if (hashes != null || frame == this.frames) {
+          lastHash = calcFrameHash(videoController);
+          if (hashes != null) {
+            hashes.printf("%d %08X%n", frame, lastHash);
+          }
+        }
+        if (savePng) {
+          saveScreen(videoController, frame);
+        }
+        renderNanos += System.nanoTime() - renderStart;
+      }
+      final long spentNanos = Math.max(1L, System.nanoTime() - start);
+
+      final double framesPerSecond = this.frames * 1.0e9d / spentNanos;
+      this.out.printf(Locale.ENGLISH, "Frames: %d%n", this.frames);
+      this.out.printf(Locale.ENGLISH, "Time: %d ms (output %d ms)%n", spentNanos / 1000000L,
+          renderNanos / 1000000L);
+      this.out.printf(Locale.ENGLISH, "Emulated frames per second: %.2f (%.2fx of real time)%n",
+          framesPerSecond,
+          framesPerSecond * this.timingProfile.tstatesFrame / (double) this.timingProfile.clockFreq);
+      this.out.printf(Locale.ENGLISH, "Last frame hash: %08X%n", lastHash);
+    } finally {
+      board.getBeeper().setTargetWav(null);
+      board.dispose();
+    }
+    return 0;
+  }
+}
@@ -366,6 +366,7 @@ public final class MainForm extends JFrame implements ActionListener, TapeContex
   private JMenuItem menuTapNextBlock;
   private JMenuItem menuTapThreshold;
   private JCheckBoxMenuItem menuTapPlay;
+  private JCheckBoxMenuItem menuTapFastLoad;
   private JMenuItem menuTapPrevBlock;
   private JMenuItem menuTapeRewindToStart;
   private JCheckBoxMenuItem menuTraceCpu0;
@@ -507,6 +508,8 @@ public final class MainForm extends JFrame implements ActionListener, TapeContex
         vkbdContainer,
         AppOptions.getInstance().isUlaPlus()
     );
+    this.board.setParallelModules(parameters.isParallelModules());
+    this.board.getVideoController().setParallelRender(parameters.isParallelRender());
     this.board.reset();
     this.menuOptionsZX128Mode.setSelected(this.board.getBoardMode() != BoardMode.ZXPOLY);
     this.menuOptionsTurbo.setSelected(this.turboMode);
@@ -520,6 +523,8 @@ public final class MainForm extends JFrame implements ActionListener, TapeContex
 
     this.menuOptionsOnlyJoystickEvents.setSelected(
         this.keyboardAndTapeModule.isOnlyJoystickEvents());
+    this.keyboardAndTapeModule.setFastLoad(AppOptions.getInstance().isTapeFastLoad());
+    this.menuTapFastLoad.setSelected(this.keyboardAndTapeModule.isFastLoad());
     if (this.keyboardAndTapeModule.isKempstonJoystickActivated()) {
       this.menuOptionsJoystickKempston.setSelected(true);
     } else {
@@ -1113,12 +1118,22 @@ public final class MainForm extends JFrame implements ActionListener, TapeContex
             triggeredNmi = false;
           }
 
-          final int detectedTriggers = this.board.step(
-              tiStatesForIntExhausted,
-              intTickForWallClockReached,
-              triggeredNmi,
-              doCpuIntTick,
-              executionEnabled);
+          final int detectedTriggers;
+          if (tiStatesForIntExhausted
+              || intTickForWallClockReached
+              || triggeredNmi
+              || this.activeTracerWindowCounter.get() > 0) {
+            detectedTriggers = this.board.step(
+                tiStatesForIntExhausted,
+                intTickForWallClockReached,
+                triggeredNmi,
+                doCpuIntTick,
+                executionEnabled);
+          } else {
+            // no signals to be processed, so execute whole batch till next blink line or frame end
+            detectedTriggers = this.board.runUntil(
+                Math.min(nextBlinkLineTiStates, this.timingProfile.tstatesFrame));
+          }
 
           frameTiStates = this.board.getFrameTiStates();
 
@@ -1147,7 +1162,7 @@ public final class MainForm extends JFrame implements ActionListener, TapeContex
               countdownToAnimationSave = theAnimationEncoder.getIntsBetweenFrames();
               try {
                 theAnimationEncoder
-                    .saveFrame(board.getVideoController().makeCopyOfVideoBuffer(true));
+                    .saveFrame(board.getVideoController().makeDeferredCopyOfVideoBuffer());
               } catch (IOException ex) {
                 LOGGER.warning("Can't write animation frame: " + ex.getMessage());
               }
@@ -1334,14 +1349,13 @@ public final class MainForm extends JFrame implements ActionListener, TapeContex
 
   private void blinkScreen(final long sessionIntCounter, final int lineFrom, final int lineTo) {
     if (this.interlaceScan) {
-      this.board.getVideoController().syncUpdateBuffer(lineFrom, lineTo,
+      this.board.getVideoController().renderBeamLines(lineFrom, lineTo,
           (sessionIntCounter & 1) == 0 ? VideoController.LineRenderMode.EVEN :
               VideoController.LineRenderMode.ODD);
     } else {
       this.board.getVideoController()
-          .syncUpdateBuffer(lineFrom, lineTo, VideoController.LineRenderMode.ALL);
+          .renderBeamLines(lineFrom, lineTo, VideoController.LineRenderMode.ALL);
     }
-    this.board.getVideoController().copyWorkScreenToOutputScreen(0, lineFrom, 256, lineTo);
   }
 
   private void repaintScreen() {
@@ -1802,6 +1816,14 @@ public final class MainForm extends JFrame implements ActionListener, TapeContex
 
           lastFullScreen.revalidate();
           lastFullScreen.doLayout();
+
+          if (AppOptions.getInstance().isActiveRenderFullScreen()) {
+            // frames are presented directly through page flipping if the device allows it
+            lastFullScreen.setIgnoreRepaint(true);
+            lastFullScreen.createBufferStrategy(2);
+            vc.setActiveRenderStrategy(lastFullScreen.getBufferStrategy());
+          }
+
           vc.zoomForSize(this.scrollPanel.getViewportBorderBounds());
           SwingUtilities.invokeLater(() -> {
             this.doVcSize();
@@ -1810,11 +1832,12 @@ public final class MainForm extends JFrame implements ActionListener, TapeContex
             setFastButtonState(FastButton.VIRTUAL_KEYBOARD, false);
           });
         } else {
+          final VideoController vc = this.board.getVideoController();
+          vc.setActiveRenderStrategy(null);
+
           lastFullScreen.getContentPane().removeAll();
           lastFullScreen.dispose();
 
-          final VideoController vc = this.board.getVideoController();
-
           final boolean mouseTrapOptionActive = this.menuOptionsEnableTrapMouse.isSelected();
           vc.setEnableTrapMouse(mouseTrapOptionActive, true, false);
 
@@ -1895,6 +1918,7 @@ public final class MainForm extends JFrame implements ActionListener, TapeContex
     menuTapPlay = new JCheckBoxMenuItem();
     menuTapNextBlock = new JMenuItem();
     menuTapThreshold = new JMenuItem();
+    menuTapFastLoad = new JCheckBoxMenuItem();
     menuTapGotoBlock = new JMenuItem();
     menuService = new JMenu();
     menuFileReset = new JMenuItem();
@@ -2287,6 +2311,10 @@ public final class MainForm extends JFrame implements ActionListener, TapeContex
     menuTapThreshold.addActionListener(this::menuTapThresholdActionPerformed);
     menuTap.add(menuTapThreshold);
 
+    menuTapFastLoad.setText("Fast load");
+    menuTapFastLoad.addActionListener(this::menuTapFastLoadActionPerformed);
+    menuTap.add(menuTapFastLoad);
+
     menuBar.add(menuTap);
     menuBar.add(menuView);
 
@@ -2682,6 +2710,12 @@ public final class MainForm extends JFrame implements ActionListener, TapeContex
     this.setDisableZxKeyboardEvents(this.menuOptionsOnlyJoystickEvents.isSelected());
   }
 
+  private void menuTapFastLoadActionPerformed(final ActionEvent actionEvent) {
+    final boolean fastLoad = this.menuTapFastLoad.isSelected();
+    this.keyboardAndTapeModule.setFastLoad(fastLoad);
+    AppOptions.getInstance().setTapeFastLoad(fastLoad);
+  }
+
   private void menuTapThresholdActionPerformed(final ActionEvent actionEvent) {
     final TapeSource source = this.keyboardAndTapeModule.getTap();
     if (source != null) {
@@ -34,6 +34,10 @@ public final class MainFormParameters {
 
   private boolean forceAcbChannelSound;
 
+  private boolean parallelModules;
+
+  private boolean parallelRender;
+
   public MainFormParameters() {
   }
 
@@ -46,6 +50,24 @@ public final class MainFormParameters {
     return this;
   }
 
+  public boolean isParallelModules() {
+    return this.parallelModules;
+  }
+
+  public MainFormParameters setParallelModules(final boolean parallelModules) {
+    this.parallelModules = parallelModules;
+    return this;
+  }
+
+  public boolean isParallelRender() {
+    return this.parallelRender;
+  }
+
+  public MainFormParameters setParallelRender(final boolean parallelRender) {
+    this.parallelRender = parallelRender;
+    return this;
+  }
+
   public boolean isActivateSound() {
     return this.activateSound;
   }
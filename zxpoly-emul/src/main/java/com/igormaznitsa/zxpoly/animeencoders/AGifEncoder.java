@@ -26,14 +26,33 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
-
+/**
+ * Animated GIF encoder, frames are prepared and encoded by own background thread.
+ */
 public final class AGifEncoder implements AnimationEncoder {
 
+  // max number of frames waiting for encoding, frames are dropped if the encoder is too slow
+  private static final int MAX_QUEUED_FRAMES = 16;
+
+  private static final Logger LOGGER = Logger.getLogger(AGifEncoder.class.getName());
+  private static final Supplier<int[]> END_MARKER = () -> null;
+
   private final int intsBetweenFrames;
   private final AdaptedAnimatedGifEncoder gifEncoder;
 
   private final OutputStream outputStream;
+  private final BlockingQueue<Supplier<int[]>> frames =
+      new ArrayBlockingQueue<>(MAX_QUEUED_FRAMES + 1);
+  private final Thread encoderThread;
+  private boolean closed;
+  private long droppedFrames;
+  private volatile IOException failure;
 
   public AGifEncoder(final File targetFile, final int[] globalRgbPalette, final int frameRate, final boolean makeLoop) throws IOException {
     this.gifEncoder = new AdaptedAnimatedGifEncoder(VideoController.SCREEN_WIDTH, VideoController.SCREEN_HEIGHT, globalRgbPalette);
@@ -43,6 +62,31 @@ public final class AGifEncoder implements AnimationEncoder {
     this.outputStream = new FileOutputStream(targetFile);
     gifEncoder.setRepeat(makeLoop ? 0 : 1);
     gifEncoder.start(this.outputStream);
+
+    this.encoderThread = new Thread(this::encoderLoop, "zxpoly-gif-encoder");
+    this.encoderThread.setDaemon(true);
+    this.encoderThread.start();
+  }
+
+  private void encoderLoop() {
+    try {
+      while (true) {
+        final Supplier<int[]> frame = this.frames.take();
+        if (frame == END_MARKER) {
+          break;
+        }
+        if (this.failure == null) {
+          try {
+            this.gifEncoder.addFrame(frame.get());
+          } catch (IOException ex) {
+            LOGGER.log(Level.SEVERE, "Can't write GIF frame", ex);
+            this.failure = ex;
+          }
+        }
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
   }
 
   @Override
@@ -51,12 +95,38 @@ public final class AGifEncoder implements AnimationEncoder {
   }
 
   @Override
-  public void saveFrame(final int[] rgbPixels) throws IOException {
-    this.gifEncoder.addFrame(rgbPixels);
+  public synchronized void saveFrame(final Supplier<int[]> rgbPixels) throws IOException {
+    final IOException error = this.failure;
+    if (error != null) {
+      throw error;
+    }
+    if (this.closed) {
+      return;
+    }
+    // one place is reserved for the end marker
+    if (this.frames.size() < MAX_QUEUED_FRAMES) {
+      this.frames.add(rgbPixels);
+    } else if (this.droppedFrames++ == 0L) {
+      LOGGER.warning("GIF encoder is too slow, frames are dropped");
+    }
   }
 
   @Override
   public void close() throws IOException {
+    synchronized (this) {
+      if (this.closed) {
+        return;
+      }
+      this.closed = true;
+      this.frames.add(END_MARKER);
+    }
+
+    try {
+      this.encoderThread.join();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+
     try {
       this.gifEncoder.finish();
     } finally {
@@ -18,10 +18,18 @@
 package com.igormaznitsa.zxpoly.animeencoders;
 
 import java.io.IOException;
+import java.util.function.Supplier;
 
 public interface AnimationEncoder {
 
-  void saveFrame(int[] frameAsRgbPixelBuffer) throws IOException;
+  /**
+   * Add frame into animation. The supplier can be called later by own thread of the encoder, so
+   * heavy processing of the frame doesn't stop the emulation thread.
+   *
+   * @param frameAsRgbPixelBuffer supplier of RGB pixels of the frame
+   * @throws IOException if the frame can't be saved
+   */
+  void saveFrame(Supplier<int[]> frameAsRgbPixelBuffer) throws IOException;
 
   int getIntsBetweenFrames();
 
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2014-2024 Igor Maznitsa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.igormaznitsa.zxpoly.components;
+
+/**
+ * T-state timeline of scheduled IO devices. Devices get postStep call with all T-states spent
+ * since their previous call only when their own event is reached or when CPU touches IO ports,
+ * so that there is no per instruction work for idle devices.
+ *
+ * @see IoDevice#NOTIFICATION_POSTSTEP_SCHEDULED
+ * @see IoDevice#getTstatesTillNextEvent()
+ */
+final class DeviceTimeline {
+
+  private final IoDevice[] devices;
+  private final long[] syncedAt;
+  private final long[] eventAt;
+  private long now;
+  private long nextEventAt;
+
+  DeviceTimeline(final IoDevice[] devices) {
+    this.devices = devices.clone();
+    this.syncedAt = new long[devices.length];
+    this.eventAt = new long[devices.length];
+    this.nextEventAt = devices.length == 0 ? Long.MAX_VALUE : 0L;
+  }
+
+  /**
+   * Move timeline forward and notify devices which events have been reached.
+   *
+   * @param tstates number of spent T-states
+   */
+  void advance(final int tstates) {
+    this.now += tstates;
+    if (this.now >= this.nextEventAt) {
+      long next = Long.MAX_VALUE;
+      for (int i = 0; i < this.devices.length; i++) {
+        if (this.eventAt[i] <= this.now) {
+          this.sync(i);
+        }
+        next = Math.min(next, this.eventAt[i]);
+      }
+      this.nextEventAt = next;
+    }
+  }
+
+  /**
+   * Catch up all devices to the current T-state.
+   */
+  void syncAll() {
+    long next = Long.MAX_VALUE;
+    for (int i = 0; i < this.devices.length; i++) {
+      this.sync(i);
+      next = Math.min(next, this.eventAt[i]);
+    }
+    this.nextEventAt = next;
+  }
+
+  /**
+   * Catch up all devices to the current T-state and notify them again after the current step,
+   * must be called before IO port access because the access can change device state.
+   */
+  void syncAllForIo() {
+    if (this.devices.length > 0) {
+      for (int i = 0; i < this.devices.length; i++) {
+        this.sync(i);
+        this.eventAt[i] = this.now;
+      }
+      this.nextEventAt = this.now;
+    }
+  }
+
+  private void sync(final int index) {
+    final int spent = (int) (this.now - this.syncedAt[index]);
+    final IoDevice device = this.devices[index];
+    if (spent > 0) {
+      device.postStep(spent);
+    }
+    this.syncedAt[index] = this.now;
+    this.eventAt[index] = this.now + Math.max(1, device.getTstatesTillNextEvent());
+  }
+}
@@ -22,6 +22,17 @@ public interface IoDevice extends ZxPolyConstants {
   int NOTIFICATION_NONE = 0;
   int NOTIFICATION_PRESTEP = 1;
   int NOTIFICATION_POSTSTEP = 2;
+  /**
+   * preStep is called only for steps with reset, INT or wall clock signals.
+   */
+  int NOTIFICATION_PRESTEP_SIGNALS = 4;
+  /**
+   * postStep is called by the motherboard timeline with accumulated T-states, only when the device
+   * event is reached, before IO port access and for steps with signals.
+   *
+   * @see #getTstatesTillNextEvent()
+   */
+  int NOTIFICATION_POSTSTEP_SCHEDULED = 8;
 
   Motherboard getMotherboard();
 
@@ -39,10 +50,45 @@ public interface IoDevice extends ZxPolyConstants {
 
   void writeIo(ZxPolyModule module, int port, int value);
 
+  /**
+   * Check that the device can respond on reading of the port in any of its states. It is called
+   * only once during building of the motherboard port dispatch table, so result must not depend
+   * on current state.
+   *
+   * @param port port address
+   * @return true if port should be routed to the device, false otherwise
+   */
+  default boolean isReadPortDecoded(int port) {
+    return true;
+  }
+
+  /**
+   * Check that the device can process writing into the port in any of its states. It is called
+   * only once during building of the motherboard port dispatch table, so result must not depend
+   * on current state.
+   *
+   * @param port port address
+   * @return true if port should be routed to the device, false otherwise
+   */
+  default boolean isWritePortDecoded(int port) {
+    return true;
+  }
+
   void preStep(int frameTiStates, boolean signalReset, boolean tstatesIntReached, boolean wallclockInt);
 
   void postStep(int spentTstates);
 
+  /**
+   * Get number of T-states which can be spent before the next postStep call is required. Called
+   * only for devices with scheduled post step notification after each postStep call.
+   *
+   * @return number of T-states, values less than 1 mean the next step
+   * @see #NOTIFICATION_POSTSTEP_SCHEDULED
+   */
+  default int getTstatesTillNextEvent() {
+    return 1;
+  }
+
   String getName();
 
   void doReset();
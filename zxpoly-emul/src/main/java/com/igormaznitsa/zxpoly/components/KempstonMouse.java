@@ -45,10 +45,15 @@ public final class KempstonMouse extends MouseAdapter implements IoDevice {
   private int pcMouseY;
 
   public KempstonMouse(final Motherboard board) {
-    try {
-      this.robot = new Robot();
-    } catch (AWTException ex) {
-      throw new Error("Can't create robot", ex);
+    if (GraphicsEnvironment.isHeadless()) {
+      // no mouse in headless mode, robot is not needed
+      this.robot = null;
+    } else {
+      try {
+        this.robot = new Robot();
+      } catch (AWTException ex) {
+        throw new Error("Can't create robot", ex);
+      }
     }
 
     this.board = board;
@@ -62,6 +67,16 @@ public final class KempstonMouse extends MouseAdapter implements IoDevice {
     return this.board;
   }
 
+  @Override
+  public boolean isReadPortDecoded(final int port) {
+    return port == 0xFBDF || port == 0xFFDF || port == 0xFADF;
+  }
+
+  @Override
+  public boolean isWritePortDecoded(final int port) {
+    return false;
+  }
+
   @Override
   public int readIo(final ZxPolyModule module, final int port) {
     int result = -1;
@@ -107,7 +122,7 @@ public final class KempstonMouse extends MouseAdapter implements IoDevice {
 
   @Override
   public void mouseExited(final MouseEvent e) {
-    if (this.videoController.isMouseTrapActive()) {
+    if (this.robot != null && this.videoController.isMouseTrapActive()) {
       int x = e.getX();
       int y = e.getY();
 
@@ -215,7 +230,7 @@ public final class KempstonMouse extends MouseAdapter implements IoDevice {
 
   @Override
   public int getNotificationFlags() {
-    return NOTIFICATION_PRESTEP;
+    return NOTIFICATION_PRESTEP_SIGNALS;
   }
 
   @Override
@@ -19,6 +19,7 @@ package com.igormaznitsa.zxpoly.components;
 
 import static net.java.games.input.ControllerEnvironment.getDefaultEnvironment;
 
+import com.igormaznitsa.z80.Z80;
 import com.igormaznitsa.zxpoly.components.gadapter.GameControllerAdapter;
 import com.igormaznitsa.zxpoly.components.gadapter.GameControllerAdapterInterface2;
 import com.igormaznitsa.zxpoly.components.gadapter.GameControllerAdapterKempston;
@@ -133,6 +134,20 @@ public final class KeyboardKempstonAndTapeIn implements IoDevice {
 
   private static final int MIC_BIT = 0b0100_0000;
 
+  /**
+   * Address of LD-BYTES routine in ZX-Spectrum 48 ROM.
+   */
+  public static final int ROM_LD_BYTES = 0x0556;
+  // SA/LD-RET restores border, enables interrupts and returns to LD-BYTES caller
+  private static final int ROM_SA_LD_RET = 0x053F;
+  // INC D, EX AF,AF', DEC D, DI
+  private static final byte[] ROM_LD_BYTES_CODE = new byte[] {0x14, 0x08, 0x15, (byte) 0xF3};
+
+  // T-states of edge wait loop iteration before IN and whole iteration without contention
+  private static final int EDGE_LOOP_TSTATES_BEFORE_IN = 4 + 5 + 7;
+  private static final int EDGE_LOOP_TSTATES = EDGE_LOOP_TSTATES_BEFORE_IN + 11 + 4 + 7 + 12;
+  private static final int EDGE_LOOP_TSTATES_RRA = EDGE_LOOP_TSTATES + 4 + 5;
+
   private final Motherboard board;
   private final AtomicReference<TapeSource> tap = new AtomicReference<>();
   private final List<Controller> detectedControllers;
@@ -158,6 +173,9 @@ public final class KeyboardKempstonAndTapeIn implements IoDevice {
   private volatile int kempstonBuffer = 0;
   private volatile boolean onlyJoystickEvents = false;
   private volatile boolean activatedKempstonJoystick = true;
+  private volatile boolean fastLoad = false;
+  private volatile boolean edgeLoopAcceleration = true;
+  private long skippedEdgeLoopTstates;
 
   public KeyboardKempstonAndTapeIn(final TimingProfile timingProfile, final Motherboard board, final boolean kempstonMouseAllowed) {
     this.timingProfile = timingProfile;
@@ -306,10 +324,24 @@ public final class KeyboardKempstonAndTapeIn implements IoDevice {
     return result | 0b101_00000;
   }
 
+  @Override
+  public boolean isReadPortDecoded(final int port) {
+    // keyboard on even ports and kempston joystick with partial decode, it covers full decode #1F
+    return (port & 1) == 0 || (port & 0b100000) == 0;
+  }
+
+  @Override
+  public boolean isWritePortDecoded(final int port) {
+    return false;
+  }
+
   @Override
   public int readIo(final ZxPolyModule module, final int port) {
     int result = -1;
     if (!module.isTrdosActive()) {
+      this.bufferKeyboardLines = this.keyboardLines;
+      this.kempstonBuffer = this.kempstonSignals;
+
       final boolean inZxPolyMode = module.getMotherboard().getBoardMode() == BoardMode.ZXPOLY;
 
       final int lowPortAddress = port & 0xFF;
@@ -357,7 +389,14 @@ public final class KeyboardKempstonAndTapeIn implements IoDevice {
 
   @Override
   public int getNotificationFlags() {
-    return NOTIFICATION_PRESTEP | NOTIFICATION_POSTSTEP;
+    return NOTIFICATION_PRESTEP_SIGNALS | NOTIFICATION_POSTSTEP_SCHEDULED;
+  }
+
+  @Override
+  public int getTstatesTillNextEvent() {
+    // tape level is mixed into sound for every step so playing tape needs every step
+    final TapeSource currentTap = this.getTap();
+    return currentTap != null && currentTap.isPlaying() ? 1 : this.timingProfile.tstatesFrame;
   }
 
   @Override
@@ -366,8 +405,6 @@ public final class KeyboardKempstonAndTapeIn implements IoDevice {
     if (signalReset) {
       doReset();
     }
-    this.bufferKeyboardLines = this.keyboardLines;
-    this.kempstonBuffer = this.kempstonSignals;
   }
 
   @Override
@@ -708,6 +745,219 @@ public final class KeyboardKempstonAndTapeIn implements IoDevice {
     return this.getName();
   }
 
+  public boolean isFastLoad() {
+    return this.fastLoad;
+  }
+
+  public void setFastLoad(final boolean value) {
+    this.fastLoad = value;
+    LOGGER.info("Tape fast load: " + value);
+  }
+
+  private static boolean isLdBytesInRom(final ZxPolyModule module) {
+    for (int i = 0; i < ROM_LD_BYTES_CODE.length; i++) {
+      if (module.readAddress(ROM_LD_BYTES + i) != ROM_LD_BYTES_CODE[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // flags after CP 1 which finishes LD-BYTES
+  private static int makeFlagsCp1(final int a) {
+    final int result = (a - 1) & 0xFF;
+    return (result & 0x80)
+        | (result == 0 ? 0x40 : 0)
+        | ((a & 0x0F) == 0 ? 0x10 : 0)
+        | (a == 0x80 ? 0x04 : 0)
+        | 0x02
+        | (a == 0 ? 0x01 : 0);
+  }
+
+  /**
+   * Load standard block from tape directly into memory if CPU of module is at entry of ROM
+   * LD-BYTES. Registers and flags are changed as after the ROM routine and PC is moved to its
+   * exit.
+   *
+   * @param module module which CPU is at LD-BYTES entry
+   * @return true if the block has been loaded, false if normal execution must be continued
+   */
+  public boolean trapLoadBytes(final ZxPolyModule module) {
+    final TapeSource currentTap = this.getTap();
+    if (!this.fastLoad || currentTap == null || !isLdBytesInRom(module)) {
+      return false;
+    }
+    final byte[] block = currentTap.takeStandardBlock();
+    if (block == null) {
+      return false;
+    }
+
+    final Z80 cpu = module.getCpu();
+    final boolean load = (cpu.getRegister(Z80.REG_F) & 1) != 0;
+    int address = cpu.getRegister(Z80.REG_IX);
+    int length = cpu.getRegisterPair(Z80.REGPAIR_DE);
+
+    int flags = 0;
+    if ((block[0] & 0xFF) == cpu.getRegister(Z80.REG_A)) {
+      int parity = block[0] & 0xFF;
+      int index = 1;
+      boolean error = false;
+      while (length > 0) {
+        if (index >= block.length) {
+          // ROM detects end of signal
+          error = true;
+          break;
+        }
+        final byte value = block[index++];
+        if (load) {
+          module.writeMemory(cpu, 0, address, value);
+        } else if (module.readAddress(address) != value) {
+          error = true;
+          break;
+        }
+        parity ^= value & 0xFF;
+        address = (address + 1) & 0xFFFF;
+        length--;
+      }
+      if (!error) {
+        if (index < block.length) {
+          parity ^= block[index] & 0xFF;
+          cpu.setRegister(Z80.REG_A, parity);
+          flags = makeFlagsCp1(parity);
+        }
+      }
+      cpu.setRegister(Z80.REG_H, parity);
+    }
+
+    cpu.setRegister(Z80.REG_IX, address);
+    cpu.setRegisterPair(Z80.REGPAIR_DE, length);
+    cpu.setRegister(Z80.REG_F, flags);
+    cpu.setRegister(Z80.REG_PC, ROM_SA_LD_RET);
+
+    this.fireTapeStateChangeListeners();
+    return true;
+  }
+
+  public boolean isEdgeLoopAcceleration() {
+    return this.edgeLoopAcceleration;
+  }
+
+  public void setEdgeLoopAcceleration(final boolean value) {
+    this.edgeLoopAcceleration = value;
+  }
+
+  long getSkippedEdgeLoopTstates() {
+    return this.skippedEdgeLoopTstates;
+  }
+
+  /**
+   * Skip iterations of tape edge wait loop while tape signal is not changed. The loop must be
+   * the same as LD-SAMPLE in ZX-Spectrum 48 ROM, RRA and RET NC can be omitted:
+   * <pre>
+   * loop: INC B (or DEC B)
+   *       RET Z
+   *       LD A,#nn
+   *       IN A,(#FE)
+   *       RRA
+   *       RET NC
+   *       XOR C
+   *       AND #20 (#40 without RRA)
+   *       JR Z,loop
+   * </pre>
+   * Skipped iterations are added to T-states of the current CPU step, B and R registers are
+   * changed as after their execution, so that result is the same as for executed loop. Iterations
+   * are skipped only till the frame end and only if interrupts are disabled.
+   *
+   * @param module      module which CPU has jumped to the loop start
+   * @param loopAddress address of loop start, it is current PC
+   * @param jumpAddress address of jump instruction which has been executed
+   * @return true if some iterations have been skipped
+   */
+  public boolean skipEdgeWaitLoop(final ZxPolyModule module, final int loopAddress,
+                                  final int jumpAddress) {
+    final TapeSource currentTap = this.getTap();
+    if (!this.edgeLoopAcceleration || currentTap == null || !currentTap.isPlaying()) {
+      return false;
+    }
+
+    final Z80 cpu = module.getCpu();
+    if (cpu.isIFF1() || jumpAddress - loopAddress > 13
+        || module.isContendedAddress(loopAddress) || module.isContendedAddress(jumpAddress)) {
+      return false;
+    }
+
+    final int counterOpcode = module.readAddress(loopAddress) & 0xFF;
+    if ((counterOpcode != 0x04 && counterOpcode != 0x05)
+        || module.readAddress(loopAddress + 1) != (byte) 0xC8
+        || module.readAddress(loopAddress + 2) != 0x3E
+        || module.readAddress(loopAddress + 4) != (byte) 0xDB
+        || module.readAddress(loopAddress + 5) != (byte) 0xFE) {
+      return false;
+    }
+    final int port = ((module.readAddress(loopAddress + 3) & 0xFF) << 8) | 0xFE;
+
+    int address = loopAddress + 6;
+    final boolean rra = module.readAddress(address) == 0x1F;
+    if (rra) {
+      if (module.readAddress(address + 1) != (byte) 0xD0) {
+        return false;
+      }
+      address += 2;
+    }
+    if (address != jumpAddress - 3
+        || module.readAddress(address) != (byte) 0xA9
+        || module.readAddress(address + 1) != (byte) 0xE6
+        || module.readAddress(address + 2) != (rra ? 0x20 : 0x40)
+        || module.readAddress(address + 3) != 0x28
+        || module.readAddress(address + 4) != (byte) (loopAddress - jumpAddress - 2)) {
+      return false;
+    }
+
+    // the loop waits for EAR bit different from bit of C
+    final boolean earBit = currentTap.isHi();
+    if (earBit != ((cpu.getRegister(Z80.REG_C) & (rra ? 0x20 : 0x40)) != 0)) {
+      return false;
+    }
+    final long tillEdge = currentTap.getTstatesTillNextEdge();
+
+    final int b = cpu.getRegister(Z80.REG_B);
+    final int maxIterations = counterOpcode == 0x04 ? 255 - b : (b == 0 ? 256 : b) - 1;
+    final int iterationTstates = rra ? EDGE_LOOP_TSTATES_RRA : EDGE_LOOP_TSTATES;
+    final int frameStart = this.board.getFrameTiStates();
+    final int frameEnd = this.timingProfile.tstatesFrame;
+    final int port7ffd = module.read7FFD();
+
+    // T-states since tape position synchronized with step start
+    int elapsed = cpu.getStepTstates();
+    int iterations = 0;
+    while (iterations < maxIterations) {
+      final int inAt = elapsed + EDGE_LOOP_TSTATES_BEFORE_IN;
+      if (inAt >= tillEdge) {
+        break;
+      }
+      final int spent =
+          iterationTstates + this.board.contendPortAt(frameStart + inAt, port7ffd, port);
+      if (frameStart + elapsed + spent >= frameEnd) {
+        break;
+      }
+      elapsed += spent;
+      iterations++;
+    }
+
+    if (iterations == 0) {
+      return false;
+    }
+
+    final int skipped = elapsed - cpu.getStepTstates();
+    cpu.setRegister(Z80.REG_B, counterOpcode == 0x04 ? b + iterations : b - iterations);
+    final int r = cpu.getRegister(Z80.REG_R);
+    cpu.setRegister(Z80.REG_R,
+        (r & 0x80) | ((r + iterations * (rra ? 9 : 7)) & 0x7F));
+    cpu.addTstates(skipped);
+    this.skippedEdgeLoopTstates += skipped;
+    return true;
+  }
+
   public boolean isTapeIn() {
     final TapeSource reader = this.tap.get();
     if (reader == null) {
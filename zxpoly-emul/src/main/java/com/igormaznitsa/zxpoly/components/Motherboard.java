@@ -28,6 +28,8 @@ import static java.lang.Math.min;
 
 import com.igormaznitsa.z80.Utils;
 import com.igormaznitsa.z80.Z80;
+import com.igormaznitsa.z80.Z80FetchCache;
+import com.igormaznitsa.z80.Z80Lanes;
 import com.igormaznitsa.zxpoly.Bounds;
 import com.igormaznitsa.zxpoly.components.betadisk.BetaDiscInterface;
 import com.igormaznitsa.zxpoly.components.snd.Beeper;
@@ -41,12 +43,15 @@ import com.igormaznitsa.zxpoly.components.video.VirtualKeyboardDecoration;
 import com.igormaznitsa.zxpoly.components.video.timings.TimingProfile;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Random;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 
 @SuppressWarnings({"unused", "NonAtomicOperationOnVolatileField"})
 public final class Motherboard implements ZxPolyConstants {
@@ -60,11 +65,18 @@ public final class Motherboard implements ZxPolyConstants {
 
   private static final int SPEC256_GFX_CORES = 8;
   private static final int NUMBER_OF_MODULES = 4;
+  private static final int PARALLEL_WINDOW_TSTATES = 1024;
   private final ZxPolyModule[] modules;
-  private final Z80[] spec256GfxCores;
+  private final Z80Lanes spec256GfxLanes;
+  private final Z80FetchCache spec256FetchCache = new Z80FetchCache();
   private final IoDevice[] ioDevices;
   private final IoDevice[] ioDevicesPreStep;
+  private final IoDevice[] ioDevicesPreStepSignals;
+  private final IoDevice[] ioDevicesPreStepParallel;
   private final IoDevice[] ioDevicesPostStep;
+  private final DeviceTimeline deviceTimeline;
+  private final IoDevice[][] ioDevicesForReadPort;
+  private final IoDevice[][] ioDevicesForWritePort;
   private final byte[] ram = new byte[512 * 1024];
   private final VideoController video;
   private final KeyboardKempstonAndTapeIn keyboard;
@@ -92,6 +104,8 @@ public final class Motherboard implements ZxPolyConstants {
   private volatile boolean gfxLeveledAnd = false;
   private int frameTiStatesCounter = 0;
   private boolean frameIntTriggered;
+  private volatile ParallelModuleExecutor parallelModuleExecutor;
+  private volatile ParallelModuleExecutor activeParallelWindow;
 
   public Motherboard(
       final BorderWidth borderWidth,
@@ -124,6 +138,7 @@ public final class Motherboard implements ZxPolyConstants {
     this.memoryTimings = timingProfile.makeUlaFrame();
 
     this.boardMode = boardMode;
+    this.refreshModulePageTables();
     this.beeper = new Beeper(timingProfile, useAcbSoundScheme, enableCovoxFb, useTurboSound);
     if (rom.isTrdosPresented()) {
       LOGGER.info("TR-DOS presented in ROM, creating BetaDiskInterface");
@@ -163,20 +178,80 @@ public final class Motherboard implements ZxPolyConstants {
     this.ioDevicesPreStep = Arrays.stream(this.ioDevices)
             .filter(x -> (x.getNotificationFlags() & IoDevice.NOTIFICATION_PRESTEP) != 0)
             .toArray(IoDevice[]::new);
+    this.ioDevicesPreStepSignals = Arrays.stream(this.ioDevices)
+            .filter(x -> (x.getNotificationFlags() & IoDevice.NOTIFICATION_PRESTEP_SIGNALS) != 0)
+            .toArray(IoDevice[]::new);
+    // slave modules make their pre-step by themselves during parallel execution
+    this.ioDevicesPreStepParallel = Arrays.stream(this.ioDevicesPreStep)
+            .filter(x -> !(x instanceof ZxPolyModule) || ((ZxPolyModule) x).isMaster())
+            .toArray(IoDevice[]::new);
     this.ioDevicesPostStep = Arrays.stream(this.ioDevices)
             .filter(x -> (x.getNotificationFlags() & IoDevice.NOTIFICATION_POSTSTEP) != 0)
             .toArray(IoDevice[]::new);
+    this.deviceTimeline = new DeviceTimeline(Arrays.stream(this.ioDevices)
+            .filter(x -> (x.getNotificationFlags() & IoDevice.NOTIFICATION_POSTSTEP_SCHEDULED) != 0)
+            .toArray(IoDevice[]::new));
+    this.ioDevicesForReadPort = makePortDispatchTable(this.ioDevices, true);
+    this.ioDevicesForWritePort = makePortDispatchTable(this.ioDevices, false);
 
     // simulation of garbage in memory after power on
-    for (int i = 0; i < this.ram.length; i++) {
-      Random rnd = new Random();
-      this._writeRam(i, rnd.nextInt());
-    }
+    this.fillRamByGarbage(new Random());
 
-    this.spec256GfxCores = new Z80[SPEC256_GFX_CORES];
+    // GFX cores execute the same instructions as the master CPU so that they share fetched bytes
+    final Z80[] gfxCores = new Z80[SPEC256_GFX_CORES];
     for (int i = 0; i < SPEC256_GFX_CORES; i++) {
-      this.spec256GfxCores[i] = new Z80(this.modules[0].getCpu());
+      gfxCores[i] = new Z80(this.modules[0].getCpu()).setFetchCache(this.spec256FetchCache);
     }
+    this.spec256GfxLanes = new Z80Lanes(gfxCores);
+    this.modules[0].setGfxFetchCache(this.spec256FetchCache);
+  }
+
+  private static IoDevice[][] makePortDispatchTable(final IoDevice[] devices,
+                                                    final boolean read) {
+    if (devices.length > Long.SIZE) {
+      throw new IllegalArgumentException("Too many IO devices: " + devices.length);
+    }
+    final long[] portDevices = new long[0x10000];
+    for (int i = 0; i < devices.length; i++) {
+      final IoDevice device = devices[i];
+      for (int port = 0; port < portDevices.length; port++) {
+        if (read ? device.isReadPortDecoded(port) : device.isWritePortDecoded(port)) {
+          portDevices[port] |= 1L << i;
+        }
+      }
+    }
+
+    // devices decoding all ports are not counted in overlapping
+    final long fullDecoded = Arrays.stream(portDevices).reduce(-1L, (a, b) -> a & b);
+
+    // ports with the same set of devices share the same array
+    final Map<Long, IoDevice[]> deviceSets = new HashMap<>();
+    final Map<Long, Integer> overlaps = new HashMap<>();
+    final IoDevice[][] result = new IoDevice[portDevices.length][];
+    for (int port = 0; port < portDevices.length; port++) {
+      final long mask = portDevices[port];
+      result[port] = deviceSets.computeIfAbsent(mask, m -> {
+        final List<IoDevice> list = new ArrayList<>();
+        for (int i = 0; i < devices.length; i++) {
+          if ((m & (1L << i)) != 0) {
+            list.add(devices[i]);
+          }
+        }
+        return list.toArray(new IoDevice[0]);
+      });
+      if (Long.bitCount(mask & ~fullDecoded) > 1) {
+        overlaps.merge(mask & ~fullDecoded, 1, Integer::sum);
+      }
+    }
+
+    overlaps.forEach((mask, ports) -> LOGGER.info(
+        "Detected IO " + (read ? "read" : "write") + " decode overlapping on " + ports
+            + " port(s): " + Arrays.stream(deviceSets.get(mask | fullDecoded))
+            .map(IoDevice::getName).collect(Collectors.joining(", "))));
+    LOGGER.info("IO " + (read ? "read" : "write") + " dispatch table contains "
+        + deviceSets.size() + " device set(s)");
+
+    return result;
   }
 
   private static boolean isContended(final int address, final int port7FFD) {
@@ -219,14 +294,44 @@ public final class Motherboard implements ZxPolyConstants {
     return this.beeper;
   }
 
+  public KeyboardKempstonAndTapeIn getKeyboard() {
+    return this.keyboard;
+  }
+
   public synchronized void forceResetAllCpu() {
     for (final ZxPolyModule p : this.modules) {
       p.getCpu().doReset();
     }
   }
 
+  /**
+   * Fill whole RAM by random values to simulate garbage after power on.
+   *
+   * @param random source of values, a seeded one makes repeatable memory state
+   */
+  public void fillRamByGarbage(final Random random) {
+    for (int i = 0; i < this.ram.length; i++) {
+      this._writeRam(i, random.nextInt());
+    }
+  }
+
+  /**
+   * Check that RAM bank placed at heap address can be shown as screen. Module memory areas start
+   * on 64K boundary so that banks 5 and 7 of any module are odd 16K blocks of heap, banks 1 and 3
+   * are also detected because module areas can overlap.
+   *
+   * @param heapAddress address inside heap
+   * @return true if the bank can contain visible screen
+   */
+  static boolean isVideoBank(final int heapAddress) {
+    return (heapAddress & 0x4000) != 0;
+  }
+
   private void _writeRam(final int address, final int value) {
     this.ram[address] = (byte) value;
+    if (isVideoBank(address)) {
+      this.video.markScreenDirty(address & 0x3FFF);
+    }
   }
 
   private int _readRam(final int address) {
@@ -255,6 +360,7 @@ public final class Motherboard implements ZxPolyConstants {
     if (isNotLockedPort3D00() || force) {
       this.port3D00 = value;
       LOGGER.log(Level.INFO, "set #3D00 to " + Utils.toHex(value));
+      this.refreshModulePageTables();
 
       if ((value & PORTw_ZXPOLY_RESET) != 0) {
         for (final ZxPolyModule m : this.modules) {
@@ -356,9 +462,7 @@ public final class Motherboard implements ZxPolyConstants {
   }
 
   public void syncGfxCpuState(final Z80 sourceCpu) {
-    for (final Z80 spec256GfxCore : this.spec256GfxCores) {
-      spec256GfxCore.fillByState(sourceCpu);
-    }
+    this.spec256GfxLanes.fillByState(sourceCpu);
   }
 
   public int step(final boolean tiStatesIntReached,
@@ -426,7 +530,16 @@ public final class Motherboard implements ZxPolyConstants {
         }
       }
 
-      for (final IoDevice device : this.ioDevicesPreStep) {
+      if (signalReset || tiStatesIntReached || wallClockIntReached) {
+        this.deviceTimeline.syncAll();
+        for (final IoDevice device : this.ioDevicesPreStepSignals) {
+          device.preStep(this.frameTiStatesCounter, signalReset, tiStatesIntReached, wallClockIntReached);
+        }
+      }
+
+      final ParallelModuleExecutor parallelWindow = this.activeParallelWindow;
+
+      for (final IoDevice device : parallelWindow == null ? this.ioDevicesPreStep : this.ioDevicesPreStepParallel) {
         device.preStep(this.frameTiStatesCounter, signalReset, tiStatesIntReached, wallClockIntReached);
       }
 
@@ -434,6 +547,14 @@ public final class Motherboard implements ZxPolyConstants {
 
       switch (this.boardMode) {
         case ZXPOLY: {
+          if (parallelWindow != null) {
+            // slave modules are executed by own threads, HALT is processed on window end
+            if (modules[0].step(currentMode, signalReset, intTriggered, commonNmi, resetStatisticsAtModules)) {
+              parallelWindow.markHalted(0);
+            }
+            break;
+          }
+
           final boolean zx0halt;
           final boolean zx1halt;
           final boolean zx2halt;
@@ -507,14 +628,11 @@ public final class Motherboard implements ZxPolyConstants {
         break;
         case SPEC256: {
           final ZxPolyModule masterModule = modules[0];
-          final Z80 mainCpu = masterModule.getCpu();
           masterModule.saveInternalCopyForGfx();
-          final int syncRegRecord = this.gfxSyncRegsRecord;
-          for (int i = 0; i < SPEC256_GFX_CORES; i++) {
-            final Z80 gfxCore = this.spec256GfxCores[i];
-            gfxCore.alignRegisterValuesWith(mainCpu, syncRegRecord);
-            masterModule.gfxGpuStep(i + 1, gfxCore);
-          }
+          this.spec256FetchCache.reset();
+          this.spec256GfxLanes.alignRegisterValuesWith(masterModule.getCpu(),
+              this.gfxSyncRegsRecord);
+          masterModule.gfxGpuStep(this.spec256GfxLanes);
           masterModule.step(currentMode, signalReset, intTriggered, commonNmi, resetStatisticsAtModules);
         }
         break;
@@ -537,6 +655,7 @@ public final class Motherboard implements ZxPolyConstants {
       for (final IoDevice device : this.ioDevicesPostStep) {
         device.postStep(spentTiStates);
       }
+      this.deviceTimeline.advance(spentTiStates);
 
       this.beeper.updateState(tiStatesIntReached, wallClockIntReached, spentTiStates);
 
@@ -576,6 +695,100 @@ public final class Motherboard implements ZxPolyConstants {
     return result;
   }
 
+  /**
+   * Execute board steps until the frame T-state counter reaches the value. Steps are made
+   * without INT, NMI and wall clock signals so that the value should not cross the frame end.
+   * Execution is stopped early if any trigger is detected or local reset of modules
+   * is requested.
+   *
+   * @param tstate frame T-state value to be reached
+   * @return detected triggers
+   * @see #step(boolean, boolean, boolean, boolean, boolean)
+   * @since 2.3.4
+   */
+  public int runUntil(final int tstate) {
+    int result = TRIGGER_NONE;
+    while (this.frameTiStatesCounter < tstate) {
+      if (this.isParallelWindowAllowed()) {
+        result = this.runParallelWindow(
+                Math.min(tstate, this.frameTiStatesCounter + PARALLEL_WINDOW_TSTATES));
+      } else {
+        result = this.step(false, false, false, false, true);
+      }
+      if (result != TRIGGER_NONE || this.localResetForAllModules) {
+        break;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Turn on or off execution of ZX-Poly slave modules on own threads. If turned on then batch
+   * execution in ZX-Poly mode is made in T-state windows where each module executes
+   * the same number of T-states in parallel, HALT notifications between modules are processed
+   * on window ends.
+   *
+   * @param enable true to turn on parallel execution
+   * @see #runUntil(int)
+   * @since 2.3.4
+   */
+  public synchronized void setParallelModules(final boolean enable) {
+    if (enable && this.parallelModuleExecutor == null) {
+      LOGGER.info("Parallel execution of modules is turned on");
+      this.parallelModuleExecutor = new ParallelModuleExecutor(this.modules);
+    } else if (!enable && this.parallelModuleExecutor != null) {
+      LOGGER.info("Parallel execution of modules is turned off");
+      this.parallelModuleExecutor.dispose();
+      this.parallelModuleExecutor = null;
+    }
+  }
+
+  public boolean isParallelModules() {
+    return this.parallelModuleExecutor != null;
+  }
+
+  private boolean isParallelWindowAllowed() {
+    return this.parallelModuleExecutor != null
+            && this.boardMode == BoardMode.ZXPOLY
+            && this.triggers == TRIGGER_NONE
+            && !this.totalReset
+            && this.resetCounter == 0;
+  }
+
+  private synchronized int runParallelWindow(final int tstate) {
+    final ParallelModuleExecutor executor = this.parallelModuleExecutor;
+    if (executor == null) {
+      return this.step(false, false, false, false, true);
+    }
+
+    int result = TRIGGER_NONE;
+
+    executor.startWindow(this.frameTiStatesCounter);
+    this.activeParallelWindow = executor;
+    try {
+      while (this.frameTiStatesCounter < tstate && !this.totalReset) {
+        executor.beforeMasterStep();
+        result = this.step(false, false, false, false, true);
+        executor.afterMasterStep(this.modules[0].getCpu().getStepTstates());
+        if (result != TRIGGER_NONE || this.localResetForAllModules) {
+          break;
+        }
+      }
+    } finally {
+      this.activeParallelWindow = null;
+      executor.finishWindow();
+    }
+
+    if (this.isNotLockedPort3D00()) {
+      for (int i = 0; i < NUMBER_OF_MODULES; i++) {
+        if (executor.isHalted(i)) {
+          this.doModuleHaltNotification(i);
+        }
+      }
+    }
+    return result;
+  }
+
   private void doModuleHaltNotification(final int moduleIndex) {
     final ZxPolyModule module = this.modules[moduleIndex];
     final int reg1 = module.getReg1WrittenData();
@@ -620,6 +833,7 @@ public final class Motherboard implements ZxPolyConstants {
     if (this.boardMode != newMode) {
       LOGGER.log(Level.INFO, "Motherboard mode changed to " + newMode);
       this.boardMode = newMode;
+      this.refreshModulePageTables();
       if (doReset) {
         this.reset();
       }
@@ -664,6 +878,20 @@ public final class Motherboard implements ZxPolyConstants {
   }
 
   public void writeBusIo(final ZxPolyModule module, final int port, final int value) {
+    final ParallelModuleExecutor parallelWindow = this.activeParallelWindow;
+    if (parallelWindow == null) {
+      this.doWriteBusIo(module, port, value);
+    } else {
+      parallelWindow.lockIo(module.getModuleIndex());
+      try {
+        this.doWriteBusIo(module, port, value);
+      } finally {
+        parallelWindow.unlockIo(module.getModuleIndex());
+      }
+    }
+  }
+
+  private void doWriteBusIo(final ZxPolyModule module, final int port, final int value) {
     final int mappedCpu = getMappedCpuIndex();
 
     if (this.getBoardMode() == BoardMode.ZXPOLY) {
@@ -672,7 +900,8 @@ public final class Motherboard implements ZxPolyConstants {
           set3D00(value, false);
         } else {
           if (mappedCpu == 0) {
-            for (final IoDevice d : this.ioDevices) {
+            this.deviceTimeline.syncAllForIo();
+            for (final IoDevice d : this.ioDevicesForWritePort[port]) {
               d.writeIo(module, port, value);
             }
           } else {
@@ -682,12 +911,14 @@ public final class Motherboard implements ZxPolyConstants {
           }
         }
       } else {
-        for (final IoDevice d : this.ioDevices) {
+        this.deviceTimeline.syncAllForIo();
+        for (final IoDevice d : this.ioDevicesForWritePort[port]) {
           d.writeIo(module, port, value);
         }
       }
     } else {
-      for (final IoDevice d : this.ioDevices) {
+      this.deviceTimeline.syncAllForIo();
+      for (final IoDevice d : this.ioDevicesForWritePort[port]) {
         d.writeIo(module, port, value);
       }
     }
@@ -705,6 +936,20 @@ public final class Motherboard implements ZxPolyConstants {
   }
 
   public int readBusIo(final ZxPolyModule module, final int port) {
+    final ParallelModuleExecutor parallelWindow = this.activeParallelWindow;
+    if (parallelWindow == null) {
+      return this.doReadBusIo(module, port);
+    } else {
+      parallelWindow.lockIo(module.getModuleIndex());
+      try {
+        return this.doReadBusIo(module, port);
+      } finally {
+        parallelWindow.unlockIo(module.getModuleIndex());
+      }
+    }
+  }
+
+  private int doReadBusIo(final ZxPolyModule module, final int port) {
     final int mappedCPU = getMappedCpuIndex();
     int result = -1;
 
@@ -714,7 +959,8 @@ public final class Motherboard implements ZxPolyConstants {
       destinationModule.prepareLocalInt();
     } else {
       IoDevice firstDetectedActiveDevice = null;
-      for (final IoDevice device : this.ioDevices) {
+      this.deviceTimeline.syncAllForIo();
+      for (final IoDevice device : this.ioDevicesForReadPort[port]) {
         final int data = device.readIo(module, port);
         if (data < 0) {
           continue;
@@ -760,11 +1006,10 @@ public final class Motherboard implements ZxPolyConstants {
     return result;
   }
 
-  int contendPort(final int port7FFD, final int port) {
-    int cpuTact = this.frameTiStatesCounter;
-    int result = 0;
+  int contendPortAt(final int frameTstate, final int port7FFD, final int port) {
+    int cpuTact = frameTstate;
     if (isContended(port, port7FFD)) {
-      cpuTact += this.frameTiStatesCounter < this.timingProfile.tstatesFrame ? this.memoryTimings[this.frameTiStatesCounter].contention : 0;
+      cpuTact += frameTstate < this.timingProfile.tstatesFrame ? this.memoryTimings[frameTstate].contention : 0;
     }
 
     int shift = 1;
@@ -783,22 +1028,32 @@ public final class Motherboard implements ZxPolyConstants {
       ft %= this.timingProfile.tstatesFrame;
       cpuTact += this.memoryTimings[ft].contention;
     }
-    return cpuTact - this.frameTiStatesCounter;
+    return cpuTact - frameTstate;
   }
 
   public TimingProfile getTimingProfile() {
     return this.timingProfile;
   }
 
-  int getContendedDelay(final int port7FFD, final int address) {
+  int getContendedDelay(final int frameTstate, final int port7FFD, final int address) {
     int result = 0;
     if (isContended(address, port7FFD)) {
-      result = this.frameTiStatesCounter < this.timingProfile.tstatesFrame ?
-          this.memoryTimings[this.frameTiStatesCounter].contention : 0;
+      result = this.getContendedDelay(frameTstate);
     }
     return result;
   }
 
+  int getContendedDelay(final int frameTstate) {
+    return frameTstate < this.timingProfile.tstatesFrame ?
+        this.memoryTimings[frameTstate].contention : 0;
+  }
+
+  private void refreshModulePageTables() {
+    for (final ZxPolyModule module : this.modules) {
+      module.refreshPageTable();
+    }
+  }
+
   public void resetIoDevices() {
     for (final IoDevice device : this.ioDevices) {
       device.doReset();
@@ -806,6 +1061,7 @@ public final class Motherboard implements ZxPolyConstants {
   }
 
   public void dispose() {
+    this.setParallelModules(false);
     this.beeper.dispose();
   }
 
@@ -0,0 +1,325 @@
+/*
+ * Copyright (C) 2014-2024 Igor Maznitsa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.igormaznitsa.zxpoly.components;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Executor of ZX-Poly slave modules on own platform threads in bounded T-state windows.
+ * <p>
+ * The master module is executed by the caller thread together with IO devices. Slave modules
+ * follow it on their threads, a slave never goes ahead of the master and the master never goes
+ * ahead of the slowest slave more than for {@link #MAX_SKEW_TSTATES}. Bus IO is executed only
+ * when all other modules are stopped between their steps, before IO of the master all slaves
+ * are moved to the master T-state. On window end all modules are stopped at the same T-state
+ * and the board processes collected HALT notifications.
+ */
+final class ParallelModuleExecutor {
+
+  static final int MAX_SKEW_TSTATES = 64;
+
+  private static final Logger LOGGER = Logger.getLogger(ParallelModuleExecutor.class.getName());
+
+  private static final int SPIN_BEFORE_PARK = 20000;
+  private static final int SPIN_BEFORE_YIELD = 100;
+
+  // padding to keep state of every module in own cache line
+  private static final int SLOT = 16;
+  private static final int SLOT_CLOCK = 0;
+  private static final int SLOT_IN_STEP = 1;
+
+  private final ZxPolyModule[] modules;
+  private final Thread[] workers;
+  private final AtomicBoolean[] parked;
+  private final long[] carry;
+  private final boolean[] halted;
+  private final AtomicLongArray state;
+  private final AtomicInteger finished = new AtomicInteger();
+  private final AtomicInteger ioRequests = new AtomicInteger();
+  private final AtomicBoolean ioOwned = new AtomicBoolean();
+  private int windowFrameTstate;
+  private long masterClock;
+  private long minSlaveClock;
+  private volatile boolean masterDone;
+  private volatile int windowCounter;
+  private volatile boolean disposed;
+  private volatile Throwable failure;
+
+  ParallelModuleExecutor(final ZxPolyModule[] modules) {
+    this.modules = modules.clone();
+    this.workers = new Thread[modules.length];
+    this.parked = new AtomicBoolean[modules.length];
+    this.carry = new long[modules.length];
+    this.halted = new boolean[modules.length];
+    this.state = new AtomicLongArray(modules.length * SLOT);
+
+    // threads can be started after the first window, so the counter must be taken here
+    final int firstWindow = this.windowCounter;
+    for (int i = 1; i < modules.length; i++) {
+      final int index = i;
+      this.parked[i] = new AtomicBoolean();
+      this.workers[i] =
+          new Thread(() -> this.workerLoop(index, firstWindow), "zxpoly-module-" + i);
+      this.workers[i].setDaemon(true);
+      this.workers[i].start();
+    }
+  }
+
+  private static void pause(final int counter) {
+    if (counter % SPIN_BEFORE_YIELD == 0) {
+      Thread.yield();
+    } else {
+      Thread.onSpinWait();
+    }
+  }
+
+  /**
+   * Start new window, slave modules begin to follow the master module.
+   *
+   * @param frameTstate frame T-state of the window start, slaves calculate contention from it
+   */
+  void startWindow(final int frameTstate) {
+    this.windowFrameTstate = frameTstate;
+    this.masterClock = 0L;
+    this.minSlaveClock = 0L;
+    this.masterDone = false;
+    this.finished.set(0);
+    this.halted[0] = false;
+    this.state.set(SLOT_CLOCK, 0L);
+    for (int i = 1; i < this.modules.length; i++) {
+      this.halted[i] = false;
+      this.state.set(i * SLOT + SLOT_CLOCK, this.carry[i]);
+    }
+
+    this.windowCounter++;
+
+    for (int i = 1; i < this.workers.length; i++) {
+      if (this.parked[i].get()) {
+        LockSupport.unpark(this.workers[i]);
+      }
+    }
+  }
+
+  /**
+   * Must be called by the master thread before every board step inside window.
+   */
+  void beforeMasterStep() {
+    if (this.masterClock - this.minSlaveClock >= MAX_SKEW_TSTATES) {
+      int counter = 0;
+      while (this.masterClock - (this.minSlaveClock = this.findMinSlaveClock())
+          >= MAX_SKEW_TSTATES) {
+        pause(++counter);
+      }
+    }
+    this.enterStep(0);
+  }
+
+  /**
+   * Must be called by the master thread after every board step inside window.
+   *
+   * @param spentTstates number of T-states spent by the master module
+   */
+  void afterMasterStep(final int spentTstates) {
+    this.masterClock += spentTstates;
+    this.state.setRelease(SLOT_CLOCK, this.masterClock);
+    this.state.setRelease(SLOT_IN_STEP, 0L);
+  }
+
+  /**
+   * Stop the window and wait for slave modules reach the master T-state.
+   */
+  void finishWindow() {
+    this.state.set(SLOT_IN_STEP, 0L);
+    this.masterDone = true;
+
+    int counter = 0;
+    while (this.finished.get() < this.modules.length - 1) {
+      pause(++counter);
+    }
+
+    for (int i = 1; i < this.modules.length; i++) {
+      this.carry[i] = this.state.get(i * SLOT + SLOT_CLOCK) - this.masterClock;
+    }
+
+    final Throwable error = this.failure;
+    if (error != null) {
+      this.failure = null;
+      throw new Error("Error during parallel module execution", error);
+    }
+  }
+
+  void markHalted(final int moduleIndex) {
+    this.halted[moduleIndex] = true;
+  }
+
+  boolean isHalted(final int moduleIndex) {
+    return this.halted[moduleIndex];
+  }
+
+  /**
+   * Stop the module inside its step and wait for exclusive access to bus IO. All other modules
+   * are stopped between their steps during the access, for the master module slaves are moved
+   * to its T-state before the access.
+   *
+   * @param moduleIndex index of the module making IO
+   */
+  void lockIo(final int moduleIndex) {
+    this.state.set(moduleIndex * SLOT + SLOT_IN_STEP, 0L);
+
+    if (moduleIndex == 0) {
+      int counter = 0;
+      while (this.findMinSlaveClock() < this.masterClock) {
+        pause(++counter);
+      }
+    }
+
+    this.ioRequests.incrementAndGet();
+    int counter = 0;
+    while (true) {
+      if (!this.ioOwned.get() && this.ioOwned.compareAndSet(false, true)) {
+        if (this.isOnlyModuleInStep(moduleIndex)) {
+          break;
+        }
+        this.ioOwned.set(false);
+      }
+      pause(++counter);
+    }
+  }
+
+  void unlockIo(final int moduleIndex) {
+    this.state.set(moduleIndex * SLOT + SLOT_IN_STEP, 1L);
+    this.ioRequests.decrementAndGet();
+    this.ioOwned.set(false);
+  }
+
+  void dispose() {
+    this.disposed = true;
+    for (int i = 1; i < this.workers.length; i++) {
+      LockSupport.unpark(this.workers[i]);
+    }
+  }
+
+  private boolean isOnlyModuleInStep(final int moduleIndex) {
+    for (int i = 0; i < this.modules.length; i++) {
+      if (i != moduleIndex && this.state.get(i * SLOT + SLOT_IN_STEP) != 0L) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private long findMinSlaveClock() {
+    long result = Long.MAX_VALUE;
+    for (int i = 1; i < this.modules.length; i++) {
+      result = Math.min(result, this.state.getAcquire(i * SLOT + SLOT_CLOCK));
+    }
+    return result;
+  }
+
+  private void enterStep(final int moduleIndex) {
+    final int slot = moduleIndex * SLOT + SLOT_IN_STEP;
+    int counter = 0;
+    while (true) {
+      this.state.set(slot, 1L);
+      if (this.ioRequests.get() == 0) {
+        break;
+      }
+      this.state.set(slot, 0L);
+      while (this.ioRequests.get() != 0) {
+        pause(++counter);
+      }
+    }
+  }
+
+  private boolean waitForWindow(final int index, final int lastWindow) {
+    int counter = 0;
+    while (!this.disposed && this.windowCounter == lastWindow) {
+      if (++counter < SPIN_BEFORE_PARK) {
+        pause(counter);
+      } else {
+        this.parked[index].set(true);
+        if (!this.disposed && this.windowCounter == lastWindow) {
+          LockSupport.park(this);
+        }
+        this.parked[index].set(false);
+      }
+    }
+    return !this.disposed;
+  }
+
+  private void runWindow(final int index) {
+    final ZxPolyModule module = this.modules[index];
+    final int slotClock = index * SLOT + SLOT_CLOCK;
+    final int slotInStep = index * SLOT + SLOT_IN_STEP;
+    final int frameTstate = this.windowFrameTstate;
+
+    long clock = this.state.get(slotClock);
+    long allowedClock = 0L;
+    boolean moduleHalted = false;
+    int counter = 0;
+
+    while (true) {
+      if (clock >= allowedClock) {
+        // read done flag before clock to not miss the last master step
+        final boolean done = this.masterDone;
+        allowedClock = this.state.getAcquire(SLOT_CLOCK);
+        if (clock >= allowedClock) {
+          if (done) {
+            break;
+          }
+          pause(++counter);
+          continue;
+        }
+      }
+
+      this.enterStep(index);
+      // own clock of the slave, the master frame counter can be ahead
+      module.setOwnFrameTstate(frameTstate + (int) clock);
+      module.preStep(0, false, false, false);
+      moduleHalted |= module.step(BoardMode.ZXPOLY, false, false, false, false);
+      clock += module.getCpu().getStepTstates();
+      this.state.setRelease(slotClock, clock);
+      this.state.setRelease(slotInStep, 0L);
+    }
+    this.halted[index] = moduleHalted;
+  }
+
+  private void workerLoop(final int index, final int firstWindow) {
+    int lastWindow = firstWindow;
+
+    while (this.waitForWindow(index, lastWindow)) {
+      lastWindow = this.windowCounter;
+      try {
+        this.runWindow(index);
+      } catch (Throwable ex) {
+        LOGGER.log(Level.SEVERE, "Error in module thread " + index, ex);
+        this.failure = ex;
+        this.state.set(index * SLOT + SLOT_IN_STEP, 0L);
+        this.state.set(index * SLOT + SLOT_CLOCK, Long.MAX_VALUE / 2);
+      } finally {
+        this.modules[index].setOwnFrameTstate(-1);
+        this.finished.incrementAndGet();
+      }
+    }
+  }
+}
@@ -23,7 +23,9 @@ import com.igormaznitsa.z80.MemoryAccessProvider;
 import com.igormaznitsa.z80.Utils;
 import com.igormaznitsa.z80.Z80;
 import com.igormaznitsa.z80.Z80CPUBus;
+import com.igormaznitsa.z80.Z80FetchCache;
 import com.igormaznitsa.z80.Z80Instruction;
+import com.igormaznitsa.z80.Z80Lanes;
 import com.igormaznitsa.z80.disasm.Z80Disasm;
 import com.igormaznitsa.zxpoly.components.video.timings.TimingProfile;
 import com.igormaznitsa.zxpoly.formats.Spec256Arch;
@@ -40,6 +42,10 @@ import java.util.logging.Logger;
 public final class ZxPolyModule implements IoDevice, Z80CPUBus, MemoryAccessProvider {
 
   private static final int GFX_PAGE_SIZE = 0x4000 * 8;
+  private static final int GFX_VIDEO_SIZE = 0x1800;
+  private static final long GFX_VIDEO_PLANE_MASK = 0x0101010101010101L;
+  // bit N of byte moved into the lowest bit of byte N of long, so the first pixel is the highest
+  private static final long[] GFX_VIDEO_PLANE_SPREAD = generateGfxVideoPlaneSpread();
   private final Logger logger;
   private final Motherboard board;
   private final int moduleIndex;
@@ -72,6 +78,24 @@ public final class ZxPolyModule implements IoDevice, Z80CPUBus, MemoryAccessProv
   private int gfxIntCounter;
   private int gfxNmiCounter;
 
+  // page table for four 16K CPU windows, rebuilt only if paging state is changed
+  private final byte[][] romPages = new byte[3][];
+  private final byte[][] pageData = new byte[4][];
+  private final int[] pageBase = new int[4];
+  private final boolean[] pageWritable = new boolean[4];
+  private final boolean[] pageContended = new boolean[4];
+  private int ownFrameTstate = -1;
+  // pages mapped to RAM banks which can be shown as screen, writes to them mark screen cells
+  private final boolean[] pageVideo = new boolean[4];
+  // page table of Spec256 GFX memory, eight GFX core bytes of a cell are adjacent,
+  // null page means TR-DOS ROM which is not colored
+  private final byte[][] gfxPageData = new byte[4][];
+  private final int[] gfxPageBase = new int[4];
+  // chunky copy of GFX pixels of screen pages 5 and 7, 8 color indexes of pixels for screen byte
+  private final long[] gfxVideo;
+  private final int[] gfxVideoBase = new int[4];
+  private Z80FetchCache gfxFetchCache;
+
 
   public ZxPolyModule(final TimingProfile timingProfile, final Motherboard board, final RomData romData, final int index) {
     this.timingProfile = timingProfile;
@@ -92,11 +116,16 @@ public final class ZxPolyModule implements IoDevice, Z80CPUBus, MemoryAccessProv
     if (index == 0) {
       this.gfxRam = new byte[128 * 8 * 1024];
       this.gfxRom = new byte[32 * 8 * 1024];
+      this.gfxVideo = new long[GFX_VIDEO_SIZE * 2];
     } else {
       this.gfxRam = null;
       this.gfxRom = null;
+      this.gfxVideo = null;
     }
 
+    this.fillRomPages(romData);
+    this.refreshPageTable();
+
     logger.info("Inited");
   }
 
@@ -133,6 +162,168 @@ public final class ZxPolyModule implements IoDevice, Z80CPUBus, MemoryAccessProv
 
   public void setRomData(final RomData romData) {
     this.romData.set(Objects.requireNonNull(romData));
+    this.fillRomPages(romData);
+    this.refreshPageTable();
+  }
+
+  private void fillRomPages(final RomData romData) {
+    // 128 ROM, 48 ROM and TR-DOS ROM, wrapped by ROM address mask
+    for (int i = 0; i < this.romPages.length; i++) {
+      final byte[] page = new byte[0x4000];
+      final int offset = i * 0x4000;
+      for (int a = 0; a < page.length; a++) {
+        page[a] = (byte) romData.readAdress(offset + a);
+      }
+      this.romPages[i] = page;
+    }
+  }
+
+  /**
+   * Rebuild page table of CPU memory windows. Must be called for any change of port 7FFD,
+   * ZX-Poly registers, TR-DOS ROM activation, port 3D00 or board mode.
+   */
+  void refreshPageTable() {
+    final int value7FFD = this.port7FFD.get();
+    final int reg0 = this.zxPolyRegsWritten.get(0);
+    final boolean zxPolyMode = this.board.getBoardMode() == BoardMode.ZXPOLY;
+    final byte[] heap = this.board.getHeapRam();
+
+    if (zxPolyMode && (value7FFD & PORTw_ZX128_ROMRAM) != 0) {
+      //RAM0
+      this.pageData[0] = heap;
+      this.pageBase[0] = ramOffset2HeapAddress(value7FFD, 0x0000);
+    } else {
+      this.pageData[0] = this.trdosEnabled && this.trdosRomActive ? this.romPages[2]
+          : this.romPages[(value7FFD >> 4) & 1];
+      this.pageBase[0] = 0;
+    }
+    for (int i = 1; i < 4; i++) {
+      this.pageData[i] = heap;
+      this.pageBase[i] = ramOffset2HeapAddress(value7FFD, i << 14);
+    }
+
+    if (zxPolyMode) {
+      final boolean writeEnabled = (reg0 & REG0w_MEMORY_WRITING_DISABLED) == 0;
+      this.pageWritable[0] = writeEnabled && this.board.isNotLockedPort3D00()
+          && (value7FFD & PORTw_ZX128_ROMRAM) != 0;
+      this.pageWritable[1] = writeEnabled;
+      this.pageWritable[2] = writeEnabled;
+      this.pageWritable[3] = writeEnabled;
+    } else {
+      this.pageWritable[0] = false;
+      this.pageWritable[1] = true;
+      this.pageWritable[2] = true;
+      this.pageWritable[3] = true;
+    }
+
+    this.pageContended[0] = false;
+    this.pageContended[1] = true;
+    this.pageContended[2] = false;
+    this.pageContended[3] = (value7FFD & 1) != 0;
+
+    for (int i = 0; i < 4; i++) {
+      this.pageVideo[i] = this.pageData[i] == heap && Motherboard.isVideoBank(this.pageBase[i]);
+    }
+
+    if (this.gfxRam != null) {
+      if (this.trdosRomActive) {
+        this.gfxPageData[0] = null;
+        this.gfxPageBase[0] = 0;
+      } else {
+        this.gfxPageData[0] = this.gfxRom;
+        this.gfxPageBase[0] = ((value7FFD >> 4) & 1) * GFX_PAGE_SIZE;
+      }
+      this.gfxPageData[1] = this.gfxRam;
+      this.gfxPageBase[1] = 5 * GFX_PAGE_SIZE;
+      this.gfxPageData[2] = this.gfxRam;
+      this.gfxPageBase[2] = 2 * GFX_PAGE_SIZE;
+      this.gfxPageData[3] = this.gfxRam;
+      this.gfxPageBase[3] = (value7FFD & 7) * GFX_PAGE_SIZE;
+
+      for (int i = 1; i < 4; i++) {
+        this.gfxVideoBase[i] = findGfxVideoBase(this.gfxPageBase[i] / GFX_PAGE_SIZE);
+      }
+
+      // instruction bytes can be changed by paging
+      final Z80FetchCache fetchCache = this.gfxFetchCache;
+      if (fetchCache != null) {
+        fetchCache.reset();
+      }
+    }
+  }
+
+  /**
+   * Set cache of instruction bytes shared by Spec256 GFX cores, it is reset on every paging
+   * change.
+   *
+   * @param cache cache shared by GFX cores, can be null
+   */
+  void setGfxFetchCache(final Z80FetchCache cache) {
+    this.gfxFetchCache = cache;
+  }
+
+  private static long[] generateGfxVideoPlaneSpread() {
+    final long[] result = new long[256];
+    for (int value = 0; value < 256; value++) {
+      long spread = 0L;
+      for (int bit = 0; bit < 8; bit++) {
+        if ((value & (1 << bit)) != 0) {
+          spread |= 1L << (bit << 3);
+        }
+      }
+      result[value] = spread;
+    }
+    return result;
+  }
+
+  private static int findGfxVideoBase(final int page) {
+    switch (page) {
+      case 5:
+        return 0;
+      case 7:
+        return GFX_VIDEO_SIZE;
+      default:
+        return -1;
+    }
+  }
+
+  private void updateGfxVideo(final int videoBase, final int offsetInPage,
+                              final int gfxCoreIndex, final int value) {
+    if (videoBase >= 0 && offsetInPage < GFX_VIDEO_SIZE) {
+      final int index = videoBase + offsetInPage;
+      this.gfxVideo[index] = (this.gfxVideo[index] & ~(GFX_VIDEO_PLANE_MASK << gfxCoreIndex))
+          | (GFX_VIDEO_PLANE_SPREAD[value & 0xFF] << gfxCoreIndex);
+    }
+  }
+
+  private void refreshGfxVideo(final int page) {
+    final int videoBase = findGfxVideoBase(page);
+    if (videoBase >= 0) {
+      int gfxOffset = page * GFX_PAGE_SIZE;
+      for (int i = 0; i < GFX_VIDEO_SIZE; i++) {
+        long pixels = 0L;
+        for (int core = 0; core < 8; core++) {
+          pixels |= GFX_VIDEO_PLANE_SPREAD[this.gfxRam[gfxOffset++] & 0xFF] << core;
+        }
+        this.gfxVideo[videoBase + i] = pixels;
+      }
+    }
+  }
+
+  private byte readPage(final int address) {
+    final int page = address >>> 14;
+    return this.pageData[page][this.pageBase[page] + (address & 0x3FFF)];
+  }
+
+  private byte readGfxPage(final int gfxCoreIndex, final int address) {
+    final int page = address >>> 14;
+    final byte[] data = this.gfxPageData[page];
+    return data == null ? (byte) this.romData.get().readAdress(address + 0x8000)
+        : data[this.gfxPageBase[page] + ((address & 0x3FFF) << 3) + gfxCoreIndex];
+  }
+
+  private boolean isGfxContext(final int ctx) {
+    return ctx != 0 && this.gfxRam != null && this.board.getBoardMode() == BoardMode.SPEC256;
   }
 
   public int getHeapOffset() {
@@ -162,11 +353,13 @@ public final class ZxPolyModule implements IoDevice, Z80CPUBus, MemoryAccessProv
     this.zxPolyRegsWritten.set(1, reg1 & 0xFF);
     this.zxPolyRegsWritten.set(2, reg2 & 0xFF);
     this.zxPolyRegsWritten.set(3, reg3 & 0xFF);
+    this.refreshPageTable();
   }
 
   @Override
   public int readIo(final ZxPolyModule module, final int port) {
-    this.cpu.addTstates(this.board.contendPort(this.port7FFD.get(), port));
+    this.cpu.addTstates(
+        this.board.contendPortAt(module.getStepFrameTstate(), this.port7FFD.get(), port));
 
     final int result;
     if (this.board.getBoardMode() == BoardMode.ZXPOLY) {
@@ -201,6 +394,25 @@ public final class ZxPolyModule implements IoDevice, Z80CPUBus, MemoryAccessProv
     return this.activeRegisterReading;
   }
 
+  /**
+   * Set frame T-state of the next step start for module executed by own thread, contention of
+   * the module is calculated by the value instead of the board frame counter.
+   *
+   * @param frameTstate frame T-state of the step start, negative to use the board counter
+   */
+  void setOwnFrameTstate(final int frameTstate) {
+    this.ownFrameTstate = frameTstate;
+  }
+
+  int getStepFrameTstate() {
+    final int frameTstate = this.ownFrameTstate;
+    return frameTstate < 0 ? this.board.getFrameTiStates() : frameTstate;
+  }
+
+  boolean isContendedAddress(final int address) {
+    return this.pageContended[(address >>> 14) & 3];
+  }
+
   public boolean isTrdosActive() {
     return this.trdosEnabled && this.trdosRomActive;
   }
@@ -210,12 +422,14 @@ public final class ZxPolyModule implements IoDevice, Z80CPUBus, MemoryAccessProv
       throw new IllegalStateException("Can't activate TR-DOS mode because TR-DOS ROM not presented");
     } else {
       this.trdosRomActive = active;
+      this.refreshPageTable();
     }
   }
 
   @Override
   public void writeIo(final ZxPolyModule module, final int port, final int value) {
-    this.cpu.addTstates(this.board.contendPort(this.port7FFD.get(), port));
+    this.cpu.addTstates(
+        this.board.contendPortAt(module.getStepFrameTstate(), this.port7FFD.get(), port));
 
     if (this.board.getBoardMode() == BoardMode.ZXPOLY) {
       if (this.board.isNotLockedPort3D00()
@@ -224,6 +438,7 @@ public final class ZxPolyModule implements IoDevice, Z80CPUBus, MemoryAccessProv
       ) {
         if (port == PORT_REG0) {
           this.zxPolyRegsWritten.set(0, value);
+          this.refreshPageTable();
           if ((value & ZXPOLY_wREG0_RESET) != 0) {
             prepareLocalReset();
           }
@@ -326,13 +541,28 @@ public final class ZxPolyModule implements IoDevice, Z80CPUBus, MemoryAccessProv
 
     sigWait = this.waitSignal ? 0 : Z80.SIGNAL_IN_nWAIT;
 
+    if (boardMode == BoardMode.ZX128
+            && this.cpu.getRegister(Z80.REG_PC) == KeyboardKempstonAndTapeIn.ROM_LD_BYTES
+            && (sigWait | sigReset) == (Z80.SIGNAL_IN_nWAIT | Z80.SIGNAL_IN_nRESET)) {
+      // fast tape load, the CPU continues from exit of the ROM routine
+      this.board.getKeyboard().trapLoadBytes(this);
+    }
+
     final int oldCpuState = this.cpu.getState();
     final int cpuBusSignals =
             sigReset | sigWait
                     | (this.intTiStatesCounter >= 0 && this.intTiStatesCounter <= this.timingProfile.tstatesInt ? 0 : Z80.SIGNAL_IN_nINT)
                     | (this.nmiTiStatesCounter >= 0 && this.nmiTiStatesCounter <= this.timingProfile.tstatesNmi ? 0 : Z80.SIGNAL_IN_nNMI);
 
+    final int pcBeforeStep = this.cpu.getRegister(Z80.REG_PC);
     this.cpu.step(this.moduleIndex, cpuBusSignals);
+    if (boardMode == BoardMode.ZX128) {
+      final int pc = this.cpu.getRegister(Z80.REG_PC);
+      if (pc < pcBeforeStep && pcBeforeStep - pc <= 13) {
+        // short backward jump, can be tape edge wait loop
+        this.board.getKeyboard().skipEdgeWaitLoop(this, pc, pcBeforeStep);
+      }
+    }
     final int spentTiStates = this.cpu.getStepTstates();
 
     if (this.nmiTiStatesCounter >= 0) {
@@ -355,9 +585,10 @@ public final class ZxPolyModule implements IoDevice, Z80CPUBus, MemoryAccessProv
     return isHaltDetected;
   }
 
-  public void gfxGpuStep(final int ctx, final Z80 gfxCpu) {
+  public void gfxGpuStep(final Z80Lanes gfxCpus) {
     int sigWait = this.gfxWaitSignal ? 0 : Z80.SIGNAL_IN_nWAIT;
-    gfxCpu.step(ctx,
+    // GFX cores get contexts from 1
+    gfxCpus.step(1,
             Z80.SIGNAL_IN_nRESET | (this.gfxIntCounter >= 0 ? 0 : Z80.SIGNAL_IN_nINT)
                     | sigWait | (this.gfxNmiCounter >= 0 ? 0 : Z80.SIGNAL_IN_nNMI));
   }
@@ -371,51 +602,16 @@ public final class ZxPolyModule implements IoDevice, Z80CPUBus, MemoryAccessProv
   }
 
   public long readGfxVideo(final int videoOffset) {
-    int offset;
-    if ((this.port7FFD.get() & PORTw_ZX128_SCREEN) == 0) {
-      // RAM 5
-      offset = 5 * GFX_PAGE_SIZE + (videoOffset << 3);
-    } else {
-      // RAM 7
-      offset = 7 * GFX_PAGE_SIZE + (videoOffset << 3);
-    }
-
-    long result = 0L;
-    for (int pixIndex = 0; pixIndex < 8; pixIndex++) {
-      result <<= 8;
-      int acc = 0;
-      final int msk = 1 << (7 - pixIndex);
-      for (int bitIndex = 0; bitIndex < 8; bitIndex++) {
-        if ((this.gfxRam[offset + bitIndex] & msk) != 0) {
-          acc |= (1 << bitIndex);
-        }
-      }
-      result |= acc;
-    }
-    return result;
+    final int videoBase =
+        (this.port7FFD.get() & PORTw_ZX128_SCREEN) == 0 ? 0 : GFX_VIDEO_SIZE; // RAM 5 or RAM 7
+    return this.gfxVideo[videoBase + videoOffset];
   }
 
   public long readGfxVideo16(final int videoOffset) {
-    int offset;
-    if ((this.port7FFD.get() & PORTw_ZX128_SCREEN) == 0) {
-      // RAM 5
-      offset = 5 * GFX_PAGE_SIZE + (videoOffset << 3);
-    } else {
-      // RAM 7
-      offset = 7 * GFX_PAGE_SIZE + (videoOffset << 3);
-    }
-
+    final long pixels = this.readGfxVideo(videoOffset);
     long result = 0L;
-    for (int pixIndex = 0; pixIndex < 8; pixIndex++) {
-      result <<= 5;
-      int acc = 0;
-      final int msk = 1 << (7 - pixIndex);
-      for (int bitIndex = 0; bitIndex < 5; bitIndex++) {
-        if ((this.gfxRam[offset + bitIndex] & msk) != 0) {
-          acc |= (1 << bitIndex);
-        }
-      }
-      result |= acc;
+    for (int shift = 56; shift >= 0; shift -= 8) {
+      result = (result << 5) | ((pixels >>> shift) & 0x1F);
     }
     return result;
   }
@@ -486,6 +682,11 @@ public final class ZxPolyModule implements IoDevice, Z80CPUBus, MemoryAccessProv
           final boolean m1,
           final boolean cmdOrPrefix
   ) {
+    if (!cmdOrPrefix && this.isGfxContext(ctx)) {
+      // data of GFX core, no contention because T-states of GFX cores are not used
+      return this.readGfxPage(ctx - 1, address);
+    }
+
     final byte result;
 
     final int valueAt7ffd = this.port7FFD.get();
@@ -496,10 +697,15 @@ public final class ZxPolyModule implements IoDevice, Z80CPUBus, MemoryAccessProv
       final int address_h = address >>> 8;
 
       if (this.trdosEnabled) {
+        final boolean trdosActive;
         if (this.trdosRomActive) {
-          this.trdosRomActive = address_h < 0x40;
+          trdosActive = address_h < 0x40;
         } else {
-          this.trdosRomActive = basic48selected && address_h == 0x3D;
+          trdosActive = basic48selected && address_h == 0x3D;
+        }
+        if (trdosActive != this.trdosRomActive) {
+          this.trdosRomActive = trdosActive;
+          this.refreshPageTable();
         }
       }
     }
@@ -527,27 +733,26 @@ public final class ZxPolyModule implements IoDevice, Z80CPUBus, MemoryAccessProv
             this.activeRegisterReading = false;
           }
         } else {
-          result = readMemoryAddress(valueAt7ffd, this.trdosRomActive, address);
+          result = readPage(address);
         }
       }
       break;
       case ZX128: {
-        result = readMemoryAddress(valueAt7ffd, this.trdosRomActive, address);
+        result = readPage(address);
       }
       break;
       case SPEC256: {
-        if (ctx == 0 || cmdOrPrefix) {
-          result = readMemoryAddress(valueAt7ffd, this.trdosRomActive, address);
-        } else {
-          result = readGfxMemory(ctx - 1, valueAt7ffd, this.trdosRomActive, address);
-        }
+        // data of GFX cores is read before
+        result = readPage(address);
       }
       break;
       default:
         throw new Error("Unexpected mode");
     }
 
-    this.cpu.addTstates(this.board.getContendedDelay(this.port7FFD.get(), address));
+    if (this.pageContended[address >>> 14]) {
+      this.cpu.addTstates(this.board.getContendedDelay(this.getStepFrameTstate()));
+    }
 
     return result;
   }
@@ -616,7 +821,9 @@ public final class ZxPolyModule implements IoDevice, Z80CPUBus, MemoryAccessProv
       for (final byte gfxPageDatum : page.getGfxData()) {
         this.gfxRam[startOffset++] = gfxPageDatum;
       }
+      this.refreshGfxVideo(page.getPageIndex());
     }
+    this.board.getVideoController().invalidateScreen();
   }
 
   public void writeGfxMemory(final int gfxCoreIndex,
@@ -638,6 +845,7 @@ public final class ZxPolyModule implements IoDevice, Z80CPUBus, MemoryAccessProv
       }
       final int ramHeapAddr = page * GFX_PAGE_SIZE + (offsetInPage << 3) + gfxCoreIndex;
       this.gfxRam[ramHeapAddr] = (byte) value;
+      this.updateGfxVideo(findGfxVideoBase(page), offsetInPage, gfxCoreIndex, value);
     }
   }
 
@@ -742,50 +950,27 @@ public final class ZxPolyModule implements IoDevice, Z80CPUBus, MemoryAccessProv
 
   @Override
   public void writeMemory(final Z80 cpu, final int ctx, final int address, final byte data) {
-    final int val = data & 0xFF;
-
-    final int value7FFD = this.port7FFD.get();
-
-    switch (this.board.getBoardMode()) {
-      case ZXPOLY: {
-        final int reg0 = this.zxPolyRegsWritten.get(0);
-        if ((reg0 & REG0w_MEMORY_WRITING_DISABLED) == 0) {
-          final int ramOffsetInHeap = ramOffset2HeapAddress(value7FFD, address);
-
-          if (address < 0x4000) {
-            if (this.board.isNotLockedPort3D00() && (this.port7FFD.get() & PORTw_ZX128_ROMRAM) != 0) {
-              //RAM0
-              this.board.writeRam(this, ramOffsetInHeap, val);
-            }
-          } else {
-            this.board.writeRam(this, ramOffsetInHeap, val);
-          }
+    final int page = address >>> 14;
+    if (this.isGfxContext(ctx)) {
+      if (page != 0) {
+        final int offsetInPage = address & 0x3FFF;
+        this.gfxRam[this.gfxPageBase[page] + (offsetInPage << 3) + ctx - 1] = data;
+        this.updateGfxVideo(this.gfxVideoBase[page], offsetInPage, ctx - 1, data);
+        if (this.pageVideo[page]) {
+          this.board.getVideoController().markScreenDirty(address & 0x3FFF);
         }
       }
-      break;
-      case ZX128: {
-        final int ramOffsetInHeap = ramOffset2HeapAddress(value7FFD, address);
-        if (address >= 0x4000) {
-          // RAM AREA
-          this.board.writeRam(this, ramOffsetInHeap, val);
-        }
-      }
-      break;
-      case SPEC256: {
-        if (address >= 0x4000) {
-          if (ctx == 0) {
-            final int ramOffsetInHeap = ramOffset2HeapAddress(value7FFD, address);
-            this.board.writeRam(this, ramOffsetInHeap, val);
-          } else {
-            this.writeGfxMemory(ctx - 1, this.port7FFD.get(), address, val);
-          }
-        }
+      return;
+    }
+    if (this.pageWritable[page]) {
+      this.pageData[page][this.pageBase[page] + (address & 0x3FFF)] = data;
+      if (this.pageVideo[page]) {
+        this.board.getVideoController().markScreenDirty(address & 0x3FFF);
       }
-      break;
-      default:
-        throw new Error("Unexpected mode");
     }
-    this.cpu.addTstates(this.board.getContendedDelay(this.port7FFD.get(), address));
+    if (this.pageContended[page]) {
+      this.cpu.addTstates(this.board.getContendedDelay(this.getStepFrameTstate()));
+    }
   }
 
   @Override
@@ -849,7 +1034,7 @@ public final class ZxPolyModule implements IoDevice, Z80CPUBus, MemoryAccessProv
   @Override
   public byte readPort(final Z80 cpu, final int ctx, final int port) {
     final int value7ffd = this.port7FFD.get();
-    cpu.addTstates(this.board.getContendedDelay(port, value7ffd));
+    cpu.addTstates(this.board.getContendedDelay(this.getStepFrameTstate(), port, value7ffd));
 
     byte result = 0;
     boolean readFromBus = true;
@@ -883,6 +1068,7 @@ public final class ZxPolyModule implements IoDevice, Z80CPUBus, MemoryAccessProv
   public void write7FFD(final int value, final boolean writeEvenIfLocked) {
     if (writeEvenIfLocked || ((this.port7FFD.get() & PORTw_ZX128_LOCK) == 0)) {
       this.port7FFD.set(value);
+      this.refreshPageTable();
     }
   }
 
@@ -931,7 +1117,7 @@ public final class ZxPolyModule implements IoDevice, Z80CPUBus, MemoryAccessProv
   @Override
   public void writePort(final Z80 cpu, final int ctx, final int port, final byte data) {
     final int value7ffd = this.port7FFD.get();
-    cpu.addTstates(this.board.getContendedDelay(port, value7ffd));
+    cpu.addTstates(this.board.getContendedDelay(this.getStepFrameTstate(), port, value7ffd));
 
     final int val = data & 0xFF;
     if (this.board.getBoardMode() == BoardMode.ZXPOLY) {
@@ -1024,6 +1210,7 @@ public final class ZxPolyModule implements IoDevice, Z80CPUBus, MemoryAccessProv
     for (int i = 0; i < this.zxPolyRegsWritten.length(); i++) {
       this.zxPolyRegsWritten.set(i, i == 0 ? this.moduleIndex << 1 : 0);
     }
+    this.refreshPageTable();
   }
 
   public int getLastM1Address() {
@@ -1046,6 +1233,7 @@ public final class ZxPolyModule implements IoDevice, Z80CPUBus, MemoryAccessProv
   public void makeAndLockZx48Mode() {
     this.port7FFD.set(0b00_1_1_0_000);
     this.trdosRomActive = false;
+    this.refreshPageTable();
   }
 
   @Override
@@ -34,6 +34,7 @@ public class BetaDiscInterface implements IoDevice {
   private static final Logger LOGGER = Logger.getLogger(BetaDiscInterface.class.getName());
   private final Motherboard board;
   private final K1818VG93 vg93;
+  private final int tstatesFrame;
   private final AtomicReferenceArray<TrDosDisk> diskDrives = new AtomicReferenceArray<>(4);
   private long totalTstates = 0L;
   private int ffPort;
@@ -41,6 +42,7 @@ public class BetaDiscInterface implements IoDevice {
   public BetaDiscInterface(final TimingProfile timingProfile, final Motherboard board) {
     this.board = board;
     this.vg93 = new K1818VG93(timingProfile, LOGGER);
+    this.tstatesFrame = timingProfile.tstatesFrame;
   }
 
   public TrDosDisk getDiskInDrive(final int driveIndex) {
@@ -61,6 +63,29 @@ public class BetaDiscInterface implements IoDevice {
     this.vg93.activateDisk(driveIndex, disk);
   }
 
+  private static boolean isVg93Port(final int port) {
+    switch (port & 0xFF) {
+      case 0x1F:
+      case 0x3F:
+      case 0x5F:
+      case 0x7F:
+      case 0xFF:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  @Override
+  public boolean isReadPortDecoded(final int port) {
+    return isVg93Port(port);
+  }
+
+  @Override
+  public boolean isWritePortDecoded(final int port) {
+    return isVg93Port(port);
+  }
+
   @Override
   public int readIo(final ZxPolyModule module, final int port) {
     if (module.isTrdosActive()) {
@@ -134,7 +159,13 @@ public class BetaDiscInterface implements IoDevice {
 
   @Override
   public int getNotificationFlags() {
-    return NOTIFICATION_POSTSTEP | NOTIFICATION_PRESTEP;
+    return NOTIFICATION_POSTSTEP_SCHEDULED | NOTIFICATION_PRESTEP_SIGNALS;
+  }
+
+  @Override
+  public int getTstatesTillNextEvent() {
+    // idle controller is updated on port access or once per frame
+    return this.vg93.isBusy() ? 1 : this.tstatesFrame;
   }
 
   @Override
@@ -142,8 +173,6 @@ public class BetaDiscInterface implements IoDevice {
                       boolean wallclockInt) {
     if (signalReset) {
       doReset();
-    } else {
-      this.vg93.step(this.totalTstates);
     }
   }
 
@@ -158,6 +187,8 @@ public class BetaDiscInterface implements IoDevice {
     if (this.totalTstates < 0L) {
       this.totalTstates = 0L;
       this.vg93.reset();
+    } else {
+      this.vg93.step(this.totalTstates);
     }
   }
 
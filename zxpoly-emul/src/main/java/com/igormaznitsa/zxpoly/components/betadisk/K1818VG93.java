@@ -926,6 +926,10 @@ public final class K1818VG93 {
     }
   }
 
+  public boolean isBusy() {
+    return isFlag(STATUS_BUSY);
+  }
+
   public boolean isMotorOn() {
     return (System.currentTimeMillis() - this.lastBusyOnTime) < DELAY_FDD_MOTOR_ON_MS;
   }
@@ -2,6 +2,13 @@ package com.igormaznitsa.zxpoly.components.snd;
 
 import java.util.Objects;
 
+/**
+ * AY-3-8910 core with lazy catch-up. Elapsed machine cycles are accumulated and generators are
+ * moved forward in one batch only when the owner calls {@link #step(long)}, counters of tone
+ * generators are recalculated arithmetically and only noise and envelope events are iterated.
+ * The owner should ask {@link #getMachineCyclesTillNextChange()} to find when output levels can
+ * change, levels are sent to the consumer only if they have been changed.
+ */
 public final class Ay8910Chip {
 
   private static final int MACHINE_CYCLES_PER_ATICK = 16;
@@ -67,6 +74,8 @@ public final class Ay8910Chip {
   private int envIndexCounter;
   private int envelopeVolume;
   private int rngReg = 1;
+  // packed levels sent to the consumer last time, negative if not sent yet
+  private int lastLevels = -1;
 
   public Ay8910Chip(final Ay8910SignalConsumer signalConsumer) {
     this.signalConsumer = Objects.requireNonNull(signalConsumer);
@@ -236,67 +245,98 @@ public final class Ay8910Chip {
         (rngReg & 1) == 0 ? this.signalNcba & ~SIGNAL_N : this.signalNcba | SIGNAL_N;
   }
 
-  private void processNoiseGen(final int audioTicks) {
-    this.counterN += audioTicks;
-    if (this.counterN >= (this.noisePeriod == 0 ? 1 : this.noisePeriod)) {
-      this.counterN = 0;
-      this.doRndNoise();
-    }
+  private static int findTicksTillEvent(final int counter, final int threshold) {
+    return Math.max(1, threshold - counter);
   }
 
-  private void updateEnvelopeVolume(final int audioTicks) {
-    this.counterE += audioTicks;
+  private int getNoiseThreshold() {
+    return this.noisePeriod == 0 ? 1 : this.noisePeriod;
+  }
 
-    if (this.counterE >= (this.envelopePeriod == 0 ? 2 : this.envelopePeriod << 1)) {
-      this.counterE = 0;
+  private int getEnvelopeThreshold() {
+    return this.envelopePeriod == 0 ? 2 : this.envelopePeriod << 1;
+  }
 
-      if (this.envIndexCounter >= 0) {
-        int count = this.envIndexCounter;
+  private static int getToneThreshold(final int tonePeriod) {
+    return tonePeriod == 0 ? 1 : tonePeriod;
+  }
 
-        count++;
-        count &= 31;
+  private void processNoiseGen(final int audioTicks) {
+    final int threshold = this.getNoiseThreshold();
+    final int first = findTicksTillEvent(this.counterN, threshold);
+    if (audioTicks < first) {
+      this.counterN += audioTicks;
+    } else {
+      final int rest = audioTicks - first;
+      for (int i = rest / threshold; i >= 0; i--) {
+        this.doRndNoise();
+      }
+      this.counterN = rest % threshold;
+    }
+  }
 
-        final int envIndex;
+  private void doEnvelopeStep() {
+    if (this.envIndexCounter >= 0) {
+      int count = this.envIndexCounter;
 
-        if (count < 16) {
-          envIndex = enfAttack ? count : (ENV_MAX - count);
-        } else if (count == 16 && (!enfCont || enfHold)) {
-          envIndex = enfCont && (enfAttack ^ enfAlter) ? ENV_MAX : ENV_MIN;
-          count = -1;
-        } else if (count == 16 && !enfAlter) {
-          count = 0;
-          envIndex = enfAttack ? ENV_MIN : ENV_MAX;
-        } else {
-          envIndex = enfAttack ? ENV_MAX - count : count;
-        }
+      count++;
+      count &= 31;
 
-        this.envIndexCounter = count;
+      final int envIndex;
 
-        this.envelopeVolume = envIndex & 15;
+      if (count < 16) {
+        envIndex = enfAttack ? count : (ENV_MAX - count);
+      } else if (count == 16 && (!enfCont || enfHold)) {
+        envIndex = enfCont && (enfAttack ^ enfAlter) ? ENV_MAX : ENV_MIN;
+        count = -1;
+      } else if (count == 16 && !enfAlter) {
+        count = 0;
+        envIndex = enfAttack ? ENV_MIN : ENV_MAX;
+      } else {
+        envIndex = enfAttack ? ENV_MAX - count : count;
       }
-    }
-  }
 
-  private void processPeriods(final int audioTicks) {
-    this.processNoiseGen(audioTicks);
+      this.envIndexCounter = count;
 
-    this.counterA += audioTicks;
-    if (this.counterA >= (this.tonePeriodA == 0 ? 1 : this.tonePeriodA)) {
-      this.counterA = 0;
-      this.signalNcba ^= SIGNAL_A;
+      this.envelopeVolume = envIndex & 15;
     }
+  }
 
-    this.counterB += audioTicks;
-    if (this.counterB >= (this.tonePeriodB == 0 ? 1 : this.tonePeriodB)) {
-      this.counterB = 0;
-      this.signalNcba ^= SIGNAL_B;
+  private void updateEnvelopeVolume(final int audioTicks) {
+    final int threshold = this.getEnvelopeThreshold();
+    final int first = findTicksTillEvent(this.counterE, threshold);
+    if (audioTicks < first) {
+      this.counterE += audioTicks;
+    } else {
+      final int rest = audioTicks - first;
+      // held envelope doesn't change anything so that only counter is updated
+      for (int i = rest / threshold; i >= 0 && this.envIndexCounter >= 0; i--) {
+        this.doEnvelopeStep();
+      }
+      this.counterE = rest % threshold;
     }
+  }
 
-    this.counterC += audioTicks;
-    if (this.counterC >= (this.tonePeriodC == 0 ? 1 : this.tonePeriodC)) {
-      this.counterC = 0;
-      this.signalNcba ^= SIGNAL_C;
+  private int processToneGen(final int counter, final int tonePeriod, final int audioTicks,
+                             final int signal) {
+    final int threshold = getToneThreshold(tonePeriod);
+    final int first = findTicksTillEvent(counter, threshold);
+    if (audioTicks < first) {
+      return counter + audioTicks;
+    }
+    final int rest = audioTicks - first;
+    // signal is toggled 1 + rest / threshold times
+    if ((rest / threshold & 1) == 0) {
+      this.signalNcba ^= signal;
     }
+    return rest % threshold;
+  }
+
+  private void processPeriods(final int audioTicks) {
+    this.processNoiseGen(audioTicks);
+    this.counterA = this.processToneGen(this.counterA, this.tonePeriodA, audioTicks, SIGNAL_A);
+    this.counterB = this.processToneGen(this.counterB, this.tonePeriodB, audioTicks, SIGNAL_B);
+    this.counterC = this.processToneGen(this.counterC, this.tonePeriodC, audioTicks, SIGNAL_C);
   }
 
   private void mixOutputSignals() {
@@ -318,9 +358,75 @@ public final class Ay8910Chip {
     final int vc = c == 0 ? 0 :
         (this.amplitudeC & 0x10) == 0 ? this.amplitudeC : this.envelopeVolume;
 
-    this.signalConsumer.onAy8910Levels(this, va, vb, vc);
+    final int levels = va | (vb << 4) | (vc << 8);
+    if (levels != this.lastLevels) {
+      this.lastLevels = levels;
+      this.signalConsumer.onAy8910Levels(this, va, vb, vc);
+    }
+  }
+
+  private static boolean isAudible(final int amplitude) {
+    return amplitude != 0;
+  }
+
+  /**
+   * Find number of machine cycles till the nearest audio tick which can change output levels.
+   * Generators which can't affect output, like tone of disabled or silent channel or held
+   * envelope, are not taken into account, so that for static output there is no need to step the
+   * chip before register access.
+   *
+   * @return number of machine cycles, {@link Integer#MAX_VALUE} if output is not changed
+   */
+  public int getMachineCyclesTillNextChange() {
+    final int mixer = this.mixerControl;
+    int ticks = Integer.MAX_VALUE;
+    boolean noiseUsed = false;
+    boolean envelopeUsed = false;
+
+    if (isAudible(this.amplitudeA)) {
+      if ((mixer & SIGNAL_A) == 0) {
+        ticks = Math.min(ticks,
+            findTicksTillEvent(this.counterA, getToneThreshold(this.tonePeriodA)));
+      }
+      noiseUsed = (mixer & (SIGNAL_A << 3)) == 0;
+      envelopeUsed = (this.amplitudeA & 0x10) != 0;
+    }
+    if (isAudible(this.amplitudeB)) {
+      if ((mixer & SIGNAL_B) == 0) {
+        ticks = Math.min(ticks,
+            findTicksTillEvent(this.counterB, getToneThreshold(this.tonePeriodB)));
+      }
+      noiseUsed |= (mixer & (SIGNAL_B << 3)) == 0;
+      envelopeUsed |= (this.amplitudeB & 0x10) != 0;
+    }
+    if (isAudible(this.amplitudeC)) {
+      if ((mixer & SIGNAL_C) == 0) {
+        ticks = Math.min(ticks,
+            findTicksTillEvent(this.counterC, getToneThreshold(this.tonePeriodC)));
+      }
+      noiseUsed |= (mixer & (SIGNAL_C << 3)) == 0;
+      envelopeUsed |= (this.amplitudeC & 0x10) != 0;
+    }
+    if (noiseUsed) {
+      ticks = Math.min(ticks, findTicksTillEvent(this.counterN, this.getNoiseThreshold()));
+    }
+    if (envelopeUsed && this.envIndexCounter >= 0) {
+      ticks = Math.min(ticks, findTicksTillEvent(this.counterE, this.getEnvelopeThreshold()));
+    }
+
+    if (ticks == Integer.MAX_VALUE) {
+      return Integer.MAX_VALUE;
+    }
+    return (int) Math.min(Integer.MAX_VALUE,
+        (long) (ticks - 1) * MACHINE_CYCLES_PER_ATICK
+            + MACHINE_CYCLES_PER_ATICK - this.machineCycleCounter);
   }
 
+  /**
+   * Catch up the chip for spent machine cycles and send output levels if they have been changed.
+   *
+   * @param spentMachineCyclesForStep number of machine cycles spent since the previous call
+   */
   public void step(final long spentMachineCyclesForStep) {
     this.machineCycleCounter += spentMachineCyclesForStep;
 
@@ -371,6 +477,7 @@ public final class Ay8910Chip {
     this.envelopeVolume = 0;
 
     this.mixerControl = 0;
+    this.lastLevels = -1;
   }
 
   @FunctionalInterface
@@ -20,16 +20,13 @@ package com.igormaznitsa.zxpoly.components.snd;
 import static java.lang.Long.toHexString;
 import static java.lang.String.format;
 
-import com.igormaznitsa.zxpoly.components.tapereader.WriterWav;
 import com.igormaznitsa.zxpoly.components.video.timings.TimingProfile;
 import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Optional;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.IntStream;
@@ -89,6 +86,10 @@ public final class Beeper {
   private final AtomicReference<IBeeper> activeInternalBeeper = new AtomicReference<>(NULL_BEEPER);
   private final SoundChannelValueFilter[] soundChannelFilters = IntStream.range(0, 8).mapToObj(i -> new SoundChannelValueFilter()).toArray(SoundChannelValueFilter[]::new);
   private final int[] channels = new int[8];
+  // channel filters are stateless, so mixed levels are recalculated only after channel change
+  private boolean channelsChanged = true;
+  private int mixedLeft;
+  private int mixedRight;
   private final MixerFunction mixerLeft;
   private final MixerFunction mixerRight;
   private final TimingProfile timingProfile;
@@ -128,7 +129,11 @@ public final class Beeper {
   }
 
   public void setChannelValue(final int channel, final int level256) {
-    this.channels[channel] = level256 & 0xFF;
+    final int level = level256 & 0xFF;
+    if (this.channels[channel] != level) {
+      this.channels[channel] = level;
+      this.channelsChanged = true;
+    }
   }
 
   public boolean hasActiveWaFile() {
@@ -186,8 +191,13 @@ public final class Beeper {
 
   public void updateState(final boolean tstatesInt, final boolean wallclockInt,
                           final int spentTstates) {
-    final int leftChannel = this.mixerLeft.mix(this.channels, this.soundChannelFilters, spentTstates);
-    final int rightChannel = this.mixerRight.mix(this.channels, this.soundChannelFilters, spentTstates);
+    if (this.channelsChanged) {
+      this.channelsChanged = false;
+      this.mixedLeft = this.mixerLeft.mix(this.channels, this.soundChannelFilters, spentTstates);
+      this.mixedRight = this.mixerRight.mix(this.channels, this.soundChannelFilters, spentTstates);
+    }
+    final int leftChannel = this.mixedLeft;
+    final int rightChannel = this.mixedRight;
 
     this.activeInternalBeeper.get()
             .updateState(tstatesInt,
@@ -213,6 +223,7 @@ public final class Beeper {
 
   public void clearChannels() {
     Arrays.fill(this.channels, 0);
+    this.channelsChanged = true;
     for (final SoundChannelValueFilter f : this.soundChannelFilters) f.reset();
   }
 
@@ -255,7 +266,7 @@ public final class Beeper {
 
   private static final class WavWriterImpl implements IWavWriter {
 
-    private final WriterWav.WavFile targetFile;
+    private final SndWavRecorder recorder;
 
     private final double framesPerTick;
     private int lastLeftChannel = 0;
@@ -264,7 +275,6 @@ public final class Beeper {
 
     private WavWriterImpl(final TimingProfile timingProfile, final File wavFile) throws IOException {
       LOGGER.info("Creating WAV file: " + wavFile);
-      this.targetFile = new WriterWav.WavFile(wavFile);
 
       this.framesPerTick = 44100.0d / timingProfile.clockFreq;
 
@@ -279,7 +289,8 @@ public final class Beeper {
         throw new IllegalArgumentException("Unsupported WAV encode: " + AUDIO_FORMAT.getEncoding());
       }
 
-      this.targetFile.header(
+      this.recorder = new SndWavRecorder(
+              wavFile,
               encoding,
               AUDIO_FORMAT.getChannels(),
               44100,
@@ -303,29 +314,19 @@ public final class Beeper {
       this.frameCounter += frameOffset;
       long endFrame = (long) this.frameCounter;
 
-      final byte leftHigh = (byte) (this.lastLeftChannel >> 8);
-      final byte leftLow = (byte) this.lastLeftChannel;
-
-      final byte rightHigh = (byte) (this.lastRightChannel >> 8);
-      final byte rightLow = (byte) this.lastRightChannel;
-
-      try {
-        for (; currentFrame < endFrame; currentFrame++) {
-          this.targetFile.data(leftLow, leftHigh, rightLow, rightHigh);
-        }
-      } catch (final IOException ex) {
-        LOGGER.log(Level.SEVERE, "Can;t write WAV data into file", ex);
-      } finally {
-        this.lastRightChannel = levelRight;
-        this.lastLeftChannel = levelLeft;
+      if (endFrame > currentFrame) {
+        this.recorder.writeFrames(this.lastLeftChannel, this.lastRightChannel,
+                endFrame - currentFrame);
       }
+      this.lastRightChannel = levelRight;
+      this.lastLeftChannel = levelLeft;
     }
 
     @Override
     public void dispose() {
       try {
         LOGGER.info("Closing wav file");
-        this.targetFile.close();
+        this.recorder.close();
       } catch (IOException ex) {
         LOGGER.log(Level.SEVERE, "Error during WAV file close", ex);
       }
@@ -334,8 +335,21 @@ public final class Beeper {
 
   private static final class InternalBeeper implements IBeeper {
 
-    private final BlockingQueue<byte[]> soundDataQueue =
-            new ArrayBlockingQueue<>(SndBufferContainer.BUFFERS_NUMBER);
+    private static final int LINE_BUFFER_BLOCKS = 3;
+    private static final int RING_BUFFER_SIZE = 0x8000;
+    private static final int LINE_WRITE_CHUNK = SndBufferContainer.SND_BUFFER_SIZE / 4;
+    private static final long UNDERRUN_PAUSE_NANOS = 1_000_000L;
+    // ring fill level which is kept by rate control, measured before write of a new block
+    private static final int TARGET_FILL = SndBufferContainer.SND_BUFFER_SIZE / 2;
+    private static final double MAX_RATE_DELTA = 0.005d;
+    private static final double FILL_SMOOTHING = 0.05d;
+
+    private final SndRingBuffer ringBuffer =
+            new SndRingBuffer(RING_BUFFER_SIZE, SndBufferContainer.FRAME_SIZE);
+    private final SndResampler resampler = new SndResampler();
+    private final byte[] resampledBlock = new byte[SndResampler.findMaxOutputLength(
+            SndBufferContainer.SND_BUFFER_SIZE, 1.0d + MAX_RATE_DELTA)];
+    private double smoothedFill = TARGET_FILL;
     private final SourceDataLine sourceDataLine;
     private final Thread thread;
     private final SndBufferContainer sndBuffer;
@@ -377,23 +391,33 @@ public final class Beeper {
     ) {
       if (this.working) {
         if (wallclockInt) {
-          this.soundDataQueue.offer(sndBuffer.nextBuffer(levelLeft, levelRight));
+          final byte[] block = sndBuffer.nextBuffer(levelLeft, levelRight);
           sndBuffer.resetPosition();
+          final int length =
+                  this.resampler.resample(block, block.length, this.resampledBlock,
+                          this.findResampleRatio());
+          this.ringBuffer.write(this.resampledBlock, 0, length);
         } else {
           sndBuffer.setValue(spentTstates, levelLeft, levelRight);
         }
       }
     }
 
-    private void writeToLine(final byte[] data) {
-      this.sourceDataLine.write(data, 0, Math.min(this.sourceDataLine.available(), data.length));
+    // emulator and sound card clocks are not the same, so the ratio is slightly changed
+    // to keep stable fill of the ring instead of underruns or dropped blocks
+    private double findResampleRatio() {
+      this.smoothedFill += (this.ringBuffer.available() - this.smoothedFill) * FILL_SMOOTHING;
+      final double error = (TARGET_FILL - this.smoothedFill) / TARGET_FILL;
+      return 1.0d + MAX_RATE_DELTA * Math.max(-1.0d, Math.min(1.0d, error));
     }
 
     @Override
     public void reset() {
       if (this.working) {
         LOGGER.info("Reset");
-        this.soundDataQueue.clear();
+        this.ringBuffer.requestClear();
+        this.resampler.reset();
+        this.smoothedFill = TARGET_FILL;
         this.sndBuffer.reset();
       }
     }
@@ -403,15 +427,14 @@ public final class Beeper {
       try {
         this.sourceDataLine
                 .open(SndBufferContainer.AUDIO_FORMAT,
-                        SndBufferContainer.SND_BUFFER_SIZE * SndBufferContainer.BUFFERS_NUMBER);
+                        SndBufferContainer.SND_BUFFER_SIZE * LINE_BUFFER_BLOCKS);
 
         LOGGER.info(format(
                 "Sound line opened, buffer size is %d byte(s)",
                 this.sourceDataLine.getBufferSize())
         );
 
-        byte[] empty =
-                new byte[SndBufferContainer.BUFFERS_NUMBER * SndBufferContainer.SND_BUFFER_SIZE];
+        final byte[] empty = new byte[SndBufferContainer.SND_BUFFER_SIZE];
         Arrays.fill(empty, (byte) 0xFF);
         this.sourceDataLine.write(empty, 0, empty.length);
 
@@ -419,10 +442,14 @@ public final class Beeper {
 
         LOGGER.info("Sound line started");
 
+        final byte[] chunk = new byte[LINE_WRITE_CHUNK];
         while (this.working && !Thread.currentThread().isInterrupted()) {
-          final byte[] dataBlock = soundDataQueue.poll(10, TimeUnit.MILLISECONDS);
-          if (dataBlock != null) {
-            this.writeToLine(dataBlock);
+          final int length = this.ringBuffer.read(chunk, 0, chunk.length);
+          if (length > 0) {
+            // blocked by the line till there is free space, so the line paces the loop
+            this.sourceDataLine.write(chunk, 0, length);
+          } else {
+            LockSupport.parkNanos(UNDERRUN_PAUSE_NANOS);
           }
         }
         LOGGER.info("Main loop completed");
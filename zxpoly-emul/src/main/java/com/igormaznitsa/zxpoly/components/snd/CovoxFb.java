@@ -21,6 +21,16 @@ public final class CovoxFb implements IoDevice {
     return this.motherboard;
   }
 
+  @Override
+  public boolean isReadPortDecoded(final int port) {
+    return false;
+  }
+
+  @Override
+  public boolean isWritePortDecoded(final int port) {
+    return (port & 0xFF) == 0xFB;
+  }
+
   @Override
   public int readIo(ZxPolyModule module, int port) {
     return -1;
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2014-2024 Igor Maznitsa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.igormaznitsa.zxpoly.components.snd;
+
+import java.util.Arrays;
+
+/**
+ * Band-limited step synthesis buffer for one sound channel. Level changes are added as deltas at
+ * sub-sample time, every delta is spread by windowed sinc kernel and the output is made by
+ * integration once per frame. So the work depends on number of level changes, not on number of
+ * executed instructions, and high frequency edges don't make aliasing.
+ */
+final class SndBlepBuffer {
+
+  static final int PHASE_BITS = 5;
+  static final int PHASES = 1 << PHASE_BITS;
+  static final int KERNEL_WIDTH = 16;
+
+  private static final int KERNEL_SHIFT = 15;
+  // cut-off relative to Nyquist frequency, less than 1.0 to decrease ringing
+  private static final double CUTOFF = 0.9d;
+  private static final int[][] KERNELS = makeKernels();
+
+  private final int samples;
+  private final long[] deltas;
+  private long integrator;
+
+  /**
+   * Constructor.
+   *
+   * @param samples number of output samples per frame
+   */
+  SndBlepBuffer(final int samples) {
+    this.samples = samples;
+    this.deltas = new long[samples + KERNEL_WIDTH];
+  }
+
+  private static int[][] makeKernels() {
+    final int[][] result = new int[PHASES][KERNEL_WIDTH];
+    for (int phase = 0; phase < PHASES; phase++) {
+      final double[] kernel = new double[KERNEL_WIDTH];
+      double sum = 0.0d;
+      for (int k = 0; k < KERNEL_WIDTH; k++) {
+        final double t = k - (KERNEL_WIDTH / 2 - 1) - (double) phase / PHASES;
+        final double x = Math.PI * t * CUTOFF;
+        final double sinc = x == 0.0d ? 1.0d : Math.sin(x) / x;
+        final double w = 2.0d * Math.PI * t / KERNEL_WIDTH;
+        final double blackman = Math.abs(t) >= KERNEL_WIDTH / 2.0d ? 0.0d
+            : 0.42d + 0.5d * Math.cos(w) + 0.08d * Math.cos(2.0d * w);
+        kernel[k] = sinc * blackman;
+        sum += kernel[k];
+      }
+
+      // every kernel must give exactly the delta after integration
+      int intSum = 0;
+      int maxIndex = 0;
+      for (int k = 0; k < KERNEL_WIDTH; k++) {
+        result[phase][k] = (int) Math.round(kernel[k] / sum * (1 << KERNEL_SHIFT));
+        intSum += result[phase][k];
+        if (result[phase][k] > result[phase][maxIndex]) {
+          maxIndex = k;
+        }
+      }
+      result[phase][maxIndex] += (1 << KERNEL_SHIFT) - intSum;
+    }
+    return result;
+  }
+
+  int getSamples() {
+    return this.samples;
+  }
+
+  /**
+   * Add level change.
+   *
+   * @param time  time in frame measured in 1/{@link #PHASES} parts of sample, must be less than
+   *              number of samples in frame
+   * @param delta level change
+   */
+  void addDelta(final long time, final int delta) {
+    final int index = (int) (time >> PHASE_BITS);
+    final int[] kernel = KERNELS[(int) time & (PHASES - 1)];
+    final long[] buffer = this.deltas;
+    for (int k = 0; k < KERNEL_WIDTH; k++) {
+      buffer[index + k] += (long) kernel[k] * delta;
+    }
+  }
+
+  /**
+   * Make samples of the frame and prepare the buffer for the next one.
+   *
+   * @param target 16 bit little endian sample array
+   * @param offset offset of the first sample in the array
+   * @param step   distance between samples in bytes
+   */
+  void endFrame(final byte[] target, final int offset, final int step) {
+    final long[] buffer = this.deltas;
+    long sum = this.integrator;
+    for (int i = 0, position = offset; i < this.samples; i++, position += step) {
+      sum += buffer[i];
+      final int value = (int) Math.max(Short.MIN_VALUE,
+          Math.min(Short.MAX_VALUE, (sum + (1 << (KERNEL_SHIFT - 1))) >> KERNEL_SHIFT));
+      target[position] = (byte) value;
+      target[position + 1] = (byte) (value >> 8);
+    }
+    this.integrator = sum;
+
+    System.arraycopy(buffer, this.samples, buffer, 0, KERNEL_WIDTH);
+    Arrays.fill(buffer, KERNEL_WIDTH, buffer.length, 0L);
+  }
+
+  void reset() {
+    Arrays.fill(this.deltas, 0L);
+    this.integrator = 0L;
+  }
+}
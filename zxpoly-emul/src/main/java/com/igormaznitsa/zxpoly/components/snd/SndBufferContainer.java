@@ -3,7 +3,6 @@ package com.igormaznitsa.zxpoly.components.snd;
 import com.igormaznitsa.zxpoly.components.video.timings.TimingProfile;
 
 import javax.sound.sampled.AudioFormat;
-import java.util.Arrays;
 
 import static javax.sound.sampled.AudioFormat.Encoding.PCM_SIGNED;
 
@@ -13,7 +12,6 @@ final class SndBufferContainer {
   public static final int CHANNELS_NUM = 2;
   public static final int SAMPLE_SIZE_BITS = 16;
 
-  public static final int BUFFERS_NUMBER = 5;
   static final AudioFormat AUDIO_FORMAT = new AudioFormat(
           PCM_SIGNED,
           SND_FREQ,
@@ -25,74 +23,62 @@ final class SndBufferContainer {
   );
   private static final int SAMPLES_PER_INT = SND_FREQ / 50;
   public static final int SND_BUFFER_SIZE = SAMPLES_PER_INT * FRAME_SIZE;
-  private final byte[][] allSndBuffers;
   private final TimingProfile timingProfile;
-  private byte[] soundBuffer;
-  private int bufferIndex;
+  private final byte[] soundBuffer = new byte[SND_BUFFER_SIZE];
+  private final SndBlepBuffer blepLeft = new SndBlepBuffer(SAMPLES_PER_INT);
+  private final SndBlepBuffer blepRight = new SndBlepBuffer(SAMPLES_PER_INT);
+  private final long maxTime = (long) SAMPLES_PER_INT * SndBlepBuffer.PHASES - 1;
   private int tstatesIntCounter = 0;
-  private int lastWrittenPosition = 0;
+  private int levelLeft;
+  private int levelRight;
 
   public SndBufferContainer(final TimingProfile timingProfile) {
     this.timingProfile = timingProfile;
-    this.allSndBuffers = new byte[BUFFERS_NUMBER][];
-    for (int i = 0; i < BUFFERS_NUMBER; i++) {
-      this.allSndBuffers[i] = new byte[SND_BUFFER_SIZE];
-      Arrays.fill(this.allSndBuffers[i], (byte) 0xFF);
-    }
-    this.soundBuffer = this.allSndBuffers[this.bufferIndex];
   }
 
   public byte[] nextBuffer(final int fillLevelL, final int fillLevelR) {
-    if (this.lastWrittenPosition < SND_BUFFER_SIZE - FRAME_SIZE) {
-      this.fillCurrentSndBuffer(this.lastWrittenPosition, SND_BUFFER_SIZE, fillLevelL, fillLevelR);
-    }
-    final byte[] result = this.soundBuffer;
-    this.bufferIndex++;
-    if (this.bufferIndex == BUFFERS_NUMBER) {
-      this.bufferIndex = 0;
-    }
-    this.soundBuffer = this.allSndBuffers[this.bufferIndex];
-    return result;
+    this.addLevels(fillLevelL, fillLevelR);
+    this.blepLeft.endFrame(this.soundBuffer, 0, FRAME_SIZE);
+    this.blepRight.endFrame(this.soundBuffer, 2, FRAME_SIZE);
+    return this.soundBuffer;
   }
 
   public void resetPosition() {
     this.tstatesIntCounter = 0;
-    this.lastWrittenPosition = 0;
   }
 
-  public int calculatePosition(final int tstatesIntCounter) {
-    return ((tstatesIntCounter * SAMPLES_PER_INT + this.timingProfile.tstatesFrame / 2)
-            / this.timingProfile.tstatesFrame);
+  // time of the current counter in frame, measured in sample phases
+  private long findTime() {
+    return Math.min(this.maxTime,
+            (long) this.tstatesIntCounter * SAMPLES_PER_INT * SndBlepBuffer.PHASES
+                    / this.timingProfile.tstatesFrame);
   }
 
-  public void setValue(final int deltaTstates, final int levelLeft, final int levelRight) {
-    this.tstatesIntCounter += deltaTstates;
-    int position = calculatePosition(tstatesIntCounter) * 4;
-
-    if (position < SND_BUFFER_SIZE) {
-      fillCurrentSndBuffer(this.lastWrittenPosition, position + FRAME_SIZE, levelLeft, levelRight);
-      this.lastWrittenPosition = position;
+  private void addLevels(final int levelLeft, final int levelRight) {
+    if (levelLeft != this.levelLeft || levelRight != this.levelRight) {
+      final long time = this.findTime();
+      if (levelLeft != this.levelLeft) {
+        this.blepLeft.addDelta(time, levelLeft - this.levelLeft);
+        this.levelLeft = levelLeft;
+      }
+      if (levelRight != this.levelRight) {
+        this.blepRight.addDelta(time, levelRight - this.levelRight);
+        this.levelRight = levelRight;
+      }
     }
   }
 
-  private void fillCurrentSndBuffer(int fromInclusive, final int toExclusive, final int levelLeft, final int levelRight) {
-    final byte lowL = (byte) levelLeft;
-    final byte highL = (byte) (levelLeft >> 8);
-    final byte lowR = (byte) levelRight;
-    final byte highR = (byte) (levelRight >> 8);
-
-    while (fromInclusive < toExclusive) {
-      if (((fromInclusive >> 1) & 1) == 0) {
-        this.soundBuffer[fromInclusive++] = lowL;
-        this.soundBuffer[fromInclusive++] = highL;
-      } else {
-        this.soundBuffer[fromInclusive++] = lowR;
-        this.soundBuffer[fromInclusive++] = highR;
-      }
-    }
+  public void setValue(final int deltaTstates, final int levelLeft, final int levelRight) {
+    // level is set from the start of the step
+    this.addLevels(levelLeft, levelRight);
+    this.tstatesIntCounter += deltaTstates;
   }
 
   public void reset() {
     this.resetPosition();
+    this.blepLeft.reset();
+    this.blepRight.reset();
+    this.levelLeft = 0;
+    this.levelRight = 0;
   }
 }
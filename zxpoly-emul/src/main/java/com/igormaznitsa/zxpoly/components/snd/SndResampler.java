@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2014-2024 Igor Maznitsa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.igormaznitsa.zxpoly.components.snd;
+
+/**
+ * Linear resampler of 16 bit signed little endian stereo blocks with small ratio changes between
+ * blocks. Phase and the last frame are kept between blocks so that stream is continuous, for ratio
+ * 1.0 output is the same as input delayed for one frame.
+ */
+final class SndResampler {
+
+  private static final int FRAME_SIZE = 4;
+
+  private int lastLeft;
+  private int lastRight;
+  // position of the next output frame in input frames, -1 is the last frame of previous block
+  private double position = -1.0d;
+
+  private static int readSample(final byte[] data, final int offset) {
+    return (data[offset] & 0xFF) | (data[offset + 1] << 8);
+  }
+
+  private static void writeSample(final byte[] data, final int offset, final int value) {
+    data[offset] = (byte) value;
+    data[offset + 1] = (byte) (value >> 8);
+  }
+
+  /**
+   * Find max size of output for block.
+   *
+   * @param inputLength length of input block in bytes
+   * @param maxRatio    max ratio which can be used
+   * @return max number of output bytes
+   */
+  static int findMaxOutputLength(final int inputLength, final double maxRatio) {
+    return ((int) Math.ceil(inputLength / FRAME_SIZE * maxRatio) + 1) * FRAME_SIZE;
+  }
+
+  void reset() {
+    this.lastLeft = 0;
+    this.lastRight = 0;
+    this.position = -1.0d;
+  }
+
+  /**
+   * Resample block.
+   *
+   * @param input       input block, must contain whole frames
+   * @param inputLength number of bytes in the input block
+   * @param output      output array, must have enough space
+   * @param ratio       number of output frames per input frame
+   * @return number of bytes written into the output array
+   * @see #findMaxOutputLength(int, double)
+   */
+  int resample(final byte[] input, final int inputLength, final byte[] output,
+               final double ratio) {
+    final int frames = inputLength / FRAME_SIZE;
+    if (frames == 0) {
+      return 0;
+    }
+    final double step = 1.0d / ratio;
+    final int lastIndex = frames - 1;
+
+    double pos = this.position;
+    int outOffset = 0;
+    while (pos < lastIndex) {
+      final int index = (int) Math.floor(pos);
+      final double fraction = pos - index;
+
+      final int left0;
+      final int right0;
+      if (index < 0) {
+        left0 = this.lastLeft;
+        right0 = this.lastRight;
+      } else {
+        left0 = readSample(input, index * FRAME_SIZE);
+        right0 = readSample(input, index * FRAME_SIZE + 2);
+      }
+
+      if (fraction == 0.0d) {
+        writeSample(output, outOffset, left0);
+        writeSample(output, outOffset + 2, right0);
+      } else {
+        final int nextOffset = (index + 1) * FRAME_SIZE;
+        final int left1 = readSample(input, nextOffset);
+        final int right1 = readSample(input, nextOffset + 2);
+        writeSample(output, outOffset, (int) Math.round(left0 + (left1 - left0) * fraction));
+        writeSample(output, outOffset + 2,
+            (int) Math.round(right0 + (right1 - right0) * fraction));
+      }
+      outOffset += FRAME_SIZE;
+      pos += step;
+    }
+
+    this.position = pos - frames;
+    this.lastLeft = readSample(input, lastIndex * FRAME_SIZE);
+    this.lastRight = readSample(input, lastIndex * FRAME_SIZE + 2);
+    return outOffset;
+  }
+}
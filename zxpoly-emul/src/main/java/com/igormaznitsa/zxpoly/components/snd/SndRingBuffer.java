@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2014-2024 Igor Maznitsa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.igormaznitsa.zxpoly.components.snd;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Preallocated lock-free ring of PCM bytes for single producer and single consumer thread. Data
+ * are written and read only by whole sound frames, if there is no free space then new data are
+ * dropped.
+ */
+final class SndRingBuffer {
+
+  private final byte[] buffer;
+  private final int mask;
+  private final int frameSize;
+  // positions grow without wrap, written only by own side
+  private final AtomicLong writePosition = new AtomicLong();
+  private final AtomicLong readPosition = new AtomicLong();
+  private final AtomicBoolean clearRequested = new AtomicBoolean();
+
+  SndRingBuffer(final int capacity, final int frameSize) {
+    if (Integer.bitCount(capacity) != 1 || capacity % frameSize != 0) {
+      throw new IllegalArgumentException(
+          "Capacity must be power of two and contain whole frames: " + capacity);
+    }
+    this.buffer = new byte[capacity];
+    this.mask = capacity - 1;
+    this.frameSize = frameSize;
+  }
+
+  int getCapacity() {
+    return this.buffer.length;
+  }
+
+  /**
+   * Number of bytes which can be read, can be called from any thread.
+   *
+   * @return number of bytes in the buffer
+   */
+  int available() {
+    return (int) (this.writePosition.getAcquire() - this.readPosition.getAcquire());
+  }
+
+  /**
+   * Write data, must be called only by the producer thread.
+   *
+   * @param data   source array
+   * @param offset offset in the source array
+   * @param length number of bytes
+   * @return number of written bytes, can be less than length if the buffer is full
+   */
+  int write(final byte[] data, final int offset, final int length) {
+    final long position = this.writePosition.getPlain();
+    final int free = this.buffer.length - (int) (position - this.readPosition.getAcquire());
+    final int toWrite = Math.min(length, free) / this.frameSize * this.frameSize;
+    if (toWrite > 0) {
+      final int start = (int) position & this.mask;
+      final int firstPart = Math.min(toWrite, this.buffer.length - start);
+      System.arraycopy(data, offset, this.buffer, start, firstPart);
+      System.arraycopy(data, offset + firstPart, this.buffer, 0, toWrite - firstPart);
+      this.writePosition.setRelease(position + toWrite);
+    }
+    return toWrite;
+  }
+
+  /**
+   * Read data, must be called only by the consumer thread.
+   *
+   * @param target target array
+   * @param offset offset in the target array
+   * @param length max number of bytes
+   * @return number of read bytes
+   */
+  int read(final byte[] target, final int offset, final int length) {
+    long position = this.readPosition.getPlain();
+    final long written = this.writePosition.getAcquire();
+    if (this.clearRequested.getAndSet(false)) {
+      position = written;
+      this.readPosition.setRelease(position);
+    }
+    final int toRead = Math.min(length, (int) (written - position)) / this.frameSize
+        * this.frameSize;
+    if (toRead > 0) {
+      final int start = (int) position & this.mask;
+      final int firstPart = Math.min(toRead, this.buffer.length - start);
+      System.arraycopy(this.buffer, start, target, offset, firstPart);
+      System.arraycopy(this.buffer, 0, target, offset + firstPart, toRead - firstPart);
+      this.readPosition.setRelease(position + toRead);
+    }
+    return toRead;
+  }
+
+  /**
+   * Ask the consumer to drop all written data during its next read, can be called from any
+   * thread.
+   */
+  void requestClear() {
+    this.clearRequested.set(true);
+  }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright (C) 2014-2024 Igor Maznitsa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.igormaznitsa.zxpoly.components.snd;
+
+import com.igormaznitsa.zxpoly.components.tapereader.WriterWav;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Recorder of 16 bit stereo PCM into WAV file. Frames are collected in direct buffer chunks and
+ * completed chunks are written into the file channel by own background thread, so that the
+ * emulation thread never waits for disk. RIFF and data lengths are patched on close.
+ */
+final class SndWavRecorder {
+
+  static final int CHUNK_SIZE = 256 * 1024;
+  // max number of allocated chunks, data are dropped if the disk can't write them in time
+  static final int MAX_CHUNKS = 16;
+
+  private static final Logger LOGGER = Logger.getLogger(SndWavRecorder.class.getName());
+  private static final ByteBuffer END_MARKER = ByteBuffer.allocate(0);
+
+  private final File file;
+  private final FileChannel channel;
+  private final int offsetRiffLength;
+  private final int offsetDataLength;
+  private final BlockingQueue<ByteBuffer> filledChunks =
+      new ArrayBlockingQueue<>(MAX_CHUNKS + 1);
+  private final BlockingQueue<ByteBuffer> freeChunks = new ArrayBlockingQueue<>(MAX_CHUNKS);
+  private final Thread writerThread;
+  private ByteBuffer chunk;
+  private int allocatedChunks;
+  private long droppedBytes;
+  private boolean closed;
+  private volatile boolean failed;
+
+  SndWavRecorder(
+      final File file,
+      final int encoding,
+      final int channels,
+      final int sampleRate,
+      final int byteRate,
+      final int blockAlign,
+      final int bitsPerSample
+  ) throws IOException {
+    this.file = file;
+
+    final ByteArrayOutputStream headerBuffer = new ByteArrayOutputStream(64);
+    final WriterWav headerWriter = new WriterWav(headerBuffer)
+        .header(encoding, channels, sampleRate, byteRate, blockAlign, bitsPerSample)
+        .data(new byte[0]);
+    this.offsetRiffLength = headerWriter.getOffsetRiffLength();
+    this.offsetDataLength = headerWriter.getOffsetDataLength();
+
+    this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    try {
+      writeFully(this.channel, ByteBuffer.wrap(headerBuffer.toByteArray()));
+    } catch (IOException ex) {
+      this.channel.close();
+      throw ex;
+    }
+
+    this.chunk = this.allocateChunk();
+    this.writerThread = new Thread(this::writerLoop, "zxpoly-wav-writer");
+    this.writerThread.setDaemon(true);
+    this.writerThread.start();
+  }
+
+  private static void writeFully(final FileChannel channel, final ByteBuffer buffer)
+      throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  private static void writeFullyAt(final FileChannel channel, final ByteBuffer buffer,
+                                   final long position) throws IOException {
+    long offset = position;
+    while (buffer.hasRemaining()) {
+      offset += channel.write(buffer, offset);
+    }
+  }
+
+  private ByteBuffer allocateChunk() {
+    this.allocatedChunks++;
+    return ByteBuffer.allocateDirect(CHUNK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  private ByteBuffer nextChunk() {
+    ByteBuffer result = this.freeChunks.poll();
+    if (result == null && this.allocatedChunks < MAX_CHUNKS) {
+      result = this.allocateChunk();
+    }
+    return result;
+  }
+
+  /**
+   * Add the same stereo frame several times, must be called only by one thread.
+   *
+   * @param left   left sample
+   * @param right  right sample
+   * @param frames number of frames
+   */
+  synchronized void writeFrames(final int left, final int right, final long frames) {
+    if (this.closed) {
+      return;
+    }
+    final int frame = (left & 0xFFFF) | (right << 16);
+    for (long i = 0; i < frames; i++) {
+      if (this.chunk == null || !this.chunk.hasRemaining()) {
+        if (this.chunk != null) {
+          this.chunk.flip();
+          this.filledChunks.add(this.chunk);
+        }
+        this.chunk = this.nextChunk();
+        if (this.chunk == null) {
+          if (this.droppedBytes == 0L) {
+            LOGGER.warning("WAV writer is too slow, sound data are dropped");
+          }
+          this.droppedBytes += (frames - i) * 4L;
+          return;
+        }
+      }
+      this.chunk.putInt(frame);
+    }
+  }
+
+  private void writerLoop() {
+    try {
+      while (true) {
+        final ByteBuffer buffer = this.filledChunks.take();
+        if (buffer == END_MARKER) {
+          break;
+        }
+        if (!this.failed) {
+          try {
+            writeFully(this.channel, buffer);
+          } catch (IOException ex) {
+            LOGGER.log(Level.SEVERE, "Can't write WAV data into file", ex);
+            this.failed = true;
+          }
+        }
+        buffer.clear();
+        this.freeChunks.add(buffer);
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Write all collected data, patch header and close the file.
+   *
+   * @throws IOException if there is error during writing
+   */
+  void close() throws IOException {
+    synchronized (this) {
+      if (this.closed) {
+        return;
+      }
+      this.closed = true;
+      if (this.chunk != null && this.chunk.position() > 0) {
+        this.chunk.flip();
+        this.filledChunks.add(this.chunk);
+      }
+      this.chunk = null;
+      this.filledChunks.add(END_MARKER);
+    }
+
+    try {
+      this.writerThread.join();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+
+    try {
+      if (this.droppedBytes > 0L) {
+        LOGGER.warning("Dropped " + this.droppedBytes + " bytes of WAV data");
+      }
+      final long size = this.channel.size();
+      final ByteBuffer value = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+      value.putInt(0, (int) (size - 8L));
+      writeFullyAt(this.channel, value, this.offsetRiffLength);
+      value.clear();
+      value.putInt(0, (int) (size - this.offsetDataLength - 4L));
+      writeFullyAt(this.channel, value, this.offsetDataLength);
+    } finally {
+      this.channel.close();
+    }
+    if (this.failed) {
+      throw new IOException("Error during WAV data write: " + this.file);
+    }
+  }
+}
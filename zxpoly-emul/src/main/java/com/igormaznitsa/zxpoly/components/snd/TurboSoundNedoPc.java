@@ -63,6 +63,16 @@ public final class TurboSoundNedoPc implements IoDevice, AyBasedSoundDevice {
     return this.motherboard;
   }
 
+  @Override
+  public boolean isReadPortDecoded(final int port) {
+    return (port & 2) == 0 && (port & 0x8000) == 0x8000;
+  }
+
+  @Override
+  public boolean isWritePortDecoded(final int port) {
+    return (port & 2) == 0 && (port & 0x8000) == 0x8000;
+  }
+
   @Override
   public int readIo(final ZxPolyModule module, final int port) {
     if (!module.isTrdosActive() && (port & 2) == 0 && (port & 0x8000) == 0x8000) {
@@ -105,6 +115,12 @@ public final class TurboSoundNedoPc implements IoDevice, AyBasedSoundDevice {
     this.chipAy1.step(spentTstates);
   }
 
+  @Override
+  public int getTstatesTillNextEvent() {
+    return Math.min(this.chipAy0.getMachineCyclesTillNextChange(),
+        this.chipAy1.getMachineCyclesTillNextChange());
+  }
+
   @Override
   public String getName() {
     return "TurboSound-NedoPc";
@@ -119,6 +135,6 @@ public final class TurboSoundNedoPc implements IoDevice, AyBasedSoundDevice {
 
   @Override
   public int getNotificationFlags() {
-    return NOTIFICATION_POSTSTEP | NOTIFICATION_PRESTEP;
+    return NOTIFICATION_POSTSTEP_SCHEDULED | NOTIFICATION_PRESTEP_SIGNALS;
   }
 }
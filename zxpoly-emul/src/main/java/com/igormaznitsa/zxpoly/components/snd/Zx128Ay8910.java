@@ -50,6 +50,16 @@ public final class Zx128Ay8910 implements IoDevice, AyBasedSoundDevice {
     return this.motherboard;
   }
 
+  @Override
+  public boolean isReadPortDecoded(final int port) {
+    return (port & 2) == 0 && (port & 0x8000) == 0x8000;
+  }
+
+  @Override
+  public boolean isWritePortDecoded(final int port) {
+    return (port & 2) == 0 && (port & 0x8000) == 0x8000;
+  }
+
   @Override
   public int readIo(final ZxPolyModule module, final int port) {
     if (!module.isTrdosActive() && (port & 2) == 0 && (port & 0x8000) == 0x8000) {
@@ -82,6 +92,11 @@ public final class Zx128Ay8910 implements IoDevice, AyBasedSoundDevice {
     this.ay8910.step(spentTstates);
   }
 
+  @Override
+  public int getTstatesTillNextEvent() {
+    return this.ay8910.getMachineCyclesTillNextChange();
+  }
+
   @Override
   public String getName() {
     return "Zx128AY-8910";
@@ -94,6 +109,6 @@ public final class Zx128Ay8910 implements IoDevice, AyBasedSoundDevice {
 
   @Override
   public int getNotificationFlags() {
-    return NOTIFICATION_POSTSTEP | NOTIFICATION_PRESTEP;
+    return NOTIFICATION_POSTSTEP_SCHEDULED | NOTIFICATION_PRESTEP_SIGNALS;
   }
 }
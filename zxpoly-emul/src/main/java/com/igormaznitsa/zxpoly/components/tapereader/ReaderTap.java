@@ -58,14 +58,10 @@ final class ReaderTap implements ListModel<ReaderTap.TapBlock>, TapeSource {
   private final String name;
   private final List<TapBlock> tapBlockList = new ArrayList<>();
   private final TapeContext tapeContext;
+  private final TapeEdges edges;
+  private final TapeEdges.Cursor cursor;
   private volatile TapBlock current;
-  private volatile State state = State.STOPPED;
-  private volatile boolean signalInState;
-  private long counterMain;
-  private long counterEx;
-  private int mask;
-  private int buffered;
-  private int controlChecksum;
+  private volatile boolean playing;
 
   public ReaderTap(final TapeContext tapeContext, final String name, final InputStream tap) throws IOException {
     this.tapeContext = tapeContext;
@@ -92,6 +88,67 @@ final class ReaderTap implements ListModel<ReaderTap.TapBlock>, TapeSource {
       item.next = null;
       LOGGER.log(Level.INFO, "Pointer to " + makeDescription(this.current));
     }
+    this.edges = this.compileEdges();
+    this.cursor = new TapeEdges.Cursor(this.edges);
+  }
+
+  private static boolean addPulse(final TapeEdges.Builder builder, final boolean level,
+                                  final long length) {
+    final boolean next = !level;
+    builder.add(next, length);
+    return next;
+  }
+
+  private static boolean addByte(final TapeEdges.Builder builder, final boolean level,
+                                 final int data) {
+    boolean result = level;
+    for (int mask = 0x80; mask != 0; mask >>>= 1) {
+      final long length = (data & mask) == 0 ? PULSELEN_ZERO : PULSELEN_ONE;
+      result = addPulse(builder, result, length);
+      result = addPulse(builder, result, length);
+    }
+    return result;
+  }
+
+  /**
+   * Compile all blocks into single edge list, every block starts with pause.
+   *
+   * @return compiled signal of the whole tape
+   */
+  private TapeEdges compileEdges() {
+    final TapeEdges.Builder builder = new TapeEdges.Builder();
+    for (final TapBlock block : this.tapBlockList) {
+      block.startPosition = builder.getLength();
+
+      builder.add(false, PAUSE_BETWEEN);
+      boolean level = false;
+
+      final long pilotPulses =
+          block.isHeader() ? IMPULSNUMBER_PILOT_HEADER : IMPULSNUMBER_PILOT_DATA;
+      for (long i = 0; i < pilotPulses; i++) {
+        level = addPulse(builder, level, PULSELEN_PILOT);
+      }
+      level = addPulse(builder, level, PULSELEN_SYNC1);
+      level = addPulse(builder, level, PULSELEN_SYNC2);
+      block.dataPosition = builder.getLength();
+
+      int controlChecksum = block.flag & 0xFF;
+      level = addByte(builder, level, block.flag & 0xFF);
+      for (final byte b : block.data) {
+        controlChecksum ^= b & 0xFF;
+        level = addByte(builder, level, b & 0xFF);
+      }
+      if ((block.checksum & 0xFF) != (controlChecksum & 0xFF)) {
+        LOGGER.log(Level.WARNING, "Different XOR sum in block " + block.index + " : at file #"
+            + toHexString(block.checksum & 0xFF).toUpperCase(Locale.ENGLISH)
+            + ", calculated #"
+            + toHexString(controlChecksum & 0xFF).toUpperCase(Locale.ENGLISH));
+      }
+      level = addByte(builder, level, block.checksum & 0xFF);
+
+      addPulse(builder, level, PULSELEN_SYNC3);
+    }
+    return builder.build();
   }
 
   @Override
@@ -145,27 +202,26 @@ final class ReaderTap implements ListModel<ReaderTap.TapBlock>, TapeSource {
 
   @Override
   public synchronized boolean isPlaying() {
-    return this.state != State.STOPPED;
+    return this.playing;
   }
 
   @Override
   public synchronized boolean startPlay() {
-    if (this.state != State.STOPPED && this.current == null) {
-      this.state = State.STOPPED;
+    if (this.current == null) {
+      this.playing = false;
       fireStop();
       return false;
     }
 
-    this.state = State.INBETWEEN;
-    this.counterMain = -1L;
+    this.cursor.seek(this.current.startPosition);
+    this.playing = true;
     firePlay();
     return true;
   }
 
   @Override
   public synchronized void stopPlay() {
-    this.counterMain = -1L;
-    this.state = State.STOPPED;
+    this.playing = false;
     fireStop();
   }
 
@@ -183,6 +239,7 @@ final class ReaderTap implements ListModel<ReaderTap.TapBlock>, TapeSource {
       while (this.current.prev != null) {
         this.current = this.current.prev;
       }
+      this.cursor.seek(this.current.startPosition);
       LOGGER.log(Level.INFO, "Pointer to " + makeDescription(this.current));
     }
   }
@@ -204,7 +261,12 @@ final class ReaderTap implements ListModel<ReaderTap.TapBlock>, TapeSource {
   @Override
   public synchronized boolean rewindToNextBlock() {
     stopPlay();
-    return toNextBlock();
+    if (toNextBlock()) {
+      this.cursor.seek(this.current.startPosition);
+      return true;
+    } else {
+      return false;
+    }
   }
 
   @Override
@@ -215,6 +277,7 @@ final class ReaderTap implements ListModel<ReaderTap.TapBlock>, TapeSource {
     } else {
       if (!this.current.isFirst()) {
         this.current = this.current.prev;
+        this.cursor.seek(this.current.startPosition);
         LOGGER.log(Level.INFO, "Pointer to " + makeDescription(this.current));
         return true;
       } else {
@@ -224,7 +287,7 @@ final class ReaderTap implements ListModel<ReaderTap.TapBlock>, TapeSource {
   }
 
   public synchronized boolean isHi() {
-    return this.signalInState;
+    return this.playing && this.cursor.isHi();
   }
 
   public synchronized byte[] getAsWAV() throws IOException {
@@ -233,14 +296,10 @@ final class ReaderTap implements ListModel<ReaderTap.TapBlock>, TapeSource {
 
     final ByteArrayOutputStream data = new ByteArrayOutputStream(1024 * 1024);
 
-    rewindToStart();
-    this.signalInState = false;
-    this.counterMain = -1L;
-    this.state = State.INBETWEEN;
-
-    while (this.state != State.STOPPED) {
-      data.write(this.signalInState ? 0xFF : 0x00);
-      updateForSpentMachineCycles(CYCLESPERSAMPLE);
+    final TapeEdges.Cursor wavCursor = new TapeEdges.Cursor(this.edges);
+    while (!wavCursor.isEnd()) {
+      data.write(wavCursor.isHi() ? 0xFF : 0x00);
+      wavCursor.advance(CYCLESPERSAMPLE);
     }
 
     final JBBPOut out = BeginBin(JBBPByteOrder.LITTLE_ENDIAN);
@@ -262,6 +321,37 @@ final class ReaderTap implements ListModel<ReaderTap.TapBlock>, TapeSource {
             Byte(data.toByteArray()).End().toByteArray();
   }
 
+  @Override
+  public synchronized byte[] takeStandardBlock() {
+    TapBlock block = this.current;
+    if (block != null && this.cursor.getPosition() >= block.dataPosition) {
+      // data of the current block is already under the head
+      block = block.next;
+    }
+    if (block == null) {
+      return null;
+    }
+    LOGGER.log(Level.INFO, "Fast load of " + makeDescription(block));
+
+    if (block.next == null) {
+      this.current = block;
+      this.cursor.seek(this.edges.getLength());
+      if (this.playing) {
+        this.stopPlay();
+      }
+    } else {
+      this.current = block.next;
+      this.cursor.seek(this.current.startPosition);
+      LOGGER.log(Level.INFO, "Pointer to " + makeDescription(this.current));
+    }
+
+    final byte[] result = new byte[block.data.length + 2];
+    result[0] = block.flag;
+    System.arraycopy(block.data, 0, result, 1, block.data.length);
+    result[result.length - 1] = block.checksum;
+    return result;
+  }
+
   private String makeDescription(final TapBlock block) {
     if (block == null) {
       return "No block";
@@ -299,36 +389,9 @@ final class ReaderTap implements ListModel<ReaderTap.TapBlock>, TapeSource {
     }
   }
 
-  private void loadDataByteToRead(final int data) {
-    this.controlChecksum ^= data;
-    this.mask = 0x80;
-    this.buffered = data;
-    this.counterEx = ((data & this.mask) == 0 ? PULSELEN_ZERO : PULSELEN_ONE);
-    this.signalInState = !this.signalInState;
-  }
-
-  private boolean processDataByte(final long machineCycles) {
-    boolean result = false;
-    long counter = this.counterEx & 0x8000000000000000L;
-    this.counterEx = (this.counterEx & 0x7FFFFFFFFFFFFFFFL) - machineCycles;
-    if (this.counterEx <= 0) {
-      if (counter != 0) {
-        this.mask >>>= 1;
-        if (this.mask == 0) {
-          result = true;
-        } else {
-          this.counterEx = (this.buffered & this.mask) == 0 ? PULSELEN_ZERO : PULSELEN_ONE;
-          this.signalInState = !this.signalInState;
-          counter = 0;
-        }
-      } else {
-        this.counterEx = (this.buffered & this.mask) == 0 ? PULSELEN_ZERO : PULSELEN_ONE;
-        counter = 0x8000000000000000L;
-        this.signalInState = !this.signalInState;
-      }
-    }
-    this.counterEx |= counter;
-    return result;
+  @Override
+  public synchronized long getTstatesTillNextEdge() {
+    return this.playing ? this.cursor.getTstatesTillEdge() : 0L;
   }
 
   @Override
@@ -343,151 +406,14 @@ final class ReaderTap implements ListModel<ReaderTap.TapBlock>, TapeSource {
 
   @Override
   public synchronized void updateForSpentMachineCycles(final long machineCycles) {
-    if (this.state != State.STOPPED) {
-      final TapBlock block = this.current;
-
-      switch (this.state) {
-        case INBETWEEN: {
-          if (counterMain < 0) {
-            LOGGER.info("PAUSE");
-            this.signalInState = false;
-            this.counterMain = PAUSE_BETWEEN;
-          } else {
-            this.counterMain -= machineCycles;
-            if (this.counterMain <= 0L) {
-              this.state = State.PILOT;
-              this.counterMain = -1L;
-            }
-          }
-        }
-        break;
-        case PILOT: {
-          if (this.counterMain < 0L) {
-            LOGGER.log(Level.INFO, "PILOT (" + (block.isHeader() ? "header" : "data") + ')');
-            this.counterMain =
-                    block.isHeader() ? IMPULSNUMBER_PILOT_HEADER : IMPULSNUMBER_PILOT_DATA;
-            this.signalInState = !this.signalInState;
-            this.counterEx = PULSELEN_PILOT;
-          } else {
-            this.counterEx -= machineCycles;
-            if (this.counterEx <= 0) {
-              this.counterMain--;
-              if (this.counterMain <= 0) {
-                this.state = State.SYNC1;
-                this.counterMain = -1L;
-              } else {
-                this.signalInState = !signalInState;
-                this.counterEx = PULSELEN_PILOT;
-              }
-            }
-          }
-        }
-        break;
-        case SYNC1: {
-          if (this.counterMain < 0L) {
-            LOGGER.info("SYNC1");
-            this.counterEx = PULSELEN_SYNC1;
-            this.signalInState = !signalInState;
-            this.counterMain = 0L;
-          } else {
-            this.counterEx -= machineCycles;
-            if (counterEx <= 0) {
-              this.counterMain = -1L;
-              this.state = State.SYNC2;
-            }
-          }
-        }
-        break;
-        case SYNC2: {
-          if (this.counterMain < 0L) {
-            LOGGER.info("SYNC2");
-            this.counterEx = PULSELEN_SYNC2;
-            this.signalInState = !signalInState;
-            this.counterMain = 0L;
-          } else {
-            this.counterEx -= machineCycles;
-            if (counterEx <= 0) {
-              this.counterMain = -1L;
-              this.state = State.FLAG;
-            }
-          }
+    if (this.playing) {
+      if (this.cursor.advance(machineCycles)) {
+        final long position = this.cursor.getPosition();
+        while (this.current.next != null && this.current.next.startPosition <= position) {
+          this.toNextBlock();
         }
-        break;
-        case FLAG: {
-          if (this.counterMain < 0L) {
-            LOGGER.log(Level.INFO,
-                    "FLAG (#" + toHexString(block.flag & 0xFF).toUpperCase(Locale.ENGLISH) + ')');
-            this.controlChecksum = 0;
-            this.counterMain = 0L;
-            loadDataByteToRead(block.flag & 0xFF);
-          } else {
-            if (processDataByte(machineCycles)) {
-              this.counterMain = -1L;
-              this.state = State.DATA;
-            }
-          }
-        }
-        break;
-        case DATA: {
-          if (this.counterMain < 0L) {
-            LOGGER.log(Level.INFO, "DATA (len=#"
-                    + toHexString(block.data.length & 0xFFFF).toUpperCase(Locale.ENGLISH) + ')');
-            this.counterMain = 0L;
-            loadDataByteToRead(block.data[(int) this.counterMain++]);
-          } else {
-            if (processDataByte(machineCycles)) {
-              if (this.counterMain < block.data.length) {
-                loadDataByteToRead(block.data[(int) this.counterMain++]);
-              } else {
-                this.counterMain = -1;
-                this.state = State.CHECKSUM;
-              }
-            }
-          }
-        }
-        break;
-        case CHECKSUM: {
-          if (this.counterMain < 0L) {
-            LOGGER.log(Level.INFO,
-                    "CHK (xor=#" + toHexString(block.checksum & 0xFF).toUpperCase(Locale.ENGLISH)
-                            + ')');
-            if ((block.checksum & 0xFF) != (this.controlChecksum & 0xFF)) {
-              LOGGER.log(Level.WARNING, "Different XOR sum : at file #"
-                      + toHexString(block.checksum & 0xFF).toUpperCase(Locale.ENGLISH)
-                      + ", calculated #"
-                      + toHexString(this.controlChecksum & 0xFF).toUpperCase(Locale.ENGLISH));
-            }
-            this.counterMain = 0L;
-            loadDataByteToRead(block.checksum & 0xFF);
-          } else {
-            if (processDataByte(machineCycles)) {
-              this.counterMain = -1L;
-              this.state = State.SYNC3;
-            }
-          }
-        }
-        break;
-        case SYNC3: {
-          if (this.counterMain < 0L) {
-            LOGGER.info("SYNC3");
-            this.counterEx = PULSELEN_SYNC3;
-            this.signalInState = !signalInState;
-            this.counterMain = 0L;
-          } else {
-            this.counterEx -= machineCycles;
-            if (counterEx <= 0) {
-              this.counterMain = -1L;
-              if (!this.toNextBlock()) {
-                stopPlay();
-              } else {
-                this.state = State.INBETWEEN;
-              }
-            }
-          }
-        }
-        break;
-        default:
-          throw new Error("Unexpected state [" + this.state + ']');
+      } else {
+        this.stopPlay();
       }
     }
   }
@@ -531,19 +457,6 @@ final class ReaderTap implements ListModel<ReaderTap.TapBlock>, TapeSource {
   public void removeListDataListener(ListDataListener l) {
   }
 
-  private enum State {
-
-    STOPPED,
-    INBETWEEN,
-    PILOT,
-    SYNC1,
-    SYNC2,
-    SYNC3,
-    FLAG,
-    DATA,
-    CHECKSUM
-  }
-
   public static final class TapBlock {
 
     byte flag;
@@ -554,6 +467,8 @@ final class ReaderTap implements ListModel<ReaderTap.TapBlock>, TapeSource {
     transient TapBlock next;
     transient int index;
     transient String name;
+    transient long startPosition;
+    transient long dataPosition;
 
     public TapBlock(TapFormatParser.TapBlock block) {
       this.flag = block.getFlag();
@@ -1,56 +1,193 @@
 package com.igormaznitsa.zxpoly.components.tapereader;
 
+import com.igormaznitsa.zxpoly.components.tapereader.tzx.AbstractTzxBlock;
+import com.igormaznitsa.zxpoly.components.tapereader.tzx.AbstractTzxFlowManagementBlock;
+import com.igormaznitsa.zxpoly.components.tapereader.tzx.AbstractTzxInformationBlock;
+import com.igormaznitsa.zxpoly.components.tapereader.tzx.AbstractTzxSystemBlock;
+import com.igormaznitsa.zxpoly.components.tapereader.tzx.TzxBlockPauseOrStop;
+import com.igormaznitsa.zxpoly.components.tapereader.tzx.TzxBlockSetSignalLevel;
+import com.igormaznitsa.zxpoly.components.tapereader.tzx.TzxBlockStandardSpeedData;
+import com.igormaznitsa.zxpoly.components.tapereader.tzx.TzxBlockStopTapeIf48k;
 import com.igormaznitsa.zxpoly.components.tapereader.tzx.TzxFile;
+import com.igormaznitsa.zxpoly.components.tapereader.tzx.TzxPulseStream;
 import com.igormaznitsa.zxpoly.components.tapereader.tzx.TzxWavRenderer;
-import com.igormaznitsa.zxpoly.components.tapereader.wave.ByteArraySeekableContainer;
-import com.igormaznitsa.zxpoly.components.tapereader.wave.InMemoryWavFile;
 import com.igormaznitsa.zxpoly.components.video.timings.TimingProfile;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.ListModel;
 import javax.swing.SwingUtilities;
 import javax.swing.event.ListDataListener;
 
-public class ReaderTzx implements TapeSource, ListModel<TzxWavRenderer.RenderResult.NamedOffsets> {
+/**
+ * TZX tape source which produces pulses on demand during play. Only pulses of the current block
+ * are kept in memory, for seeking there is index of saved stream states made during load.
+ */
+public class ReaderTzx implements TapeSource, ListModel<ReaderTzx.TapeMark> {
 
   private static final Logger LOGGER = Logger.getLogger(ReaderTzx.class.getName());
 
+  // signal values of rendered WAV, threshold is applied to them
+  private static final float SIGNAL_HI = (float) 0xFE / (float) 0xFF;
+  private static final float SIGNAL_LOW = (float) 0x01 / (float) 0xFF;
+  private static final int ATTR_LEVEL = 0x80;
+  private static final int ATTR_TYPE_MASK = 0x7F;
+  private static final int WAV_SAMPLE_RATE = 44100;
+  // max number of blocks checked from the head to find standard block
+  private static final int MAX_BLOCKS_BEFORE_FAST_LOAD = 64;
+
   private final List<ActionListener> actionListeners = new CopyOnWriteArrayList<>();
-  private final AtomicLong tStateCounter = new AtomicLong(0L);
   private final TzxFile tzxFile;
   private final String name;
-  private final TimingProfile timingProfile;
-  private final InMemoryWavFile inMemoryWavFile;
-  private final TzxWavRenderer.RenderResult renderedWav;
+  private final long machineTstatesPerSecond;
+  private final TzxPulseStream pulseStream;
+  private final List<TzxPulseStream.Position> checkpoints = new ArrayList<>();
+  private final List<TapeMark> marks = new ArrayList<>();
   private final AtomicInteger blockIndex = new AtomicInteger(0);
   private final TapeContext tapeContext;
-  private final TzxWavRenderer.DataType SIGNAL_STOP_TAPE = TzxWavRenderer.DataType.STOP_TAPE;
-  private final TzxWavRenderer.DataType SIGNAL_STOP_TAPE_IF_ZX48 = TzxWavRenderer.DataType.STOP_TAPE_IF_ZX48;
+  private long[] checkpointTicks = new long[256];
+  private long totalTicks;
+
+  private int[] windowTicks = new int[1024];
+  private byte[] windowAttrs = new byte[1024];
+  private int windowSize;
+  private int windowIndex;
+  private long windowNextTick;
+
+  private long pulseStartTick;
+  private int pulseTicks;
+  // rest of the current pulse in units of 1/(TZX T-states per second * machine T-states per second)
+  private long pulseRemaining;
+
+  private volatile boolean signal;
   private volatile boolean playing;
   private volatile float bias = 0.01f;
 
+  private final TzxPulseStream.PulseSink windowSink = new TzxPulseStream.PulseSink() {
+    @Override
+    public void onPulse(final int ticks, final boolean level, final TzxWavRenderer.DataType type) {
+      if (windowSize == windowTicks.length) {
+        windowTicks = Arrays.copyOf(windowTicks, windowSize * 2);
+        windowAttrs = Arrays.copyOf(windowAttrs, windowSize * 2);
+      }
+      windowTicks[windowSize] = ticks;
+      windowAttrs[windowSize] = (byte) (type.ordinal() | (level ? ATTR_LEVEL : 0));
+      windowSize++;
+    }
+
+    @Override
+    public void onMark(final String name) {
+    }
+  };
+
   public ReaderTzx(final TapeContext context, final TimingProfile timingProfile, final String name, final InputStream tap) throws IOException {
     this.tapeContext = context;
-    this.timingProfile = timingProfile;
     this.name = name;
+    this.machineTstatesPerSecond = timingProfile.tstatesFrame * 50L;
     this.tzxFile = new TzxFile(tap);
 
     this.tzxFile.getBlockList()
             .forEach(x -> LOGGER.info("Found block: " + x.getClass().getSimpleName()));
 
     final long startTime = System.currentTimeMillis();
-    this.renderedWav = this.renderAsWav();
+    this.pulseStream = new TzxPulseStream(this.tzxFile, LOGGER);
+    this.makeIndex();
+    this.seek(0L);
 
-    LOGGER.info(String.format("TZX to WAV conversion took %d ms, size %d bytes", (System.currentTimeMillis() - startTime), this.renderedWav.getWavData().length));
-    this.inMemoryWavFile = new InMemoryWavFile(new ByteArraySeekableContainer(this.renderedWav.getWavData()), timingProfile.tstatesFrame * 50L);
+    LOGGER.info(String.format("TZX index took %d ms, %d checkpoints, length %d ms", (System.currentTimeMillis() - startTime), this.checkpoints.size(), this.totalTicks * 1000L / TzxPulseStream.TSTATES_PER_SECOND));
+  }
+
+  private void makeIndex() throws IOException {
+    final long[] tick = new long[1];
+    final TzxPulseStream.PulseSink sink = new TzxPulseStream.PulseSink() {
+      @Override
+      public void onPulse(final int ticks, final boolean level, final TzxWavRenderer.DataType type) {
+        tick[0] += ticks;
+      }
+
+      @Override
+      public void onMark(final String name) {
+        marks.add(new TapeMark(name, tick[0]));
+      }
+    };
+
+    while (this.pulseStream.hasNext()) {
+      final int last = this.checkpoints.size() - 1;
+      if (last < 0 || this.checkpointTicks[last] != tick[0]) {
+        if (last + 1 == this.checkpointTicks.length) {
+          this.checkpointTicks = Arrays.copyOf(this.checkpointTicks, this.checkpointTicks.length * 2);
+        }
+        this.checkpointTicks[last + 1] = tick[0];
+        this.checkpoints.add(this.pulseStream.getPosition());
+      }
+      this.pulseStream.renderNext(sink);
+    }
+    this.totalTicks = tick[0];
+  }
+
+  private boolean fillWindow() {
+    this.windowSize = 0;
+    this.windowIndex = 0;
+    try {
+      while (this.windowSize == 0 && this.pulseStream.hasNext()) {
+        this.pulseStream.renderNext(this.windowSink);
+      }
+    } catch (IOException ex) {
+      LOGGER.log(Level.SEVERE, "Error during TZX rendering", ex);
+      this.windowSize = 0;
+    }
+    return this.windowSize > 0;
+  }
+
+  private synchronized void seek(final long tick) {
+    int index = Arrays.binarySearch(this.checkpointTicks, 0, this.checkpoints.size(), tick);
+    if (index < 0) {
+      index = Math.max(0, -index - 2);
+    }
+    this.pulseStream.setPosition(this.checkpoints.get(index));
+    this.windowSize = 0;
+    this.windowIndex = 0;
+    this.windowNextTick = this.checkpointTicks[index];
+    this.pulseStartTick = this.windowNextTick;
+    this.pulseTicks = 0;
+    this.pulseRemaining = 0L;
+    this.signal = false;
+
+    while (this.windowIndex < this.windowSize || this.fillWindow()) {
+      final int ticks = this.windowTicks[this.windowIndex];
+      final long pulseEnd = this.windowNextTick + ticks;
+      if (pulseEnd > tick) {
+        if (this.windowNextTick < tick) {
+          this.nextPulse();
+          this.pulseRemaining = (pulseEnd - tick) * this.machineTstatesPerSecond;
+        }
+        break;
+      }
+      this.windowNextTick = pulseEnd;
+      this.pulseStartTick = pulseEnd;
+      this.windowIndex++;
+    }
+  }
+
+  private int nextPulse() {
+    if (this.windowIndex >= this.windowSize && !this.fillWindow()) {
+      return -1;
+    }
+    final int ticks = this.windowTicks[this.windowIndex];
+    final int attrs = this.windowAttrs[this.windowIndex++];
+    this.pulseStartTick = this.windowNextTick;
+    this.pulseTicks = ticks;
+    this.windowNextTick += ticks;
+    this.signal = (attrs & ATTR_LEVEL) != 0;
+    return attrs & ATTR_TYPE_MASK;
   }
 
   @Override
@@ -66,12 +203,12 @@ public class ReaderTzx implements TapeSource, ListModel<TzxWavRenderer.RenderRes
 
   @Override
   public int getSize() {
-    return this.renderedWav.getNamedOffsets().size();
+    return this.marks.size();
   }
 
   @Override
-  public TzxWavRenderer.RenderResult.NamedOffsets getElementAt(final int index) {
-    return this.renderedWav.getNamedOffsets().get(index);
+  public TapeMark getElementAt(final int index) {
+    return this.marks.get(index);
   }
 
   @Override
@@ -99,9 +236,14 @@ public class ReaderTzx implements TapeSource, ListModel<TzxWavRenderer.RenderRes
     this.bias = Math.max(0.0f, Math.min(threshold, 1.0f));
   }
 
+  /**
+   * Get size of tape as size of 8 bit mono WAV data with 44100 Hz rate.
+   *
+   * @return size of tape data in bytes
+   */
   @Override
   public int size() {
-    return this.inMemoryWavFile.size();
+    return (int) Math.min(Integer.MAX_VALUE, this.totalTicks * WAV_SAMPLE_RATE / TzxPulseStream.TSTATES_PER_SECOND);
   }
 
   private void fireActionListeners(final int id, final String command) {
@@ -109,40 +251,45 @@ public class ReaderTzx implements TapeSource, ListModel<TzxWavRenderer.RenderRes
   }
 
   @Override
-  public void updateForSpentMachineCycles(final long spentTstates) {
+  public synchronized void updateForSpentMachineCycles(final long spentTstates) {
     if (this.playing) {
-      this.tStateCounter.addAndGet(spentTstates);
-      final int wavFilePosition = (int) this.inMemoryWavFile.calcPositionInWavFile(this.tStateCounter.get());
-      if (wavFilePosition < this.renderedWav.getControlData().length) {
-        final int controlCode = this.renderedWav.getControlData()[wavFilePosition];
-        boolean rewindUntilControlChange = false;
+      this.pulseRemaining -= spentTstates * TzxPulseStream.TSTATES_PER_SECOND;
+      while (this.pulseRemaining <= 0L) {
+        final int type = this.nextPulse();
+        if (type < 0) {
+          this.signal = false;
+          this.stopPlay();
+          break;
+        }
 
-        if (controlCode == SIGNAL_STOP_TAPE.ordinal()) {
+        if (type == TzxWavRenderer.DataType.STOP_TAPE.ordinal()) {
           LOGGER.info("Sending signal 'stop tape'");
           this.tapeContext.onTapeSignal(this, TapeContext.ControlSignal.STOP_TAPE);
-          rewindUntilControlChange = true;
-        } else if (controlCode == SIGNAL_STOP_TAPE_IF_ZX48.ordinal()) {
+        } else if (type == TzxWavRenderer.DataType.STOP_TAPE_IF_ZX48.ordinal()) {
           LOGGER.info("Sending signal 'stop tape if zx48'");
           this.tapeContext.onTapeSignal(this, TapeContext.ControlSignal.STOP_TAPE_IF_ZX48);
-          rewindUntilControlChange = true;
+        } else {
+          this.pulseRemaining += this.pulseTicks * this.machineTstatesPerSecond;
+          continue;
         }
-        if (rewindUntilControlChange) {
-          for (; ; ) {
-            final int position = (int) this.inMemoryWavFile.calcPositionInWavFile(this.tStateCounter.addAndGet(4L));
-            if (position < this.renderedWav.getControlData().length) {
-              if (controlCode != this.renderedWav.getControlData()[position]) {
-                break;
-              }
-            } else {
-              this.playing = false;
-              break;
-            }
-          }
+
+        // pause of stop signal is skipped
+        this.signal = false;
+        if (!this.playing) {
+          break;
         }
       }
     }
   }
 
+  @Override
+  public synchronized long getTstatesTillNextEdge() {
+    // the current pulse ends when its rest is spent, level of the next pulse is unknown
+    return this.playing && this.pulseRemaining > 0L
+            ? (this.pulseRemaining + TzxPulseStream.TSTATES_PER_SECOND - 1) / TzxPulseStream.TSTATES_PER_SECOND
+            : 0L;
+  }
+
   @Override
   public boolean isPlaying() {
     return this.playing;
@@ -151,26 +298,16 @@ public class ReaderTzx implements TapeSource, ListModel<TzxWavRenderer.RenderRes
   @Override
   public void rewindToStart() {
     this.stopPlay();
-    this.tStateCounter.set(0L);
+    this.seek(0L);
   }
 
   @Override
   public boolean isHi() {
-    if (this.playing) {
-      try {
-        final float value = this.inMemoryWavFile.readAtPosition(this.tStateCounter.get());
-        return value > this.bias;
-      } catch (final ArrayIndexOutOfBoundsException ex) {
-        this.stopPlay();
-        return false;
-      }
-    } else {
-      return false;
-    }
+    return this.playing && (this.signal ? SIGNAL_HI : SIGNAL_LOW) > this.bias;
   }
 
   private boolean toNextBlock() {
-    if (this.blockIndex.get() == this.renderedWav.getNamedOffsets().size() - 1) {
+    if (this.blockIndex.get() == this.marks.size() - 1) {
       return false;
     } else {
       this.blockIndex.incrementAndGet();
@@ -211,8 +348,7 @@ public class ReaderTzx implements TapeSource, ListModel<TzxWavRenderer.RenderRes
 
   @Override
   public boolean startPlay() {
-    final long offset = this.inMemoryWavFile.calcPositionInWavData(this.tStateCounter.get());
-    LOGGER.info("Starting play from offset in WAV data: " + offset + " bytes");
+    LOGGER.info("Starting play from tape position: " + this.findHeadTick() + " T-states");
 
     this.playing = true;
     this.fireActionListeners(1, "play");
@@ -220,13 +356,71 @@ public class ReaderTzx implements TapeSource, ListModel<TzxWavRenderer.RenderRes
     return this.playing;
   }
 
-  private TzxWavRenderer.RenderResult renderAsWav() throws IOException {
-    return new TzxWavRenderer(TzxWavRenderer.Freq.FREQ_44100, this.tzxFile, LOGGER).render();
+  @Override
+  public byte[] getAsWAV() throws IOException {
+    return new TzxWavRenderer(TzxWavRenderer.Freq.FREQ_44100, this.tzxFile, LOGGER).render().getWavData();
+  }
+
+  private static boolean isPassedByFastLoad(final AbstractTzxBlock block) {
+    return block == null
+            || block instanceof AbstractTzxInformationBlock
+            || block instanceof AbstractTzxSystemBlock
+            || block instanceof AbstractTzxFlowManagementBlock
+            || block instanceof TzxBlockPauseOrStop
+            || block instanceof TzxBlockStopTapeIf48k
+            || block instanceof TzxBlockSetSignalLevel;
   }
 
   @Override
-  public byte[] getAsWAV() throws IOException {
-    return this.renderedWav.getWavData();
+  public synchronized byte[] takeStandardBlock() {
+    final long head = this.findHeadTick();
+    int index = Arrays.binarySearch(this.checkpointTicks, 0, this.checkpoints.size(), head);
+    if (index < 0) {
+      index = Math.max(0, -index - 2);
+    }
+    this.pulseStream.setPosition(this.checkpoints.get(index));
+
+    final long[] tick = new long[] {this.checkpointTicks[index]};
+    final TzxPulseStream.PulseSink sink = new TzxPulseStream.PulseSink() {
+      @Override
+      public void onPulse(final int ticks, final boolean level, final TzxWavRenderer.DataType type) {
+        tick[0] += ticks;
+      }
+
+      @Override
+      public void onMark(final String name) {
+      }
+    };
+
+    byte[] result = null;
+    try {
+      for (int i = 0; i < MAX_BLOCKS_BEFORE_FAST_LOAD && this.pulseStream.hasNext(); i++) {
+        final AbstractTzxBlock block = this.pulseStream.getNextBlock();
+        if (block instanceof TzxBlockStandardSpeedData) {
+          final byte[] data = ((TzxBlockStandardSpeedData) block).extractData();
+          if (data.length > 0 && head < tick[0] + TzxPulseStream.getStandardPilotTicks(data[0])) {
+            result = data;
+          }
+        } else if (!isPassedByFastLoad(block)) {
+          break;
+        }
+        this.pulseStream.renderNext(sink);
+        if (result != null) {
+          break;
+        }
+      }
+    } catch (IOException ex) {
+      LOGGER.log(Level.SEVERE, "Error during search of standard block", ex);
+      result = null;
+    }
+
+    if (result == null) {
+      this.seek(head);
+    } else {
+      LOGGER.info("Fast load of standard block, length " + result.length + " bytes");
+      this.seek(tick[0]);
+    }
+    return result;
   }
 
   @Override
@@ -243,18 +437,23 @@ public class ReaderTzx implements TapeSource, ListModel<TzxWavRenderer.RenderRes
   public synchronized void setCurrent(final int index) {
     this.stopPlay();
     if (index < 0) {
-      this.tStateCounter.set(0L);
+      this.seek(0L);
     } else {
-      final TzxWavRenderer.RenderResult.NamedOffsets offset = this.renderedWav.getNamedOffsets().get(index);
-      LOGGER.info("Tape pointer to " + offset);
-      this.tStateCounter.set(this.inMemoryWavFile.findTstatesForWavDataPosition(offset.getOffsetInWav()));
+      final TapeMark mark = this.marks.get(index);
+      LOGGER.info("Tape pointer to " + mark);
+      this.seek(mark.getTick());
     }
   }
 
+  private synchronized long findHeadTick() {
+    final long rest = Math.max(0L, this.pulseRemaining);
+    return this.pulseStartTick + this.pulseTicks - (rest + this.machineTstatesPerSecond - 1) / this.machineTstatesPerSecond;
+  }
+
   @Override
   public int getCurrentBlockIndex() {
-    final long wavFilePosition = TzxWavRenderer.WAV_HEADER_LENGTH + this.inMemoryWavFile.calcPositionInWavData(this.tStateCounter.get());
-    return (int) this.renderedWav.getNamedOffsets().stream().filter(x -> x.getOffsetInWav() < wavFilePosition).count();
+    final long head = this.findHeadTick();
+    return (int) this.marks.stream().filter(x -> x.getTick() < head).count();
   }
 
   @Override
@@ -267,4 +466,34 @@ public class ReaderTzx implements TapeSource, ListModel<TzxWavRenderer.RenderRes
     return this;
   }
 
+  /**
+   * Named position of tape.
+   */
+  public static final class TapeMark {
+    private final String name;
+    private final long tick;
+
+    TapeMark(final String name, final long tick) {
+      this.name = name;
+      this.tick = tick;
+    }
+
+    public String getName() {
+      return this.name;
+    }
+
+    /**
+     * Get position of the mark.
+     *
+     * @return position in T-states of 3.5 MHz clock from the tape start
+     */
+    public long getTick() {
+      return this.tick;
+    }
+
+    @Override
+    public String toString() {
+      return this.name + " (at " + this.tick * 1000L / TzxPulseStream.TSTATES_PER_SECOND + " ms)";
+    }
+  }
 }
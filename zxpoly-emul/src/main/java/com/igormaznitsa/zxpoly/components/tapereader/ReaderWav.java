@@ -1,16 +1,15 @@
 package com.igormaznitsa.zxpoly.components.tapereader;
 
-import com.igormaznitsa.zxpoly.components.tapereader.wave.FileSeekableContainer;
 import com.igormaznitsa.zxpoly.components.tapereader.wave.InMemoryWavFile;
+import com.igormaznitsa.zxpoly.components.tapereader.wave.MappedFileSeekableContainer;
 import com.igormaznitsa.zxpoly.components.video.timings.TimingProfile;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.File;
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.swing.ListModel;
 import javax.swing.SwingUtilities;
 
@@ -18,20 +17,50 @@ public class ReaderWav implements TapeSource {
 
   private final String name;
   private final InMemoryWavFile wavFile;
-  private final AtomicLong tstateCounter = new AtomicLong(0L);
   private final List<ActionListener> actionListeners = new CopyOnWriteArrayList<>();
   private final TimingProfile timingProfile;
   private final TapeContext tapeContext;
   private volatile boolean playing;
   private volatile float bias = 0.5f;
+  private volatile TapeEdges.Cursor cursor;
+  private final AtomicInteger thresholdGeneration = new AtomicInteger();
 
   public ReaderWav(final TapeContext tapeContext, final TimingProfile timingProfile, final String name, final File file) throws IOException {
     this.tapeContext = tapeContext;
     this.timingProfile = timingProfile;
     this.name = name;
-    try (final FileSeekableContainer container = new FileSeekableContainer(new RandomAccessFile(file, "r"))) {
-      this.wavFile = new InMemoryWavFile(container, timingProfile.tstatesFrame * 50L);
+    try (final MappedFileSeekableContainer container = new MappedFileSeekableContainer(file)) {
+      this.wavFile = new InMemoryWavFile(container);
     }
+    this.cursor = new TapeEdges.Cursor(this.compileEdges(this.bias));
+  }
+
+  /**
+   * Convert samples into edge list for threshold, an edge is placed on T-state where the nearest
+   * sample is changed.
+   *
+   * @param threshold threshold to detect HI level
+   * @return compiled edge list
+   */
+  private TapeEdges compileEdges(final float threshold) {
+    final double samplesPerTstate =
+        (double) this.wavFile.getSampleRate() / (this.timingProfile.tstatesFrame * 50.0d);
+    final long samples = this.wavFile.getSampleCount();
+    final TapeEdges.Builder builder = new TapeEdges.Builder();
+    if (samples > 0L) {
+      boolean level = this.wavFile.readSample(0L) > threshold;
+      long levelStart = 0L;
+      for (long i = 1L; i <= samples; i++) {
+        final boolean nextLevel = i < samples && this.wavFile.readSample(i) > threshold;
+        if (i == samples || nextLevel != level) {
+          final long edge = (long) Math.ceil((i - 0.5d) / samplesPerTstate);
+          builder.add(level, edge - levelStart);
+          levelStart = edge;
+          level = nextLevel;
+        }
+      }
+    }
+    return builder.build();
   }
 
   @Override
@@ -48,17 +77,7 @@ public class ReaderWav implements TapeSource {
 
   @Override
   public boolean isHi() {
-    if (this.playing) {
-      try {
-        final float value = this.wavFile.readAtPosition(this.tstateCounter.get());
-        return value > this.bias;
-      } catch (ArrayIndexOutOfBoundsException ex) {
-        this.stopPlay();
-        return false;
-      }
-    } else {
-      return false;
-    }
+    return this.playing && this.cursor.isHi();
   }
 
   @Override
@@ -71,14 +90,36 @@ public class ReaderWav implements TapeSource {
     return this.bias;
   }
 
+  /**
+   * Set new threshold, edges are compiled by a background thread and the current cursor is
+   * replaced when they are ready, so the caller and the emulation thread are not blocked.
+   *
+   * @param threshold new threshold, will be limited by 0..1
+   */
   @Override
   public void setThreshold(float threshold) {
-    this.bias = Math.max(0.0f, Math.min(threshold, 1.0f));
+    final float newBias = Math.max(0.0f, Math.min(threshold, 1.0f));
+    if (newBias != this.bias) {
+      this.bias = newBias;
+      final int generation = this.thresholdGeneration.incrementAndGet();
+      final Thread compiler = new Thread(() -> {
+        final TapeEdges.Cursor newCursor = new TapeEdges.Cursor(this.compileEdges(newBias));
+        synchronized (this) {
+          // result of a threshold changed during compilation is thrown away
+          if (generation == this.thresholdGeneration.get()) {
+            newCursor.seek(this.cursor.getPosition());
+            this.cursor = newCursor;
+          }
+        }
+      }, "zxpoly-wav-threshold");
+      compiler.setDaemon(true);
+      compiler.start();
+    }
   }
 
   @Override
   public int size() {
-    return this.wavFile.size();
+    return (int) Math.min(Integer.MAX_VALUE, this.wavFile.size());
   }
 
   private void fireActionListeners(final int id, final String command) {
@@ -86,21 +127,26 @@ public class ReaderWav implements TapeSource {
   }
 
   @Override
-  public void updateForSpentMachineCycles(final long spentTstates) {
-    if (this.playing) {
-      this.tstateCounter.addAndGet(spentTstates);
+  public synchronized void updateForSpentMachineCycles(final long spentTstates) {
+    if (this.playing && !this.cursor.advance(spentTstates)) {
+      this.stopPlay();
     }
   }
 
+  @Override
+  public synchronized long getTstatesTillNextEdge() {
+    return this.playing ? this.cursor.getTstatesTillEdge() : 0L;
+  }
+
   @Override
   public boolean isPlaying() {
     return this.playing;
   }
 
   @Override
-  public void rewindToStart() {
+  public synchronized void rewindToStart() {
     this.stopPlay();
-    this.tstateCounter.set(0L);
+    this.cursor.seek(0L);
   }
 
   @Override
@@ -136,6 +182,11 @@ public class ReaderWav implements TapeSource {
     throw new UnsupportedOperationException();
   }
 
+  @Override
+  public byte[] takeStandardBlock() {
+    return null;
+  }
+
   @Override
   public void removeActionListener(final ActionListener listener) {
     this.actionListeners.remove(listener);
@@ -0,0 +1,236 @@
+package com.igormaznitsa.zxpoly.components.tapereader;
+
+import java.util.Arrays;
+
+/**
+ * Compiled tape signal as list of run lengths in machine T-states, levels of runs alternate
+ * starting with the first level. Start of every 256th run is cached to find runs by binary
+ * search.
+ */
+final class TapeEdges {
+
+  private static final int INDEX_STEP_BITS = 8;
+
+  private final int[] runs;
+  private final int size;
+  private final boolean firstLevel;
+  private final long[] runStartIndex;
+  private final long length;
+
+  private TapeEdges(final int[] runs, final int size, final boolean firstLevel) {
+    this.runs = runs;
+    this.size = size;
+    this.firstLevel = firstLevel;
+    this.runStartIndex =
+        new long[Math.max(1, (size + (1 << INDEX_STEP_BITS) - 1) >> INDEX_STEP_BITS)];
+    long position = 0L;
+    for (int i = 0; i < size; i++) {
+      if ((i & ((1 << INDEX_STEP_BITS) - 1)) == 0) {
+        this.runStartIndex[i >> INDEX_STEP_BITS] = position;
+      }
+      position += runs[i];
+    }
+    this.length = position;
+  }
+
+  int size() {
+    return this.size;
+  }
+
+  /**
+   * Get whole length of the signal.
+   *
+   * @return length in machine T-states
+   */
+  long getLength() {
+    return this.length;
+  }
+
+  boolean getLevel(final int run) {
+    return this.firstLevel ^ ((run & 1) != 0);
+  }
+
+  int getRun(final int run) {
+    return this.runs[run];
+  }
+
+  long getRunStart(final int run) {
+    if (run >= this.size) {
+      return this.length;
+    }
+    final int indexed = run >> INDEX_STEP_BITS;
+    long result = this.runStartIndex[indexed];
+    for (int i = indexed << INDEX_STEP_BITS; i < run; i++) {
+      result += this.runs[i];
+    }
+    return result;
+  }
+
+  /**
+   * Find run which contains position.
+   *
+   * @param position position in machine T-states
+   * @return index of run, number of runs if the position is after the end
+   */
+  int findRun(final long position) {
+    if (position >= this.length) {
+      return this.size;
+    }
+    int indexed = Arrays.binarySearch(this.runStartIndex, position);
+    if (indexed < 0) {
+      indexed = -indexed - 2;
+    }
+    int run = indexed << INDEX_STEP_BITS;
+    long start = this.runStartIndex[indexed];
+    while (start + this.runs[run] <= position) {
+      start += this.runs[run];
+      run++;
+    }
+    return run;
+  }
+
+  /**
+   * Builder of edge list, adjacent runs with the same level are merged.
+   */
+  static final class Builder {
+    private int[] runs = new int[1024];
+    private int size;
+    private boolean firstLevel;
+    private boolean lastLevel;
+    private long length;
+
+    private void append(final int run) {
+      if (this.size == this.runs.length) {
+        this.runs = Arrays.copyOf(this.runs, this.size * 2);
+      }
+      this.runs[this.size++] = run;
+    }
+
+    private void appendRun(final long tstates) {
+      long rest = tstates;
+      while (rest > Integer.MAX_VALUE) {
+        // zero length run keeps levels of the next runs
+        this.append(Integer.MAX_VALUE);
+        this.append(0);
+        rest -= Integer.MAX_VALUE;
+      }
+      this.append((int) rest);
+    }
+
+    /**
+     * Add signal level.
+     *
+     * @param level   signal level
+     * @param tstates length in machine T-states, zero or negative is ignored
+     * @return the builder
+     */
+    Builder add(final boolean level, final long tstates) {
+      if (tstates > 0L) {
+        if (this.size == 0) {
+          this.firstLevel = level;
+          this.appendRun(tstates);
+        } else if (level == this.lastLevel) {
+          final long merged = this.runs[--this.size] + tstates;
+          this.appendRun(merged);
+        } else {
+          this.appendRun(tstates);
+        }
+        this.lastLevel = level;
+        this.length += tstates;
+      }
+      return this;
+    }
+
+    /**
+     * Get length of already added signal.
+     *
+     * @return length in machine T-states
+     */
+    long getLength() {
+      return this.length;
+    }
+
+    TapeEdges build() {
+      return new TapeEdges(Arrays.copyOf(this.runs, this.size), this.size, this.firstLevel);
+    }
+  }
+
+  /**
+   * Play position in edge list.
+   */
+  static final class Cursor {
+    private final TapeEdges edges;
+    private int run;
+    private long runRemaining;
+
+    Cursor(final TapeEdges edges) {
+      this.edges = edges;
+      this.seek(0L);
+    }
+
+    TapeEdges getEdges() {
+      return this.edges;
+    }
+
+    int getRunIndex() {
+      return this.run;
+    }
+
+    boolean isEnd() {
+      return this.run >= this.edges.size;
+    }
+
+    boolean isHi() {
+      return this.edges.getLevel(this.run);
+    }
+
+    /**
+     * Get number of T-states till the next level change.
+     *
+     * @return number of T-states, 0 if the end is reached
+     */
+    long getTstatesTillEdge() {
+      return this.isEnd() ? 0L : this.runRemaining;
+    }
+
+    long getPosition() {
+      return this.isEnd() ? this.edges.length
+          : this.edges.getRunStart(this.run) + this.edges.runs[this.run] - this.runRemaining;
+    }
+
+    void seek(final long position) {
+      final long target = Math.max(0L, position);
+      this.run = this.edges.findRun(target);
+      this.runRemaining = this.isEnd() ? 0L
+          : this.edges.getRunStart(this.run) + this.edges.runs[this.run] - target;
+    }
+
+    /**
+     * Move the cursor forward.
+     *
+     * @param tstates number of machine T-states
+     * @return false if the end of the edge list is reached
+     */
+    boolean advance(final long tstates) {
+      long remaining = this.runRemaining - tstates;
+      if (remaining <= 0L) {
+        final int[] runs = this.edges.runs;
+        final int size = this.edges.size;
+        int index = this.run;
+        while (remaining <= 0L && index < size) {
+          index++;
+          if (index < size) {
+            remaining += runs[index];
+          }
+        }
+        this.run = index;
+        if (index >= size) {
+          this.runRemaining = 0L;
+          return false;
+        }
+      }
+      this.runRemaining = remaining;
+      return true;
+    }
+  }
+}
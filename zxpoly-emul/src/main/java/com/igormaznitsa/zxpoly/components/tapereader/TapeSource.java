@@ -10,6 +10,13 @@ public interface TapeSource {
 
   void updateForSpentMachineCycles(long spentTstates);
 
+  /**
+   * Get number of machine T-states till the next possible change of the signal level.
+   *
+   * @return number of T-states, 0 if the tape is not playing or the value is unknown
+   */
+  long getTstatesTillNextEdge();
+
   void dispose();
 
   boolean isPlaying();
@@ -28,6 +35,15 @@ public interface TapeSource {
 
   byte[] getAsWAV() throws IOException;
 
+  /**
+   * Take standard ROM speed block which is the next one under the tape head and move the head
+   * after the block, used by fast loading through ROM trap.
+   *
+   * @return flag, data and checksum bytes of the block, null if the next block is not standard
+   * one, the head is not moved in the case
+   */
+  byte[] takeStandardBlock();
+
   void removeActionListener(ActionListener listener);
 
   void addActionListener(ActionListener listener);
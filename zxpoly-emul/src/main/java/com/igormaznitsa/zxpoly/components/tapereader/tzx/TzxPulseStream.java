@@ -0,0 +1,531 @@
+package com.igormaznitsa.zxpoly.components.tapereader.tzx;
+
+import com.igormaznitsa.zxpoly.utils.SpectrumUtils;
+import com.igormaznitsa.zxpoly.utils.Utils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.logging.Logger;
+
+/**
+ * Interpreter of TZX blocks which produces tape pulses block by block. Flow control blocks (loops,
+ * calls and jumps) are processed in place, so that the whole tape is never kept in memory. State
+ * of the stream can be saved and restored to seek the tape.
+ */
+public final class TzxPulseStream {
+  /**
+   * Number of T-states per second used for pulse lengths in TZX.
+   */
+  public static final int TSTATES_PER_SECOND = 3_500_000;
+
+  private static final int IMPULSNUMBER_PILOT_HEADER = 8063;
+  private static final int IMPULSNUMBER_PILOT_DATA = 3223;
+  private static final int PULSELEN_PILOT = 2168;
+  private static final int PULSELEN_SYNC1 = 667;
+  private static final int PULSELEN_SYNC2 = 735;
+  private static final int PULSELEN_SYNC3 = 954;
+  private static final int PULSELEN_ZERO = 855;
+  private static final int PULSELEN_ONE = 1710;
+
+  private final List<AbstractTzxBlock> blockList;
+  private final Logger logger;
+  private final List<Repeat> repeatStack = new ArrayList<>();
+  private final List<List<Integer>> callStack = new ArrayList<>();
+  private int blockPointer;
+  private boolean nextLevel = true;
+  private boolean finished;
+
+  public TzxPulseStream(final TzxFile tzxFile, final Logger logger) {
+    this.blockList = Objects.requireNonNull(tzxFile).getBlockList();
+    this.logger = logger;
+  }
+
+  private static String extractNameFromTapHeader(final boolean turbo, final byte[] data) {
+    final byte[] name = new byte[10];
+    if (data.length < 12) return "<UNKNOWN>";
+    System.arraycopy(data, turbo ? 1 : 2, name, 0, name.length);
+
+    final StringBuilder result = new StringBuilder();
+
+    for (final char c : new String(name, StandardCharsets.ISO_8859_1).toCharArray()) {
+      result.append(Character.isISOControl(c) ? ' ' : c);
+    }
+    return SpectrumUtils.fromZxString(result.toString());
+  }
+
+  /**
+   * Check that the stream has more data.
+   *
+   * @return true if there are blocks to be rendered
+   */
+  public boolean hasNext() {
+    return !this.finished;
+  }
+
+  /**
+   * Get length of pilot tone of standard speed data block.
+   *
+   * @param flag flag byte of the block
+   * @return length of pilot tone in T-states of 3.5 MHz clock
+   */
+  public static int getStandardPilotTicks(final int flag) {
+    return ((flag & 0xFF) < 128 ? IMPULSNUMBER_PILOT_HEADER : IMPULSNUMBER_PILOT_DATA)
+            * PULSELEN_PILOT;
+  }
+
+  /**
+   * Get block which will be processed by the next call of render.
+   *
+   * @return the next block, null if there are no more blocks
+   */
+  public AbstractTzxBlock getNextBlock() {
+    return this.finished || this.blockPointer >= this.blockList.size() ? null
+            : this.blockList.get(this.blockPointer);
+  }
+
+  /**
+   * Get current state of the stream, it can be used to restore the stream.
+   *
+   * @return saved state, must not be null
+   */
+  public Position getPosition() {
+    return new Position(this);
+  }
+
+  /**
+   * Restore saved state of the stream.
+   *
+   * @param position saved state, must not be null
+   */
+  public void setPosition(final Position position) {
+    this.blockPointer = position.blockPointer;
+    this.nextLevel = position.nextLevel;
+    this.finished = position.finished;
+    this.repeatStack.clear();
+    for (final int[] repeat : position.repeats) {
+      this.repeatStack.add(new Repeat(repeat[0], repeat[1]));
+    }
+    this.callStack.clear();
+    for (final List<Integer> calls : position.calls) {
+      this.callStack.add(new ArrayList<>(calls));
+    }
+  }
+
+  /**
+   * Process the next block of the tape. Information blocks make marks, sound blocks make pulses
+   * and after the last block a short pause is added.
+   *
+   * @param sink consumer of pulses and marks, must not be null
+   * @throws IOException if the block can't be rendered
+   */
+  public void renderNext(final PulseSink sink) throws IOException {
+    if (this.finished) {
+      return;
+    }
+    if (this.blockPointer >= this.blockList.size()) {
+      // add pause in the end
+      writePause(sink, Duration.ofMillis(500), TzxWavRenderer.DataType.PAUSE);
+      this.finished = true;
+      return;
+    }
+
+    final AbstractTzxBlock block = this.blockList.get(this.blockPointer);
+
+    if (block instanceof AbstractTzxSystemBlock) {
+      this.blockPointer++;
+    } else if (block instanceof AbstractTzxInformationBlock) {
+      if (block instanceof TzxBlockGroupStart) {
+        final TzxBlockGroupStart groupStart = (TzxBlockGroupStart) block;
+        sink.onMark("GROUP>> " + groupStart.getGroupName());
+      } else if (block instanceof TzxBlockMessage) {
+        final TzxBlockMessage message = (TzxBlockMessage) block;
+        final String messageText = message.getText().replace('\r', ' ').replace('\t', ' ').replace('\n', ' ');
+        if (this.logger != null) {
+          this.logger.info("TzxMessage: " + messageText);
+        }
+        sink.onMark("MESSAGE: " + messageText);
+      }
+      this.blockPointer++;
+    } else if (block instanceof AbstractTzxFlowManagementBlock) {
+      this.processFlowBlock((AbstractTzxFlowManagementBlock) block);
+    } else if (block instanceof AbstractTzxSoundDataBlock) {
+      this.processSoundBlock(sink, block);
+      this.blockPointer++;
+    } else {
+      this.blockPointer++;
+    }
+  }
+
+  private void processFlowBlock(final AbstractTzxFlowManagementBlock block) throws IOException {
+    final short[] offsets = block.getOffsets();
+    if (block instanceof TzxBlockCallSequence) {
+      final TzxBlockCallSequence callSequence = (TzxBlockCallSequence) block;
+      final List<Integer> callIndexes = new ArrayList<>();
+      for (final short s : callSequence.getOffsets()) {
+        callIndexes.add(this.blockPointer + s);
+      }
+      callIndexes.add(this.blockPointer + 1);
+      this.callStack.add(callIndexes);
+      this.blockPointer = this.nextCallIndex();
+    } else if (block instanceof TzxBlockSequenceReturn) {
+      this.blockPointer = this.nextCallIndex();
+    } else if (block instanceof TzxBlockJumpTo) {
+      final short offset = offsets[0];
+      if (offset == 0) {
+        throw new IOException("Detected jump block with zero offset");
+      }
+      this.blockPointer += offset;
+    } else if (block instanceof TzxBlockLoopStart) {
+      final TzxBlockLoopStart startBlock = (TzxBlockLoopStart) block;
+      if (startBlock.getRepetitions() <= 0) {
+        throw new IOException("Detected zero repetitions");
+      }
+      this.repeatStack.add(new Repeat(this.blockPointer, startBlock.getRepetitions() - 1));
+      this.blockPointer++;
+    } else if (block instanceof TzxBlockLoopEnd) {
+      if (this.repeatStack.isEmpty()) {
+        throw new IOException("Unexpected block loop end");
+      } else {
+        final Repeat lastStart = this.repeatStack.get(this.repeatStack.size() - 1);
+        if (lastStart.isZero()) {
+          this.blockPointer++;
+        } else {
+          lastStart.dec();
+          this.repeatStack.removeIf(next -> next.blockIndex > lastStart.blockIndex);
+          this.blockPointer = lastStart.blockIndex + 1;
+        }
+      }
+    } else {
+      throw new Error("Unexpected management block type: " + block.getClass().getSimpleName());
+    }
+  }
+
+  private void processSoundBlock(final PulseSink sink, final AbstractTzxBlock block) throws IOException {
+    if (block instanceof TzxBlockSetSignalLevel) {
+      final TzxBlockSetSignalLevel dataBlock = (TzxBlockSetSignalLevel) block;
+      sink.onMark("...set.level [" + dataBlock.getLevel() + "]...");
+      this.nextLevel = dataBlock.getLevel() > 0;
+    } else if (block instanceof TzxBlockStopTapeIf48k) {
+      sink.onMark("-==STOP TAPE IF ZX48==-");
+      writePause(sink, Duration.ofSeconds(1), TzxWavRenderer.DataType.PAUSE);
+      writePause(sink, Duration.ofSeconds(4), TzxWavRenderer.DataType.STOP_TAPE_IF_ZX48);
+    } else if (block instanceof TzxBlockPauseOrStop) {
+      final TzxBlockPauseOrStop dataBlock = (TzxBlockPauseOrStop) block;
+
+      final Duration duration = Duration.ofMillis(dataBlock.getPauseDurationMs());
+
+      if (duration.isZero()) {
+        sink.onMark("-==STOP TAPE==-");
+        writePause(sink, Duration.ofSeconds(1), TzxWavRenderer.DataType.PAUSE);
+        writePause(sink, Duration.ofSeconds(4), TzxWavRenderer.DataType.STOP_TAPE);
+      } else {
+        sink.onMark("...stop-pause [" + dataBlock.getPauseDurationMs() + " ms]");
+        writePause(sink, duration, TzxWavRenderer.DataType.PAUSE);
+      }
+    } else if (block instanceof TzxBlockStandardSpeedData) {
+      final TzxBlockStandardSpeedData dataBlock = (TzxBlockStandardSpeedData) block;
+
+      if (dataBlock.getDataLength() == 0) {
+        if (this.logger != null) {
+          this.logger.warning("Detected zero-length standard speed data block");
+        }
+      } else {
+        final byte[] tapData = dataBlock.extractData();
+        final int flag = tapData[0] & 0xFF;
+
+        if (flag < 128) {
+          sink.onMark(extractNameFromTapHeader(false, tapData));
+        } else {
+          sink.onMark("...std.data...");
+        }
+
+        this.writeTapData(
+                sink,
+                flag < 128 ? IMPULSNUMBER_PILOT_HEADER : IMPULSNUMBER_PILOT_DATA,
+                PULSELEN_PILOT,
+                PULSELEN_SYNC1,
+                PULSELEN_SYNC2,
+                PULSELEN_ZERO,
+                PULSELEN_ONE,
+                8,
+                Duration.ofMillis(dataBlock.getPauseAfterBlockMs()),
+                tapData,
+                TzxWavRenderer.DataType.STD_PILOT,
+                TzxWavRenderer.DataType.STD_SYNC1,
+                TzxWavRenderer.DataType.STD_SYNC2,
+                TzxWavRenderer.DataType.STD_DATA);
+      }
+    } else if (block instanceof TzxBlockTurboSpeedData) {
+      final TzxBlockTurboSpeedData dataBlock = (TzxBlockTurboSpeedData) block;
+
+      if (dataBlock.getDataLength() == 0) {
+        if (this.logger != null) {
+          this.logger.warning("Detected zero-length turbo speed data block");
+        }
+      } else {
+        final byte[] tapData = dataBlock.extractData();
+        final int flag = tapData[0] & 0xFF;
+
+        if (flag < 128) {
+          sink.onMark(extractNameFromTapHeader(true, tapData) + " {turbo}");
+        } else {
+          sink.onMark("...turbo.data...");
+        }
+
+        this.writeTapData(
+                sink,
+                dataBlock.getLengthPilotTone(),
+                dataBlock.getLengthPilotPulse(),
+                dataBlock.getLengthSyncFirstPulse(),
+                dataBlock.getLengthSyncSecondPulse(),
+                dataBlock.getLengthZeroBitPulse(),
+                dataBlock.getLengthOneBitPulse(),
+                dataBlock.getUsedBitsInLastByte(),
+                Duration.ofMillis(dataBlock.getPauseAfterBlockMs()),
+                tapData,
+                TzxWavRenderer.DataType.TURBO_PILOT,
+                TzxWavRenderer.DataType.TURBO_SYNC1,
+                TzxWavRenderer.DataType.TURBO_SYNC2,
+                TzxWavRenderer.DataType.TURBO_DATA);
+      }
+    } else if (block instanceof TzxBlockCSWRecording) {
+      //TODO
+      throw new IOException("Unsupported TzxBlockCSWRecording block yet");
+    } else if (block instanceof TzxBlockDirectRecording) {
+      final TzxBlockDirectRecording directRecording = (TzxBlockDirectRecording) block;
+
+      sink.onMark("...direct.recording... [pause: " + directRecording.getPauseAfterBlockMs() + " ms]");
+
+      this.writeDirectRecording(
+              sink,
+              directRecording.getNumberTstatesPerSample(),
+              directRecording.getUsedBitsInLastByte(),
+              Duration.ofMillis(directRecording.getPauseAfterBlockMs()),
+              directRecording.extractData()
+      );
+    } else if (block instanceof TzxBlockGeneralizedData) {
+      final TzxBlockGeneralizedData dataBlock = (TzxBlockGeneralizedData) block;
+
+      sink.onMark("...generalized.data... [dSymbols=" + dataBlock.getTotalNumberOfSymbolsInDataStream() + ",dChar=" + Utils.minimalRequiredBitsFor(dataBlock.getNumberOfDataSymbolsInAbcTable() - 1) + ']');
+
+      this.nextLevel = dataBlock.decodeRecordsAsPulses(this.nextLevel,
+              (ticks, level) -> sink.onPulse(ticks, level, TzxWavRenderer.DataType.GENERALIZED_DATA));
+    } else if (block instanceof TzxBlockKansasCityStandard) {
+      //TODO
+      throw new IOException("Unsupported TzxBlockKansasCityStandard block yet");
+    } else if (block instanceof TzxBlockPureData) {
+      final TzxBlockPureData dataBlock = (TzxBlockPureData) block;
+      final byte[] tapData = dataBlock.extractData();
+
+      sink.onMark("...pure.data... [pause: " + dataBlock.getPauseAfterBlockMs() + " ms]");
+
+      this.writeTapData(
+              sink,
+              -1,
+              -1,
+              -1,
+              -1,
+              dataBlock.getLengthZeroBitPulse(),
+              dataBlock.getLengthOneBitPulse(),
+              dataBlock.getUsedBitsInLastByte(),
+              Duration.ofMillis(dataBlock.getPauseAfterBlockMs()),
+              tapData,
+              TzxWavRenderer.DataType.PURE_PILOT,
+              TzxWavRenderer.DataType.PURE_SYNC1,
+              TzxWavRenderer.DataType.PURE_SYNC2,
+              TzxWavRenderer.DataType.PURE_DATA
+      );
+    } else if (block instanceof TzxBlockPureTone) {
+      final TzxBlockPureTone dataBlock = (TzxBlockPureTone) block;
+
+      sink.onMark("...pure.tone... [pulses=" + dataBlock.getNumberOfPulses() + ']');
+
+      for (int i = 0; i < dataBlock.getNumberOfPulses(); i++) {
+        this.writePulse(sink, dataBlock.getLengthOfPulseInTstates(), TzxWavRenderer.DataType.PURE_TONE);
+      }
+    } else if (block instanceof TzxBlockVarSequencePulses) {
+      final TzxBlockVarSequencePulses dataBlock = (TzxBlockVarSequencePulses) block;
+
+      sink.onMark("...seq.pulses...[pulses=" + dataBlock.getPulsesLengths().length + "]");
+
+      for (final int pulseLen : dataBlock.getPulsesLengths()) {
+        this.writePulse(sink, pulseLen, TzxWavRenderer.DataType.SEQ_PULSES);
+      }
+    } else {
+      throw new Error("Unexpected data block: " + block.getClass().getSimpleName());
+    }
+  }
+
+  private void writePulse(final PulseSink sink, final int ticks, final TzxWavRenderer.DataType type) throws IOException {
+    sink.onPulse(ticks, this.nextLevel, type);
+    this.nextLevel = !this.nextLevel;
+  }
+
+  private void writeTapData(
+          final PulseSink sink,
+          final int lenPilotTone,
+          final int lenPilotPulse,
+          final int lenSync1pulse,
+          final int lenSync2pulse,
+          final int lenZeroBitPulse,
+          final int lenOneBitPulse,
+          final int bitsInLastByte,
+          final Duration pauseAfterBlock,
+          final byte[] tapeData,
+          final TzxWavRenderer.DataType pilotType,
+          final TzxWavRenderer.DataType sync1Type,
+          final TzxWavRenderer.DataType sync2Type,
+          final TzxWavRenderer.DataType dataType
+  ) throws IOException {
+    if (lenPilotTone > 0) {
+      for (int i = 0; i < lenPilotTone; i++) {
+        this.writePulse(sink, lenPilotPulse, pilotType);
+      }
+    }
+
+    if (lenSync1pulse > 0) {
+      this.writePulse(sink, lenSync1pulse, sync1Type);
+    }
+    if (lenSync2pulse > 0) {
+      this.writePulse(sink, lenSync2pulse, sync2Type);
+    }
+
+    for (int i = 0; i < tapeData.length; i++) {
+      final boolean lastByte = i == tapeData.length - 1;
+      int bitCounter = lastByte ? bitsInLastByte : 8;
+      final int nextDataByte = tapeData[i];
+      int bitMask = 0x80;
+      while (bitCounter > 0) {
+        final int signalLength = (nextDataByte & bitMask) == 0 ? lenZeroBitPulse : lenOneBitPulse;
+        this.writePulse(sink, signalLength, dataType);
+        this.writePulse(sink, signalLength, dataType);
+        bitMask >>= 1;
+        bitCounter--;
+      }
+    }
+
+    if (!pauseAfterBlock.isZero()) {
+      sink.onMark("...pause... [" + pauseAfterBlock.toMillis() + " ms]");
+      writePause(sink, pauseAfterBlock, TzxWavRenderer.DataType.PAUSE);
+    }
+  }
+
+  private int nextCallIndex() throws IOException {
+    if (this.callStack.isEmpty()) {
+      throw new IOException("Detected error in call sequence");
+    } else {
+      final List<Integer> last = this.callStack.remove(this.callStack.size() - 1);
+      final int result = last.remove(0);
+      if (!last.isEmpty()) {
+        this.callStack.add(last);
+      }
+      return result;
+    }
+  }
+
+  private void writeDirectRecording(
+          final PulseSink sink,
+          final int ticksPerSample,
+          final int bitsInLastByte,
+          final Duration pauseAfterBlock,
+          final byte[] data
+  ) throws IOException {
+    this.nextLevel = false;
+
+    for (int i = 0; i < data.length; i++) {
+      final boolean lastByte = i == data.length - 1;
+      int bitCounter = lastByte ? bitsInLastByte : 8;
+      final int nextDataByte = data[i];
+      int bitMask = 0x80;
+      while (bitCounter > 0) {
+        this.nextLevel = (nextDataByte & bitMask) != 0;
+        sink.onPulse(ticksPerSample, this.nextLevel, TzxWavRenderer.DataType.DIRECT_DATA);
+        bitMask >>= 1;
+        bitCounter--;
+      }
+    }
+
+    if (!pauseAfterBlock.isZero()) {
+      this.nextLevel = false;
+      writePause(sink, pauseAfterBlock, TzxWavRenderer.DataType.PAUSE);
+    }
+  }
+
+  private void writePause(final PulseSink sink, final Duration delay, final TzxWavRenderer.DataType dataType) throws IOException {
+    if (this.nextLevel) {
+      sink.onPulse(PULSELEN_SYNC3, true, TzxWavRenderer.DataType.SYNC3);
+    }
+    final long ticks = (delay.toMillis() * TSTATES_PER_SECOND) / 1000L;
+    sink.onPulse((int) ticks, false, dataType);
+    this.nextLevel = true;
+  }
+
+  /**
+   * Consumer of rendered tape data.
+   */
+  public interface PulseSink {
+    /**
+     * Called for every pulse.
+     *
+     * @param ticks length of pulse in T-states of 3.5 MHz clock
+     * @param level signal level of the pulse
+     * @param type  type of data which the pulse belongs to
+     * @throws IOException if error during processing
+     */
+    void onPulse(int ticks, boolean level, TzxWavRenderer.DataType type) throws IOException;
+
+    /**
+     * Called for named positions of the tape before their pulses.
+     *
+     * @param name name of position
+     * @throws IOException if error during processing
+     */
+    void onMark(String name) throws IOException;
+  }
+
+  /**
+   * Saved state of the stream.
+   */
+  public static final class Position {
+    private final int blockPointer;
+    private final boolean nextLevel;
+    private final boolean finished;
+    private final int[][] repeats;
+    private final List<List<Integer>> calls;
+
+    private Position(final TzxPulseStream stream) {
+      this.blockPointer = stream.blockPointer;
+      this.nextLevel = stream.nextLevel;
+      this.finished = stream.finished;
+      this.repeats = stream.repeatStack.stream()
+              .map(x -> new int[] {x.blockIndex, x.repetitions})
+              .toArray(int[][]::new);
+      this.calls = new ArrayList<>();
+      for (final List<Integer> calls : stream.callStack) {
+        this.calls.add(new ArrayList<>(calls));
+      }
+    }
+  }
+
+  private static final class Repeat {
+    private final int blockIndex;
+    private int repetitions;
+
+    Repeat(final int blockIndex, final int repeat) {
+      this.blockIndex = blockIndex;
+      this.repetitions = repeat;
+    }
+
+    boolean isZero() {
+      return this.repetitions <= 0;
+    }
+
+    void dec() {
+      this.repetitions = Math.max(0, this.repetitions - 1);
+    }
+  }
+}
@@ -3,13 +3,9 @@ package com.igormaznitsa.zxpoly.components.tapereader.tzx;
 import com.igormaznitsa.jbbp.io.JBBPBitOutputStream;
 import com.igormaznitsa.jbbp.io.JBBPByteOrder;
 import com.igormaznitsa.jbbp.io.JBBPOut;
-import com.igormaznitsa.zxpoly.utils.SpectrumUtils;
-import com.igormaznitsa.zxpoly.utils.Utils;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
@@ -17,22 +13,11 @@ import java.util.logging.Logger;
 
 public class TzxWavRenderer {
   public static final int WAV_HEADER_LENGTH = 44;
-  private static final int IMPULSNUMBER_PILOT_HEADER = 8063;
-  private static final int IMPULSNUMBER_PILOT_DATA = 3223;
-  private static final int PULSELEN_PILOT = 2168;
-  private static final int PULSELEN_SYNC1 = 667;
-  private static final int PULSELEN_SYNC2 = 735;
-  private static final int PULSELEN_SYNC3 = 954;
-  private static final int PULSELEN_ZERO = 855;
-  private static final int PULSELEN_ONE = 1710;
   private static final int SIGNAL_HI = 0xFE;
   private static final int SIGNAL_LOW = 0x01;
-  private static final int TSTATES_PER_SECOND = 3_500_000;
 
   private final TzxFile tzxFile;
   private final Freq freq;
-  private final List<Repeat> repeatStack = new ArrayList<>();
-  private final List<List<Integer>> callStack = new ArrayList<>();
   private final double tstatesPerSample;
   private final Logger logger;
 
@@ -40,402 +25,33 @@ public class TzxWavRenderer {
     this.logger = logger;
     this.freq = Objects.requireNonNull(freq);
     this.tzxFile = Objects.requireNonNull(tzxFile);
-    this.tstatesPerSample = (double) this.freq.getFreq() / (double) TSTATES_PER_SECOND;
-  }
-
-  private static String extractNameFromTapHeader(final boolean turbo, final byte[] data) {
-    final byte[] name = new byte[10];
-    if (data.length < 12) return "<UNKNOWN>";
-    System.arraycopy(data, turbo ? 1 : 2, name, 0, name.length);
-
-    final StringBuilder result = new StringBuilder();
-
-    for (final char c : new String(name, StandardCharsets.ISO_8859_1).toCharArray()) {
-      result.append(Character.isISOControl(c) ? ' ' : c);
-    }
-    return SpectrumUtils.fromZxString(result.toString());
+    this.tstatesPerSample = (double) this.freq.getFreq() / (double) TzxPulseStream.TSTATES_PER_SECOND;
   }
 
   public synchronized RenderResult render() throws IOException {
     final List<RenderResult.NamedOffsets> namedOffsets = new ArrayList<>();
 
-    this.repeatStack.clear();
-    this.callStack.clear();
-
     final DataStream dataStream = new DataStream(this.freq, 1024 * 1024);
-    final List<AbstractTzxBlock> blockList = this.tzxFile.getBlockList();
-
-    boolean nextLevel = true;
-
-    int blockPointer = 0;
-    while (blockPointer < blockList.size()) {
-      final AbstractTzxBlock block = blockList.get(blockPointer);
-
-      if (block instanceof AbstractTzxSystemBlock) {
-        blockPointer++;
-      } else if (block instanceof AbstractTzxInformationBlock) {
-        if (block instanceof TzxBlockGroupStart) {
-          final TzxBlockGroupStart groupStart = (TzxBlockGroupStart) block;
-          namedOffsets.add(new RenderResult.NamedOffsets("GROUP>> " + groupStart.getGroupName(), WAV_HEADER_LENGTH + dataStream.getCounter()));
-        } else if (block instanceof TzxBlockMessage) {
-          final TzxBlockMessage message = (TzxBlockMessage) block;
-          if (this.logger != null) {
-            final String messageText = message.getText().replace('\r', ' ').replace('\t', ' ').replace('\n', ' ');
-            this.logger.info("TzxMessage: " + messageText);
-            namedOffsets.add(new RenderResult.NamedOffsets("MESSAGE: " + messageText, WAV_HEADER_LENGTH + dataStream.getCounter()));
-          }
-        }
-        blockPointer++;
-      } else if (block instanceof AbstractTzxFlowManagementBlock) {
-        final short[] offsets = ((AbstractTzxFlowManagementBlock) block).getOffsets();
-        if (block instanceof TzxBlockCallSequence) {
-          final TzxBlockCallSequence callSequence = (TzxBlockCallSequence) block;
-          final List<Integer> callIndexes = new ArrayList<>();
-          for (final short s : callSequence.getOffsets()) {
-            callIndexes.add(blockPointer + s);
-          }
-          callIndexes.add(blockPointer + 1);
-          addCallSeq(callIndexes);
-          blockPointer = this.nextCallIndex();
-        } else if (block instanceof TzxBlockSequenceReturn) {
-          blockPointer = this.nextCallIndex();
-        } else if (block instanceof TzxBlockJumpTo) {
-          final short offset = offsets[0];
-          if (offset == 0) {
-            throw new IOException("Detected jump block with zero offset");
-          }
-          blockPointer += offset;
-        } else if (block instanceof TzxBlockLoopStart) {
-          final TzxBlockLoopStart startBlock = (TzxBlockLoopStart) block;
-          if (startBlock.getRepetitions() <= 0) {
-            throw new IOException("Detected zero repetitions");
-          }
-          this.repeatStack.add(new Repeat(blockPointer, startBlock.getRepetitions() - 1));
-          blockPointer++;
-        } else if (block instanceof TzxBlockLoopEnd) {
-          if (this.repeatStack.isEmpty()) {
-            throw new IOException("Unexpected block loop end");
-          } else {
-            final Repeat lastStart = this.repeatStack.get(this.repeatStack.size() - 1);
-            if (lastStart.isZero()) {
-              blockPointer++;
-            } else {
-              lastStart.dec();
-              this.removeAllRepeatAfter(lastStart.blockIndex);
-              blockPointer = lastStart.blockIndex + 1;
-            }
-          }
-        } else {
-          throw new Error("Unexpected management block type: " + block.getClass().getSimpleName());
-        }
-      } else if (block instanceof AbstractTzxSoundDataBlock) {
-        if (block instanceof TzxBlockSetSignalLevel) {
-          final TzxBlockSetSignalLevel dataBlock = (TzxBlockSetSignalLevel) block;
-          namedOffsets.add(new RenderResult.NamedOffsets("...set.level [" + dataBlock.getLevel() + "]...", WAV_HEADER_LENGTH + dataStream.getCounter()));
-          nextLevel = dataBlock.getLevel() > 0;
-          blockPointer++;
-        } else if (block instanceof TzxBlockStopTapeIf48k) {
-          namedOffsets.add(new RenderResult.NamedOffsets("-==STOP TAPE IF ZX48==-", WAV_HEADER_LENGTH + dataStream.getCounter()));
-          nextLevel = writePause(nextLevel, dataStream, Duration.ofSeconds(1), DataType.PAUSE);
-          nextLevel = writePause(nextLevel, dataStream, Duration.ofSeconds(4), DataType.STOP_TAPE_IF_ZX48);
-          blockPointer++;
-        } else if (block instanceof TzxBlockPauseOrStop) {
-          final TzxBlockPauseOrStop dataBlock = (TzxBlockPauseOrStop) block;
-
-          Duration duration = Duration.ofMillis(dataBlock.getPauseDurationMs());
-
-          if (duration.isZero()) {
-            namedOffsets.add(new RenderResult.NamedOffsets("-==STOP TAPE==-", WAV_HEADER_LENGTH + dataStream.getCounter()));
-            nextLevel = writePause(nextLevel, dataStream, Duration.ofSeconds(1), DataType.PAUSE);
-            nextLevel = writePause(nextLevel, dataStream, Duration.ofSeconds(4), DataType.STOP_TAPE);
-          } else {
-            namedOffsets.add(new RenderResult.NamedOffsets("...stop-pause [" + dataBlock.getPauseDurationMs() + " ms]", WAV_HEADER_LENGTH + dataStream.getCounter()));
-            nextLevel = writePause(nextLevel, dataStream, duration, DataType.PAUSE);
-          }
-
-          blockPointer++;
-        } else if (block instanceof TzxBlockStandardSpeedData) {
-          final TzxBlockStandardSpeedData dataBlock = (TzxBlockStandardSpeedData) block;
-
-          if (dataBlock.getDataLength() == 0) {
-            this.logger.warning("Detected zero-length standard speed data block");
-          } else {
-            final byte[] tapData = dataBlock.extractData();
-            final int flag = tapData[0] & 0xFF;
-
-            if (flag < 128) {
-              namedOffsets.add(new RenderResult.NamedOffsets(extractNameFromTapHeader(false, tapData), WAV_HEADER_LENGTH + dataStream.getCounter()));
-            } else {
-              namedOffsets.add(new RenderResult.NamedOffsets("...std.data...", WAV_HEADER_LENGTH + dataStream.getCounter()));
-            }
-
-            nextLevel = this.writeTapData(
-                    namedOffsets,
-                    nextLevel,
-                    dataStream,
-                    flag < 128 ? IMPULSNUMBER_PILOT_HEADER : IMPULSNUMBER_PILOT_DATA,
-                    PULSELEN_PILOT,
-                    PULSELEN_SYNC1,
-                    PULSELEN_SYNC2,
-                    PULSELEN_ZERO,
-                    PULSELEN_ONE,
-                    8,
-                    Duration.ofMillis(dataBlock.getPauseAfterBlockMs()),
-                    tapData,
-                    DataType.STD_PILOT,
-                    DataType.STD_SYNC1,
-                    DataType.STD_SYNC2,
-                    DataType.STD_DATA);
-          }
-
-          blockPointer++;
-        } else if (block instanceof TzxBlockTurboSpeedData) {
-          final TzxBlockTurboSpeedData dataBlock = (TzxBlockTurboSpeedData) block;
-
-          if (dataBlock.getDataLength() == 0) {
-            this.logger.warning("Detected zero-length turbo speed data block");
-          } else {
-            final byte[] tapData = dataBlock.extractData();
-            final int flag = tapData[0] & 0xFF;
-
-            if (flag < 128) {
-              namedOffsets.add(new RenderResult.NamedOffsets(extractNameFromTapHeader(true, tapData) + " {turbo}", WAV_HEADER_LENGTH + dataStream.getCounter()));
-            } else {
-              namedOffsets.add(new RenderResult.NamedOffsets("...turbo.data...", WAV_HEADER_LENGTH + dataStream.getCounter()));
-            }
-
-            nextLevel = this.writeTapData(
-                    namedOffsets,
-                    nextLevel,
-                    dataStream,
-                    dataBlock.getLengthPilotTone(),
-                    dataBlock.getLengthPilotPulse(),
-                    dataBlock.getLengthSyncFirstPulse(),
-                    dataBlock.getLengthSyncSecondPulse(),
-                    dataBlock.getLengthZeroBitPulse(),
-                    dataBlock.getLengthOneBitPulse(),
-                    dataBlock.getUsedBitsInLastByte(),
-                    Duration.ofMillis(dataBlock.getPauseAfterBlockMs()),
-                    tapData,
-                    DataType.TURBO_PILOT,
-                    DataType.TURBO_SYNC1,
-                    DataType.TURBO_SYNC2,
-                    DataType.TURBO_DATA);
-          }
-          blockPointer++;
-        } else if (block instanceof TzxBlockCSWRecording) {
-          //TODO
-          throw new IOException("Unsupported TzxBlockCSWRecording block yet");
-        } else if (block instanceof TzxBlockDirectRecording) {
-          final TzxBlockDirectRecording directRecording = (TzxBlockDirectRecording) block;
-
-          namedOffsets.add(new RenderResult.NamedOffsets("...direct.recording... [pause: " + directRecording.getPauseAfterBlockMs() + " ms]", WAV_HEADER_LENGTH + dataStream.getCounter()));
-
-          nextLevel = this.writeDirectRecording(
-                  dataStream,
-                  directRecording.getNumberTstatesPerSample(),
-                  directRecording.getUsedBitsInLastByte(),
-                  Duration.ofMillis(directRecording.getPauseAfterBlockMs()),
-                  directRecording.extractData()
-          );
-
-          blockPointer++;
-        } else if (block instanceof TzxBlockGeneralizedData) {
-          final TzxBlockGeneralizedData dataBlock = (TzxBlockGeneralizedData) block;
-
-          namedOffsets.add(new RenderResult.NamedOffsets("...generalized.data... [dSymbols=" + dataBlock.getTotalNumberOfSymbolsInDataStream() + ",dChar=" + Utils.minimalRequiredBitsFor(dataBlock.getNumberOfDataSymbolsInAbcTable() - 1) + ']', WAV_HEADER_LENGTH + dataStream.getCounter()));
-
-          nextLevel = dataBlock.decodeRecordsAsPulses(nextLevel, (ticks, level) -> {
-            this.writeSignalLevel(dataStream, ticks, level, DataType.GENERALIZED_DATA);
-          });
-
-          blockPointer++;
-        } else if (block instanceof TzxBlockKansasCityStandard) {
-          //TODO
-          throw new IOException("Unsupported TzxBlockKansasCityStandard block yet");
-        } else if (block instanceof TzxBlockPureData) {
-          final TzxBlockPureData dataBlock = (TzxBlockPureData) block;
-          final byte[] tapData = dataBlock.extractData();
-
-          namedOffsets.add(new RenderResult.NamedOffsets("...pure.data... [pause: " + dataBlock.getPauseAfterBlockMs() + " ms]", WAV_HEADER_LENGTH + dataStream.getCounter()));
-
-          nextLevel = this.writeTapData(
-                  namedOffsets,
-                  nextLevel,
-                  dataStream,
-                  -1,
-                  -1,
-                  -1,
-                  -1,
-                  dataBlock.getLengthZeroBitPulse(),
-                  dataBlock.getLengthOneBitPulse(),
-                  dataBlock.getUsedBitsInLastByte(),
-                  Duration.ofMillis(dataBlock.getPauseAfterBlockMs()),
-                  tapData,
-                  DataType.PURE_PILOT,
-                  DataType.PURE_SYNC1,
-                  DataType.PURE_SYNC2,
-                  DataType.PURE_DATA
-          );
-
-          blockPointer++;
-        } else if (block instanceof TzxBlockPureTone) {
-          final TzxBlockPureTone dataBlock = (TzxBlockPureTone) block;
-
-          namedOffsets.add(new RenderResult.NamedOffsets("...pure.tone... [pulses=" + dataBlock.getNumberOfPulses() + ']', WAV_HEADER_LENGTH + dataStream.getCounter()));
-
-          for (int i = 0; i < dataBlock.getNumberOfPulses(); i++) {
-            this.writeSignalLevel(dataStream, dataBlock.getLengthOfPulseInTstates(), nextLevel, DataType.PURE_TONE);
-            nextLevel = !nextLevel;
-          }
-
-          blockPointer++;
-        } else if (block instanceof TzxBlockVarSequencePulses) {
-          final TzxBlockVarSequencePulses dataBlock = (TzxBlockVarSequencePulses) block;
-
-          namedOffsets.add(new RenderResult.NamedOffsets("...seq.pulses...[pulses=" + dataBlock.getPulsesLengths().length + "]", WAV_HEADER_LENGTH + dataStream.getCounter()));
-
-          for (final int pulseLen : dataBlock.getPulsesLengths()) {
-            this.writeSignalLevel(dataStream, pulseLen, nextLevel, DataType.SEQ_PULSES);
-            nextLevel = !nextLevel;
-          }
-
-          blockPointer++;
-        } else {
-          throw new Error("Unexpected data block: " + block.getClass().getSimpleName());
-        }
-      } else {
-        blockPointer++;
-      }
-    }
-
-    // add pause in the end
-    writePause(nextLevel, dataStream, Duration.ofMillis(500), DataType.PAUSE);
-
-    dataStream.close();
-
-    return new RenderResult(namedOffsets, dataStream);
-  }
-
-  private boolean writeTapData(
-          final List<RenderResult.NamedOffsets> namedOffsets,
-          final boolean nextSignalLevel,
-          final DataStream outputStream,
-          final int lenPilotTone,
-          final int lenPilotPulse,
-          final int lenSync1pulse,
-          final int lenSync2pulse,
-          final int lenZeroBitPulse,
-          final int lenOneBitPulse,
-          final int bitsInLastByte,
-          final Duration pauseAfterBlock,
-          final byte[] tapeData,
-          final DataType pilotType,
-          final DataType sync1Type,
-          final DataType sync2Type,
-          final DataType dataType
-  ) throws IOException {
-
-    boolean nextLevel = nextSignalLevel;
-
-    if (lenPilotTone > 0) {
-      for (int i = 0; i < lenPilotTone; i++) {
-        writeSignalLevel(outputStream, lenPilotPulse, nextLevel, pilotType);
-        nextLevel = !nextLevel;
-      }
-    }
-
-    if (lenSync1pulse > 0) {
-      writeSignalLevel(outputStream, lenSync1pulse, nextLevel, sync1Type);
-      nextLevel = !nextLevel;
-    }
-    if (lenSync2pulse > 0) {
-      writeSignalLevel(outputStream, lenSync2pulse, nextLevel, sync2Type);
-      nextLevel = !nextLevel;
-    }
-
-    for (int i = 0; i < tapeData.length; i++) {
-      final boolean lastByte = i == tapeData.length - 1;
-      int bitCounter = lastByte ? bitsInLastByte : 8;
-      final int nextDataByte = tapeData[i];
-      int bitMask = 0x80;
-      while (bitCounter > 0) {
-        final int signalLength = (nextDataByte & bitMask) == 0 ? lenZeroBitPulse : lenOneBitPulse;
-        writeSignalLevel(outputStream, signalLength, nextLevel, dataType);
-        nextLevel = !nextLevel;
-        writeSignalLevel(outputStream, signalLength, nextLevel, dataType);
-        nextLevel = !nextLevel;
-        bitMask >>= 1;
-        bitCounter--;
-      }
-    }
-
-    if (!pauseAfterBlock.isZero()) {
-      namedOffsets.add(new RenderResult.NamedOffsets("...pause... [" + pauseAfterBlock.toMillis() + " ms]", WAV_HEADER_LENGTH + outputStream.getCounter()));
-      nextLevel = writePause(nextLevel, outputStream, pauseAfterBlock, DataType.PAUSE);
-    }
-
-    return nextLevel;
-  }
-
-  private void removeAllRepeatAfter(final int blockIndex) {
-    this.repeatStack.removeIf(next -> next.getBlockIndex() > blockIndex);
-  }
-
-  private void addCallSeq(final List<Integer> calls) {
-    this.callStack.add(calls);
-  }
-
-  private int nextCallIndex() throws IOException {
-    if (this.callStack.isEmpty()) {
-      throw new IOException("Detected error in call sequence");
-    } else {
-      final List<Integer> last = this.callStack.remove(this.callStack.size() - 1);
-      final int result = last.remove(0);
-      if (!last.isEmpty()) {
-        this.callStack.add(last);
+    final TzxPulseStream pulseStream = new TzxPulseStream(this.tzxFile, this.logger);
+    final TzxPulseStream.PulseSink sink = new TzxPulseStream.PulseSink() {
+      @Override
+      public void onPulse(final int ticks, final boolean level, final DataType type) throws IOException {
+        writeSignalLevel(dataStream, ticks, level, type);
       }
-      return result;
-    }
-  }
 
-  private boolean writeDirectRecording(
-          final DataStream outputStream,
-          final int ticksPerSample,
-          final int bitsInLastByte,
-          final Duration pauseAfterBlock,
-          final byte[] data
-  ) throws IOException {
-
-    boolean nextLevel = false;
-
-    for (int i = 0; i < data.length; i++) {
-      final boolean lastByte = i == data.length - 1;
-      int bitCounter = lastByte ? bitsInLastByte : 8;
-      final int nextDataByte = data[i];
-      int bitMask = 0x80;
-      while (bitCounter > 0) {
-        nextLevel = (nextDataByte & bitMask) != 0;
-        writeSignalLevel(outputStream, ticksPerSample, nextLevel, DataType.DIRECT_DATA);
-        bitMask >>= 1;
-        bitCounter--;
+      @Override
+      public void onMark(final String name) {
+        namedOffsets.add(new RenderResult.NamedOffsets(name, WAV_HEADER_LENGTH + dataStream.getCounter()));
       }
-    }
+    };
 
-    if (!pauseAfterBlock.isZero()) {
-      nextLevel = writePause(false, outputStream, pauseAfterBlock, DataType.PAUSE);
+    while (pulseStream.hasNext()) {
+      pulseStream.renderNext(sink);
     }
 
-    return nextLevel;
-  }
+    dataStream.close();
 
-  private boolean writePause(final boolean nextLevel, final DataStream outputStream, final Duration delay, final DataType dataType) throws IOException {
-    if (nextLevel) {
-      writeSignalLevel(outputStream, PULSELEN_SYNC3, true, DataType.SYNC3);
-    }
-    final long ticks = (delay.toMillis() * TSTATES_PER_SECOND) / 1000L;
-    writeSignalLevel(outputStream, (int) ticks, false, dataType);
-    return true;
+    return new RenderResult(namedOffsets, dataStream);
   }
 
   private void writeSignalLevel(final DataStream outputStream, final int pulseTicks, final boolean level, final DataType dataType) throws IOException {
@@ -604,43 +220,4 @@ public class TzxWavRenderer {
       }
     }
   }
-
-  private static class Repeat {
-    private final int blockIndex;
-    private int repetitions;
-
-    Repeat(final int blockIndex, final int repeat) {
-      this.blockIndex = blockIndex;
-      this.repetitions = repeat;
-    }
-
-    boolean isZero() {
-      return this.repetitions <= 0;
-    }
-
-    int getBlockIndex() {
-      return this.blockIndex;
-    }
-
-    void dec() {
-      this.repetitions = Math.max(0, this.repetitions - 1);
-    }
-
-    @Override
-    public boolean equals(Object o) {
-      if (this == o) {
-        return true;
-      }
-      if (o == null || getClass() != o.getClass()) {
-        return false;
-      }
-      Repeat repeat1 = (Repeat) o;
-      return blockIndex == repeat1.blockIndex;
-    }
-
-    @Override
-    public int hashCode() {
-      return this.blockIndex;
-    }
-  }
 }
@@ -1,10 +1,17 @@
 package com.igormaznitsa.zxpoly.components.tapereader.wave;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
+/**
+ * WAV file which samples are read directly from buffers provided by container, for file container
+ * they are memory mapped so that size of the file doesn't depend on heap size.
+ */
 public final class InMemoryWavFile {
 
-  private final byte[] wavData;
+  private final ByteBuffer[] wavData;
+  private final long wavDataLength;
+  private final long windowSize;
   private final int audioFormat;
   private final int numChannels;
   private final int sampleRate;
@@ -12,16 +19,15 @@ public final class InMemoryWavFile {
   private final int blockAlign;
   private final int bitsPerSample;
 
-  private final long wavDataStartOffset;
-  private final double tstatesPerBlock;
+  private final int bytesPerSample;
 
-  public InMemoryWavFile(final SeekableContainer seekableContainer, final long tstatesPerSecond) throws IOException {
+  public InMemoryWavFile(final SeekableContainer seekableContainer) throws IOException {
     final long fileSize = seekableContainer.length();
 
     if (!is("RIFF", readChunkId(seekableContainer))) {
       throw new IOException("It is not RIFF container");
     }
-    final int chunkSize = readInt(seekableContainer);
+    final long chunkSize = readChunkSize(seekableContainer);
     if (chunkSize < 36) {
       throw new IOException("Wrong container length in WAV file");
     }
@@ -59,16 +65,17 @@ public final class InMemoryWavFile {
       throw new IOException("Can't find chunk 'data'");
     }
 
-    final long dataLength = readChunkSize(seekableContainer);
-    if (dataLength >= Integer.MAX_VALUE) {
-      throw new IOException("Too big WAV file to be cached: " + dataLength + " bytes");
-    }
-    this.wavData = new byte[(int) dataLength];
-
-    this.wavDataStartOffset = seekableContainer.getFilePointer();
-    seekableContainer.readFully(this.wavData);
+    final long dataStart = seekableContainer.getFilePointer() + 4;
+    // data of truncated file is cut
+    this.wavDataLength =
+        Math.max(0L, Math.min(readChunkSize(seekableContainer), fileSize - dataStart));
+    this.wavData = seekableContainer.readArea(dataStart, this.wavDataLength);
+    this.windowSize = this.wavData.length > 1 ? this.wavData[0].limit() : Long.MAX_VALUE;
 
-    this.tstatesPerBlock = (double) this.sampleRate / (double) tstatesPerSecond;
+    this.bytesPerSample = this.bitsPerSample / 8;
+    if (this.numChannels < 1 || this.blockAlign < this.numChannels * this.bytesPerSample) {
+      throw new IOException("Wrong channel number or block align in WAV file");
+    }
   }
 
   private static int readChunkId(final SeekableContainer file) throws IOException {
@@ -113,8 +120,8 @@ public final class InMemoryWavFile {
       if (is(chunkName, readChunkId(file))) {
         return true;
       }
-      final int chunkSize = readInt(file);
-      file.skipBytes(chunkSize);
+      final long chunkSize = readChunkSize(file);
+      file.seek(file.getFilePointer() + chunkSize);
     }
     return false;
   }
@@ -123,31 +130,35 @@ public final class InMemoryWavFile {
     return this.bitsPerSample;
   }
 
+  private byte readByte(final long pos) {
+    return this.wavData[(int) (pos / this.windowSize)].get((int) (pos % this.windowSize));
+  }
+
   private float readUnsignedByteAt(final long pos) {
-    return (float) (this.wavData[(int) pos] & 0xFF) / (float) 0xFF;
+    return (float) (this.readByte(pos) & 0xFF) / (float) 0xFF;
   }
 
   private float readSignedShort(final long pos) {
-    int p = (int) pos;
-    final int a = this.wavData[p++] & 0xFF;
-    final int b = this.wavData[p];
+    long p = pos;
+    final int a = this.readByte(p++) & 0xFF;
+    final int b = this.readByte(p);
     return (float) ((b << 8) | a) / (float) 0x7FFF;
   }
 
   private float readPcm24(final long pos) {
-    int p = (int) pos;
-    final int a = this.wavData[p++] & 0xFF;
-    final int b = this.wavData[p++] & 0xFF;
-    final int c = this.wavData[p];
+    long p = pos;
+    final int a = this.readByte(p++) & 0xFF;
+    final int b = this.readByte(p++) & 0xFF;
+    final int c = this.readByte(p);
     return (float) ((c << 16) | (b << 8) | a) / (float) 0x7FFFFF;
   }
 
   private float readPcm32(final long pos) {
-    int p = (int) pos;
-    final int a = this.wavData[p++] & 0xFF;
-    final int b = this.wavData[p++] & 0xFF;
-    final int c = this.wavData[p++] & 0xFF;
-    final int d = this.wavData[p];
+    long p = pos;
+    final int a = this.readByte(p++) & 0xFF;
+    final int b = this.readByte(p++) & 0xFF;
+    final int c = this.readByte(p++) & 0xFF;
+    final int d = this.readByte(p);
     int result = (d << 24) | (c << 16) | (b << 8) | a;
 
     if (this.audioFormat == 3) {
@@ -157,60 +168,47 @@ public final class InMemoryWavFile {
     }
   }
 
-  public long findTstatesForWavDataPosition(final long wavFileOffset) {
-    return Math.round((wavFileOffset - this.wavDataStartOffset) / this.tstatesPerBlock);
-  }
-
-  public long calcPositionInWavData(final long tstatePosition) {
-    return Math.round(this.tstatesPerBlock * tstatePosition) * this.blockAlign;
-  }
-
-  public long calcPositionInWavFile(final long tstatePosition) {
-    return this.calcPositionInWavData(tstatePosition) + this.wavDataStartOffset;
+  /**
+   * Get number of sample blocks in data.
+   *
+   * @return number of blocks, every block contains samples for all channels
+   */
+  public long getSampleCount() {
+    return this.wavDataLength / this.blockAlign;
+  }
+
+  private float readChannel(final long pos) {
+    switch (this.bitsPerSample) {
+      case 8:
+        return this.readUnsignedByteAt(pos);
+      case 16:
+        return this.readSignedShort(pos);
+      case 24:
+        return this.readPcm24(pos);
+      case 32:
+        return this.readPcm32(pos);
+      default:
+        throw new Error("Unexpected bitness");
+    }
   }
 
-  public float readAtPosition(final long tstatePosition) {
-    long blockPosition =
-            Math.round(this.tstatesPerBlock * tstatePosition) * this.blockAlign;
-
+  /**
+   * Read sample block, values of channels are averaged.
+   *
+   * @param sampleIndex index of sample block
+   * @return normalized sample value
+   */
+  public float readSample(final long sampleIndex) {
+    long position = sampleIndex * this.blockAlign;
     if (this.numChannels == 1) {
-      switch (this.bitsPerSample) {
-        case 8:
-          return this.readUnsignedByteAt(blockPosition);
-        case 16:
-          return this.readSignedShort(blockPosition);
-        case 24:
-          return this.readPcm24(blockPosition);
-        case 32:
-          return this.readPcm32(blockPosition);
-        default:
-          throw new Error("Unexpected bitness");
-      }
+      return this.readChannel(position);
     } else {
       float result = 0;
       for (int i = 0; i < this.numChannels; i++) {
-        final float next;
-        switch (this.bitsPerSample) {
-          case 8:
-            next = this.readUnsignedByteAt(blockPosition);
-            break;
-          case 16:
-            next = this.readSignedShort(blockPosition);
-            break;
-          case 24:
-            next = this.readPcm24(blockPosition);
-            break;
-          case 32:
-            next = this.readPcm32(blockPosition);
-            break;
-          default:
-            throw new Error("Unexpected bitness");
-        }
-        result += next;
-        blockPosition += this.blockAlign;
+        result += this.readChannel(position);
+        position += this.bytesPerSample;
       }
-      result /= this.numChannels;
-      return result;
+      return result / this.numChannels;
     }
   }
 
@@ -238,7 +236,7 @@ public final class InMemoryWavFile {
     return this.audioFormat;
   }
 
-  public int size() {
-    return this.wavData.length;
+  public long size() {
+    return this.wavDataLength;
   }
 }
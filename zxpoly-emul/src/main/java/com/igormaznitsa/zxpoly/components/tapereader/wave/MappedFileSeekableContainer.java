@@ -0,0 +1,104 @@
+package com.igormaznitsa.zxpoly.components.tapereader.wave;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Container of file which areas are mapped into memory, so that their data are not placed into
+ * heap. Files bigger than 2 GB are mapped by several windows.
+ */
+public class MappedFileSeekableContainer implements SeekableContainer {
+
+  private final FileChannel channel;
+  private final ByteBuffer buffer = ByteBuffer.allocate(4);
+  private final int windowSize;
+  private long pointer;
+
+  public MappedFileSeekableContainer(final File file) throws IOException {
+    this(file, AREA_WINDOW_SIZE);
+  }
+
+  MappedFileSeekableContainer(final File file, final int windowSize) throws IOException {
+    this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    this.windowSize = windowSize;
+  }
+
+  @Override
+  public void close() throws IOException {
+    this.channel.close();
+  }
+
+  @Override
+  public long length() throws IOException {
+    return this.channel.size();
+  }
+
+  @Override
+  public long getFilePointer() {
+    return this.pointer;
+  }
+
+  private void readAtPointer(final ByteBuffer target) throws IOException {
+    while (target.hasRemaining()) {
+      final int read = this.channel.read(target, this.pointer);
+      if (read < 0) {
+        throw new EOFException();
+      }
+      this.pointer += read;
+    }
+  }
+
+  @Override
+  public int readUnsignedShort() throws IOException {
+    this.buffer.clear().limit(2);
+    this.readAtPointer(this.buffer);
+    return this.buffer.getShort(0) & 0xFFFF;
+  }
+
+  @Override
+  public void readFully(final byte[] wavData) throws IOException {
+    this.readAtPointer(ByteBuffer.wrap(wavData));
+  }
+
+  @Override
+  public int readInt() throws IOException {
+    this.buffer.clear();
+    this.readAtPointer(this.buffer);
+    return this.buffer.getInt(0);
+  }
+
+  @Override
+  public void seek(final long pos) throws IOException {
+    if (pos < 0) {
+      throw new IOException("Negative seek offset");
+    } else {
+      this.pointer = pos;
+    }
+  }
+
+  @Override
+  public int skipBytes(final int bytes) throws IOException {
+    final int result = (int) Math.max(0L, Math.min(bytes, this.length() - this.pointer));
+    this.pointer += result;
+    return result;
+  }
+
+  @Override
+  public ByteBuffer[] readArea(final long offset, final long length) throws IOException {
+    if (offset < 0L || length < 0L || offset + length > this.length()) {
+      throw new EOFException("Area is out of file: " + offset + ", " + length);
+    }
+    final ByteBuffer[] result =
+        new ByteBuffer[(int) ((length + this.windowSize - 1) / this.windowSize)];
+    for (int i = 0; i < result.length; i++) {
+      final long start = (long) i * this.windowSize;
+      result[i] = this.channel.map(FileChannel.MapMode.READ_ONLY, offset + start,
+          Math.min(this.windowSize, length - start));
+    }
+    return result;
+  }
+}
@@ -2,8 +2,14 @@ package com.igormaznitsa.zxpoly.components.tapereader.wave;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 public interface SeekableContainer extends Closeable {
+  /**
+   * Default size of buffers returned by {@link #readArea(long, long)}.
+   */
+  int AREA_WINDOW_SIZE = 1 << 30;
+
   long length() throws IOException;
 
   long getFilePointer() throws IOException;
@@ -17,4 +23,32 @@ public interface SeekableContainer extends Closeable {
   void seek(long pos) throws IOException;
 
   int skipBytes(int bytes) throws IOException;
+
+  /**
+   * Get area of the container as list of buffers, all buffers except the last one have the same
+   * size. Buffers stay valid after close of the container, the file pointer is not changed.
+   * Default implementation reads the area into heap by {@link #AREA_WINDOW_SIZE} windows.
+   *
+   * @param offset offset of the area start
+   * @param length length of the area in bytes
+   * @return buffers which cover the area
+   * @throws IOException if the area can't be read
+   */
+  default ByteBuffer[] readArea(final long offset, final long length) throws IOException {
+    final long pointer = this.getFilePointer();
+    try {
+      this.seek(offset);
+      final ByteBuffer[] result =
+          new ByteBuffer[(int) ((length + AREA_WINDOW_SIZE - 1) / AREA_WINDOW_SIZE)];
+      for (int i = 0; i < result.length; i++) {
+        final byte[] window =
+            new byte[(int) Math.min(AREA_WINDOW_SIZE, length - (long) i * AREA_WINDOW_SIZE)];
+        this.readFully(window);
+        result[i] = ByteBuffer.wrap(window);
+      }
+      return result;
+    } finally {
+      this.seek(pointer);
+    }
+  }
 }
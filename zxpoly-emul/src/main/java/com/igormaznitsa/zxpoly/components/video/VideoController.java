@@ -31,30 +31,49 @@ import com.igormaznitsa.zxpoly.formats.Spec256Arch;
 import com.igormaznitsa.zxpoly.ui.FastButton;
 import com.igormaznitsa.zxpoly.utils.AppOptions;
 import com.igormaznitsa.zxpoly.utils.Utils;
+import java.awt.AlphaComposite;
 import java.awt.Color;
 import java.awt.Cursor;
 import java.awt.Dialog;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
 import java.awt.Image;
+import java.awt.MouseInfo;
 import java.awt.Point;
+import java.awt.PointerInfo;
 import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.Toolkit;
+import java.awt.Transparency;
 import java.awt.Window;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.HierarchyBoundsAdapter;
+import java.awt.event.HierarchyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseWheelEvent;
 import java.awt.event.MouseWheelListener;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.awt.image.BufferStrategy;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferInt;
 import java.awt.image.RenderedImage;
+import java.awt.image.VolatileImage;
 import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.JComponent;
@@ -115,21 +134,52 @@ public final class VideoController extends JComponent
   private static final long serialVersionUID = -6290427036692912036L;
   private static final Image MOUSE_TRAPPED = Utils.loadIcon("escmouse.png");
   private static final RenderedImage[] EMPTY_ARRAY = new RenderedImage[0];
+  // TV filters are singletons with own work buffers, so a chain is applied by one thread at time
+  private static final Object TV_FILTER_LOCKER = new Object();
   private static final float SCALE_STEP = 0.025f;
   private static final float SCALE_MIN = 1.0f;
   private static final float SCALE_MAX = 6.0f;
   private static final int[] ZX_SCREEN_ROW_OFFSETS = generateZxScreenRowStartOffsets();
+  // pixel masks of screen byte, eight items per byte, 0 for paper pixel and -1 for ink one
+  private static final int[] PIXEL_MASKS = generatePixelMasks();
+  // bits of screen byte spread into nibbles, the most significant bit goes to the highest nibble
+  private static final int[] PIXEL_NIBBLES = generatePixelNibbles();
+  // colors for attribute, index contains attribute in low byte and flash active state in bit 8
+  private static final int[] ATTRIBUTE_INK = generateAttributeColors(PALETTE_ZXPOLY, true);
+  private static final int[] ATTRIBUTE_PAPER = generateAttributeColors(PALETTE_ZXPOLY, false);
+  private static final int[] ATTRIBUTE_INK_SPEC256 =
+      generateAttributeColors(PALETTE_ALIGNED_ZXPOLY, true);
+  private static final int ATTRIBUTE_FLASH_ACTIVE = 0x100;
+  private static final int CELL_RUN_LENGTH = 16;
+  private static final int PARALLEL_RENDER_BANDS =
+      Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors()));
   private static final int BORDER_SHORT = 16;
+  private static final int SCREEN_PIXELS_SIZE = 0x1800;
+  private static final int SCREEN_SIZE = 0x1B00;
+  private static final int CELL_DIRTY = 3;
+  private static final int OUTPUT_FRAMES = 3;
+  private static final int OUTPUT_FRAME_INDEX_MASK = 3;
+  private static final int OUTPUT_FRAME_FRESH = 4;
+  private static final long ACTIVE_RENDER_STOP_TIMEOUT_MS = 200L;
   private static volatile boolean gfxBackOverFF = false;
   private static volatile boolean gfxPaper00InkFF = false;
   private static volatile boolean gfxHideSameInkPaper = true;
   private static volatile int gfxUpColorsMixed = 64;
   private static volatile int gfxDownColorsMixed = 0;
   private static volatile int[] gfxPrerenderedBack = null;
+  private static volatile int gfxSettingsVersion = 0;
   private final VirtualKeyboardDecoration vkbdContainer;
   private final Motherboard board;
   private final BufferedImage workZxScreenImage;
-  private final BufferedImage outputZxScreenImage;
+  // triple buffered output frames, the emulator thread fills the back frame and publishes it
+  // through exchange with the middle one, consumers take the last published frame as the front one
+  private final BufferedImage[] outputFrames = new BufferedImage[OUTPUT_FRAMES];
+  private final int[][] outputFramesRgbData = new int[OUTPUT_FRAMES][];
+  private final AtomicInteger middleOutputFrame = new AtomicInteger(1);
+  private final Object outputFrameConsumerLocker = new Object();
+  private final boolean[] backOutputFrameLines = new boolean[ZXSCREEN_ROWS];
+  private int backOutputFrame = 0;
+  private int frontOutputFrame = 2;
   private final int[] workZxScreenImageRgbData;
   private final ZxPolyModule[] modules;
   private final boolean showVkbdApart;
@@ -154,8 +204,50 @@ public final class VideoController extends JComponent
   private VirtualKeyboardRender vkbdRender;
   private int stepStartTiStates = 0;
   private int preStepBorderColor;
+  private Color preStepBorderSourceColor;
+  private TvFilterChain preStepBorderFilterChain;
   private Rectangle lastVirtualKeyboardWindowPosition = null;
 
+  // cells of the screen (8x1 pixels) to be rendered, bit 0 for even lines and bit 1 for odd lines,
+  // atomic because ZX-Poly modules executed by own threads mark cells during rendering
+  private final AtomicIntegerArray dirtyCells = new AtomicIntegerArray(SCREEN_PIXELS_SIZE);
+  private final int[] renderedScreenAddress = new int[4];
+  private int renderedVideoMode = -1;
+  private int renderedGfxSettingsVersion;
+  private boolean renderedUlaPlusActive;
+  private boolean renderedFlashActive;
+  private volatile boolean fullRedrawRequested = true;
+  private volatile boolean parallelRender;
+  private volatile long parallelRenderCounter;
+  // frame rendered by parallel bands from the snapshot while emulation goes on, the task owns
+  // the work buffer and the back output frame till its end
+  private final ScreenSnapshot frameSnapshot = new ScreenSnapshot();
+  private volatile ForkJoinTask<?> frameRenderTask;
+  private final ScreenSource liveScreen = new ScreenSource() {
+    @Override
+    public int readVideo(final int module, final int videoOffset) {
+      return modules[module].readVideo(videoOffset);
+    }
+
+    @Override
+    public long readGfxVideo(final int videoOffset) {
+      return modules[0].readGfxVideo(videoOffset);
+    }
+
+    @Override
+    public boolean takeDirtyCell(final int cell, final int dirtyMask) {
+      return VideoController.takeDirtyCell(dirtyCells, cell, dirtyMask);
+    }
+  };
+  // accelerated copy of the screen, only changed rows are uploaded into it
+  private VolatileImage screenVolatileImage;
+  private final int[] screenVolatileImageRgbData = new int[SCREEN_WIDTH * SCREEN_HEIGHT];
+  private final int[] screenVolatileImageRowRuns = new int[SCREEN_HEIGHT];
+  private volatile BufferStrategy activeRenderStrategy;
+  private volatile Thread activeRenderThread;
+  private volatile RenderGeometry activeRenderGeometry;
+  private final AtomicBoolean activeRenderRequested = new AtomicBoolean();
+
   private final UlaPlusContainer ulaPlus;
 
   public VideoController(
@@ -217,9 +309,13 @@ public final class VideoController extends JComponent
 
     this.workZxScreenImage =
         new BufferedImage(SCREEN_WIDTH, SCREEN_HEIGHT, BufferedImage.TYPE_INT_RGB);
-    this.outputZxScreenImage =
-        new BufferedImage(SCREEN_WIDTH, SCREEN_HEIGHT, BufferedImage.TYPE_INT_RGB);
-    this.outputZxScreenImage.setAccelerationPriority(1.0f);
+    for (int i = 0; i < OUTPUT_FRAMES; i++) {
+      this.outputFrames[i] =
+          new BufferedImage(SCREEN_WIDTH, SCREEN_HEIGHT, BufferedImage.TYPE_INT_RGB);
+      this.outputFrames[i].setAccelerationPriority(1.0f);
+      this.outputFramesRgbData[i] =
+          ((DataBufferInt) this.outputFrames[i].getRaster().getDataBuffer()).getData();
+    }
     this.workZxScreenImage.setAccelerationPriority(1.0f);
     this.workZxScreenImageRgbData =
         ((DataBufferInt) this.workZxScreenImage.getRaster().getDataBuffer()).getData();
@@ -252,6 +348,35 @@ public final class VideoController extends JComponent
       }
     });
 
+    // the active render thread must not touch Swing, so geometry is collected on EDT
+    this.addComponentListener(new ComponentAdapter() {
+      @Override
+      public void componentResized(final ComponentEvent e) {
+        updateActiveRenderGeometry();
+      }
+
+      @Override
+      public void componentMoved(final ComponentEvent e) {
+        updateActiveRenderGeometry();
+      }
+
+      @Override
+      public void componentShown(final ComponentEvent e) {
+        updateActiveRenderGeometry();
+      }
+    });
+    this.addHierarchyBoundsListener(new HierarchyBoundsAdapter() {
+      @Override
+      public void ancestorMoved(final HierarchyEvent e) {
+        updateActiveRenderGeometry();
+      }
+
+      @Override
+      public void ancestorResized(final HierarchyEvent e) {
+        updateActiveRenderGeometry();
+      }
+    });
+
     this.setDoubleBuffered(false);
   }
 
@@ -262,8 +387,10 @@ public final class VideoController extends JComponent
       final boolean flashActive,
       final int lineFrom,
       final int lineTo,
-      final UlaPlusContainer ulaPlus
+      final UlaPlusContainer ulaPlus,
+      final AtomicIntegerArray dirtyCells
   ) {
+    final int dirtyMask = renderLines.dirtyMask;
     final ZxPolyModule mainModule = modules[0];
     final byte[] heap = mainModule.getMotherboard().getHeapRam();
 
@@ -277,6 +404,8 @@ public final class VideoController extends JComponent
     }
 
     final boolean useUlaPlus = ulaPlus.isActive();
+    final int flashIndex = flashActive ? ATTRIBUTE_FLASH_ACTIVE : 0;
+    final int[] run = new int[CELL_RUN_LENGTH];
 
     int offset = 0;
     int attributeOffset = 0;
@@ -292,63 +421,147 @@ public final class VideoController extends JComponent
           attributeOffset = calcAttributeAddressZxMode(i);
         }
 
-        int currentPixels = heap[videoRamHeapOffset + i] & 0xFF;
-
-        final int attrOffset = attributeOffset++;
-
-        final int argbInkColor;
-        final int argbPaperColor;
+        if (!takeDirtyCell(dirtyCells, i, dirtyMask)) {
+          offset += 16;
+          attributeOffset++;
+          continue;
+        }
 
+        final int pixels = heap[videoRamHeapOffset + i];
+        final int attribute = heap[videoRamHeapOffset + attributeOffset++] & 0xFF;
         if (useUlaPlus) {
-          final int attribute = heap[videoRamHeapOffset + attrOffset] & 0xFF;
-          argbInkColor = ulaPlus.findInkRgbForAttribute(attribute);
-          argbPaperColor = ulaPlus.findPaperRgbForAttribute(attribute);
+          fillCellRun(run, 0, pixels, ulaPlus.findInkRgbForAttribute(attribute),
+              ulaPlus.findPaperRgbForAttribute(attribute));
         } else {
-          int effectiveAttribute = heap[videoRamHeapOffset + attrOffset];
-          effectiveAttribute =
-              flashActive && ((effectiveAttribute & 0x80) != 0) ?
-                  (effectiveAttribute & 0b01_000_000)
-                      | ((effectiveAttribute >> 3) & 7)
-                      | ((effectiveAttribute & 7) << 3) : effectiveAttribute;
-          argbInkColor = extractInkPaletteColor(effectiveAttribute);
-          argbPaperColor = extractPaperPaletteColor(effectiveAttribute);
+          fillCellRun(run, 0, pixels, ATTRIBUTE_INK[flashIndex | attribute],
+              ATTRIBUTE_PAPER[flashIndex | attribute]);
         }
+        drawCellRun(pixelRgbBuffer, offset, dirtyMask, run, 0);
+        offset += 16;
+      }
+    }
+  }
+
+  private static int[] generatePixelMasks() {
+    final int[] result = new int[256 * 8];
+    for (int value = 0; value < 256; value++) {
+      for (int pixel = 0; pixel < 8; pixel++) {
+        result[(value << 3) + pixel] = (value & (0x80 >> pixel)) == 0 ? 0 : -1;
+      }
+    }
+    return result;
+  }
+
+  private static int[] generatePixelNibbles() {
+    final int[] result = new int[256];
+    for (int value = 0; value < 256; value++) {
+      int nibbles = 0;
+      for (int pixel = 0; pixel < 8; pixel++) {
+        nibbles = (nibbles << 4) | ((value >> (7 - pixel)) & 1);
+      }
+      result[value] = nibbles;
+    }
+    return result;
+  }
 
-        int x = 8;
+  private static int[] generateAttributeColors(final int[] palette, final boolean ink) {
+    final int[] result = new int[512];
+    for (int index = 0; index < result.length; index++) {
+      final int bright = (index & 0x40) == 0 ? 0 : 0x08;
+      final boolean swap = (index & ATTRIBUTE_FLASH_ACTIVE) != 0 && (index & 0x80) != 0;
+      final int inkColor = palette[(index & 0x07) | bright];
+      final int paperColor = palette[((index >> 3) & 0x07) | bright];
+      result[index] = ink == swap ? paperColor : inkColor;
+    }
+    return result;
+  }
 
-        while (x-- > 0) {
-          final int color = (currentPixels & 0x80) == 0 ? argbPaperColor : argbInkColor;
-          currentPixels <<= 1;
+  /**
+   * Fill doubled pixel run of screen cell by two colors.
+   *
+   * @param run       target run
+   * @param runOffset start offset in the run
+   * @param pixels    screen byte
+   * @param ink       color of set pixels
+   * @param paper     color of reset pixels
+   */
+  private static void fillCellRun(final int[] run, final int runOffset, final int pixels,
+                                  final int ink, final int paper) {
+    final int maskOffset = (pixels & 0xFF) << 3;
+    final int diff = ink ^ paper;
+    for (int i = 0, j = runOffset; i < 8; i++) {
+      final int color = paper ^ (diff & PIXEL_MASKS[maskOffset + i]);
+      run[j++] = color;
+      run[j++] = color;
+    }
+  }
 
-          switch (renderLines) {
-            case ALL: {
-              pixelRgbBuffer[offset++] = color;
-              pixelRgbBuffer[offset] = color;
-              offset += SCREEN_WIDTH;
+  /**
+   * Fill pixel run of screen cell by pixels of two screen bytes placed one by one.
+   */
+  private static void fillCellRunInterleaved(final int[] run, final int runOffset,
+                                             final int pixelsA, final int inkA,
+                                             final int paperA,
+                                             final int pixelsB, final int inkB,
+                                             final int paperB) {
+    final int maskOffsetA = (pixelsA & 0xFF) << 3;
+    final int maskOffsetB = (pixelsB & 0xFF) << 3;
+    final int diffA = inkA ^ paperA;
+    final int diffB = inkB ^ paperB;
+    for (int i = 0, j = runOffset; i < 8; i++) {
+      run[j++] = paperA ^ (diffA & PIXEL_MASKS[maskOffsetA + i]);
+      run[j++] = paperB ^ (diffB & PIXEL_MASKS[maskOffsetB + i]);
+    }
+  }
 
-              pixelRgbBuffer[offset--] = color;
-              pixelRgbBuffer[offset] = color;
-              offset -= SCREEN_WIDTH - 2;
-            }
-            break;
-            case EVEN: {
-              pixelRgbBuffer[offset++] = color;
-              pixelRgbBuffer[offset++] = color;
-            }
-            break;
-            case ODD: {
-              pixelRgbBuffer[SCREEN_WIDTH + offset++] = color;
-              pixelRgbBuffer[SCREEN_WIDTH + offset++] = color;
-            }
-            break;
-            default:
-              throw new Error("Unexpected mode");
-          }
-        }
-      }
+  /**
+   * Fill doubled pixel run of screen cell by ZX-Poly colors combined from four bit planes.
+   */
+  private static void fillCellRunZxPoly(final int[] run, final int video0, final int video1,
+                                        final int video2, final int video3) {
+    int nibbles = (PIXEL_NIBBLES[video3 & 0xFF] << 3)
+        | (PIXEL_NIBBLES[video0 & 0xFF] << 2)
+        | (PIXEL_NIBBLES[video1 & 0xFF] << 1)
+        | PIXEL_NIBBLES[video2 & 0xFF];
+    for (int j = 0; j < CELL_RUN_LENGTH; nibbles <<= 4) {
+      final int color = PALETTE_ZXPOLY[nibbles >>> 28];
+      run[j++] = color;
+      run[j++] = color;
+    }
+  }
+
+  /**
+   * Draw pixel run of screen cell into buffer.
+   *
+   * @param pixelRgbBuffer  target buffer
+   * @param offset          offset of the cell in the even line of the buffer
+   * @param lines           mask of lines to be drawn, bit 0 for even line and bit 1 for odd one
+   * @param run             source run
+   * @param oddLineRunStart offset of pixels for odd line in the run
+   */
+  private static void drawCellRun(final int[] pixelRgbBuffer, final int offset, final int lines,
+                                  final int[] run, final int oddLineRunStart) {
+    if ((lines & 1) != 0) {
+      System.arraycopy(run, 0, pixelRgbBuffer, offset, CELL_RUN_LENGTH);
+    }
+    if ((lines & 2) != 0) {
+      System.arraycopy(run, oddLineRunStart, pixelRgbBuffer, offset + SCREEN_WIDTH,
+          CELL_RUN_LENGTH);
     }
   }
 
+  private static boolean takeDirtyCell(final AtomicIntegerArray dirtyCells, final int cell,
+                                       final int dirtyMask) {
+    int state;
+    do {
+      state = dirtyCells.get(cell);
+      if ((state & dirtyMask) == 0) {
+        return false;
+      }
+    } while (!dirtyCells.compareAndSet(cell, state, state & ~dirtyMask));
+    return true;
+  }
+
   private static int[] generateZxScreenRowStartOffsets() {
     final int[] result = new int[ZXSCREEN_ROWS + 1];
     for (int y = 0; y < ZXSCREEN_ROWS + 1; y++) {
@@ -378,6 +591,7 @@ public final class VideoController extends JComponent
       }
       gfxPrerenderedBack = prerendered;
     }
+    gfxSettingsVersion++;
   }
 
   public static int toZxPolyIndex(final byte spec256PaletteIndex) {
@@ -420,10 +634,11 @@ public final class VideoController extends JComponent
 
   private static void fillDataBufferForSpec256VideoMode(
       final LineRenderMode renderLines,
-      final ZxPolyModule[] modules,
+      final ScreenSource source,
       final int[] pixelRgbBuffer,
       final boolean flashActive,
       int lineFrom, int lineTo) {
+    final int dirtyMask = renderLines.dirtyMask;
     final int[] preRenderedBack = gfxPrerenderedBack;
     final boolean bkOverFF = gfxBackOverFF;
     final boolean paper00inkFF = gfxPaper00InkFF;
@@ -431,8 +646,9 @@ public final class VideoController extends JComponent
 
     final int downAttrMixedIndex = gfxDownColorsMixed;
     final int upAttrMixedIndex = 0xFF - gfxUpColorsMixed;
+    final int flashIndex = flashActive ? ATTRIBUTE_FLASH_ACTIVE : 0;
+    final int[] run = new int[CELL_RUN_LENGTH];
 
-    final ZxPolyModule sourceModule = modules[0];
     int offset = 0;
     int aoffset = 0;
     int coordY;
@@ -448,28 +664,32 @@ public final class VideoController extends JComponent
           offset = coordY << 10;
         }
 
+        if (!source.takeDirtyCell(i, dirtyMask)) {
+          offset += 16;
+          aoffset++;
+          continue;
+        }
+
         final int attrOffset = aoffset++;
-        long pixelData = sourceModule.readGfxVideo(i);
-        int origData = sourceModule.readVideo(i);
+        long pixelData = source.readGfxVideo(i);
+        final int origMaskOffset = source.readVideo(0, i) << 3;
 
-        final int attrData = sourceModule.readVideo(attrOffset);
-        final int inkColor = extractInkColorSpec256(attrData, flashActive);
-        final int paperColor = extractPaperColor(attrData, flashActive);
+        final int attrData = source.readVideo(0, attrOffset);
+        final int inkColor = ATTRIBUTE_INK_SPEC256[flashIndex | attrData];
+        final int paperColor = ATTRIBUTE_PAPER[flashIndex | attrData];
+        final boolean sameInkPaper = hideSameInkPaper && inkColor == paperColor;
+        final boolean backShouldBeShown = ((attrData & 0x80) != 0 && flashActive) || sameInkPaper;
 
-        int x = 8;
-        while (x-- > 0) {
+        for (int x = 0, j = 0; x < 8; x++) {
           final int colorIndex = (int) ((pixelData >>> 56) & 0xFF);
-          final boolean origPixelSet = (origData & 0x80) != 0;
+          pixelData <<= 8;
 
           int color = PALETTE_SPEC256[colorIndex];
           boolean draw = true;
 
-          final boolean mixWithAttributes =
-              colorIndex < downAttrMixedIndex || colorIndex > upAttrMixedIndex;
-
           if (preRenderedBack == null) {
             // No GFX Background
-            if (hideSameInkPaper && inkColor == paperColor) {
+            if (sameInkPaper) {
               color = inkColor;
             } else if (paper00inkFF) {
               if (colorIndex == 0) {
@@ -480,9 +700,6 @@ public final class VideoController extends JComponent
             }
           } else {
             // GFX Background is presented
-            final boolean backShouldBeShown = ((attrData & 0x80) != 0 && flashActive)
-                || (hideSameInkPaper && inkColor == paperColor);
-
             if (paper00inkFF) {
               if (colorIndex == 0) {
                 color = paperColor;
@@ -496,38 +713,18 @@ public final class VideoController extends JComponent
             }
           }
 
-          if (draw && mixWithAttributes) {
-            color = mixRgb(origPixelSet ? inkColor : paperColor, color);
+          if (!draw) {
+            color = preRenderedBack[offset + j];
+          } else if (colorIndex < downAttrMixedIndex || colorIndex > upAttrMixedIndex) {
+            color = mixRgb(
+                PIXEL_MASKS[origMaskOffset + x] == 0 ? paperColor : inkColor, color);
           }
 
-          pixelData <<= 8;
-          origData <<= 1;
-
-          final int theColor = draw ? color : preRenderedBack[offset];
-          switch (renderLines) {
-            case ALL: {
-              pixelRgbBuffer[offset++] = theColor;
-              pixelRgbBuffer[offset] = theColor;
-              offset += SCREEN_WIDTH;
-              pixelRgbBuffer[offset--] = theColor;
-              pixelRgbBuffer[offset] = theColor;
-              offset -= SCREEN_WIDTH - 2;
-            }
-            break;
-            case EVEN: {
-              pixelRgbBuffer[offset++] = theColor;
-              pixelRgbBuffer[offset++] = theColor;
-            }
-            break;
-            case ODD: {
-              pixelRgbBuffer[SCREEN_WIDTH + offset++] = theColor;
-              pixelRgbBuffer[SCREEN_WIDTH + offset++] = theColor;
-            }
-            break;
-            default:
-              throw new Error("Unexpected mode");
-          }
+          run[j++] = color;
+          run[j++] = color;
         }
+        drawCellRun(pixelRgbBuffer, offset, dirtyMask, run, 0);
+        offset += 16;
       }
     }
   }
@@ -539,18 +736,22 @@ public final class VideoController extends JComponent
   private static void fillDataBufferForZxPolyVideoMode(
       final LineRenderMode renderLines,
       final int zxPolyVideoMode,
-      final ZxPolyModule[] modules,
+      final ScreenSource source,
       final int[] pixelRgbBuffer,
       final boolean flashActive,
       final int lineFrom,
       final int lineTo
   ) {
+    final int dirtyMask = renderLines.dirtyMask;
+    final int flashIndex = flashActive ? ATTRIBUTE_FLASH_ACTIVE : 0;
+    // even line pixels in the first half and odd line pixels in the second one
+    final int[] run = new int[CELL_RUN_LENGTH * 2];
     switch (zxPolyVideoMode) {
       case VIDEOMODE_ZX48_CPU0:
       case VIDEOMODE_ZX48_CPU1:
       case VIDEOMODE_ZX48_CPU2:
       case VIDEOMODE_ZX48_CPU3: {
-        final ZxPolyModule sourceModule = modules[zxPolyVideoMode & 0x3];
+        final int sourceModule = zxPolyVideoMode & 0x3;
 
         int offset = 0;
         int attributeOffset = 0;
@@ -566,49 +767,18 @@ public final class VideoController extends JComponent
               attributeOffset = calcAttributeAddressZxMode(i);
             }
 
-            final int attrOffset = attributeOffset++;
-
-            int effectiveAttribute = sourceModule.readVideo(attrOffset);
-            effectiveAttribute = flashActive && ((effectiveAttribute & 0x80) != 0)
-                ? (effectiveAttribute & 0b01_000_000)
-                | ((effectiveAttribute >> 3) & 7)
-                | ((effectiveAttribute & 7) << 3) : effectiveAttribute;
-
-            int videoPixels = sourceModule.readVideo(i);
-
-            final int inkColor = extractInkPaletteColor(effectiveAttribute);
-            final int paperColor = extractPaperPaletteColor(effectiveAttribute);
-
-            int x = 8;
-            while (x-- > 0) {
-              final int color = (videoPixels & 0x80) == 0 ? paperColor : inkColor;
-              videoPixels <<= 1;
-
-              switch (renderLines) {
-                case ALL: {
-                  pixelRgbBuffer[offset++] = color;
-                  pixelRgbBuffer[offset] = color;
-                  offset += SCREEN_WIDTH;
-
-                  pixelRgbBuffer[offset--] = color;
-                  pixelRgbBuffer[offset] = color;
-                  offset -= SCREEN_WIDTH - 2;
-                }
-                break;
-                case EVEN: {
-                  pixelRgbBuffer[offset++] = color;
-                  pixelRgbBuffer[offset++] = color;
-                }
-                break;
-                case ODD: {
-                  pixelRgbBuffer[SCREEN_WIDTH + (offset++)] = color;
-                  pixelRgbBuffer[SCREEN_WIDTH + (offset++)] = color;
-                }
-                break;
-                default:
-                  throw new Error("Unexpected mode");
-              }
+            if (!source.takeDirtyCell(i, dirtyMask)) {
+              offset += 16;
+              attributeOffset++;
+              continue;
             }
+
+            final int attribute =
+                flashIndex | source.readVideo(sourceModule, attributeOffset++);
+            fillCellRun(run, 0, source.readVideo(sourceModule, i), ATTRIBUTE_INK[attribute],
+                ATTRIBUTE_PAPER[attribute]);
+            drawCellRun(pixelRgbBuffer, offset, dirtyMask, run, 0);
+            offset += 16;
           }
         }
       }
@@ -619,11 +789,6 @@ public final class VideoController extends JComponent
         int offset = 0;
         int attributeoffset = 0;
 
-        final ZxPolyModule module0 = modules[0];
-        final ZxPolyModule module1 = modules[1];
-        final ZxPolyModule module2 = modules[2];
-        final ZxPolyModule module3 = modules[3];
-
         for (int yy = lineFrom; yy < lineTo; yy++) {
           final int addressFrom = ZX_SCREEN_ROW_OFFSETS[yy];
           final int addressTo = addressFrom + 32;
@@ -636,250 +801,58 @@ public final class VideoController extends JComponent
               attributeoffset = calcAttributeAddressZxMode(i);
             }
 
-            int videoValue0 = module0.readVideo(i);
-            int videoValue1 = module1.readVideo(i);
-            int videoValue2 = module2.readVideo(i);
-            int videoValue3 = module3.readVideo(i);
+            if (!source.takeDirtyCell(i, dirtyMask)) {
+              offset += 16;
+              attributeoffset++;
+              continue;
+            }
 
+            final int videoValue0 = source.readVideo(0, i);
+            final int videoValue1 = source.readVideo(1, i);
+            final int videoValue2 = source.readVideo(2, i);
+            final int videoValue3 = source.readVideo(3, i);
+
+            int oddLineRunStart = 0;
             switch (zxPolyVideoMode) {
               case VIDEOMODE_ZXPOLY_256x192_INKPAPER_MASK: {
-                final int attrModule0 = module0.readVideo(attributeoffset++);
+                final int attrModule0 = flashIndex | source.readVideo(0, attributeoffset++);
 
-                final int inkColor = extractInkColor(attrModule0, flashActive);
-                final int paperColor = extractPaperColor(attrModule0, flashActive);
+                final int inkColor = ATTRIBUTE_INK[attrModule0];
+                final int paperColor = ATTRIBUTE_PAPER[attrModule0];
 
-                int x = 8;
                 if (inkColor == paperColor) {
-                  while (x-- > 0) {
-
-                    switch (renderLines) {
-                      case ALL: {
-                        pixelRgbBuffer[offset++] = inkColor;
-                        pixelRgbBuffer[offset] = inkColor;
-                        offset += SCREEN_WIDTH;
-
-                        pixelRgbBuffer[offset--] = inkColor;
-                        pixelRgbBuffer[offset] = inkColor;
-                        offset -= SCREEN_WIDTH - 2;
-                      }
-                      break;
-                      case EVEN: {
-                        pixelRgbBuffer[offset++] = inkColor;
-                        pixelRgbBuffer[offset++] = inkColor;
-                      }
-                      break;
-                      case ODD: {
-                        pixelRgbBuffer[SCREEN_WIDTH + offset++] = inkColor;
-                        pixelRgbBuffer[SCREEN_WIDTH + offset++] = inkColor;
-                      }
-                      break;
-                      default:
-                        throw new Error("Unexpected mode");
-                    }
-                  }
+                  Arrays.fill(run, 0, CELL_RUN_LENGTH, inkColor);
                 } else {
-                  while (x-- > 0) {
-                    final int value = ((videoValue3 & 0x80) == 0 ? 0 : 0x08)
-                        | ((videoValue0 & 0x80) == 0 ? 0 : 0x04)
-                        | ((videoValue1 & 0x80) == 0 ? 0 : 0x02)
-                        | ((videoValue2 & 0x80) == 0 ? 0 : 0x01);
-
-                    videoValue0 <<= 1;
-                    videoValue1 <<= 1;
-                    videoValue2 <<= 1;
-                    videoValue3 <<= 1;
-
-                    final int color = PALETTE_ZXPOLY[value];
-
-                    switch (renderLines) {
-                      case ALL: {
-                        pixelRgbBuffer[offset++] = color;
-                        pixelRgbBuffer[offset] = color;
-                        offset += SCREEN_WIDTH;
-
-                        pixelRgbBuffer[offset--] = color;
-                        pixelRgbBuffer[offset] = color;
-                        offset -= SCREEN_WIDTH - 2;
-                      }
-                      break;
-                      case EVEN: {
-                        pixelRgbBuffer[offset++] = color;
-                        pixelRgbBuffer[offset++] = color;
-                      }
-                      break;
-                      case ODD: {
-                        pixelRgbBuffer[SCREEN_WIDTH + (offset++)] = color;
-                        pixelRgbBuffer[SCREEN_WIDTH + (offset++)] = color;
-                      }
-                      break;
-                      default:
-                        throw new Error("Unexpected mode");
-                    }
-                  }
+                  fillCellRunZxPoly(run, videoValue0, videoValue1, videoValue2, videoValue3);
                 }
               }
               break;
               case VIDEOMODE_ZXPOLY_256x192_FLASH_MASK: {
-                final int attrModule0 = module0.readVideo(attributeoffset++);
+                final int attrModule0 = source.readVideo(0, attributeoffset++);
 
-                final int inkColorMod0 = extractInkColor(attrModule0, false);
-                final int paperColorMod0 = extractPaperColor(attrModule0, false);
+                final int inkColorMod0 = ATTRIBUTE_INK[attrModule0];
+                final int paperColorMod0 = ATTRIBUTE_PAPER[attrModule0];
 
-                int x = 8;
                 if ((attrModule0 & 0b1000_0000) == 0) {
-                  while (x-- > 0) {
-                    switch (renderLines) {
-                      case ALL: {
-                        pixelRgbBuffer[offset] =
-                            (videoValue0 & 0x80) == 0 ? paperColorMod0 : inkColorMod0;
-
-                        pixelRgbBuffer[offset + SCREEN_WIDTH] =
-                            (videoValue2 & 0x80) == 0 ? paperColorMod0 : inkColorMod0;
-
-                        pixelRgbBuffer[++offset] =
-                            (videoValue1 & 0x80) == 0 ? paperColorMod0 : inkColorMod0;
-
-                        pixelRgbBuffer[offset++ + SCREEN_WIDTH] =
-                            (videoValue3 & 0x80) == 0 ? paperColorMod0 : inkColorMod0;
-
-                      }
-                      break;
-                      case EVEN: {
-                        pixelRgbBuffer[offset++] =
-                            (videoValue0 & 0x80) == 0 ? paperColorMod0 : inkColorMod0;
-                        pixelRgbBuffer[offset++] =
-                            (videoValue1 & 0x80) == 0 ? paperColorMod0 : inkColorMod0;
-                      }
-                      break;
-                      case ODD: {
-                        pixelRgbBuffer[offset++ + SCREEN_WIDTH] =
-                            (videoValue2 & 0x80) == 0 ? paperColorMod0 : inkColorMod0;
-                        pixelRgbBuffer[offset++ + SCREEN_WIDTH] =
-                            (videoValue3 & 0x80) == 0 ? paperColorMod0 : inkColorMod0;
-                      }
-                      break;
-                      default:
-                        throw new Error("Unexpected mode");
-                    }
-                    videoValue0 <<= 1;
-                    videoValue2 <<= 1;
-                    videoValue1 <<= 1;
-                    videoValue3 <<= 1;
-                  }
+                  fillCellRunInterleaved(run, 0, videoValue0, inkColorMod0, paperColorMod0,
+                      videoValue1, inkColorMod0, paperColorMod0);
+                  fillCellRunInterleaved(run, CELL_RUN_LENGTH, videoValue2, inkColorMod0,
+                      paperColorMod0, videoValue3, inkColorMod0, paperColorMod0);
+                  oddLineRunStart = CELL_RUN_LENGTH;
+                } else if (inkColorMod0 == paperColorMod0) {
+                  Arrays.fill(run, 0, CELL_RUN_LENGTH, inkColorMod0);
                 } else {
-                  if (inkColorMod0 == paperColorMod0) {
-                    while (x-- > 0) {
-                      switch (renderLines) {
-                        case ALL: {
-                          pixelRgbBuffer[offset++] = inkColorMod0;
-                          pixelRgbBuffer[offset] = inkColorMod0;
-                          offset += SCREEN_WIDTH;
-
-                          pixelRgbBuffer[offset--] = inkColorMod0;
-                          pixelRgbBuffer[offset] = inkColorMod0;
-                          offset -= SCREEN_WIDTH - 2;
-                        }
-                        break;
-                        case EVEN: {
-                          pixelRgbBuffer[offset++] = inkColorMod0;
-                          pixelRgbBuffer[offset++] = inkColorMod0;
-                        }
-                        break;
-                        case ODD: {
-                          pixelRgbBuffer[SCREEN_WIDTH + (offset++)] = inkColorMod0;
-                          pixelRgbBuffer[SCREEN_WIDTH + (offset++)] = inkColorMod0;
-                        }
-                        break;
-                        default:
-                          throw new Error("Unexpected mode");
-                      }
-                    }
-                  } else {
-                    while (x-- > 0) {
-                      final int value = ((videoValue3 & 0x80) == 0 ? 0 : 0x08)
-                          | ((videoValue0 & 0x80) == 0 ? 0 : 0x04)
-                          | ((videoValue1 & 0x80) == 0 ? 0 : 0x02)
-                          | ((videoValue2 & 0x80) == 0 ? 0 : 0x01);
-
-                      videoValue0 <<= 1;
-                      videoValue1 <<= 1;
-                      videoValue2 <<= 1;
-                      videoValue3 <<= 1;
-
-                      final int color = PALETTE_ZXPOLY[value];
-
-                      switch (renderLines) {
-                        case ALL: {
-                          pixelRgbBuffer[offset++] = color;
-                          pixelRgbBuffer[offset] = color;
-                          offset += SCREEN_WIDTH;
-
-                          pixelRgbBuffer[offset--] = color;
-                          pixelRgbBuffer[offset] = color;
-                          offset -= SCREEN_WIDTH - 2;
-                        }
-                        break;
-                        case EVEN: {
-                          pixelRgbBuffer[offset++] = color;
-                          pixelRgbBuffer[offset++] = color;
-                        }
-                        break;
-                        case ODD: {
-                          pixelRgbBuffer[SCREEN_WIDTH + offset++] = color;
-                          pixelRgbBuffer[SCREEN_WIDTH + offset++] = color;
-                        }
-                        break;
-                        default:
-                          throw new Error("Unexpected mode");
-                      }
-                    }
-                  }
+                  fillCellRunZxPoly(run, videoValue0, videoValue1, videoValue2, videoValue3);
                 }
               }
               break;
               default: {
-                int x = 8;
-                while (x-- > 0) {
-                  final int value = ((videoValue3 & 0x80) == 0 ? 0 : 0x08)
-                      | ((videoValue0 & 0x80) == 0 ? 0 : 0x04)
-                      | ((videoValue1 & 0x80) == 0 ? 0 : 0x02)
-                      | ((videoValue2 & 0x80) == 0 ? 0 : 0x01);
-
-                  videoValue0 <<= 1;
-                  videoValue1 <<= 1;
-                  videoValue2 <<= 1;
-                  videoValue3 <<= 1;
-
-                  final int color = PALETTE_ZXPOLY[value];
-
-                  switch (renderLines) {
-                    case ALL: {
-                      pixelRgbBuffer[offset++] = color;
-                      pixelRgbBuffer[offset] = color;
-                      offset += SCREEN_WIDTH;
-
-                      pixelRgbBuffer[offset--] = color;
-                      pixelRgbBuffer[offset] = color;
-                      offset -= SCREEN_WIDTH - 2;
-                    }
-                    break;
-                    case EVEN: {
-                      pixelRgbBuffer[offset++] = color;
-                      pixelRgbBuffer[offset++] = color;
-                    }
-                    break;
-                    case ODD: {
-                      pixelRgbBuffer[SCREEN_WIDTH + offset++] = color;
-                      pixelRgbBuffer[SCREEN_WIDTH + offset++] = color;
-                    }
-                    break;
-                    default:
-                      throw new Error("Unexpected mode");
-                  }
-                }
+                fillCellRunZxPoly(run, videoValue0, videoValue1, videoValue2, videoValue3);
               }
               break;
             }
+            drawCellRun(pixelRgbBuffer, offset, dirtyMask, run, oddLineRunStart);
+            offset += 16;
           }
         }
       }
@@ -888,11 +861,6 @@ public final class VideoController extends JComponent
         int offset = 0;
         int attributeOffset = 0;
 
-        final ZxPolyModule module0 = modules[0];
-        final ZxPolyModule module1 = modules[1];
-        final ZxPolyModule module2 = modules[2];
-        final ZxPolyModule module3 = modules[3];
-
         for (int yy = lineFrom; yy < lineTo; yy++) {
           final int addressFrom = ZX_SCREEN_ROW_OFFSETS[yy];
           final int addressTo = addressFrom + 32;
@@ -905,65 +873,33 @@ public final class VideoController extends JComponent
               attributeOffset = calcAttributeAddressZxMode(i);
             }
 
-            int videoValue0 = module0.readVideo(i);
-            final int attribute0 = module0.readVideo(attributeOffset);
-
-            int videoValue1 = module1.readVideo(i);
-            final int attribute1 = module1.readVideo(attributeOffset);
-
-            int videoValue2 = module2.readVideo(i);
-            final int attribute2 = module2.readVideo(attributeOffset);
-
-            int videoValue3 = module3.readVideo(i);
-            final int attribute3 = module3.readVideo(attributeOffset++);
-
-            int x = 8;
-            while (x-- > 0) {
-              switch (renderLines) {
-                case ALL: {
-                  pixelRgbBuffer[offset] =
-                      (videoValue0 & 0x80) == 0 ? extractPaperColor(attribute0, flashActive) :
-                          extractInkColor(attribute0, flashActive);
-
-                  pixelRgbBuffer[offset + SCREEN_WIDTH] =
-                      (videoValue2 & 0x80) == 0 ? extractPaperColor(attribute2, flashActive) :
-                          extractInkColor(attribute2, flashActive);
-                  pixelRgbBuffer[++offset] =
-                      (videoValue1 & 0x80) == 0 ? extractPaperColor(attribute1, flashActive) :
-                          extractInkColor(attribute1, flashActive);
-
-                  pixelRgbBuffer[offset++ + SCREEN_WIDTH] =
-                      (videoValue3 & 0x80) == 0 ? extractPaperColor(attribute3, flashActive) :
-                          extractInkColor(attribute3, flashActive);
-                }
-                break;
-                case EVEN: {
-                  pixelRgbBuffer[offset++] =
-                      (videoValue0 & 0x80) == 0 ? extractPaperColor(attribute0, flashActive) :
-                          extractInkColor(attribute0, flashActive);
-                  pixelRgbBuffer[offset++] =
-                      (videoValue1 & 0x80) == 0 ? extractPaperColor(attribute1, flashActive) :
-                          extractInkColor(attribute1, flashActive);
-                }
-                break;
-                case ODD: {
-                  pixelRgbBuffer[offset++ + SCREEN_WIDTH] =
-                      (videoValue2 & 0x80) == 0 ? extractPaperColor(attribute2, flashActive) :
-                          extractInkColor(attribute2, flashActive);
-                  pixelRgbBuffer[offset++ + SCREEN_WIDTH] =
-                      (videoValue3 & 0x80) == 0 ? extractPaperColor(attribute3, flashActive) :
-                          extractInkColor(attribute3, flashActive);
-                }
-                break;
-                default:
-                  throw new Error("Unexpected mode");
-              }
+            if (!source.takeDirtyCell(i, dirtyMask)) {
+              offset += 16;
+              attributeOffset++;
+              continue;
+            }
 
-              videoValue0 <<= 1;
-              videoValue2 <<= 1;
-              videoValue1 <<= 1;
-              videoValue3 <<= 1;
+            final int attrOffset = attributeOffset++;
+            if ((dirtyMask & 1) != 0) {
+              final int attribute0 = flashIndex | source.readVideo(0, attrOffset);
+              final int attribute1 = flashIndex | source.readVideo(1, attrOffset);
+              fillCellRunInterleaved(run, 0,
+                  source.readVideo(0, i), ATTRIBUTE_INK[attribute0],
+                  ATTRIBUTE_PAPER[attribute0],
+                  source.readVideo(1, i), ATTRIBUTE_INK[attribute1],
+                  ATTRIBUTE_PAPER[attribute1]);
             }
+            if ((dirtyMask & 2) != 0) {
+              final int attribute2 = flashIndex | source.readVideo(2, attrOffset);
+              final int attribute3 = flashIndex | source.readVideo(3, attrOffset);
+              fillCellRunInterleaved(run, CELL_RUN_LENGTH,
+                  source.readVideo(2, i), ATTRIBUTE_INK[attribute2],
+                  ATTRIBUTE_PAPER[attribute2],
+                  source.readVideo(3, i), ATTRIBUTE_INK[attribute3],
+                  ATTRIBUTE_PAPER[attribute3]);
+            }
+            drawCellRun(pixelRgbBuffer, offset, dirtyMask, run, CELL_RUN_LENGTH);
+            offset += 16;
           }
         }
       }
@@ -1021,94 +957,29 @@ public final class VideoController extends JComponent
     return 0x1800 + off;
   }
 
-  private static int extractInkColor(final int attribute, final boolean flashActive) {
-    final int bright = (attribute & 0x40) == 0 ? 0 : 0x08;
-    final int inkColor = PALETTE_ZXPOLY[(attribute & 0x07) | bright];
-    final int paperColor = PALETTE_ZXPOLY[((attribute >> 3) & 0x07) | bright];
-    final boolean flash = (attribute & 0x80) != 0;
-
-    final int result;
-
-    if (flash) {
-      if (flashActive) {
-        result = paperColor;
-      } else {
-        result = inkColor;
-      }
-    } else {
-      result = inkColor;
-    }
-    return result;
-  }
-
-  private static int extractPaperPaletteColor(final int attribute) {
-    final int bright = (attribute & 0x40) == 0 ? 0 : 0x08;
-    return PALETTE_ZXPOLY[((attribute >> 3) & 0x07) | bright];
-  }
-
-  private static int extractInkPaletteColor(final int attribute) {
-    final int bright = (attribute & 0x40) == 0 ? 0 : 0x08;
-    return PALETTE_ZXPOLY[(attribute & 0x07) | bright];
-  }
-
-  private static int extractInkColorSpec256(final int attribute, final boolean flashActive) {
-    final int bright = (attribute & 0x40) == 0 ? 0 : 0x08;
-    final int inkColor = PALETTE_ALIGNED_ZXPOLY[(attribute & 0x07) | bright];
-    final int paperColor = PALETTE_ALIGNED_ZXPOLY[((attribute >> 3) & 0x07) | bright];
-    final boolean flash = (attribute & 0x80) != 0;
-
-    final int result;
-
-    if (flash) {
-      if (flashActive) {
-        result = paperColor;
-      } else {
-        result = inkColor;
-      }
-    } else {
-      result = inkColor;
-    }
-    return result;
-  }
-
-  private static int extractPaperColor(final int attribute, final boolean flashActive) {
-    final int bright = (attribute & 0x40) == 0 ? 0 : 0x08;
-    final int inkColor = PALETTE_ZXPOLY[(attribute & 0x07) | bright];
-    final int paperColor = PALETTE_ZXPOLY[((attribute >> 3) & 0x07) | bright];
-    final boolean flash = (attribute & 0x80) != 0;
-
-    final int result;
-
-    if (flash) {
-      if (flashActive) {
-        result = inkColor;
-      } else {
-        result = paperColor;
-      }
-    } else {
-      result = paperColor;
-    }
-    return result;
-  }
-
   public static void setGfxUpColorsMixed(final int value) {
     gfxUpColorsMixed = value;
+    gfxSettingsVersion++;
   }
 
   public static void setGfxDownColorsMixed(final int value) {
     gfxDownColorsMixed = value;
+    gfxSettingsVersion++;
   }
 
   public static void setGfxBackOverFF(final boolean flag) {
     gfxBackOverFF = flag;
+    gfxSettingsVersion++;
   }
 
   public static void setGfxPaper00InkFF(final boolean flag) {
     gfxPaper00InkFF = flag;
+    gfxSettingsVersion++;
   }
 
   public static void setGfxHideSameInkPaper(final boolean flag) {
     gfxHideSameInkPaper = flag;
+    gfxSettingsVersion++;
   }
 
   private static String decodeVideoModeCode(final int code) {
@@ -1253,6 +1124,7 @@ public final class VideoController extends JComponent
           this.vkbdWindow.dispose();
         }
       }
+      this.updateActiveRenderGeometry();
     }
   }
 
@@ -1357,24 +1229,66 @@ public final class VideoController extends JComponent
     this.zoom = value;
     this.size = new Dimension(Math.round(SCREEN_WIDTH * value),
         Math.round(SCREEN_HEIGHT * value));
+    this.updateActiveRenderGeometry();
     this.repaint();
     this.getParent().revalidate();
     this.getParent().repaint();
   }
 
+  /**
+   * Copy area of the work buffer into the back output frame. The frame is published for
+   * consumers when the area reaches the last screen line, lines not copied during the frame are
+   * taken from the work buffer. Must be called only by the emulator thread, it never waits for
+   * consumers but waits for the frame rendered by parallel bands.
+   *
+   * @param x      left column in ZX pixels
+   * @param y      top line in ZX pixels
+   * @param width  width in ZX pixels
+   * @param height height in ZX pixels
+   */
   public void copyWorkScreenToOutputScreen(final int x, final int y, final int width,
                                            final int height) {
     synchronized (this.workZxScreenImage) {
-      synchronized (this.outputZxScreenImage) {
-        final Graphics2D g = this.outputZxScreenImage.createGraphics();
-        try {
-          g.setClip(x << 1, y << 1, width << 1, height << 1);
-          g.drawImage(this.workZxScreenImage, 0, 0, null);
-        } finally {
-          g.dispose();
+      this.waitFrameRender();
+      this.copyWorkScreenToBackFrame(x, Math.max(0, y), width,
+          Math.min(ZXSCREEN_ROWS, y + height));
+    }
+  }
+
+  private void copyWorkScreenToBackFrame(final int x, final int lineFrom, final int width,
+                                         final int lineTo) {
+    final int[] back = this.outputFramesRgbData[this.backOutputFrame];
+    for (int line = lineFrom; line < lineTo; line++) {
+      copyWorkLine(back, line, x, width);
+      this.backOutputFrameLines[line] = true;
+    }
+    if (lineTo == ZXSCREEN_ROWS && lineFrom < lineTo) {
+      for (int line = 0; line < ZXSCREEN_ROWS; line++) {
+        if (!this.backOutputFrameLines[line]) {
+          copyWorkLine(back, line, 0, ZXSCREEN_COLS);
         }
       }
+      Arrays.fill(this.backOutputFrameLines, false);
+      this.backOutputFrame =
+          this.middleOutputFrame.getAndSet(this.backOutputFrame | OUTPUT_FRAME_FRESH)
+              & OUTPUT_FRAME_INDEX_MASK;
+    }
+  }
+
+  private void copyWorkLine(final int[] target, final int line, final int x, final int width) {
+    final int offset = (line << 1) * SCREEN_WIDTH + (x << 1);
+    System.arraycopy(this.workZxScreenImageRgbData, offset, target, offset, width << 1);
+    System.arraycopy(this.workZxScreenImageRgbData, offset + SCREEN_WIDTH, target,
+        offset + SCREEN_WIDTH, width << 1);
+  }
+
+  // must be called under the consumer locker
+  private BufferedImage takeFrontOutputFrame() {
+    if ((this.middleOutputFrame.get() & OUTPUT_FRAME_FRESH) != 0) {
+      this.frontOutputFrame =
+          this.middleOutputFrame.getAndSet(this.frontOutputFrame) & OUTPUT_FRAME_INDEX_MASK;
     }
+    return this.outputFrames[this.frontOutputFrame];
   }
 
   private void refreshBufferData(
@@ -1382,6 +1296,125 @@ public final class VideoController extends JComponent
       final int lineFrom,
       final int lineTo,
       final int videoMode
+  ) {
+    final boolean flashActive = this.board.isFlashActive();
+    this.prepareDirtyCells(videoMode, flashActive);
+    this.fillBuffer(this.liveScreen, renderLines, lineFrom, lineTo, videoMode, flashActive);
+  }
+
+  /**
+   * Copy visible screens and dirty cells of the frame and render it from the copy by bands on
+   * the common fork-join pool, the frame is published as output frame when all bands are
+   * rendered. If the previous frame is still in work then the frame is skipped and its dirty
+   * cells are left for the next one.
+   *
+   * @param renderLines lines to be rendered
+   */
+  private void startFrameRender(final LineRenderMode renderLines) {
+    synchronized (this.workZxScreenImage) {
+      final ForkJoinTask<?> previousTask = this.frameRenderTask;
+      if (previousTask != null && !previousTask.isDone()) {
+        return;
+      }
+
+      final int videoMode = this.currentVideoMode;
+      final boolean flashActive = this.board.isFlashActive();
+      this.prepareDirtyCells(videoMode, flashActive);
+
+      final ScreenSnapshot snapshot = this.frameSnapshot;
+      // cells are taken before video data, so that cells changed after the copy stay dirty
+      final int dirtyMask = renderLines.dirtyMask;
+      for (int i = 0; i < SCREEN_PIXELS_SIZE; i++) {
+        snapshot.dirtyCells[i] = takeDirtyCell(this.dirtyCells, i, dirtyMask);
+      }
+      final byte[] heap = this.board.getHeapRam();
+      for (int i = 0; i < this.modules.length; i++) {
+        System.arraycopy(heap, findScreenAddress(this.modules[i]), snapshot.video[i], 0,
+            SCREEN_SIZE);
+      }
+      if (videoMode == VIDEOMODE_SPEC256) {
+        for (int i = 0; i < SCREEN_PIXELS_SIZE; i++) {
+          snapshot.gfxVideo[i] = this.modules[0].readGfxVideo(i);
+        }
+      }
+
+      // every band has own lines, so bands share neither pixels nor dirty cells
+      final ForkJoinTask<?>[] bands = new ForkJoinTask<?>[PARALLEL_RENDER_BANDS];
+      for (int i = 0; i < bands.length; i++) {
+        final int bandFrom = ZXSCREEN_ROWS * i / bands.length;
+        final int bandTo = ZXSCREEN_ROWS * (i + 1) / bands.length;
+        bands[i] = ForkJoinTask.adapt(
+            () -> this.fillBuffer(snapshot, renderLines, bandFrom, bandTo, videoMode,
+                flashActive));
+      }
+      this.frameRenderTask = ForkJoinPool.commonPool().submit(() -> {
+        ForkJoinTask.invokeAll(bands);
+        this.copyWorkScreenToBackFrame(0, 0, ZXSCREEN_COLS, ZXSCREEN_ROWS);
+        this.parallelRenderCounter++;
+      });
+    }
+  }
+
+  /**
+   * Wait till the frame started by {@link #renderBeamLines} in parallel render mode is rendered
+   * and published as output frame.
+   *
+   * @since 2.3.4
+   */
+  public void waitFrameRender() {
+    final ForkJoinTask<?> task = this.frameRenderTask;
+    if (task != null) {
+      task.join();
+    }
+  }
+
+  private static boolean isParallelRenderSupported(final int videoMode) {
+    switch (videoMode) {
+      case VIDEOMODE_ZXPOLY_256x192:
+      case VIDEOMODE_ZXPOLY_512x384:
+      case VIDEOMODE_ZXPOLY_256x192_FLASH_MASK:
+      case VIDEOMODE_ZXPOLY_256x192_INKPAPER_MASK:
+      case VIDEOMODE_SPEC256:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Allow render of frames in ZX-Poly and Spec256 video modes by horizontal bands on the common
+   * fork-join pool, TV filters are also applied by bands. When {@link #renderBeamLines} passes
+   * the last line, visible screens are copied and the frame is rendered from the copy while the
+   * emulator thread goes on, so that beam synchronized effects are lost. The frame is published
+   * as output frame when all bands are rendered.
+   *
+   * @param value true to render in parallel, false otherwise
+   * @since 2.3.4
+   */
+  public void setParallelRender(final boolean value) {
+    this.parallelRender = value;
+  }
+
+  public boolean isParallelRender() {
+    return this.parallelRender;
+  }
+
+  /**
+   * Get number of frames rendered by parallel bands.
+   *
+   * @return number of parallel rendered frames since creation
+   */
+  public long getParallelRenderCounter() {
+    return this.parallelRenderCounter;
+  }
+
+  private void fillBuffer(
+      final ScreenSource source,
+      final LineRenderMode renderLines,
+      final int lineFrom,
+      final int lineTo,
+      final int videoMode,
+      final boolean flashActive
   ) {
     switch (videoMode) {
       case VIDEOMODE_ZX48_CPU0: {
@@ -1389,19 +1422,20 @@ public final class VideoController extends JComponent
             renderLines,
             this.modules,
             this.workZxScreenImageRgbData,
-            this.board.isFlashActive(),
+            flashActive,
             lineFrom,
             lineTo,
-            this.ulaPlus
+            this.ulaPlus,
+            this.dirtyCells
         );
       }
       break;
       case VIDEOMODE_SPEC256: {
         fillDataBufferForSpec256VideoMode(
             renderLines,
-            this.modules,
+            source,
             this.workZxScreenImageRgbData,
-            this.board.isFlashActive(),
+            flashActive,
             lineFrom,
             lineTo
         );
@@ -1410,10 +1444,10 @@ public final class VideoController extends JComponent
       default: {
         fillDataBufferForZxPolyVideoMode(
             renderLines,
-            this.currentVideoMode,
-            this.modules,
+            videoMode,
+            source,
             this.workZxScreenImageRgbData,
-            this.board.isFlashActive(),
+            flashActive,
             lineFrom,
             lineTo
         );
@@ -1422,10 +1456,101 @@ public final class VideoController extends JComponent
     }
   }
 
+  private static int findScreenAddress(final ZxPolyModule module) {
+    return module.getHeapOffset()
+        + ((module.read7FFD() & PORTw_ZX128_SCREEN) == 0 ? 0x14000 : 0x1C000);
+  }
+
+  /**
+   * Detect changes of state which are not tracked by memory writes and mark cells to be redrawn.
+   * Whole screen is redrawn if video mode, visible screen banks, ULA+ or Spec256 settings are
+   * changed, FLASH switch redraws only cells with FLASH attribute.
+   */
+  private void prepareDirtyCells(final int videoMode, final boolean flashActive) {
+    boolean redrawAll = this.fullRedrawRequested;
+    if (redrawAll) {
+      this.fullRedrawRequested = false;
+    }
+
+    if (videoMode != this.renderedVideoMode) {
+      this.renderedVideoMode = videoMode;
+      redrawAll = true;
+    }
+    for (int i = 0; i < this.modules.length; i++) {
+      final int screenAddress = findScreenAddress(this.modules[i]);
+      if (screenAddress != this.renderedScreenAddress[i]) {
+        this.renderedScreenAddress[i] = screenAddress;
+        redrawAll = true;
+      }
+    }
+    final boolean ulaPlusActive = this.ulaPlus.isActive();
+    if (ulaPlusActive != this.renderedUlaPlusActive) {
+      this.renderedUlaPlusActive = ulaPlusActive;
+      redrawAll = true;
+    }
+    final int gfxSettings = gfxSettingsVersion;
+    if (gfxSettings != this.renderedGfxSettingsVersion) {
+      this.renderedGfxSettingsVersion = gfxSettings;
+      redrawAll = true;
+    }
+
+    if (redrawAll) {
+      for (int i = 0; i < SCREEN_PIXELS_SIZE; i++) {
+        this.dirtyCells.set(i, CELL_DIRTY);
+      }
+    } else if (flashActive != this.renderedFlashActive) {
+      for (final ZxPolyModule module : this.modules) {
+        for (int attributeOffset = SCREEN_PIXELS_SIZE; attributeOffset < SCREEN_SIZE;
+             attributeOffset++) {
+          if ((module.readVideo(attributeOffset) & 0x80) != 0) {
+            this.markScreenDirty(attributeOffset);
+          }
+        }
+      }
+    }
+    this.renderedFlashActive = flashActive;
+  }
+
+  /**
+   * Mark screen cells which should be redrawn because byte of video RAM has been changed. Memory
+   * write path calls it for all RAM banks which can be shown, so that only changed cells are
+   * rendered.
+   *
+   * @param screenOffset offset of changed byte inside RAM bank, ignored if it is out of screen
+   */
+  public void markScreenDirty(final int screenOffset) {
+    if (screenOffset < SCREEN_PIXELS_SIZE) {
+      this.dirtyCells.set(screenOffset, CELL_DIRTY);
+    } else if (screenOffset < SCREEN_SIZE) {
+      // attribute covers eight pixel lines of its character cell
+      final int attribute = screenOffset - SCREEN_PIXELS_SIZE;
+      int pixelOffset = ((attribute & 0x300) << 3) | (attribute & 0xFF);
+      for (int i = 0; i < 8; i++) {
+        this.dirtyCells.set(pixelOffset, CELL_DIRTY);
+        pixelOffset += 0x100;
+      }
+    }
+  }
+
+  /**
+   * Request redraw of whole screen during next buffer update.
+   */
+  public void invalidateScreen() {
+    this.fullRedrawRequested = true;
+  }
+
   public byte[] grabRgb(final byte[] array) {
-    byte[] result;
-    synchronized (this.workZxScreenImage) {
-      final int[] buffer = this.workZxScreenImageRgbData;
+    final byte[] result;
+    synchronized (this.outputFrameConsumerLocker) {
+      this.takeFrontOutputFrame();
+      final TvFilterChain filterChain = this.tvFilterChain;
+      final int[] buffer;
+      if (filterChain.isEmpty()) {
+        buffer = this.outputFramesRgbData[this.frontOutputFrame];
+      } else {
+        buffer = TvFilter.SHARED_BUFFER_RASTER;
+        this.copyFrontOutputFrameAndApplyFilters(buffer, filterChain);
+      }
       final int bufferLen = buffer.length;
       result = array == null ? new byte[bufferLen * 3] : array;
       int outIndex = 0;
@@ -1435,15 +1560,31 @@ public final class VideoController extends JComponent
         result[outIndex++] = (byte) argb;
       }
     }
-    if (this.tvFilterChain != null) {
-      final int argbBorderColor = PALETTE_ZXPOLY[this.portFEw & 7];
-      for (final TvFilter f : this.tvFilterChain.getFilterChain()) {
-        result = f.apply(false, result, argbBorderColor);
-      }
-    }
     return result;
   }
 
+  // must be called under consumer lock, the target can be the shared filter raster
+  private void copyFrontOutputFrameAndApplyFilters(final int[] target,
+                                                   final TvFilterChain filterChain) {
+    System.arraycopy(this.outputFramesRgbData[this.frontOutputFrame], 0, target, 0,
+        target.length);
+    this.applyFilters(target, filterChain, this.findFilterBorderColor());
+  }
+
+  // must be called under consumer lock
+  private int findFilterBorderColor() {
+    final Color sourceBorderColor = this.preStepBorderSourceColor;
+    return sourceBorderColor == null
+        ? PALETTE_ZXPOLY[this.portFEw & 7] : sourceBorderColor.getRGB();
+  }
+
+  private void applyFilters(final int[] target, final TvFilterChain filterChain,
+                            final int argbBorderColor) {
+    synchronized (TV_FILTER_LOCKER) {
+      filterChain.apply(target, argbBorderColor, this.parallelRender);
+    }
+  }
+
   private void drawBorder(final Graphics2D g2, final int visibleWidth, final int visibleHeight) {
     final int invisibleWidth =
         this.timingProfile.tstatesPerHBlank + this.timingProfile.tstatesPerHSync;
@@ -1467,20 +1608,54 @@ public final class VideoController extends JComponent
 
   @Override
   public void paintComponent(final Graphics g) {
-    final Graphics2D g2 = (Graphics2D) g;
-
-    final Rectangle bounds = this.getBounds();
+    this.paintScreen((Graphics2D) g, this.makeRenderGeometry());
+  }
+
+  // must be called on EDT
+  private RenderGeometry makeRenderGeometry() {
+    final Window window = SwingUtilities.getWindowAncestor(this);
+    final Point windowLocation =
+        window == null ? new Point() : SwingUtilities.convertPoint(this, 0, 0, window);
+    final Point screenLocation = this.isShowing() ? this.getLocationOnScreen() : new Point();
+    return new RenderGeometry(
+        window,
+        this.getGraphicsConfiguration(),
+        this.getWidth(),
+        this.getHeight(),
+        windowLocation,
+        screenLocation,
+        this.size,
+        this.zoom,
+        !this.showVkbdApart || this.fullScreenMode,
+        this.vkbdWindow);
+  }
+
+  private void updateActiveRenderGeometry() {
+    if (SwingUtilities.isEventDispatchThread()) {
+      this.activeRenderGeometry = this.makeRenderGeometry();
+      final Thread renderThread = this.activeRenderThread;
+      if (renderThread != null) {
+        this.activeRenderRequested.set(true);
+        LockSupport.unpark(renderThread);
+      }
+    } else {
+      SwingUtilities.invokeLater(this::updateActiveRenderGeometry);
+    }
+  }
 
-    final int visibleWidth = bounds.width;
-    final int visibleHeight = bounds.height;
+  // uses only the geometry and the frame, so that can be called outside of EDT
+  private void paintScreen(final Graphics2D g2, final RenderGeometry geometry) {
+    final int visibleWidth = geometry.width;
+    final int visibleHeight = geometry.height;
 
-    final int screenOffsetX = (visibleWidth - this.size.width) / 2;
-    final int screenOffsetY = (visibleHeight - this.size.height) / 2;
+    final int screenOffsetX = (visibleWidth - geometry.screenSize.width) / 2;
+    final int screenOffsetY = (visibleHeight - geometry.screenSize.height) / 2;
 
     if (screenOffsetX > 0 || screenOffsetY > 0) {
       this.drawBorder(g2, visibleWidth, visibleHeight);
     }
-    this.drawBuffer(g2, screenOffsetX, screenOffsetY, this.zoom, this.tvFilterChain);
+    this.drawBuffer(g2, screenOffsetX, screenOffsetY, geometry.zoom, this.tvFilterChain,
+        geometry.configuration);
 
     if (this.mouseTrapActive && this.enableMouseTrapIndicator) {
       g2.drawImage(MOUSE_TRAPPED, 2, 2, null);
@@ -1492,30 +1667,34 @@ public final class VideoController extends JComponent
 
       final Rectangle renderRectangle;
 
-      if (bounds.width >= imgWidth) {
-        if (bounds.width >= imgWidth * 3) {
-          final double scale = ((double) bounds.width / 3) / (double) imgWidth;
+      if (visibleWidth >= imgWidth) {
+        if (visibleWidth >= imgWidth * 3) {
+          final double scale = ((double) visibleWidth / 3) / (double) imgWidth;
           final int newWidth = (int) Math.round(scale * imgWidth);
           final int newHeight = (int) Math.round(scale * imgHeight);
           renderRectangle =
-              new Rectangle((bounds.width - newWidth) / 2, bounds.height - newHeight, newWidth,
+              new Rectangle((visibleWidth - newWidth) / 2, visibleHeight - newHeight, newWidth,
                   newHeight);
         } else {
           renderRectangle =
-              new Rectangle((bounds.width - imgWidth) / 2, bounds.height - imgHeight, imgWidth,
+              new Rectangle((visibleWidth - imgWidth) / 2, visibleHeight - imgHeight, imgWidth,
                   imgHeight);
         }
       } else {
-        final double scale = (double) bounds.width / (double) imgWidth;
+        final double scale = (double) visibleWidth / (double) imgWidth;
         final int newWidth = (int) Math.round(scale * imgWidth);
         final int newHeight = (int) Math.round(scale * imgHeight);
-        renderRectangle = new Rectangle(0, bounds.height - newHeight, newWidth, newHeight);
+        renderRectangle = new Rectangle(0, visibleHeight - newHeight, newWidth, newHeight);
       }
 
-      if (!this.showVkbdApart || this.fullScreenMode) {
-        this.vkbdRender.render(this, g2, renderRectangle, true);
-      } else if (this.vkbdWindow != null) {
-        this.vkbdWindow.repaint();
+      if (geometry.vkbdInside) {
+        final PointerInfo pointerInfo = MouseInfo.getPointerInfo();
+        final Point mousePoint =
+            pointerInfo == null ? new Point(-1, -1) : pointerInfo.getLocation();
+        mousePoint.translate(-geometry.screenLocation.x, -geometry.screenLocation.y);
+        this.vkbdRender.render(mousePoint, g2, renderRectangle, true);
+      } else if (geometry.vkbdWindow != null) {
+        geometry.vkbdWindow.repaint();
       }
     }
   }
@@ -1546,6 +1725,7 @@ public final class VideoController extends JComponent
 
   public void setVideoMode(final int newVideoMode) {
     synchronized (this.workZxScreenImage) {
+      this.waitFrameRender();
       if (this.currentVideoMode != newVideoMode) {
         this.currentVideoMode = newVideoMode;
         log.log(Level.INFO, "mode set: " + decodeVideoModeCode(newVideoMode));
@@ -1561,52 +1741,66 @@ public final class VideoController extends JComponent
   public void syncUpdateBuffer(final int lineFrom, final int lineTo,
                                final LineRenderMode renderLines) {
     synchronized (this.workZxScreenImage) {
+      this.waitFrameRender();
       this.refreshBufferData(renderLines, lineFrom, lineTo, this.currentVideoMode);
     }
   }
 
-  public int[] makeCopyOfVideoBuffer(final boolean applyFilters) {
-    int[] cloneOfBuffer;
-    Color borderColor;
-    synchronized (this.workZxScreenImage) {
-      cloneOfBuffer = this.workZxScreenImageRgbData.clone();
-      borderColor = PALETTE_ZXPOLY_COLORS[this.portFEw & 7];
+  /**
+   * Render screen lines passed by the beam and move them into the output frame. If parallel
+   * render is allowed for the current video mode then lines are collected and the whole screen
+   * is rendered asynchronously by bands when the beam passes the last line.
+   *
+   * @param lineFrom    first passed line
+   * @param lineTo      line after the last passed one
+   * @param renderLines lines to be rendered
+   */
+  public void renderBeamLines(final int lineFrom, final int lineTo,
+                              final LineRenderMode renderLines) {
+    if (this.parallelRender && isParallelRenderSupported(this.currentVideoMode)) {
+      if (lineTo >= ZXSCREEN_ROWS) {
+        this.startFrameRender(renderLines);
+      }
+    } else {
+      this.syncUpdateBuffer(lineFrom, lineTo, renderLines);
+      this.copyWorkScreenToOutputScreen(0, lineFrom, ZXSCREEN_COLS, lineTo - lineFrom);
     }
+  }
 
+  public int[] makeCopyOfVideoBuffer(final boolean applyFilters) {
     if (applyFilters) {
-      byte[] rgb = argb2rgb(cloneOfBuffer);
-
-      for (TvFilter f : this.tvFilterChain.getFilterChain()) {
-        rgb = f.apply(false, rgb, borderColor.getRGB());
-        borderColor = f.applyBorderColor(borderColor);
+      return this.makeDeferredCopyOfVideoBuffer().get();
+    } else {
+      synchronized (this.outputFrameConsumerLocker) {
+        this.takeFrontOutputFrame();
+        return this.outputFramesRgbData[this.frontOutputFrame].clone();
       }
-
-      cloneOfBuffer = rgb2argb(rgb);
     }
-    return cloneOfBuffer;
   }
 
-  private byte[] argb2rgb(final int[] argb) {
-    final byte[] result = new byte[argb.length * 3];
-    int j = 0;
-    for (final int value : argb) {
-      result[j++] = (byte) (value >> 16);
-      result[j++] = (byte) (value >> 8);
-      result[j++] = (byte) value;
+  /**
+   * Copy the current output frame and defer application of TV filters. Only the copy is made
+   * under the consumer lock, filters are applied by the thread calling the result supplier.
+   *
+   * @return supplier of the copied frame with applied current TV filters
+   */
+  public Supplier<int[]> makeDeferredCopyOfVideoBuffer() {
+    final int[] result;
+    final int borderColor;
+    final TvFilterChain filterChain = this.tvFilterChain;
+    synchronized (this.outputFrameConsumerLocker) {
+      this.takeFrontOutputFrame();
+      result = this.outputFramesRgbData[this.frontOutputFrame].clone();
+      borderColor = this.findFilterBorderColor();
     }
-    return result;
-  }
-
-  private int[] rgb2argb(final byte[] rgb) {
-    final int[] result = new int[rgb.length / 3];
-    int j = 0;
-    for (int i = 0; i < rgb.length; ) {
-      final int r = rgb[i++] & 0xFF;
-      final int g = rgb[i++] & 0xFF;
-      final int b = rgb[i++] & 0xFF;
-      result[j++] = 0xFF000000 | (r << 16) | (g << 8) | b;
+    if (filterChain.isEmpty()) {
+      return () -> result;
+    } else {
+      return () -> {
+        this.applyFilters(result, filterChain, borderColor);
+        return result;
+      };
     }
-    return result;
   }
 
   public RenderedImage makeCopyOfCurrentPicture() {
@@ -1627,6 +1821,19 @@ public final class VideoController extends JComponent
     return this.board;
   }
 
+  @Override
+  public boolean isReadPortDecoded(final int port) {
+    return port == UlaPlusContainer.PORT_DATA;
+  }
+
+  @Override
+  public boolean isWritePortDecoded(final int port) {
+    return (port & 1) == 0
+        || port == UlaPlusContainer.PORT_DATA
+        || port == UlaPlusContainer.PORT_REGISTER
+        || (port & 0xFF) == UlaPlusContainer.PORT_TIMEX_FF;
+  }
+
   @Override
   public int readIo(final ZxPolyModule module, final int port) {
     int result = -1;
@@ -1661,11 +1868,14 @@ public final class VideoController extends JComponent
         if (port == UlaPlusContainer.PORT_DATA) {
           // data port
           this.ulaPlus.setData(value);
+          this.invalidateScreen();
         } else if (port == UlaPlusContainer.PORT_REGISTER) {
           // register port
           this.ulaPlus.setRegister(value);
+          this.invalidateScreen();
         } else if ((port & 0xFF) == UlaPlusContainer.PORT_TIMEX_FF) {
           this.ulaPlus.setPortFF(value);
+          this.invalidateScreen();
         }
       }
     }
@@ -1683,60 +1893,136 @@ public final class VideoController extends JComponent
       final float zoom,
       final TvFilterChain filterChain
   ) {
-    if (filterChain.isEmpty()) {
-      synchronized (this.outputZxScreenImage) {
-        final float normalZoom = Math.max(1.0f, zoom);
-        if (normalZoom == 1.0f) {
-          gfx.drawImage(this.outputZxScreenImage, null, x, y);
-        } else {
-          gfx.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
-          gfx.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
+    this.drawBuffer(gfx, x, y, zoom, filterChain, null);
+  }
 
-          gfx.drawImage(this.outputZxScreenImage, x, y, Math.round(SCREEN_WIDTH * normalZoom),
-              Math.round(SCREEN_HEIGHT * normalZoom), null);
-        }
+  private void drawBuffer(
+      final Graphics2D gfx,
+      final int x,
+      final int y,
+      final float zoom,
+      final TvFilterChain filterChain,
+      final GraphicsConfiguration accelerationConfiguration
+  ) {
+    // the lock is shared only by consumers, the emulator thread never waits for it
+    synchronized (this.outputFrameConsumerLocker) {
+      final BufferedImage outputImage = this.takeFrontOutputFrame();
+      final BufferedImage image;
+      final int[] imageRgbData;
+      if (filterChain.isEmpty()) {
+        image = outputImage;
+        imageRgbData = this.outputFramesRgbData[this.frontOutputFrame];
+      } else {
+        this.copyFrontOutputFrameAndApplyFilters(TvFilter.SHARED_BUFFER_RASTER, filterChain);
+        image = TvFilter.SHARED_BUFFER;
+        imageRgbData = TvFilter.SHARED_BUFFER_RASTER;
       }
-    } else {
-      final int borderArgbColor = this.borderImageRgbData[this.borderImageRgbData.length / 2];
+      final Image screenImage = accelerationConfiguration == null ? image
+          : this.uploadToVolatileImage(accelerationConfiguration, image, imageRgbData);
+
       final Rectangle area;
-      final TvFilter[] tvFilters = filterChain.getFilterChain();
-      BufferedImage postProcessedImage;
-      synchronized (this.outputZxScreenImage) {
-        postProcessedImage =
-            tvFilters[0].apply(this.outputZxScreenImage, zoom, borderArgbColor, true);
-      }
-      for (int i = 1; i < tvFilters.length; i++) {
-        postProcessedImage = tvFilters[i].apply(postProcessedImage, zoom, borderArgbColor, false);
-      }
-      if (zoom == 1.0f) {
-        area = new Rectangle(x, y, 512, 384);
-        gfx.drawImage(postProcessedImage, null, x, y);
+      final float normalizedZoom = Math.max(1.0f, zoom);
+      if (normalizedZoom == 1.0f) {
+        area = new Rectangle(x, y, SCREEN_WIDTH, SCREEN_HEIGHT);
+        gfx.drawImage(screenImage, x, y, null);
       } else {
-        final boolean sizeChangedDuringPostprocessing =
-            postProcessedImage.getWidth() != this.outputZxScreenImage.getWidth();
+        gfx.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+        gfx.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
 
-        if (sizeChangedDuringPostprocessing) {
-          gfx.drawImage(postProcessedImage, null, x, y);
-          area = new Rectangle(x, y, 512, 384);
-        } else {
-          final float normalizedZoom = Math.max(1.0f, zoom);
-          gfx.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
-          gfx.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
+        area = new Rectangle(x, y, Math.round(SCREEN_WIDTH * normalizedZoom),
+            Math.round(SCREEN_HEIGHT * normalizedZoom));
 
-          area = new Rectangle(x, y, Math.round(SCREEN_WIDTH * normalizedZoom),
-              Math.round(SCREEN_HEIGHT * normalizedZoom));
-
-          gfx.drawImage(postProcessedImage, x, y, area.width,
-              area.height, null);
-        }
+        gfx.drawImage(screenImage, x, y, area.width, area.height, null);
       }
 
-      for (final TvFilter filter : tvFilters) {
+      for (final TvFilter filter : filterChain.getFilterChain()) {
         filter.apply(gfx, area, zoom);
       }
     }
   }
 
+  // must be called under consumer lock, returns the source image if acceleration is not possible
+  private Image uploadToVolatileImage(final GraphicsConfiguration configuration,
+                                      final BufferedImage source, final int[] sourceRgbData) {
+    VolatileImage image = this.screenVolatileImage;
+    final int imageState =
+        image == null ? VolatileImage.IMAGE_INCOMPATIBLE : image.validate(configuration);
+    final boolean fullUpload = imageState != VolatileImage.IMAGE_OK;
+    if (imageState == VolatileImage.IMAGE_INCOMPATIBLE) {
+      if (image != null) {
+        image.flush();
+      }
+      image = configuration.createCompatibleVolatileImage(SCREEN_WIDTH, SCREEN_HEIGHT,
+          Transparency.OPAQUE);
+      this.screenVolatileImage = image;
+    }
+
+    final int[] runs = this.screenVolatileImageRowRuns;
+    final int runCount = findChangedRowRuns(sourceRgbData, this.screenVolatileImageRgbData,
+        fullUpload, runs);
+    final Graphics2D gfx = image.createGraphics();
+    try {
+      gfx.setComposite(AlphaComposite.Src);
+      for (int i = 0; i < runCount; i++) {
+        final int firstRow = runs[i * 2];
+        final int endRow = runs[i * 2 + 1];
+        gfx.drawImage(source, 0, firstRow, SCREEN_WIDTH, endRow, 0, firstRow, SCREEN_WIDTH,
+            endRow, null);
+      }
+    } finally {
+      gfx.dispose();
+    }
+
+    if (image.contentsLost()) {
+      // force full upload next time
+      this.screenVolatileImage = null;
+      image.flush();
+      return source;
+    }
+    return image;
+  }
+
+  /**
+   * Find runs of screen rows changed relative to already uploaded data and copy them into the
+   * uploaded data. Rows are compared with the last uploaded content instead of the previous
+   * frame, so changes of skipped frames are not lost.
+   *
+   * @param rgbData         frame data, SCREEN_WIDTH x SCREEN_HEIGHT
+   * @param uploadedRgbData data already uploaded, changed rows are copied into it
+   * @param all             all rows must be treated as changed
+   * @param runs            array of at least SCREEN_HEIGHT elements to get pairs of the first
+   *                        row and the row after the last one for every run
+   * @return number of found runs
+   */
+  static int findChangedRowRuns(final int[] rgbData, final int[] uploadedRgbData,
+                                final boolean all, final int[] runs) {
+    int runCount = 0;
+    int row = 0;
+    while (row < SCREEN_HEIGHT) {
+      if (!all && isSameRow(rgbData, uploadedRgbData, row)) {
+        row++;
+        continue;
+      }
+      final int firstRow = row;
+      while (row < SCREEN_HEIGHT && (all || !isSameRow(rgbData, uploadedRgbData, row))) {
+        row++;
+      }
+      System.arraycopy(rgbData, firstRow * SCREEN_WIDTH, uploadedRgbData,
+          firstRow * SCREEN_WIDTH, (row - firstRow) * SCREEN_WIDTH);
+      runs[runCount * 2] = firstRow;
+      runs[runCount * 2 + 1] = row;
+      runCount++;
+    }
+    return runCount;
+  }
+
+  private static boolean isSameRow(final int[] rgbData, final int[] otherRgbData,
+                                   final int row) {
+    final int from = row * SCREEN_WIDTH;
+    return Arrays.equals(rgbData, from, from + SCREEN_WIDTH, otherRgbData, from,
+        from + SCREEN_WIDTH);
+  }
+
   @Override
   public void preStep(
       final int frameTiStates,
@@ -1753,14 +2039,17 @@ public final class VideoController extends JComponent
     }
     this.vkbdRender.preState(signalReset, tstatesIntReached, wallClockInt);
 
-    if (this.ulaPlus.isActive()) {
-      this.preStepBorderColor =
-          this.tvFilterChain.applyBorderColor(
-                  this.ulaPlus.findColorForIndex((this.portFEw & 7) | 8))
-              .getRGB();
-    } else {
-      this.preStepBorderColor =
-          this.tvFilterChain.applyBorderColor(PALETTE_ZXPOLY_COLORS[this.portFEw & 7]).getRGB();
+    final Color borderColor = this.ulaPlus.isActive()
+        ? this.ulaPlus.findColorForIndex((this.portFEw & 7) | 8)
+        : PALETTE_ZXPOLY_COLORS[this.portFEw & 7];
+    final TvFilterChain filterChain = this.tvFilterChain;
+
+    // filter chain is applied only if border color or chain changed
+    if (borderColor != this.preStepBorderSourceColor
+        || filterChain != this.preStepBorderFilterChain) {
+      this.preStepBorderColor = filterChain.applyBorderColor(borderColor).getRGB();
+      this.preStepBorderSourceColor = borderColor;
+      this.preStepBorderFilterChain = filterChain;
     }
   }
 
@@ -1811,6 +2100,7 @@ public final class VideoController extends JComponent
   public void setFullScreenMode(boolean active) {
     this.fullScreenMode = active;
     this.setVkbShow(false);
+    this.updateActiveRenderGeometry();
   }
 
   @Override
@@ -1822,8 +2112,90 @@ public final class VideoController extends JComponent
     this.paintImmediately(0, 0, this.getWidth(), this.getHeight());
   }
 
+  /**
+   * Set buffer strategy of the window containing the component to present frames from own
+   * render thread, bypassing Swing repaint manager. It is useful in full screen mode where the
+   * strategy can use page flipping.
+   *
+   * @param strategy buffer strategy of the component window, null to return to Swing repaint
+   * @since 2.3.4
+   */
+  public void setActiveRenderStrategy(final BufferStrategy strategy) {
+    final Thread previousThread = this.activeRenderThread;
+    this.activeRenderStrategy = strategy;
+    this.activeRenderThread = null;
+    if (previousThread != null) {
+      LockSupport.unpark(previousThread);
+      // the thread can be blocked in the strategy, so don't wait for it forever on EDT
+      try {
+        previousThread.join(ACTIVE_RENDER_STOP_TIMEOUT_MS);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+      if (previousThread.isAlive()) {
+        log.warning("Active render thread is still working after stop request");
+      }
+    }
+    if (strategy != null) {
+      this.updateActiveRenderGeometry();
+      final Thread thread =
+          new Thread(() -> this.activeRenderLoop(strategy), "zxpoly-active-render");
+      thread.setDaemon(true);
+      this.activeRenderRequested.set(true);
+      this.activeRenderThread = thread;
+      thread.start();
+    }
+  }
+
+  public boolean isActiveRender() {
+    return this.activeRenderThread != null;
+  }
+
+  private void activeRenderLoop(final BufferStrategy strategy) {
+    while (this.activeRenderStrategy == strategy) {
+      if (this.activeRenderRequested.getAndSet(false)) {
+        try {
+          this.renderByStrategy(strategy);
+        } catch (RuntimeException ex) {
+          // the window of the strategy can be disposed on EDT without waiting for the thread
+          if (this.activeRenderStrategy == strategy) {
+            log.log(Level.WARNING, "Active render stopped: " + ex.getMessage());
+          }
+          break;
+        }
+      } else {
+        LockSupport.park(this);
+      }
+    }
+  }
+
+  private void renderByStrategy(final BufferStrategy strategy) {
+    final RenderGeometry geometry = this.activeRenderGeometry;
+    if (geometry == null || geometry.window == null) {
+      return;
+    }
+    do {
+      do {
+        final Graphics2D gfx = (Graphics2D) strategy.getDrawGraphics();
+        try {
+          gfx.translate(geometry.windowLocation.x, geometry.windowLocation.y);
+          gfx.clipRect(0, 0, geometry.width, geometry.height);
+          this.paintScreen(gfx, geometry);
+        } finally {
+          gfx.dispose();
+        }
+      } while (strategy.contentsRestored());
+      strategy.show();
+    } while (strategy.contentsLost());
+    Toolkit.getDefaultToolkit().sync();
+  }
+
   public void notifyRepaint() {
-    if (this.syncRepaint) {
+    final Thread renderThread = this.activeRenderThread;
+    if (renderThread != null) {
+      this.activeRenderRequested.set(true);
+      LockSupport.unpark(renderThread);
+    } else if (this.syncRepaint) {
       this.doSyncRepaint();
     } else {
       this.repaint(0L);
@@ -1845,9 +2217,90 @@ public final class VideoController extends JComponent
     }
   }
 
+  /**
+   * Snapshot of component state needed to paint the screen, it is made on EDT.
+   */
+  private static final class RenderGeometry {
+    private final Window window;
+    private final GraphicsConfiguration configuration;
+    private final int width;
+    private final int height;
+    private final Point windowLocation;
+    private final Point screenLocation;
+    private final Dimension screenSize;
+    private final float zoom;
+    private final boolean vkbdInside;
+    private final Window vkbdWindow;
+
+    private RenderGeometry(
+        final Window window,
+        final GraphicsConfiguration configuration,
+        final int width,
+        final int height,
+        final Point windowLocation,
+        final Point screenLocation,
+        final Dimension screenSize,
+        final float zoom,
+        final boolean vkbdInside,
+        final Window vkbdWindow) {
+      this.window = window;
+      this.configuration = configuration;
+      this.width = width;
+      this.height = height;
+      this.windowLocation = windowLocation;
+      this.screenLocation = screenLocation;
+      this.screenSize = screenSize;
+      this.zoom = zoom;
+      this.vkbdInside = vkbdInside;
+      this.vkbdWindow = vkbdWindow;
+    }
+  }
+
+  /**
+   * Source of video data and dirty cells for screen render.
+   */
+  private interface ScreenSource {
+    int readVideo(int module, int videoOffset);
+
+    long readGfxVideo(int videoOffset);
+
+    boolean takeDirtyCell(int cell, int dirtyMask);
+  }
+
+  /**
+   * Copy of visible screens and dirty cells of frame, it is made by the emulator thread for
+   * render by parallel bands.
+   */
+  private static final class ScreenSnapshot implements ScreenSource {
+    private final byte[][] video = new byte[4][SCREEN_SIZE];
+    private final long[] gfxVideo = new long[SCREEN_PIXELS_SIZE];
+    private final boolean[] dirtyCells = new boolean[SCREEN_PIXELS_SIZE];
+
+    @Override
+    public int readVideo(final int module, final int videoOffset) {
+      return this.video[module][videoOffset] & 0xFF;
+    }
+
+    @Override
+    public long readGfxVideo(final int videoOffset) {
+      return this.gfxVideo[videoOffset];
+    }
+
+    @Override
+    public boolean takeDirtyCell(final int cell, final int dirtyMask) {
+      return this.dirtyCells[cell];
+    }
+  }
+
   public enum LineRenderMode {
-    ALL,
-    EVEN,
-    ODD
+    ALL(CELL_DIRTY),
+    EVEN(1),
+    ODD(2);
+
+    private final int dirtyMask;
+
+    LineRenderMode(final int dirtyMask) {
+      this.dirtyMask = dirtyMask;
+    }
   }
 }
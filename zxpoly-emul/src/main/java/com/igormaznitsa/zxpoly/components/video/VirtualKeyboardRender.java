@@ -54,7 +54,18 @@ public final class VirtualKeyboardRender {
     final PointerInfo pointerInfo = MouseInfo.getPointerInfo();
     final Point mousePoint = new Point(pointerInfo.getLocation());
     SwingUtilities.convertPointFromScreen(mousePoint, parent);
+    this.render(mousePoint, gfx, renderRectangle, transparentIfNotFocused);
+  }
 
+  /**
+   * Render keyboard without access to parent component, can be called outside of EDT.
+   *
+   * @param mousePoint              mouse position in coordinates of render area
+   * @param gfx                     graphics to draw keyboard
+   * @param renderRectangle         area of keyboard
+   * @param transparentIfNotFocused draw keyboard transparent if mouse is not over it
+   */
+  public void render(final Point mousePoint, final Graphics2D gfx, final Rectangle renderRectangle, final boolean transparentIfNotFocused) {
     if (transparentIfNotFocused) {
       gfx.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, renderRectangle.contains(mousePoint) ? 1.0f : 0.5f));
     }
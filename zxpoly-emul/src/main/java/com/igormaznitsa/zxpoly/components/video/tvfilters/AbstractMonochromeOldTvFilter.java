@@ -3,8 +3,6 @@ package com.igormaznitsa.zxpoly.components.video.tvfilters;
 import com.igormaznitsa.zxpoly.components.video.VideoController;
 
 import java.awt.*;
-import java.awt.image.BufferedImage;
-import java.awt.image.DataBufferInt;
 
 public abstract class AbstractMonochromeOldTvFilter extends TvFilterOldTv {
 
@@ -46,11 +44,16 @@ public abstract class AbstractMonochromeOldTvFilter extends TvFilterOldTv {
   protected abstract int y2rgb(final int y);
 
   @Override
-  public final BufferedImage apply(BufferedImage srcImageArgb512x384, float zoom, int argbBorderColor, boolean firstInChain) {
-    final BufferedImage result = super.apply(srcImageArgb512x384, zoom, argbBorderColor, firstInChain);
-    final int[] argbBuffer = ((DataBufferInt) result.getRaster().getDataBuffer()).getData();
-    for (int i = 0; i < argbBuffer.length; i++) {
-      final int argb = argbBuffer[i];
+  public final void applyLines(
+          final int[] argbRaster512x384,
+          final int argbBorderColor,
+          final int lineFrom,
+          final int lineTo
+  ) {
+    super.applyLines(argbRaster512x384, argbBorderColor, lineFrom, lineTo);
+    for (int i = lineFrom * RASTER_WIDTH_ARGB_INT, end = lineTo * RASTER_WIDTH_ARGB_INT;
+         i < end; i++) {
+      final int argb = argbRaster512x384[i];
 
       final int a = (argb >>> 24) & 0xFF;
       final int r = (argb >>> 16) & 0xFF;
@@ -59,25 +62,8 @@ public abstract class AbstractMonochromeOldTvFilter extends TvFilterOldTv {
 
       final int rgb = y2rgb(rgb2y(r, g, b));
 
-      argbBuffer[i] = (a << 24) | rgb;
+      argbRaster512x384[i] = (a << 24) | rgb;
     }
-    return result;
-  }
-
-  @Override
-  public final byte[] apply(boolean forceCopy, byte[] rgbArray512x384, int argbBorderColor) {
-    final byte[] result = super.apply(forceCopy, rgbArray512x384, argbBorderColor);
-    for (int i = 0; i < result.length; ) {
-      int resultOffset = i;
-      final int r = result[i++] & 0xFF;
-      final int g = result[i++] & 0xFF;
-      final int b = result[i++] & 0xFF;
-      final int rgb = y2rgb(rgb2y(r, g, b));
-      result[resultOffset++] = (byte) (rgb >> 16);
-      result[resultOffset++] = (byte) (rgb >> 8);
-      result[resultOffset] = (byte) rgb;
-    }
-    return result;
   }
 
   @Override
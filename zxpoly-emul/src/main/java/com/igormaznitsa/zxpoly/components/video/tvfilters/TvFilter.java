@@ -22,21 +22,49 @@ public interface TvFilter {
     return borderColor;
   }
 
-  default BufferedImage apply(
-          final BufferedImage srcImageArgb512x384,
-          final float zoom,
+  /**
+   * Check that the filter needs whole raster prepared by {@link #prepareLines} before processing
+   * of lines, for instance if it reads neighbour lines.
+   *
+   * @return true if preparation is needed, false if the filter works only with own line
+   */
+  default boolean isPrepareNeeded() {
+    return false;
+  }
+
+  /**
+   * Collect data from lines of source raster before its change. Lines can be prepared by parallel
+   * threads, {@link #applyLines} is called only when all lines are prepared.
+   *
+   * @param argbRaster512x384 source raster
+   * @param argbBorderColor   border color
+   * @param lineFrom          first line, inclusive
+   * @param lineTo            last line, exclusive
+   */
+  default void prepareLines(
+          final int[] argbRaster512x384,
           final int argbBorderColor,
-          final boolean firstInChain
+          final int lineFrom,
+          final int lineTo
   ) {
-    return srcImageArgb512x384;
+
   }
 
-  default byte[] apply(
-          final boolean forceCopy,
-          final byte[] rgbArray512x384,
-          final int argbBorderColor
+  /**
+   * Process lines of raster in place. Lines can be processed by parallel threads.
+   *
+   * @param argbRaster512x384 raster to be processed
+   * @param argbBorderColor   border color
+   * @param lineFrom          first line, inclusive
+   * @param lineTo            last line, exclusive
+   */
+  default void applyLines(
+          final int[] argbRaster512x384,
+          final int argbBorderColor,
+          final int lineFrom,
+          final int lineTo
   ) {
-    return rgbArray512x384;
+
   }
 
   default void apply(
@@ -1,9 +1,6 @@
 package com.igormaznitsa.zxpoly.components.video.tvfilters;
 
 import java.awt.*;
-import java.awt.image.BufferedImage;
-import java.awt.image.DataBufferInt;
-import java.util.Arrays;
 
 public final class TvFilterBlackWhite implements TvFilter {
 
@@ -45,72 +42,28 @@ public final class TvFilterBlackWhite implements TvFilter {
     return bits == 63 ? 64 : bits;
   }
 
-  private static int getLevel64(final int r, final int g, final int b) {
-    final int bits = (toBitPair(g) << 4) | (toBitPair(r) << 2) | toBitPair(b);
-    return bits == 63 ? 64 : bits;
-  }
-
-
   @Override
   public Color applyBorderColor(final Color borderColor) {
     return borderColor.getRed() < 128 ? Color.BLACK : Color.WHITE;
   }
 
   @Override
-  public BufferedImage apply(
-          final BufferedImage srcImageArgb512x384,
-          final float zoom,
+  public void applyLines(
+          final int[] argbRaster512x384,
           final int argbBorderColor,
-          final boolean firstInChain
+          final int lineFrom,
+          final int lineTo
   ) {
-    final int[] src = ((DataBufferInt) srcImageArgb512x384.getRaster().getDataBuffer()).getData();
-    final int[] dst = SHARED_BUFFER_RASTER;
-
-    for (int y = 0; y < RASTER_HEIGHT; y++) {
+    for (int y = lineFrom; y < lineTo; y++) {
       for (int x = 0; x < RASTER_WIDTH_ARGB_INT; x++) {
         final int pos = y * RASTER_WIDTH_ARGB_INT + x;
-        if (MATRIX[x & 7][y & 7] < getLevel64(src[pos])) {
-          dst[pos] = 0xFFFFFFFF;
+        if (MATRIX[x & 7][y & 7] < getLevel64(argbRaster512x384[pos])) {
+          argbRaster512x384[pos] = 0xFFFFFFFF;
         } else {
-          dst[pos] = 0xFF000000;
+          argbRaster512x384[pos] = 0xFF000000;
         }
       }
     }
-
-    return SHARED_BUFFER;
-  }
-
-  @Override
-  public byte[] apply(
-          final boolean forceCopy,
-          final byte[] rgbArray512x384,
-          final int argbBorderColor
-  ) {
-    final byte[] result =
-            forceCopy ? Arrays.copyOf(rgbArray512x384, rgbArray512x384.length) : rgbArray512x384;
-
-    for (int y = 0; y < RASTER_HEIGHT; y++) {
-      for (int x = 0; x < RASTER_WIDTH_ARGB_INT; x++) {
-        final int pos = y * RASTER_WIDTH_RGB_BYTE + (x * 3);
-        int tpos = pos;
-        final int r = result[tpos++] & 0xFF;
-        final int g = result[tpos++] & 0xFF;
-        final int b = result[tpos] & 0xFF;
-
-        final byte level;
-        if (MATRIX[x & 7][y & 7] < getLevel64(r, g, b)) {
-          level = (byte) 0xFF;
-        } else {
-          level = 0;
-        }
-        tpos = pos;
-        result[tpos++] = level;
-        result[tpos++] = level;
-        result[tpos] = level;
-      }
-    }
-
-    return result;
   }
 
   @Override
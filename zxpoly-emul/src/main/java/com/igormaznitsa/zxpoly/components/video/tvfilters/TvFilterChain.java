@@ -3,6 +3,9 @@ package com.igormaznitsa.zxpoly.components.video.tvfilters;
 import com.igormaznitsa.zxpoly.components.video.VideoController;
 
 import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
 
 import static java.util.stream.Stream.of;
 
@@ -15,12 +18,29 @@ public enum TvFilterChain {
   GREENCRT("Old TV Green", new TvFilter[]{TvFilterGreenCrt.getInstance()}),
   GAUSSIAN_BLUR("Gaussian blur", new TvFilter[]{TvFilterGaussian.getInstance()});
 
+  private static final int PARALLEL_BANDS =
+          Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors()));
+
   private final String text;
   private final TvFilter[] filterChain;
+  // filters split into groups, only the first filter of a group can need preparation
+  private final TvFilter[][] passes;
 
   TvFilterChain(final String text, final TvFilter[] chain) {
     this.text = text;
     this.filterChain = chain;
+
+    final List<TvFilter[]> groups = new ArrayList<>();
+    int groupStart = 0;
+    for (int i = 1; i <= chain.length; i++) {
+      if (i == chain.length || chain[i].isPrepareNeeded()) {
+        final TvFilter[] group = new TvFilter[i - groupStart];
+        System.arraycopy(chain, groupStart, group, 0, group.length);
+        groups.add(group);
+        groupStart = i;
+      }
+    }
+    this.passes = groups.toArray(new TvFilter[0][]);
   }
 
   public String getText() {
@@ -42,6 +62,62 @@ public enum TvFilterChain {
     return result;
   }
 
+  /**
+   * Apply all filters of the chain to raster in place. Filters which work only with own lines are
+   * fused together, so the raster is walked once per filter needing preparation.
+   *
+   * @param argbRaster512x384 raster to be processed
+   * @param argbBorderColor   border color before filtering
+   * @param parallel          if true then lines are processed by bands on the common fork-join pool
+   * @since 2.3.4
+   */
+  public void apply(final int[] argbRaster512x384, final int argbBorderColor,
+                    final boolean parallel) {
+    Color borderColor = new Color(argbBorderColor);
+    for (final TvFilter[] pass : this.passes) {
+      final int[] borders = new int[pass.length];
+      for (int i = 0; i < pass.length; i++) {
+        borders[i] = borderColor.getRGB();
+        borderColor = pass[i].applyBorderColor(borderColor);
+      }
+
+      if (parallel) {
+        if (pass[0].isPrepareNeeded()) {
+          invokeByBands(
+                  (from, to) -> pass[0].prepareLines(argbRaster512x384, borders[0], from, to));
+        }
+        invokeByBands((from, to) -> applyPass(pass, borders, argbRaster512x384, from, to));
+      } else {
+        if (pass[0].isPrepareNeeded()) {
+          pass[0].prepareLines(argbRaster512x384, borders[0], 0, TvFilter.RASTER_HEIGHT);
+        }
+        applyPass(pass, borders, argbRaster512x384, 0, TvFilter.RASTER_HEIGHT);
+      }
+    }
+  }
+
+  private static void applyPass(
+          final TvFilter[] pass,
+          final int[] borders,
+          final int[] argbRaster512x384,
+          final int lineFrom,
+          final int lineTo
+  ) {
+    for (int i = 0; i < pass.length; i++) {
+      pass[i].applyLines(argbRaster512x384, borders[i], lineFrom, lineTo);
+    }
+  }
+
+  private static void invokeByBands(final LineBandTask task) {
+    final ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[PARALLEL_BANDS];
+    for (int i = 0; i < PARALLEL_BANDS; i++) {
+      final int from = TvFilter.RASTER_HEIGHT * i / PARALLEL_BANDS;
+      final int to = TvFilter.RASTER_HEIGHT * (i + 1) / PARALLEL_BANDS;
+      tasks[i] = ForkJoinTask.adapt(() -> task.process(from, to));
+    }
+    ForkJoinTask.invokeAll(tasks);
+  }
+
   public boolean isGifCompatible() {
     return of(this.filterChain).allMatch(TvFilter::isGifCompatible);
   }
@@ -57,4 +133,9 @@ public enum TvFilterChain {
     }
     return result == null ? VideoController.PALETTE_SPEC256 : result;
   }
+
+  @FunctionalInterface
+  private interface LineBandTask {
+    void process(int lineFrom, int lineTo);
+  }
 }
@@ -3,9 +3,6 @@ package com.igormaznitsa.zxpoly.components.video.tvfilters;
 import com.igormaznitsa.zxpoly.components.video.VideoController;
 
 import java.awt.*;
-import java.awt.image.BufferedImage;
-import java.awt.image.DataBufferInt;
-import java.util.Arrays;
 import java.util.stream.Stream;
 
 public final class TvFilterGrayscale implements TvFilter {
@@ -37,10 +34,16 @@ public final class TvFilterGrayscale implements TvFilter {
     return Math.min(Math.round(r * 0.4047f + g * 0.5913f + b * 0.2537f), 255);
   }
 
-  private static void fastArgbToGrayscale(final int[] src) {
-    int index = src.length;
-    while (--index >= 0) {
-      final int argb = src[index];
+  @Override
+  public void applyLines(
+          final int[] argbRaster512x384,
+          final int argbBorderColor,
+          final int lineFrom,
+          final int lineTo
+  ) {
+    for (int i = lineFrom * RASTER_WIDTH_ARGB_INT, end = lineTo * RASTER_WIDTH_ARGB_INT;
+         i < end; i++) {
+      final int argb = argbRaster512x384[i];
       final int a = (argb >>> 24) & 0xFF;
       final int r = (argb >>> 16) & 0xFF;
       final int g = (argb >>> 8) & 0xFF;
@@ -48,34 +51,10 @@ public final class TvFilterGrayscale implements TvFilter {
 
       final int y = rgb2y(r, g, b);
 
-      SHARED_BUFFER_RASTER[index] = (a << 24) | (y << 16) | (y << 8) | y;
+      argbRaster512x384[i] = (a << 24) | (y << 16) | (y << 8) | y;
     }
   }
 
-  @Override
-  public byte[] apply(
-          boolean forceCopy,
-          byte[] rgbArray512x384,
-          int argbBorderColor
-  ) {
-    final byte[] result =
-            forceCopy ? Arrays.copyOf(rgbArray512x384, rgbArray512x384.length) : rgbArray512x384;
-    int index = result.length;
-    while (--index > 0) {
-      int base = index;
-      final int b = result[index--] & 0xFF;
-      final int g = result[index--] & 0xFF;
-      final int r = result[index] & 0xFF;
-
-      final byte y = (byte) rgb2y(r, g, b);
-
-      result[base--] = y;
-      result[base--] = y;
-      result[base] = y;
-    }
-    return result;
-  }
-
   @Override
   public Color applyBorderColor(final Color borderColor) {
     final int rgb = borderColor.getRGB();
@@ -85,20 +64,6 @@ public final class TvFilterGrayscale implements TvFilter {
     return GRAYSCALE_BORDER_COLORS[index];
   }
 
-  @Override
-  public BufferedImage apply(
-          final BufferedImage srcImageArgb512x384,
-          float zoom,
-          final int argbBorder,
-          final boolean firstInChain
-  ) {
-    final int[] src = ((DataBufferInt) srcImageArgb512x384.getRaster().getDataBuffer()).getData();
-
-    fastArgbToGrayscale(src);
-
-    return SHARED_BUFFER;
-  }
-
   @Override
   public int[] makePalette() {
     final int[] palette = new int[256];
@@ -1,9 +1,5 @@
 package com.igormaznitsa.zxpoly.components.video.tvfilters;
 
-import java.awt.image.BufferedImage;
-import java.awt.image.DataBufferInt;
-import java.util.Arrays;
-
 public class TvFilterOldTv implements TvFilter {
 
   private static final TvFilterOldTv INSTANCE = new TvFilterOldTv();
@@ -36,25 +32,12 @@ public class TvFilterOldTv implements TvFilter {
   }
 
   @Override
-  public BufferedImage apply(
-          final BufferedImage srcImageArgb512x384,
-          final float zoom,
+  public void applyLines(
+          final int[] argbRaster512x384,
           final int argbBorder,
-          boolean firstInChain
+          final int lineFrom,
+          final int lineTo
   ) {
-    final BufferedImage image;
-    final int[] argbBuffer;
-    if (firstInChain) {
-      image = SHARED_BUFFER;
-      argbBuffer = SHARED_BUFFER_RASTER;
-      System
-              .arraycopy(((DataBufferInt) srcImageArgb512x384.getRaster().getDataBuffer()).getData(), 0,
-                      argbBuffer, 0, argbBuffer.length);
-    } else {
-      image = srcImageArgb512x384;
-      argbBuffer = ((DataBufferInt) srcImageArgb512x384.getRaster().getDataBuffer()).getData();
-    }
-
     final int brdrR = (argbBorder >> 16) & 0xFF;
     final int brdrG = (argbBorder >> 8) & 0xFF;
     final int brdrB = argbBorder & 0xFF;
@@ -63,22 +46,19 @@ public class TvFilterOldTv implements TvFilter {
     final int borderU = rgb2u(brdrR, brdrG, brdrB);
     final int borderV = rgb2v(brdrR, brdrG, brdrB);
 
-    final int width = image.getWidth();
-    final int height = image.getHeight();
-
-    for (int y = 0; y < height; y++) {
-      final int offset = y * width;
+    for (int y = lineFrom; y < lineTo; y++) {
+      final int offset = y * RASTER_WIDTH_ARGB_INT;
       int pu = borderU;
       int pv = borderV;
       int py = borderY;
 
       final boolean yodd = (y & 1) != 0;
 
-      for (int x = 0; x < width; x++) {
+      for (int x = 0; x < RASTER_WIDTH_ARGB_INT; x++) {
         final boolean xodd = (x & 1) != 0;
 
         final int pos = offset + x;
-        final int argb = argbBuffer[pos];
+        final int argb = argbRaster512x384[pos];
         final int r = (argb >>> 16) & 0xFF;
         final int g = (argb >>> 8) & 0xFF;
         final int b = argb & 0xFF;
@@ -103,73 +83,8 @@ public class TvFilterOldTv implements TvFilter {
         pv = (pv + vc * 2) / 3;
         py = yc;
 
-        argbBuffer[pos] = resultRgb | (argb & 0xFF000000);
+        argbRaster512x384[pos] = resultRgb | (argb & 0xFF000000);
       }
     }
-
-    return image;
-  }
-
-  @Override
-  public byte[] apply(
-          boolean forceCopy,
-          byte[] rgbArray512x384,
-          int argbBorder
-  ) {
-    final byte[] rgbBuffer =
-            forceCopy ? Arrays.copyOf(rgbArray512x384, rgbArray512x384.length) : rgbArray512x384;
-
-
-    final int brdrR = (argbBorder >> 16) & 0xFF;
-    final int brdrG = (argbBorder >> 8) & 0xFF;
-    final int brdrB = argbBorder & 0xFF;
-
-    final int borderY = rgb2y(brdrR, brdrG, brdrB);
-    final int borderU = rgb2u(brdrR, brdrG, brdrB);
-    final int borderV = rgb2v(brdrR, brdrG, brdrB);
-
-    for (int y = 0; y < RASTER_HEIGHT; y++) {
-      final int offset = y * 512 * 3;
-      int pu = borderU;
-      int pv = borderV;
-      int py = borderY;
-
-      final boolean yodd = (y & 1) != 0;
-
-      for (int x = 0; x < RASTER_WIDTH_ARGB_INT; x++) {
-        final boolean xodd = (x & 1) != 0;
-
-        final int pos = offset + x * 3;
-        int r = rgbBuffer[pos] & 0xFF;
-        int g = rgbBuffer[pos + 1] & 0xFF;
-        int b = rgbBuffer[pos + 2] & 0xFF;
-
-        int yc = rgb2y(r, g, b);
-        final int uc = rgb2u(r, g, b);
-        final int vc = rgb2v(r, g, b);
-
-        if (yodd) {
-          yc = Math.round(0.87f * yc);
-        }
-
-        yc = (yc + py) / 2;
-
-        final int resultRgb;
-        if (xodd) {
-          resultRgb = yuv2rgb(yc, (pu + uc) / 2, (pv + vc) / 2);
-        } else {
-          resultRgb = yuv2rgb(yc, uc, vc);
-        }
-        pu = (pu + uc * 2) / 3;
-        pv = (pv + vc * 2) / 3;
-        py = yc;
-
-        rgbBuffer[pos] = (byte) (resultRgb >> 16);
-        rgbBuffer[pos + 1] = (byte) (resultRgb >> 8);
-        rgbBuffer[pos + 2] = (byte) resultRgb;
-      }
-    }
-
-    return rgbBuffer;
   }
 }
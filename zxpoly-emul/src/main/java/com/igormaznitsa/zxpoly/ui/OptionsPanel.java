@@ -53,6 +53,7 @@ public class OptionsPanel extends JTabbedPane {
 
   private JCheckBox checkCovoxFb;
   private JCheckBox checkUlaPlus;
+  private JCheckBox checkActiveRenderFullScreen;
   private JCheckBox checkTurboSound;
   private JCheckBox checkZx128ByDefault;
   private JCheckBox checkKempstonMouseAllowed;
@@ -62,6 +63,7 @@ public class OptionsPanel extends JTabbedPane {
   private JLabel labelOldTvFilter;
   private JLabel labelCovoxFb;
   private JLabel labelUlaPlus;
+  private JLabel labelActiveRenderFullScreen;
   private JLabel labelVolumeProfile;
   private JLabel labelSoundSchemeACB;
   private JLabel labelTurboSound;
@@ -168,6 +170,7 @@ public class OptionsPanel extends JTabbedPane {
     this.checkVkbdApart.setSelected(data.vkdApart);
     this.checkCovoxFb.setSelected(data.covoxFb);
     this.checkUlaPlus.setSelected(data.ulaPlus);
+    this.checkActiveRenderFullScreen.setSelected(data.activeRenderFullScreen);
     this.checkZx128ByDefault.setSelected(data.zx128byDefault);
     this.checkTurboSound.setSelected(data.turboSound);
     this.checkKempstonMouseAllowed.setSelected(data.kempstonMouseAllowed);
@@ -226,6 +229,8 @@ public class OptionsPanel extends JTabbedPane {
     checkCovoxFb = new JCheckBox();
     labelUlaPlus = new JLabel();
     checkUlaPlus = new JCheckBox();
+    labelActiveRenderFullScreen = new JLabel();
+    checkActiveRenderFullScreen = new JCheckBox();
     labelTurboSound = new JLabel();
     checkTurboSound = new JCheckBox();
     labelZx128ByDefault = new JLabel();
@@ -376,6 +381,21 @@ public class OptionsPanel extends JTabbedPane {
     gridBagConstraints.anchor = GridBagConstraints.WEST;
     panelScreen.add(checkUlaPlus, gridBagConstraints);
 
+    labelActiveRenderFullScreen.setHorizontalAlignment(RIGHT);
+    labelActiveRenderFullScreen.setText("Active render in full screen:");
+    gridBagConstraints = new GridBagConstraints();
+    gridBagConstraints.gridx = 0;
+    gridBagConstraints.gridy = 7;
+    gridBagConstraints.fill = GridBagConstraints.HORIZONTAL;
+    panelScreen.add(labelActiveRenderFullScreen, gridBagConstraints);
+
+    gridBagConstraints = new GridBagConstraints();
+    gridBagConstraints.gridx = 1;
+    gridBagConstraints.gridy = 7;
+    gridBagConstraints.fill = GridBagConstraints.HORIZONTAL;
+    gridBagConstraints.anchor = GridBagConstraints.WEST;
+    panelScreen.add(checkActiveRenderFullScreen, gridBagConstraints);
+
     panelStreaming.setLayout(new GridBagLayout());
 
     labelFfMpegPath.setHorizontalAlignment(RIGHT);
@@ -766,6 +786,7 @@ public class OptionsPanel extends JTabbedPane {
     public final int frameRate;
     public final boolean covoxFb;
     public final boolean ulaPlus;
+    public final boolean activeRenderFullScreen;
     public final boolean turboSound;
     public final boolean kempstonMouseAllowed;
     public final boolean zx128byDefault;
@@ -815,6 +836,7 @@ public class OptionsPanel extends JTabbedPane {
       this.frameRate = AppOptions.getInstance().getFrameRate();
       this.covoxFb = AppOptions.getInstance().isCovoxFb();
       this.ulaPlus = AppOptions.getInstance().isUlaPlus();
+      this.activeRenderFullScreen = AppOptions.getInstance().isActiveRenderFullScreen();
       this.turboSound = AppOptions.getInstance().isTurboSound();
       this.kempstonMouseAllowed = AppOptions.getInstance().isKempstonMouseAllowed();
       this.zx128byDefault = AppOptions.getInstance().getDefaultBoardMode() != BoardMode.ZXPOLY;
@@ -860,6 +882,7 @@ public class OptionsPanel extends JTabbedPane {
       this.frameRate = (Integer) optionsPanel.spinnerFramesPerSec.getValue();
       this.covoxFb = optionsPanel.checkCovoxFb.isSelected();
       this.ulaPlus = optionsPanel.checkUlaPlus.isSelected();
+      this.activeRenderFullScreen = optionsPanel.checkActiveRenderFullScreen.isSelected();
       this.turboSound = optionsPanel.checkTurboSound.isSelected();
       this.kempstonMouseAllowed = optionsPanel.checkKempstonMouseAllowed.isSelected();
       this.zx128byDefault = rom != RomSource.TEST && optionsPanel.checkZx128ByDefault.isSelected();
@@ -894,6 +917,7 @@ public class OptionsPanel extends JTabbedPane {
       AppOptions.getInstance().setGrabSound(this.grabSound);
       AppOptions.getInstance().setCovoxFb(this.covoxFb);
       AppOptions.getInstance().setUlaPlus(this.ulaPlus);
+      AppOptions.getInstance().setActiveRenderFullScreen(this.activeRenderFullScreen);
       AppOptions.getInstance().setIntBetweenFrames(this.intPerFrame);
       AppOptions.getInstance().setPort(this.port);
       AppOptions.getInstance().setAddress(this.inetAddress);
@@ -107,6 +107,14 @@ public final class AppOptions {
     preferences.putBoolean(Option.AUTOCS_FOR_CURSOR_KEYS.name(), flag);
   }
 
+  public synchronized boolean isActiveRenderFullScreen() {
+    return preferences.getBoolean(Option.ACTIVE_RENDER_FULLSCREEN.name(), false);
+  }
+
+  public synchronized void setActiveRenderFullScreen(final boolean flag) {
+    preferences.putBoolean(Option.ACTIVE_RENDER_FULLSCREEN.name(), flag);
+  }
+
   public synchronized boolean isUlaPlus() {
     return preferences.getBoolean(Option.ULAPLUS.name(), false);
   }
@@ -206,6 +214,14 @@ public final class AppOptions {
     preferences.putBoolean(Option.TURBOSOUND.name(), value);
   }
 
+  public synchronized boolean isTapeFastLoad() {
+    return preferences.getBoolean(Option.TAPE_FAST_LOAD.name(), false);
+  }
+
+  public synchronized void setTapeFastLoad(final boolean value) {
+    preferences.putBoolean(Option.TAPE_FAST_LOAD.name(), value);
+  }
+
   public synchronized boolean isSoundTurnedOn() {
     return preferences.getBoolean(Option.SOUND_TURNED_ON.name(), false);
   }
@@ -546,7 +562,9 @@ public final class AppOptions {
     PROTEK_JOYSTICK_VK_FIRE,
     ATTRIBUTE_PORT_FF,
     ULAPLUS,
-    TRY_LESS_RESOURCES;
+    TRY_LESS_RESOURCES,
+    TAPE_FAST_LOAD,
+    ACTIVE_RENDER_FULLSCREEN;
   }
 
 }
@@ -0,0 +1,85 @@
+package com.igormaznitsa.zxpoly;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import picocli.CommandLine;
+
+public class HeadlessRunnerTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @BeforeClass
+  public static void beforeClass() {
+    System.setProperty("java.awt.headless", "true");
+  }
+
+  private List<String> run(final File hashes, final String... args) throws Exception {
+    final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    final String[] allArgs = new String[args.length + 2];
+    System.arraycopy(args, 0, allArgs, 0, args.length);
+    allArgs[args.length] = "--hashes";
+    allArgs[args.length + 1] = hashes.getAbsolutePath();
+    final int result = new CommandLine(
+        new HeadlessRunner().setOut(new PrintStream(buffer, true, StandardCharsets.UTF_8)))
+        .execute(allArgs);
+    assertEquals(0, result);
+    assertTrue(buffer.toString(StandardCharsets.UTF_8).contains("Frames: "));
+    return Files.readAllLines(hashes.toPath());
+  }
+
+  @Test
+  public void testRunFramesAndMakeOutput() throws Exception {
+    final File pngFolder = folder.newFolder("png");
+    final File wav = new File(folder.getRoot(), "sound.wav");
+
+    final List<String> hashes = run(folder.newFile("hashes1.txt"), "-n", "30",
+        "--png-dir", pngFolder.getAbsolutePath(), "--png-every", "10",
+        "--wav", wav.getAbsolutePath());
+
+    assertEquals(30, hashes.size());
+    assertTrue(hashes.get(29).startsWith("30 "));
+    for (final int frame : new int[] {10, 20, 30}) {
+      assertTrue(new File(pngFolder, String.format("frame%06d.png", frame)).isFile());
+    }
+    assertEquals(3, pngFolder.list().length);
+    assertTrue(wav.isFile());
+  }
+
+  @Test
+  public void testDeterministic() throws Exception {
+    final List<String> first = run(folder.newFile("hashes1.txt"), "-n", "30", "-m", "ZXPOLY");
+    final List<String> second = run(folder.newFile("hashes2.txt"), "-n", "30", "-m", "ZXPOLY");
+    assertEquals(first, second);
+  }
+
+  @Test
+  public void testParallelModulesGiveSameFramesAsSequential() throws Exception {
+    // test ROM completes checks of ZX-Poly CPUs about frame 350
+    final List<String> sequential =
+        run(folder.newFile("hashes1.txt"), "-n", "360", "-m", "ZXPOLY");
+    final List<String> parallel =
+        run(folder.newFile("hashes2.txt"), "-n", "360", "-m", "ZXPOLY", "--parallel-modules");
+    assertEquals(sequential, parallel);
+  }
+
+  @Test
+  public void testParallelRenderGivesSameFramesAsSequential() throws Exception {
+    final List<String> sequential =
+        run(folder.newFile("hashes1.txt"), "-n", "60", "-m", "ZXPOLY");
+    final List<String> parallel =
+        run(folder.newFile("hashes2.txt"), "-n", "60", "-m", "ZXPOLY", "--parallel-render");
+    assertEquals(sequential, parallel);
+  }
+}
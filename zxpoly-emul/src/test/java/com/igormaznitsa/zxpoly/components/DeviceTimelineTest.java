@@ -0,0 +1,131 @@
+package com.igormaznitsa.zxpoly.components;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class DeviceTimelineTest {
+
+  @Test
+  public void testDeviceNotifiedOnlyAtEvents() {
+    final FakeDevice device = new FakeDevice(16);
+    final DeviceTimeline timeline = new DeviceTimeline(new IoDevice[] {device});
+
+    timeline.advance(4);
+    assertEquals(List.of(4), device.calls);
+
+    for (int i = 0; i < 3; i++) {
+      timeline.advance(4);
+    }
+    assertEquals(List.of(4), device.calls);
+
+    timeline.advance(4);
+    assertEquals(List.of(4, 16), device.calls);
+
+    timeline.advance(7);
+    timeline.advance(7);
+    timeline.advance(7);
+    assertEquals(List.of(4, 16, 21), device.calls);
+  }
+
+  @Test
+  public void testSyncForIo() {
+    final FakeDevice device = new FakeDevice(1000);
+    final DeviceTimeline timeline = new DeviceTimeline(new IoDevice[] {device});
+
+    timeline.advance(10);
+    timeline.advance(10);
+    timeline.advance(10);
+    assertEquals(List.of(10), device.calls);
+
+    timeline.syncAllForIo();
+    assertEquals(List.of(10, 20), device.calls);
+
+    timeline.advance(8);
+    assertEquals(List.of(10, 20, 8), device.calls);
+
+    timeline.advance(8);
+    assertEquals(List.of(10, 20, 8), device.calls);
+
+    timeline.syncAll();
+    assertEquals(List.of(10, 20, 8, 8), device.calls);
+  }
+
+  @Test
+  public void testAllTstatesDelivered() {
+    final FakeDevice fast = new FakeDevice(1);
+    final FakeDevice slow = new FakeDevice(70000);
+    final FakeDevice mid = new FakeDevice(333);
+    final DeviceTimeline timeline = new DeviceTimeline(new IoDevice[] {fast, slow, mid});
+
+    int total = 0;
+    for (int i = 0; i < 100000; i++) {
+      final int spent = 4 + (i % 20);
+      total += spent;
+      timeline.advance(spent);
+      if (i % 5000 == 0) {
+        timeline.syncAllForIo();
+      }
+    }
+    timeline.syncAll();
+
+    assertEquals(total, fast.calls.stream().mapToInt(x -> x).sum());
+    assertEquals(total, slow.calls.stream().mapToInt(x -> x).sum());
+    assertEquals(total, mid.calls.stream().mapToInt(x -> x).sum());
+    assertEquals(100000, fast.calls.size());
+  }
+
+  private static final class FakeDevice implements IoDevice {
+    private final int period;
+    private final List<Integer> calls = new ArrayList<>();
+
+    FakeDevice(final int period) {
+      this.period = period;
+    }
+
+    @Override
+    public Motherboard getMotherboard() {
+      return null;
+    }
+
+    @Override
+    public int readIo(final ZxPolyModule module, final int port) {
+      return -1;
+    }
+
+    @Override
+    public void writeIo(final ZxPolyModule module, final int port, final int value) {
+    }
+
+    @Override
+    public void preStep(final int frameTiStates, final boolean signalReset,
+                        final boolean tstatesIntReached, final boolean wallclockInt) {
+    }
+
+    @Override
+    public void postStep(final int spentTstates) {
+      this.calls.add(spentTstates);
+    }
+
+    @Override
+    public int getTstatesTillNextEvent() {
+      return this.period;
+    }
+
+    @Override
+    public String getName() {
+      return "Fake";
+    }
+
+    @Override
+    public void doReset() {
+    }
+
+    @Override
+    public int getNotificationFlags() {
+      return NOTIFICATION_POSTSTEP_SCHEDULED;
+    }
+  }
+}
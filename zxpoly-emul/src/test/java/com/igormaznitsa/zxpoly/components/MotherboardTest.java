@@ -0,0 +1,449 @@
+package com.igormaznitsa.zxpoly.components;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.igormaznitsa.z80.Z80;
+import com.igormaznitsa.zxpoly.components.video.VideoController;
+import com.igormaznitsa.zxpoly.components.video.timings.TimingProfile;
+import com.igormaznitsa.zxpoly.components.video.tvfilters.TvFilterChain;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class MotherboardTest {
+
+  private static final TimingProfile TIMING = TestBoards.TIMING;
+
+  @BeforeClass
+  public static void beforeClass() {
+    System.setProperty("java.awt.headless", "true");
+  }
+
+  @Test
+  public void testRunUntil() throws Exception {
+    for (final BoardMode mode : BoardMode.values()) {
+      final Motherboard board = TestBoards.makeBoard(mode);
+      try {
+        for (int frame = 0; frame < 20; frame++) {
+          for (int tstate = 1000; tstate <= TIMING.tstatesFrame; tstate += 1000) {
+            assertEquals(Motherboard.TRIGGER_NONE, board.runUntil(tstate));
+            assertTrue(mode + " " + board.getFrameTiStates(), board.getFrameTiStates() >= tstate);
+          }
+          final int tstates = board.getFrameTiStates();
+          assertEquals(Motherboard.TRIGGER_NONE, board.runUntil(tstates));
+          assertEquals(tstates, board.getFrameTiStates());
+          board.runUntil(TIMING.tstatesFrame);
+          board.step(true, true, false, true, true);
+          assertTrue(board.getFrameTiStates() < TIMING.tstatesFrame);
+        }
+      } finally {
+        board.dispose();
+      }
+    }
+  }
+
+  @Test
+  public void testNotDecodedReadPortsGiveNoData() throws Exception {
+    for (final BoardMode mode : BoardMode.values()) {
+      final Motherboard board = TestBoards.makeBoard(mode);
+      try {
+        final ZxPolyModule module = board.getModules()[0];
+        for (final IoDevice device : board.findIoDevices()) {
+          if (device instanceof ZxPolyModule) {
+            continue;
+          }
+          for (int port = 0; port < 0x10000; port++) {
+            if (!device.isReadPortDecoded(port)) {
+              assertEquals(mode + " " + device + " #" + Integer.toHexString(port), -1,
+                  device.readIo(module, port));
+            }
+          }
+        }
+      } finally {
+        board.dispose();
+      }
+    }
+  }
+
+  @Test
+  public void testKeyboardPortNotRoutedToSoundDevices() throws Exception {
+    final Motherboard board = TestBoards.makeBoard(BoardMode.ZX128);
+    try {
+      for (final IoDevice device : board.findIoDevices()) {
+        if (!(device instanceof ZxPolyModule) && !(device instanceof KeyboardKempstonAndTapeIn)) {
+          assertFalse(device.toString(), device.isReadPortDecoded(0x7FFE));
+        }
+      }
+    } finally {
+      board.dispose();
+    }
+  }
+
+  private static void assertSameAsFullRedraw(final String message, final VideoController video) {
+    video.copyWorkScreenToOutputScreen(0, 0, VideoController.ZXSCREEN_COLS,
+        VideoController.ZXSCREEN_ROWS);
+    final int[] incremental = video.makeCopyOfVideoBuffer(false);
+    video.invalidateScreen();
+    video.syncUpdateBuffer(0, VideoController.ZXSCREEN_ROWS, VideoController.LineRenderMode.ALL);
+    video.copyWorkScreenToOutputScreen(0, 0, VideoController.ZXSCREEN_COLS,
+        VideoController.ZXSCREEN_ROWS);
+    assertArrayEquals(message, video.makeCopyOfVideoBuffer(false), incremental);
+  }
+
+  private static int[] renderFullScreen(final VideoController video,
+                                        final VideoController.LineRenderMode lines) {
+    video.invalidateScreen();
+    video.renderBeamLines(0, VideoController.ZXSCREEN_ROWS, lines);
+    video.waitFrameRender();
+    return video.makeCopyOfVideoBuffer(false);
+  }
+
+  @Test
+  public void testParallelRenderGivesSameImageAsSequential() throws Exception {
+    final Object[][] cases = {
+        {BoardMode.SPEC256, 8},
+        {BoardMode.ZXPOLY, 4},
+        {BoardMode.ZXPOLY, 5},
+        {BoardMode.ZXPOLY, 6},
+        {BoardMode.ZXPOLY, 7}
+    };
+    for (final Object[] testCase : cases) {
+      final BoardMode mode = (BoardMode) testCase[0];
+      final int videoMode = (Integer) testCase[1];
+      final Motherboard board = TestBoards.makeBoard(mode);
+      try {
+        final VideoController video = board.getVideoController();
+        final Random random = new Random(videoMode);
+        for (final ZxPolyModule module : board.getModules()) {
+          for (int i = 0; i < 0x1B00; i++) {
+            module.writeMemory(module.getCpu(), 0, 0x4000 + i, (byte) random.nextInt());
+          }
+        }
+        video.setVideoMode(videoMode);
+        for (final VideoController.LineRenderMode lines : VideoController.LineRenderMode
+            .values()) {
+          video.setParallelRender(false);
+          final int[] sequential = renderFullScreen(video, lines);
+          video.setParallelRender(true);
+          assertArrayEquals(mode + " video mode " + videoMode + ' ' + lines, sequential,
+              renderFullScreen(video, lines));
+        }
+      } finally {
+        board.dispose();
+      }
+    }
+  }
+
+  private static int[] renderByBeam(final VideoController video) {
+    video.invalidateScreen();
+    // the same line by line calls as made by the main form
+    for (int line = 0; line < VideoController.ZXSCREEN_ROWS; line++) {
+      video.renderBeamLines(line, line + 1, VideoController.LineRenderMode.ALL);
+    }
+    video.waitFrameRender();
+    return video.makeCopyOfVideoBuffer(false);
+  }
+
+  @Test
+  public void testBeamRenderUsesParallelBandsByFrame() throws Exception {
+    final Motherboard board = TestBoards.makeBoard(BoardMode.ZXPOLY);
+    try {
+      final VideoController video = board.getVideoController();
+      final Random random = new Random(12345L);
+      for (final ZxPolyModule module : board.getModules()) {
+        for (int i = 0; i < 0x1B00; i++) {
+          module.writeMemory(module.getCpu(), 0, 0x4000 + i, (byte) random.nextInt());
+        }
+      }
+      video.setVideoMode(ZxPolyConstants.VIDEOMODE_ZXPOLY_256x192);
+
+      video.setParallelRender(false);
+      final int[] sequential = renderByBeam(video);
+      assertEquals(0L, video.getParallelRenderCounter());
+
+      video.setParallelRender(true);
+      final int[] parallel = renderByBeam(video);
+      assertEquals(1L, video.getParallelRenderCounter());
+      assertArrayEquals(sequential, parallel);
+    } finally {
+      board.dispose();
+    }
+  }
+
+  @Test
+  public void testParallelFrameRenderedFromScreenCopy() throws Exception {
+    final Motherboard board = TestBoards.makeBoard(BoardMode.ZXPOLY);
+    try {
+      final VideoController video = board.getVideoController();
+      final ZxPolyModule[] modules = board.getModules();
+      final Random random = new Random(54321L);
+      for (final ZxPolyModule module : modules) {
+        for (int i = 0; i < 0x1B00; i++) {
+          module.writeMemory(module.getCpu(), 0, 0x4000 + i, (byte) random.nextInt());
+        }
+      }
+      video.setVideoMode(ZxPolyConstants.VIDEOMODE_ZXPOLY_256x192);
+      final int[] expected = renderFullScreen(video, VideoController.LineRenderMode.ALL);
+
+      video.setParallelRender(true);
+      video.invalidateScreen();
+      video.renderBeamLines(0, VideoController.ZXSCREEN_ROWS,
+          VideoController.LineRenderMode.ALL);
+      // emulation goes on and changes screen while the frame is rendered
+      for (final ZxPolyModule module : modules) {
+        for (int i = 0; i < 0x1800; i++) {
+          module.writeMemory(module.getCpu(), 0, 0x4000 + i, (byte) ~module.readVideo(i));
+        }
+      }
+      video.waitFrameRender();
+      assertArrayEquals(expected, video.makeCopyOfVideoBuffer(false));
+
+      // cells changed after the copy are rendered by the next frame
+      video.renderBeamLines(0, VideoController.ZXSCREEN_ROWS,
+          VideoController.LineRenderMode.ALL);
+      video.waitFrameRender();
+      final int[] changed = video.makeCopyOfVideoBuffer(false);
+      assertEquals(2L, video.getParallelRenderCounter());
+      video.setParallelRender(false);
+      assertArrayEquals(renderFullScreen(video, VideoController.LineRenderMode.ALL), changed);
+    } finally {
+      board.dispose();
+    }
+  }
+
+  private static long renderReferenceScreen(final BoardMode mode, final int videoMode,
+                                            final boolean flash) throws Exception {
+    final Motherboard board = TestBoards.makeBoard(mode);
+    try {
+      final VideoController video = board.getVideoController();
+      final Random random = new Random(0x5A5AL);
+      for (final ZxPolyModule module : board.getModules()) {
+        // own RAM of every module to get different planes
+        module.fillPortByValues(0, module.getModuleIndex() << 1, 0, 0, 0);
+        for (int i = 0; i < 0x1B00; i++) {
+          module.writeMemory(module.getCpu(), 0, 0x4000 + i, (byte) random.nextInt());
+        }
+      }
+      if (mode == BoardMode.SPEC256) {
+        final ZxPolyModule module = board.getModules()[0];
+        for (int ctx = 1; ctx <= 8; ctx++) {
+          for (int i = 0; i < 0x1B00; i++) {
+            module.writeMemory(module.getCpu(), ctx, 0x4000 + i, (byte) random.nextInt());
+          }
+        }
+      }
+      if (flash) {
+        for (int i = 0; i < 25; i++) {
+          board.step(true, true, false, true, false);
+        }
+      }
+      assertEquals(flash, board.isFlashActive());
+
+      video.setVideoMode(videoMode);
+      video.invalidateScreen();
+      video.syncUpdateBuffer(0, VideoController.ZXSCREEN_ROWS,
+          VideoController.LineRenderMode.ALL);
+      video.copyWorkScreenToOutputScreen(0, 0, VideoController.ZXSCREEN_COLS,
+          VideoController.ZXSCREEN_ROWS);
+
+      final CRC32 crc = new CRC32();
+      for (final int argb : video.makeCopyOfVideoBuffer(false)) {
+        crc.update(argb >>> 24);
+        crc.update(argb >>> 16);
+        crc.update(argb >>> 8);
+        crc.update(argb);
+      }
+      return crc.getValue();
+    } finally {
+      board.dispose();
+    }
+  }
+
+  @Test
+  public void testScreenRenderGivesReferenceFrames() throws Exception {
+    // hashes of frames made by the renderer before cell run tables
+    final Object[][] cases = {
+        {BoardMode.ZX128, ZxPolyConstants.VIDEOMODE_ZX48_CPU0, 0xF74143B1L, 0xB91565CDL},
+        {BoardMode.ZXPOLY, ZxPolyConstants.VIDEOMODE_ZX48_CPU0, 0xF74143B1L, 0xB91565CDL},
+        {BoardMode.ZXPOLY, ZxPolyConstants.VIDEOMODE_ZX48_CPU2, 0x0149C3A6L, 0x1749AC90L},
+        {BoardMode.ZXPOLY, ZxPolyConstants.VIDEOMODE_ZXPOLY_256x192, 0xD5A37AD3L, 0xD5A37AD3L},
+        {BoardMode.ZXPOLY, ZxPolyConstants.VIDEOMODE_ZXPOLY_512x384, 0x9700D76CL, 0x196C1A03L},
+        {BoardMode.ZXPOLY, ZxPolyConstants.VIDEOMODE_ZXPOLY_256x192_INKPAPER_MASK, 0x409A354CL,
+            0x409A354CL},
+        {BoardMode.ZXPOLY, ZxPolyConstants.VIDEOMODE_ZXPOLY_256x192_FLASH_MASK, 0xDDEA8797L,
+            0xDDEA8797L},
+        {BoardMode.SPEC256, ZxPolyConstants.VIDEOMODE_SPEC256, 0xD85AFAFBL, 0xBB7B4CFFL}
+    };
+    for (final Object[] testCase : cases) {
+      final BoardMode mode = (BoardMode) testCase[0];
+      final int videoMode = (Integer) testCase[1];
+      assertEquals(mode + " video mode " + videoMode, (long) (Long) testCase[2],
+          renderReferenceScreen(mode, videoMode, false));
+      assertEquals(mode + " video mode " + videoMode + " flash", (long) (Long) testCase[3],
+          renderReferenceScreen(mode, videoMode, true));
+    }
+  }
+
+  @Test
+  public void testOnlyCompletedFramesVisibleForConsumers() throws Exception {
+    final Motherboard board = TestBoards.makeBoard(BoardMode.ZX128);
+    try {
+      final VideoController video = board.getVideoController();
+      final ZxPolyModule module = board.getModules()[0];
+      for (int i = 0; i < 0x1B00; i++) {
+        module.writeMemory(module.getCpu(), 0, 0x4000 + i, (byte) 0x55);
+      }
+      video.syncUpdateBuffer(0, VideoController.ZXSCREEN_ROWS,
+          VideoController.LineRenderMode.ALL);
+      video.copyWorkScreenToOutputScreen(0, 0, VideoController.ZXSCREEN_COLS,
+          VideoController.ZXSCREEN_ROWS);
+      final int[] first = video.makeCopyOfVideoBuffer(false);
+
+      for (int i = 0; i < 0x1B00; i++) {
+        module.writeMemory(module.getCpu(), 0, 0x4000 + i, (byte) 0xAA);
+      }
+      video.syncUpdateBuffer(0, VideoController.ZXSCREEN_ROWS,
+          VideoController.LineRenderMode.ALL);
+      final int[] second = video.makeCopyOfVideoBuffer(false);
+      assertArrayEquals(first, second);
+
+      for (int line = 0; line < VideoController.ZXSCREEN_ROWS - 1; line++) {
+        video.copyWorkScreenToOutputScreen(0, line, VideoController.ZXSCREEN_COLS, 1);
+        assertArrayEquals(first, video.makeCopyOfVideoBuffer(false));
+      }
+      video.copyWorkScreenToOutputScreen(0, VideoController.ZXSCREEN_ROWS - 1,
+          VideoController.ZXSCREEN_COLS, 1);
+      final int[] third = video.makeCopyOfVideoBuffer(false);
+      assertFalse(Arrays.equals(first, third));
+
+      video.invalidateScreen();
+      video.syncUpdateBuffer(0, VideoController.ZXSCREEN_ROWS,
+          VideoController.LineRenderMode.ALL);
+      video.copyWorkScreenToOutputScreen(0, 0, VideoController.ZXSCREEN_COLS,
+          VideoController.ZXSCREEN_ROWS);
+      assertArrayEquals(third, video.makeCopyOfVideoBuffer(false));
+    } finally {
+      board.dispose();
+    }
+  }
+
+  @Test
+  public void testIncrementalScreenRenderingGivesSameImageAsFullRedraw() throws Exception {
+    final Object[][] cases = {
+        {BoardMode.ZX128, 0},
+        {BoardMode.SPEC256, 8},
+        {BoardMode.ZXPOLY, 4},
+        {BoardMode.ZXPOLY, 5},
+        {BoardMode.ZXPOLY, 6},
+        {BoardMode.ZXPOLY, 7}
+    };
+    for (final Object[] testCase : cases) {
+      final BoardMode mode = (BoardMode) testCase[0];
+      final int videoMode = (Integer) testCase[1];
+      final String message = mode + " video mode " + videoMode;
+      final Motherboard board = TestBoards.makeBoard(mode);
+      try {
+        final VideoController video = board.getVideoController();
+        final Random random = new Random(videoMode);
+        for (int frame = 0; frame < 60; frame++) {
+          board.runUntil(TIMING.tstatesFrame);
+          board.step(true, true, false, true, true);
+          for (int i = 0; i < 64; i++) {
+            final ZxPolyModule module = board.getModules()[random.nextInt(4)];
+            module.writeMemory(module.getCpu(), 0, 0x4000 + random.nextInt(0x1B00),
+                (byte) random.nextInt());
+          }
+          video.setVideoMode(videoMode);
+          video.syncUpdateBuffer(0, VideoController.ZXSCREEN_ROWS,
+              (frame & 1) == 0 ? VideoController.LineRenderMode.EVEN
+                  : VideoController.LineRenderMode.ODD);
+          video.syncUpdateBuffer(0, VideoController.ZXSCREEN_ROWS,
+              (frame & 1) == 0 ? VideoController.LineRenderMode.ODD
+                  : VideoController.LineRenderMode.EVEN);
+          if (frame % 10 == 0) {
+            assertSameAsFullRedraw(message + " frame " + frame, video);
+          }
+        }
+        assertSameAsFullRedraw(message, video);
+      } finally {
+        board.dispose();
+      }
+    }
+  }
+
+  private static int[] runContendedLoop(final boolean parallel) throws Exception {
+    final byte[] rom = new byte[0x4000];
+    TestBoards.put(rom, 0x0000,
+        0xF3, // DI
+        0x21, 0x00, 0x00, // LD HL,0
+        0x3A, 0x00, 0x40, // LD A,(#4000)
+        0x23, // INC HL
+        0x18, 0xFA); // JR #0004
+    final Motherboard board = TestBoards.makeBoard(BoardMode.ZXPOLY, TestBoards.makeRom(rom));
+    try {
+      board.set3D00(ZxPolyConstants.PORTw_ZXPOLY_nWAIT, true);
+      board.setParallelModules(parallel);
+      for (int frame = 0; frame < 5; frame++) {
+        board.runUntil(TIMING.tstatesFrame);
+        board.step(true, true, false, true, true);
+      }
+      final int[] result = new int[4];
+      for (int i = 0; i < result.length; i++) {
+        result[i] = board.getModules()[i].getCpu().getRegisterPair(Z80.REGPAIR_HL);
+      }
+      return result;
+    } finally {
+      board.dispose();
+    }
+  }
+
+  @Test
+  public void testParallelSlavesContendedByOwnClock() throws Exception {
+    final int[] sequential = runContendedLoop(false);
+    assertTrue(sequential[0] > 0);
+    for (int i = 0; i < 3; i++) {
+      assertArrayEquals(sequential, runContendedLoop(true));
+    }
+  }
+
+  @Test
+  public void testDeferredCopyKeepsFrameOfCall() throws Exception {
+    final Motherboard board = TestBoards.makeBoard(BoardMode.ZX128);
+    try {
+      final VideoController video = board.getVideoController();
+      final ZxPolyModule module = board.getModules()[0];
+      video.setTvFilterChain(TvFilterChain.GAUSSIAN_BLUR);
+      for (int i = 0; i < 0x1B00; i++) {
+        module.writeMemory(module.getCpu(), 0, 0x4000 + i, (byte) (i * 7));
+      }
+      video.syncUpdateBuffer(0, VideoController.ZXSCREEN_ROWS,
+          VideoController.LineRenderMode.ALL);
+      video.copyWorkScreenToOutputScreen(0, 0, VideoController.ZXSCREEN_COLS,
+          VideoController.ZXSCREEN_ROWS);
+      final int[] raw = video.makeCopyOfVideoBuffer(false);
+      final int[] filtered = video.makeCopyOfVideoBuffer(true);
+      assertFalse(Arrays.equals(raw, filtered));
+
+      final Supplier<int[]> deferred = video.makeDeferredCopyOfVideoBuffer();
+
+      for (int i = 0; i < 0x1B00; i++) {
+        module.writeMemory(module.getCpu(), 0, 0x4000 + i, (byte) 0xAA);
+      }
+      video.syncUpdateBuffer(0, VideoController.ZXSCREEN_ROWS,
+          VideoController.LineRenderMode.ALL);
+      video.copyWorkScreenToOutputScreen(0, 0, VideoController.ZXSCREEN_COLS,
+          VideoController.ZXSCREEN_ROWS);
+      assertFalse(Arrays.equals(raw, video.makeCopyOfVideoBuffer(false)));
+
+      assertArrayEquals(filtered, deferred.get());
+    } finally {
+      board.dispose();
+    }
+  }
+}
@@ -0,0 +1,106 @@
+package com.igormaznitsa.zxpoly.components;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.igormaznitsa.z80.Z80;
+import com.igormaznitsa.zxpoly.components.tapereader.TapeSource;
+import org.junit.Test;
+
+public class TapeEdgeLoopTest {
+
+  // two seconds of pause before the block and some pilot tone
+  private static final int FRAMES = 110;
+  private static final int RESULT_ADDRESS = 0x8000;
+
+  private static Motherboard makeBoard() throws Exception {
+    final byte[] rom = new byte[0x4000];
+    // save B counter after every edge
+    TestBoards.put(rom, 0x0000,
+        0xF3, // DI
+        0x31, 0x00, 0xFF, // LD SP,#FF00
+        0x21, 0x00, 0x80, // LD HL,#8000
+        0x0E, 0x00, // LD C,0
+        0x06, 0x00, // LD B,0
+        0xCD, 0x00, 0x01, // CALL #0100
+        0x70, // LD (HL),B
+        0x23, // INC HL
+        0x79, // LD A,C
+        0xEE, 0x20, // XOR #20
+        0x4F, // LD C,A
+        0x18, 0xF3); // JR #0009
+    // LD-SAMPLE loop of ROM
+    TestBoards.put(rom, 0x0100,
+        0x04, // INC B
+        0xC8, // RET Z
+        0x3E, 0x7F, // LD A,#7F
+        0xDB, 0xFE, // IN A,(#FE)
+        0x1F, // RRA
+        0xD0, // RET NC
+        0xA9, // XOR C
+        0xE6, 0x20, // AND #20
+        0x28, 0xF3, // JR Z,#0100
+        0xC9); // RET
+
+    return TestBoards.makeBoard(BoardMode.ZX128, TestBoards.makeRom(rom));
+  }
+
+  private static byte[] makeData() {
+    final byte[] data = new byte[64];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) (i * 37);
+    }
+    return data;
+  }
+
+  private static byte[] readResult(final ZxPolyModule module) {
+    final byte[] result =
+        new byte[module.getCpu().getRegisterPair(Z80.REGPAIR_HL) - RESULT_ADDRESS];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = module.readAddress(RESULT_ADDRESS + i);
+    }
+    return result;
+  }
+
+  private static Motherboard run(final boolean acceleration) throws Exception {
+    final Motherboard board = makeBoard();
+    final TapeSource tape = TestBoards.makeTap(makeData());
+    board.getKeyboard().setTap(tape);
+    board.getKeyboard().setEdgeLoopAcceleration(acceleration);
+    assertTrue(tape.startPlay());
+    TestBoards.runFrames(board, FRAMES);
+    return board;
+  }
+
+  @Test
+  public void testSameResultAsExecutedLoop() throws Exception {
+    final Motherboard accelerated = run(true);
+    final Motherboard executed = run(false);
+    try {
+      assertTrue(accelerated.getKeyboard().getSkippedEdgeLoopTstates() > 0L);
+      assertEquals(0L, executed.getKeyboard().getSkippedEdgeLoopTstates());
+
+      final ZxPolyModule module = accelerated.getModules()[0];
+      final ZxPolyModule expectedModule = executed.getModules()[0];
+      final byte[] result = readResult(module);
+      assertArrayEquals(readResult(expectedModule), result);
+      // pilot tone edges must be counted
+      final int lastCounter = result[result.length - 1] & 0xFF;
+      assertTrue(lastCounter > 30 && lastCounter < 40);
+
+      final Z80 cpu = module.getCpu();
+      final Z80 expectedCpu = expectedModule.getCpu();
+      for (final int reg : new int[] {Z80.REG_A, Z80.REG_F, Z80.REG_B, Z80.REG_C, Z80.REG_H,
+          Z80.REG_L, Z80.REG_R, Z80.REG_PC}) {
+        assertEquals("Register " + reg, expectedCpu.getRegister(reg), cpu.getRegister(reg));
+      }
+      assertEquals(executed.getFrameTiStates(), accelerated.getFrameTiStates());
+      assertEquals(executed.getKeyboard().getTap().getTstatesTillNextEdge(),
+          accelerated.getKeyboard().getTap().getTstatesTillNextEdge());
+    } finally {
+      accelerated.dispose();
+      executed.dispose();
+    }
+  }
+}
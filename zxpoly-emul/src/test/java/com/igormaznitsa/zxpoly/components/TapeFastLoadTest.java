@@ -0,0 +1,97 @@
+package com.igormaznitsa.zxpoly.components;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.igormaznitsa.z80.Z80;
+import com.igormaznitsa.zxpoly.components.tapereader.TapeSource;
+import org.junit.Test;
+
+public class TapeFastLoadTest {
+
+  private static final byte[] DATA = new byte[] {1, 2, 3, 4, 5, (byte) 0xAA};
+  // address of endless loop after call of LD-BYTES
+  private static final int ADDRESS_END = 17;
+
+  private static Motherboard makeBoard(final int flag, final boolean load) throws Exception {
+    final byte[] rom = new byte[0x4000];
+    TestBoards.put(rom, 0x0000,
+        0xF3, // DI
+        0x31, 0x00, 0xFF, // LD SP,#FF00
+        0xDD, 0x21, 0x00, 0x80, // LD IX,#8000
+        0x11, DATA.length, 0x00, // LD DE,length
+        0x3E, flag, // LD A,flag
+        load ? 0x37 : 0xB7, // SCF or OR A
+        0xCD, 0x56, 0x05, // CALL LD-BYTES
+        0x18, 0xFE); // JR $
+    // SA/LD-RET
+    TestBoards.put(rom, 0x053F, 0xC9);
+    // LD-BYTES entry, the loop marks that the trap has not worked
+    TestBoards.put(rom, 0x0556, 0x14, 0x08, 0x15, 0xF3, 0x18, 0xFE);
+
+    return TestBoards.makeBoard(BoardMode.ZX128, TestBoards.makeRom(rom));
+  }
+
+  private static ZxPolyModule run(final Motherboard board) {
+    TestBoards.runFrames(board, 3);
+    return board.getModules()[0];
+  }
+
+  @Test
+  public void testLoad() throws Exception {
+    final Motherboard board = makeBoard(0xFF, true);
+    try {
+      final TapeSource tape = TestBoards.makeTap(DATA);
+      board.getKeyboard().setTap(tape);
+      board.getKeyboard().setFastLoad(true);
+
+      final ZxPolyModule module = run(board);
+      final Z80 cpu = module.getCpu();
+      assertEquals(ADDRESS_END, cpu.getRegister(Z80.REG_PC));
+      assertEquals(0x8000 + DATA.length, cpu.getRegister(Z80.REG_IX));
+      assertEquals(0, cpu.getRegisterPair(Z80.REGPAIR_DE));
+      assertEquals(0, cpu.getRegister(Z80.REG_A));
+      assertTrue((cpu.getRegister(Z80.REG_F) & 1) != 0);
+      for (int i = 0; i < DATA.length; i++) {
+        assertEquals(DATA[i], module.readAddress(0x8000 + i));
+      }
+      assertFalse(tape.isPlaying());
+      assertEquals(null, tape.takeStandardBlock());
+    } finally {
+      board.dispose();
+    }
+  }
+
+  @Test
+  public void testWrongFlag() throws Exception {
+    final Motherboard board = makeBoard(0x00, true);
+    try {
+      board.getKeyboard().setTap(TestBoards.makeTap(DATA));
+      board.getKeyboard().setFastLoad(true);
+
+      final Z80 cpu = run(board).getCpu();
+      assertEquals(ADDRESS_END, cpu.getRegister(Z80.REG_PC));
+      assertEquals(0x8000, cpu.getRegister(Z80.REG_IX));
+      assertEquals(DATA.length, cpu.getRegisterPair(Z80.REGPAIR_DE));
+      assertEquals(0, cpu.getRegister(Z80.REG_F) & 1);
+    } finally {
+      board.dispose();
+    }
+  }
+
+  @Test
+  public void testNoTrapIfFastLoadDisabled() throws Exception {
+    final Motherboard board = makeBoard(0xFF, true);
+    try {
+      final TapeSource tape = TestBoards.makeTap(DATA);
+      board.getKeyboard().setTap(tape);
+
+      final Z80 cpu = run(board).getCpu();
+      assertEquals(0x055A, cpu.getRegister(Z80.REG_PC));
+      assertTrue(tape.takeStandardBlock() != null);
+    } finally {
+      board.dispose();
+    }
+  }
+}
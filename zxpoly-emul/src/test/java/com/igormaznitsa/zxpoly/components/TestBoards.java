@@ -0,0 +1,116 @@
+package com.igormaznitsa.zxpoly.components;
+
+import com.igormaznitsa.zxpoly.Bounds;
+import com.igormaznitsa.zxpoly.components.snd.VolumeProfile;
+import com.igormaznitsa.zxpoly.components.tapereader.TapeSource;
+import com.igormaznitsa.zxpoly.components.tapereader.TapeSourceFactory;
+import com.igormaznitsa.zxpoly.components.video.BorderWidth;
+import com.igormaznitsa.zxpoly.components.video.VirtualKeyboardLook;
+import com.igormaznitsa.zxpoly.components.video.timings.TimingProfile;
+import com.igormaznitsa.zxpoly.utils.AppOptions;
+import com.igormaznitsa.zxpoly.utils.Utils;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+
+/**
+ * Boards for tests, all of them use 128K timings and have IO devices inited and reset.
+ */
+final class TestBoards {
+
+  static final TimingProfile TIMING = TimingProfile.SPECTRUM128;
+
+  static {
+    // boards are created without display
+    System.setProperty("java.awt.headless", "true");
+  }
+
+  private TestBoards() {
+  }
+
+  static Motherboard makeBoard(final BoardMode mode) throws Exception {
+    try (final InputStream in = Utils
+        .findResourceOrError("com/igormaznitsa/zxpoly/rom/" + AppOptions.TEST_ROM)) {
+      return makeBoard(mode, RomData.read(AppOptions.TEST_ROM, in));
+    }
+  }
+
+  static Motherboard makeBoard(final BoardMode mode, final RomData rom) throws Exception {
+    final Motherboard board = new Motherboard(
+        BorderWidth.FULL,
+        VolumeProfile.EXPONENTIAL,
+        TIMING,
+        rom,
+        new Bounds(0, 0, -1, -1),
+        mode,
+        false,
+        false,
+        false,
+        false,
+        false,
+        false,
+        VirtualKeyboardLook.DEFAULT.load(),
+        false
+    );
+    board.findIoDevices().forEach(IoDevice::init);
+    board.reset();
+    return board;
+  }
+
+  /**
+   * Make ROM with the same code for all ROM pages.
+   *
+   * @param rom 16 KB of ROM code
+   * @return ROM data
+   */
+  static RomData makeRom(final byte[] rom) {
+    return new RomData("test", rom, rom);
+  }
+
+  static void put(final byte[] rom, final int address, final int... data) {
+    for (int i = 0; i < data.length; i++) {
+      rom[address + i] = (byte) data[i];
+    }
+  }
+
+  /**
+   * Make TAP file with one standard data block (flag #FF) and open it as tape.
+   *
+   * @param data data of the block
+   * @return tape source for the file, the file is removed on exit
+   * @throws IOException if the file can't be written
+   */
+  static TapeSource makeTap(final byte[] data) throws IOException {
+    final ByteArrayOutputStream tap = new ByteArrayOutputStream();
+    tap.write(data.length + 2);
+    tap.write(0);
+    tap.write(0xFF);
+    int checksum = 0xFF;
+    for (final byte b : data) {
+      tap.write(b);
+      checksum ^= b & 0xFF;
+    }
+    tap.write(checksum);
+
+    final File file = File.createTempFile("zxpoly-test", ".tap");
+    file.deleteOnExit();
+    Files.write(file.toPath(), tap.toByteArray());
+    return TapeSourceFactory.makeSource((source, signal) -> {
+    }, TIMING, file);
+  }
+
+  /**
+   * Run board for number of frames, every frame ends with interrupt.
+   *
+   * @param board  board to run
+   * @param frames number of frames
+   */
+  static void runFrames(final Motherboard board, final int frames) {
+    for (int frame = 0; frame < frames; frame++) {
+      board.runUntil(TIMING.tstatesFrame);
+      board.step(true, true, false, true, true);
+    }
+  }
+}
@@ -0,0 +1,165 @@
+package com.igormaznitsa.zxpoly.components;
+
+import static com.igormaznitsa.zxpoly.components.ZxPolyConstants.PORTw_ZX128_ROMRAM;
+import static com.igormaznitsa.zxpoly.components.ZxPolyConstants.PORTw_ZX128_SCREEN;
+import static com.igormaznitsa.zxpoly.components.ZxPolyConstants.PORTw_ZXPOLY_BLOCK;
+import static com.igormaznitsa.zxpoly.components.ZxPolyConstants.REG0w_MEMORY_WRITING_DISABLED;
+import static org.junit.Assert.assertEquals;
+
+import com.igormaznitsa.zxpoly.formats.Spec256Arch;
+import java.util.Random;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ZxPolyModuleTest {
+
+  private static final int[] ADDRESSES =
+      new int[] {0x0000, 0x0001, 0x1234, 0x3FFF, 0x4000, 0x5B00, 0x7FFF, 0x8000, 0xA5A5, 0xBFFF,
+          0xC000, 0xE000, 0xFFFF};
+
+  @BeforeClass
+  public static void beforeClass() {
+    System.setProperty("java.awt.headless", "true");
+  }
+
+  private static void assertPageTable(final ZxPolyModule module, final String message) {
+    for (final int address : ADDRESSES) {
+      assertEquals(message + " address " + Integer.toHexString(address),
+          module.readAddress(address),
+          module.readMemory(module.getCpu(), 0, address, false, false));
+    }
+  }
+
+  @Test
+  public void testPageTableFollows7FFD() throws Exception {
+    for (final BoardMode mode : BoardMode.values()) {
+      final Motherboard board = TestBoards.makeBoard(mode);
+      try {
+        final ZxPolyModule module = board.getModules()[0];
+        for (int value7ffd = 0; value7ffd < 0x100; value7ffd++) {
+          module.write7FFD(value7ffd, true);
+          assertPageTable(module, mode + " 7FFD=" + Integer.toHexString(value7ffd));
+        }
+      } finally {
+        board.dispose();
+      }
+    }
+  }
+
+  @Test
+  public void testPageTableFollowsZxPolyRegisters() throws Exception {
+    final Motherboard board = TestBoards.makeBoard(BoardMode.ZXPOLY);
+    try {
+      for (final ZxPolyModule module : board.getModules()) {
+        for (int heap = 0; heap < 4; heap++) {
+          module.fillPortByValues(PORTw_ZX128_ROMRAM | 3, heap << 1, 0, 0, 0);
+          assertPageTable(module, module + " heap " + heap);
+        }
+      }
+    } finally {
+      board.dispose();
+    }
+  }
+
+  @Test
+  public void testWriteMemoryZx128() throws Exception {
+    final Motherboard board = TestBoards.makeBoard(BoardMode.ZX128);
+    try {
+      final ZxPolyModule module = board.getModules()[0];
+      module.write7FFD(4, true);
+
+      final int romValue = module.readAddress(0x1000) & 0xFF;
+      module.writeMemory(module.getCpu(), 0, 0x1000, (byte) (romValue ^ 0xFF));
+      assertEquals(romValue, module.readAddress(0x1000) & 0xFF);
+
+      module.writeMemory(module.getCpu(), 0, 0xC123, (byte) 0x5A);
+      assertEquals(0x5A, module.readHeap(4 * 0x4000 + 0x123));
+
+      module.write7FFD(0, true);
+      assertEquals(module.readHeap(0x123), module.readAddress(0xC123) & 0xFF);
+      module.write7FFD(4, true);
+      assertEquals(0x5A, module.readAddress(0xC123) & 0xFF);
+    } finally {
+      board.dispose();
+    }
+  }
+
+  @Test
+  public void testWriteMemoryZxPoly() throws Exception {
+    final Motherboard board = TestBoards.makeBoard(BoardMode.ZXPOLY);
+    try {
+      final ZxPolyModule module = board.getModules()[1];
+      board.set3D00(0, true);
+      module.fillPortByValues(PORTw_ZX128_ROMRAM, 1 << 1, 0, 0, 0);
+
+      module.writeMemory(module.getCpu(), 0, 0x0010, (byte) 0x11);
+      assertEquals(0x11, module.readHeap(0x0010));
+
+      board.set3D00(PORTw_ZXPOLY_BLOCK, true);
+      module.writeMemory(module.getCpu(), 0, 0x0010, (byte) 0x22);
+      assertEquals(0x11, module.readHeap(0x0010));
+      module.writeMemory(module.getCpu(), 0, 0x8010, (byte) 0x33);
+      assertEquals(0x33, module.readHeap(0x8010));
+
+      module.fillPortByValues(PORTw_ZX128_ROMRAM, (1 << 1) | REG0w_MEMORY_WRITING_DISABLED, 0, 0,
+          0);
+      module.writeMemory(module.getCpu(), 0, 0x8010, (byte) 0x44);
+      assertEquals(0x33, module.readHeap(0x8010));
+    } finally {
+      board.dispose();
+    }
+  }
+
+  private static long gatherGfxVideo(final byte[] gfxPage, final int videoOffset) {
+    long result = 0L;
+    for (int pixel = 0; pixel < 8; pixel++) {
+      int colorIndex = 0;
+      for (int core = 0; core < 8; core++) {
+        if ((gfxPage[(videoOffset << 3) + core] & (0x80 >> pixel)) != 0) {
+          colorIndex |= 1 << core;
+        }
+      }
+      result = (result << 8) | colorIndex;
+    }
+    return result;
+  }
+
+  private static void assertGfxVideo(final ZxPolyModule module, final String message) {
+    for (final int page : new int[] {5, 7}) {
+      module.write7FFD(page == 5 ? 0 : PORTw_ZX128_SCREEN, true);
+      final byte[] gfxPage = module.getGfxRamPage(page).getGfxData();
+      for (int offset = 0; offset < 0x1800; offset++) {
+        assertEquals(message + " page " + page + " offset " + offset,
+            gatherGfxVideo(gfxPage, offset), module.readGfxVideo(offset));
+      }
+    }
+  }
+
+  @Test
+  public void testGfxVideoFollowsGfxMemory() throws Exception {
+    final Motherboard board = TestBoards.makeBoard(BoardMode.SPEC256);
+    try {
+      final ZxPolyModule module = board.getModules()[0];
+      final Random random = new Random(256);
+      for (int i = 0; i < 20000; i++) {
+        module.write7FFD(random.nextInt(8), true);
+        module.writeMemory(module.getCpu(), 1 + random.nextInt(8), 0x4000 + random.nextInt(0xC000),
+            (byte) random.nextInt());
+      }
+      assertGfxVideo(module, "writeMemory");
+
+      for (int i = 0; i < 20000; i++) {
+        module.writeGfxMemory(random.nextInt(8), random.nextInt(8),
+            0x4000 + random.nextInt(0xC000), random.nextInt(0x100));
+      }
+      assertGfxVideo(module, "writeGfxMemory");
+
+      final byte[] data = new byte[0x4000 * 8];
+      random.nextBytes(data);
+      module.writeGfxRamPage(new Spec256Arch.Spec256GfxOrigPage(7, new byte[0x4000], data));
+      assertGfxVideo(module, "writeGfxRamPage");
+    } finally {
+      board.dispose();
+    }
+  }
+}
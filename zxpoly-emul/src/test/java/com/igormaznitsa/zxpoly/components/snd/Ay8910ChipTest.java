@@ -0,0 +1,91 @@
+package com.igormaznitsa.zxpoly.components.snd;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import org.junit.Test;
+
+public class Ay8910ChipTest {
+
+  private static void writeRandomRegister(final Random rnd, final Ay8910Chip chip1,
+                                          final Ay8910Chip chip2) {
+    final int register = rnd.nextInt(14);
+    final int value;
+    switch (register) {
+      case 1:
+      case 3:
+      case 5:
+      case 12: {
+        value = rnd.nextInt(8) == 0 ? 1 : 0;
+      }
+      break;
+      case 11: {
+        value = rnd.nextInt(6);
+      }
+      break;
+      default: {
+        value = rnd.nextInt(64);
+      }
+      break;
+    }
+    chip1.writeData(register, value);
+    chip2.writeData(register, value);
+  }
+
+  @Test
+  public void testLazyCatchUpGivesSameLevelsAsStepByStep() {
+    final int[] eagerLevels = new int[1];
+    final int[] lazyLevels = new int[1];
+    final int[] lazyCalls = new int[1];
+
+    final Ay8910Chip eager =
+        new Ay8910Chip((ay, a, b, c) -> eagerLevels[0] = a | (b << 4) | (c << 8));
+    final Ay8910Chip lazy = new Ay8910Chip((ay, a, b, c) -> {
+      lazyLevels[0] = a | (b << 4) | (c << 8);
+      lazyCalls[0]++;
+    });
+
+    final Random rnd = new Random(12345L);
+    final int cycles = 1_000_000;
+
+    long syncedAt = 0L;
+    long eventAt = 0L;
+    for (long now = 0L; now < cycles; now++) {
+      if (rnd.nextInt(400) == 0) {
+        lazy.step(now - syncedAt);
+        syncedAt = now;
+        writeRandomRegister(rnd, eager, lazy);
+        eventAt = now + 1;
+      }
+
+      eager.step(1);
+      final long next = now + 1;
+      if (next >= eventAt) {
+        lazy.step(next - syncedAt);
+        syncedAt = next;
+        eventAt = next + Math.max(1, lazy.getMachineCyclesTillNextChange());
+      }
+
+      assertEquals("Cycle " + next, eagerLevels[0], lazyLevels[0]);
+    }
+    assertTrue(lazyCalls[0] < cycles / 16);
+  }
+
+  @Test
+  public void testSilentChipIsNotScheduled() {
+    final Ay8910Chip chip = new Ay8910Chip((ay, a, b, c) -> {
+    });
+    chip.writeData(7, 0x38);
+    chip.writeData(0, 10);
+    assertEquals(Integer.MAX_VALUE, chip.getMachineCyclesTillNextChange());
+
+    chip.writeData(8, 15);
+    assertEquals(10 * 16, chip.getMachineCyclesTillNextChange());
+    chip.step(20);
+    assertEquals(10 * 16 - 20, chip.getMachineCyclesTillNextChange());
+
+    chip.writeData(7, 0x3F);
+    assertEquals(Integer.MAX_VALUE, chip.getMachineCyclesTillNextChange());
+  }
+}
@@ -0,0 +1,70 @@
+package com.igormaznitsa.zxpoly.components.snd;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class SndBlepBufferTest {
+
+  private static int[] endFrame(final SndBlepBuffer buffer) {
+    final byte[] data = new byte[buffer.getSamples() * 2];
+    buffer.endFrame(data, 0, 2);
+    final int[] result = new int[buffer.getSamples()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = (short) ((data[i * 2] & 0xFF) | (data[i * 2 + 1] << 8));
+    }
+    return result;
+  }
+
+  @Test
+  public void testStepReachesLevel() {
+    final SndBlepBuffer buffer = new SndBlepBuffer(200);
+    buffer.addDelta(100L * SndBlepBuffer.PHASES + SndBlepBuffer.PHASES / 2, 10000);
+    final int[] samples = endFrame(buffer);
+
+    for (int i = 0; i < 100 - SndBlepBuffer.KERNEL_WIDTH; i++) {
+      assertEquals(0, samples[i]);
+    }
+    for (int i = 100 + SndBlepBuffer.KERNEL_WIDTH; i < samples.length; i++) {
+      assertEquals(10000, samples[i]);
+    }
+    // edge is smoothed, not a single jump
+    int middleSamples = 0;
+    for (final int sample : samples) {
+      if (sample > 1000 && sample < 9000) {
+        middleSamples++;
+      }
+    }
+    assertTrue(middleSamples > 0);
+  }
+
+  @Test
+  public void testStepAtFrameEndContinuesInNextFrame() {
+    final SndBlepBuffer buffer = new SndBlepBuffer(100);
+    buffer.addDelta(99L * SndBlepBuffer.PHASES, -5000);
+    final int[] first = endFrame(buffer);
+    assertEquals(0, first[50]);
+    final int[] second = endFrame(buffer);
+    assertEquals(-5000, second[SndBlepBuffer.KERNEL_WIDTH]);
+    assertEquals(-5000, second[99]);
+  }
+
+  @Test
+  public void testPulsesKeepZeroLevel() {
+    final SndBlepBuffer buffer = new SndBlepBuffer(960);
+    for (int frame = 0; frame < 10; frame++) {
+      for (long time = 3; time < 950L * SndBlepBuffer.PHASES; time += 77) {
+        buffer.addDelta(time, 20000);
+        buffer.addDelta(time + 13, -20000);
+      }
+      endFrame(buffer);
+    }
+    // kernels of the last pulses come into the next frame
+    endFrame(buffer);
+    final int[] silence = endFrame(buffer);
+    for (final int sample : silence) {
+      assertEquals(0, sample);
+    }
+  }
+}
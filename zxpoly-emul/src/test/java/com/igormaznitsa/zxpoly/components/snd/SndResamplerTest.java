@@ -0,0 +1,67 @@
+package com.igormaznitsa.zxpoly.components.snd;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class SndResamplerTest {
+
+  private static byte[] makeBlock(final int frames, final int start) {
+    final byte[] result = new byte[frames * 4];
+    for (int i = 0; i < frames; i++) {
+      final int left = (start + i) * 10;
+      final int right = -(start + i) * 10;
+      result[i * 4] = (byte) left;
+      result[i * 4 + 1] = (byte) (left >> 8);
+      result[i * 4 + 2] = (byte) right;
+      result[i * 4 + 3] = (byte) (right >> 8);
+    }
+    return result;
+  }
+
+  private static int sample(final byte[] data, final int offset) {
+    return (data[offset] & 0xFF) | (data[offset + 1] << 8);
+  }
+
+  @Test
+  public void testUnitRatioDelaysForOneFrame() {
+    final SndResampler resampler = new SndResampler();
+    final byte[] output = new byte[SndResampler.findMaxOutputLength(400, 1.0d)];
+
+    assertEquals(400, resampler.resample(makeBlock(100, 0), 400, output, 1.0d));
+    assertEquals(0, sample(output, 0));
+    assertEquals(980, sample(output, 396));
+
+    assertEquals(400, resampler.resample(makeBlock(100, 100), 400, output, 1.0d));
+    for (int i = 0; i < 100; i++) {
+      assertEquals((99 + i) * 10, sample(output, i * 4));
+      assertEquals(-(99 + i) * 10, sample(output, i * 4 + 2));
+    }
+  }
+
+  @Test
+  public void testChangedRatioKeepsStreamContinuous() {
+    final SndResampler resampler = new SndResampler();
+    final double ratio = 1.005d;
+    final byte[] output = new byte[SndResampler.findMaxOutputLength(3840, ratio)];
+
+    int outputFrames = 0;
+    int previous = Integer.MIN_VALUE;
+    // ramp starts after silence of the previous frame and must not overflow 16 bit samples
+    for (int block = 0; block < 3; block++) {
+      final int length = resampler.resample(makeBlock(960, block * 960 + 1), 3840, output, ratio);
+      assertTrue(length <= output.length);
+      for (int i = 0; i < length; i += 4) {
+        final int left = sample(output, i);
+        // input is ramp with step 10, so output must be ramp with step 10/ratio
+        if (previous != Integer.MIN_VALUE) {
+          assertTrue(Math.abs(left - previous - 10.0d / ratio) <= 1.0d);
+        }
+        previous = left;
+      }
+      outputFrames += length / 4;
+    }
+    assertEquals(3 * 960 * ratio, outputFrames, 1.0d);
+  }
+}
@@ -0,0 +1,79 @@
+package com.igormaznitsa.zxpoly.components.snd;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import org.junit.Test;
+
+public class SndRingBufferTest {
+
+  @Test
+  public void testWrapAroundAndOverflow() {
+    final SndRingBuffer buffer = new SndRingBuffer(16, 4);
+    final byte[] data = new byte[12];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) (i + 1);
+    }
+
+    assertEquals(12, buffer.write(data, 0, 12));
+    final byte[] read = new byte[8];
+    assertEquals(8, buffer.read(read, 0, 8));
+    assertArrayEquals(Arrays.copyOfRange(data, 0, 8), read);
+
+    // 4 bytes left, 12 free bytes but only whole frames are written
+    assertEquals(12, buffer.write(data, 0, 12));
+    assertEquals(0, buffer.write(data, 0, 4));
+    assertEquals(16, buffer.available());
+
+    final byte[] all = new byte[16];
+    assertEquals(16, buffer.read(all, 0, 16));
+    assertArrayEquals(new byte[] {9, 10, 11, 12, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12}, all);
+    assertEquals(0, buffer.read(all, 0, 16));
+  }
+
+  @Test
+  public void testClear() {
+    final SndRingBuffer buffer = new SndRingBuffer(16, 4);
+    buffer.write(new byte[8], 0, 8);
+    buffer.requestClear();
+    assertEquals(0, buffer.read(new byte[16], 0, 16));
+    assertEquals(0, buffer.available());
+  }
+
+  @Test(timeout = 30000L)
+  public void testProducerConsumerKeepOrder() throws Exception {
+    final SndRingBuffer buffer = new SndRingBuffer(256, 4);
+    final int total = 200_000;
+
+    final Thread producer = new Thread(() -> {
+      final byte[] block = new byte[36];
+      int counter = 0;
+      while (counter < total) {
+        final int length = Math.min(block.length, total - counter);
+        for (int i = 0; i < length; i++) {
+          block[i] = (byte) (counter + i);
+        }
+        final int written = buffer.write(block, 0, length);
+        if (written == 0) {
+          Thread.yield();
+        }
+        counter += written;
+      }
+    });
+    producer.start();
+
+    final byte[] chunk = new byte[20];
+    int counter = 0;
+    while (counter < total) {
+      final int length = buffer.read(chunk, 0, chunk.length);
+      if (length == 0) {
+        Thread.yield();
+      }
+      for (int i = 0; i < length; i++) {
+        assertEquals((byte) counter++, chunk[i]);
+      }
+    }
+    producer.join();
+  }
+}
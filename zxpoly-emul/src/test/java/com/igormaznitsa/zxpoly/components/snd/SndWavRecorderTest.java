@@ -0,0 +1,60 @@
+package com.igormaznitsa.zxpoly.components.snd;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SndWavRecorderTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testDataAndPatchedHeader() throws Exception {
+    final File file = folder.newFile("test.wav");
+    final SndWavRecorder recorder = new SndWavRecorder(file, 1, 2, 44100, 176400, 4, 16);
+
+    // more than one chunk to check hand off between threads
+    final int frames = SndWavRecorder.CHUNK_SIZE / 4 + 1000;
+    for (int i = 0; i < frames; i++) {
+      recorder.writeFrames(i, -i, 1);
+    }
+    recorder.writeFrames(0x1234, -2, 3);
+    recorder.close();
+
+    final ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file.toPath()))
+        .order(ByteOrder.LITTLE_ENDIAN);
+    assertEquals(44 + (frames + 3) * 4, data.limit());
+    assertEquals(0x46464952, data.getInt(0));
+    assertEquals(data.limit() - 8, data.getInt(4));
+    assertEquals(0x61746164, data.getInt(36));
+    assertEquals(data.limit() - 44, data.getInt(40));
+
+    for (int i = 0; i < frames; i++) {
+      assertEquals((short) i, data.getShort(44 + i * 4));
+      assertEquals((short) -i, data.getShort(46 + i * 4));
+    }
+    for (int i = frames; i < frames + 3; i++) {
+      assertEquals(0x1234, data.getShort(44 + i * 4));
+      assertEquals(-2, data.getShort(46 + i * 4));
+    }
+  }
+
+  @Test
+  public void testEmptyRecord() throws Exception {
+    final File file = folder.newFile("empty.wav");
+    new SndWavRecorder(file, 1, 2, 44100, 176400, 4, 16).close();
+
+    final ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file.toPath()))
+        .order(ByteOrder.LITTLE_ENDIAN);
+    assertEquals(44, data.limit());
+    assertEquals(36, data.getInt(4));
+    assertEquals(0, data.getInt(40));
+  }
+}
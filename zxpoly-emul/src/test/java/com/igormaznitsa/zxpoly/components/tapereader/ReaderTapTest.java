@@ -0,0 +1,122 @@
+package com.igormaznitsa.zxpoly.components.tapereader;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class ReaderTapTest {
+
+  private static void writeBlock(final ByteArrayOutputStream out, final int flag,
+                                 final byte[] data) {
+    final int length = data.length + 2;
+    out.write(length & 0xFF);
+    out.write(length >> 8);
+    out.write(flag);
+    int checksum = flag;
+    for (final byte b : data) {
+      out.write(b);
+      checksum ^= b & 0xFF;
+    }
+    out.write(checksum);
+  }
+
+  private static ReaderTap makeReader(final byte[]... blocks) throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (int i = 0; i < blocks.length; i++) {
+      writeBlock(out, i == 0 ? 0x00 : 0xFF, blocks[i]);
+    }
+    return new ReaderTap((source, signal) -> {
+    }, "test", new ByteArrayInputStream(out.toByteArray()));
+  }
+
+  private static byte[] decodePulses(final List<Long> pulses) {
+    // skip pilot tone and two sync pulses
+    int index = 0;
+    while (pulses.get(index) > 2000L) {
+      index++;
+    }
+    index += 2;
+    final ByteArrayOutputStream result = new ByteArrayOutputStream();
+    while (index + 16 <= pulses.size()) {
+      int value = 0;
+      for (int i = 0; i < 8; i++) {
+        final long pulse = pulses.get(index + i * 2);
+        assertEquals(pulse, (long) pulses.get(index + i * 2 + 1));
+        value = (value << 1) | (pulse > 1200L ? 1 : 0);
+      }
+      result.write(value);
+      index += 16;
+    }
+    return result.toByteArray();
+  }
+
+  @Test
+  public void testPlaybackOfBlocks() throws IOException {
+    final byte[] data = new byte[] {1, 2, 3, (byte) 0xFF, 0, (byte) 0xAA};
+    final ReaderTap reader = makeReader(new byte[17], data);
+    assertEquals(0, reader.getCurrentBlockIndex());
+    assertTrue(reader.startPlay());
+
+    final List<List<Long>> blocks = new ArrayList<>();
+    List<Long> pulses = null;
+    boolean level = reader.isHi();
+    long length = 0L;
+    int blockIndex = reader.getCurrentBlockIndex();
+    while (reader.isPlaying()) {
+      reader.updateForSpentMachineCycles(1L);
+      length++;
+      if (reader.getCurrentBlockIndex() != blockIndex) {
+        blockIndex = reader.getCurrentBlockIndex();
+        pulses = null;
+      }
+      if (reader.isHi() != level) {
+        if (pulses != null) {
+          pulses.add(length);
+        } else if (reader.isHi()) {
+          // the first rise after pause starts the block
+          pulses = new ArrayList<>();
+          blocks.add(pulses);
+        }
+        length = 0L;
+        level = reader.isHi();
+      }
+    }
+    assertFalse(reader.isPlaying());
+    assertEquals(1, reader.getCurrentBlockIndex());
+    assertEquals(2, blocks.size());
+
+    final byte[] first = decodePulses(blocks.get(0));
+    assertEquals(19, first.length);
+    assertEquals(0x00, first[0]);
+
+    final byte[] second = decodePulses(blocks.get(1));
+    assertEquals(data.length + 2, second.length);
+    assertEquals((byte) 0xFF, second[0]);
+    final byte[] payload = new byte[data.length];
+    System.arraycopy(second, 1, payload, 0, data.length);
+    assertArrayEquals(data, payload);
+  }
+
+  @Test
+  public void testStartPlayFromSelectedBlock() throws IOException {
+    final ReaderTap reader = makeReader(new byte[17], new byte[10], new byte[20]);
+    reader.setCurrent(2);
+    assertEquals(2, reader.getCurrentBlockIndex());
+    assertTrue(reader.startPlay());
+    assertFalse(reader.isHi());
+    reader.updateForSpentMachineCycles(7_000_000L);
+    assertTrue(reader.isHi());
+    assertEquals(2, reader.getCurrentBlockIndex());
+    reader.updateForSpentMachineCycles(100_000_000L);
+    assertFalse(reader.isPlaying());
+    assertEquals(2, reader.getCurrentBlockIndex());
+  }
+}
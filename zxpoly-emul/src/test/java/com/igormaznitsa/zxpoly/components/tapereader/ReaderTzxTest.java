@@ -0,0 +1,153 @@
+package com.igormaznitsa.zxpoly.components.tapereader;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.igormaznitsa.zxpoly.components.tapereader.tzx.AbstractTzxBlock;
+import com.igormaznitsa.zxpoly.components.tapereader.tzx.TzxBlockStandardSpeedData;
+import com.igormaznitsa.zxpoly.components.tapereader.tzx.TzxFile;
+import com.igormaznitsa.zxpoly.components.tapereader.tzx.TzxPulseStream;
+import com.igormaznitsa.zxpoly.components.tapereader.tzx.TzxWavRenderer;
+import com.igormaznitsa.zxpoly.components.video.timings.TimingProfile;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+public class ReaderTzxTest {
+
+  private static final TimingProfile TIMING = TimingProfile.PENTAGON128;
+
+  private static InputStream openTape(final String name) {
+    return ReaderTzxTest.class.getResourceAsStream("/tzx/" + name + ".tzx");
+  }
+
+  private static ReaderTzx makeReader(final String name) throws IOException {
+    try (InputStream in = openTape(name)) {
+      return new ReaderTzx((source, signal) -> {
+      }, TIMING, name, in);
+    }
+  }
+
+  private static Pulses collectPulses(final String name) throws IOException {
+    final TzxPulseStream stream;
+    try (InputStream in = openTape(name)) {
+      stream = new TzxPulseStream(new TzxFile(in), null);
+    }
+    final Pulses result = new Pulses();
+    final TzxPulseStream.PulseSink sink = new TzxPulseStream.PulseSink() {
+      @Override
+      public void onPulse(final int ticks, final boolean level,
+                          final TzxWavRenderer.DataType type) {
+        result.add(ticks, level);
+      }
+
+      @Override
+      public void onMark(final String name) {
+      }
+    };
+    while (stream.hasNext()) {
+      stream.renderNext(sink);
+    }
+    return result;
+  }
+
+  private static void assertPlayback(final ReaderTzx reader, final Pulses pulses,
+                                     final long startTick, final long tstates) {
+    final long tstatesPerSecond = TIMING.tstatesFrame * 50L;
+    final Random rnd = new Random(333L);
+    assertTrue(reader.startPlay());
+    long time = 0L;
+    while (time < tstates && reader.isPlaying()) {
+      final int step = 1 + rnd.nextInt(23);
+      reader.updateForSpentMachineCycles(step);
+      time += step;
+      final long position =
+          startTick * tstatesPerSecond + time * TzxPulseStream.TSTATES_PER_SECOND;
+      if (reader.isPlaying()) {
+        assertEquals("Time " + time, pulses.levelAt(position, tstatesPerSecond), reader.isHi());
+      }
+    }
+    reader.stopPlay();
+  }
+
+  @Test
+  public void testPlaybackFollowsPulses() throws IOException {
+    final ReaderTzx reader = makeReader("ppt");
+    final Pulses pulses = collectPulses("ppt");
+    assertPlayback(reader, pulses, 0L, Long.MAX_VALUE);
+    assertTrue(reader.getSize() > 0);
+  }
+
+  @Test
+  public void testSeekToMarks() throws IOException {
+    final ReaderTzx reader = makeReader("basil");
+    final Pulses pulses = collectPulses("basil");
+    for (int i = reader.getSize() - 1; i >= 0; i -= 3) {
+      reader.setCurrent(i);
+      assertPlayback(reader, pulses, reader.getElementAt(i).getTick(), 500_000L);
+    }
+  }
+
+  @Test
+  public void testTakeStandardBlocks() throws IOException {
+    final TzxFile file;
+    try (InputStream in = openTape("basil")) {
+      file = new TzxFile(in);
+    }
+    final List<byte[]> expected = new ArrayList<>();
+    for (final AbstractTzxBlock block : file.getBlockList()) {
+      if (block instanceof TzxBlockStandardSpeedData) {
+        expected.add(((TzxBlockStandardSpeedData) block).extractData());
+      }
+    }
+    assertTrue(expected.size() > 1);
+
+    final ReaderTzx reader = makeReader("basil");
+    assertArrayEquals(expected.get(0), reader.takeStandardBlock());
+    assertArrayEquals(expected.get(1), reader.takeStandardBlock());
+
+    // head inside data of block, the next block must be taken
+    reader.setCurrent(0);
+    reader.startPlay();
+    reader.updateForSpentMachineCycles(TIMING.tstatesFrame * 50L * 6L);
+    assertArrayEquals(expected.get(1), reader.takeStandardBlock());
+    assertTrue(reader.isPlaying());
+    reader.stopPlay();
+  }
+
+  private static final class Pulses {
+    private long[] ends = new long[1024];
+    private boolean[] levels = new boolean[1024];
+    private int size;
+    private long total;
+
+    void add(final int ticks, final boolean level) {
+      if (this.size == this.ends.length) {
+        this.ends = Arrays.copyOf(this.ends, this.size * 2);
+        this.levels = Arrays.copyOf(this.levels, this.size * 2);
+      }
+      this.total += ticks;
+      this.ends[this.size] = this.total;
+      this.levels[this.size++] = level;
+    }
+
+    boolean levelAt(final long position, final long scale) {
+      int low = 0;
+      int high = this.size - 1;
+      while (low < high) {
+        final int middle = (low + high) >>> 1;
+        if (this.ends[middle] * scale > position) {
+          high = middle;
+        } else {
+          low = middle + 1;
+        }
+      }
+      return this.levels[low];
+    }
+  }
+}
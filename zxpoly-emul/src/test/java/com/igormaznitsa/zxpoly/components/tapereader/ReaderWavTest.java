@@ -0,0 +1,66 @@
+package com.igormaznitsa.zxpoly.components.tapereader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.igormaznitsa.zxpoly.components.video.timings.TimingProfile;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ReaderWavTest {
+
+  private static final int SAMPLES = 2000;
+  private static final int HALF_PERIOD = 100;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private ReaderWav makeReader() throws Exception {
+    final ByteBuffer buffer = ByteBuffer.allocate(44 + SAMPLES).order(ByteOrder.LITTLE_ENDIAN);
+    buffer.putInt(0x46464952).putInt(buffer.capacity() - 8).putInt(0x45564157);
+    // 8 bit mono PCM
+    buffer.putInt(0x20746D66).putInt(16)
+        .putShort((short) 1).putShort((short) 1).putInt(44100).putInt(44100)
+        .putShort((short) 1).putShort((short) 8);
+    buffer.putInt(0x61746164).putInt(SAMPLES);
+    for (int i = 0; i < SAMPLES; i++) {
+      buffer.put((byte) ((i / HALF_PERIOD) % 2 == 0 ? 0x40 : 0xC0));
+    }
+    final File file = folder.newFile();
+    Files.write(file.toPath(), buffer.array());
+    return new ReaderWav((source, signal) -> {
+    }, TimingProfile.SPECTRUM128, "test", file);
+  }
+
+  @Test(timeout = 10000L)
+  public void testThresholdIsAppliedWithoutHoldingReader() throws Exception {
+    final ReaderWav reader = makeReader();
+    try {
+      reader.startPlay();
+      final long halfPeriodEdge = reader.getTstatesTillNextEdge();
+      assertTrue(halfPeriodEdge > 0L);
+
+      synchronized (reader) {
+        final Thread caller = new Thread(() -> reader.setThreshold(0.9f));
+        caller.start();
+        caller.join(5000L);
+        assertFalse("Caller must not wait for the reader", caller.isAlive());
+        assertEquals(0.9f, reader.getThreshold(), 0.0f);
+      }
+
+      // all samples are below the new threshold so the tape has the only run
+      while (reader.getTstatesTillNextEdge() <= halfPeriodEdge * 2) {
+        Thread.sleep(10L);
+      }
+      assertFalse(reader.isHi());
+    } finally {
+      reader.dispose();
+    }
+  }
+}
@@ -0,0 +1,90 @@
+package com.igormaznitsa.zxpoly.components.tapereader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import org.junit.Test;
+
+public class TapeEdgesTest {
+
+  @Test
+  public void testBuilderMergesSameLevels() {
+    final TapeEdges edges = new TapeEdges.Builder()
+        .add(true, 10)
+        .add(true, 5)
+        .add(false, 0)
+        .add(false, 7)
+        .add(true, 3)
+        .build();
+    assertEquals(3, edges.size());
+    assertEquals(25L, edges.getLength());
+    assertTrue(edges.getLevel(0));
+    assertEquals(15, edges.getRun(0));
+    assertFalse(edges.getLevel(1));
+    assertEquals(7, edges.getRun(1));
+    assertTrue(edges.getLevel(2));
+  }
+
+  @Test
+  public void testLongRunIsSplit() {
+    final TapeEdges edges = new TapeEdges.Builder()
+        .add(false, Integer.MAX_VALUE + 10L)
+        .add(true, 1)
+        .build();
+    assertEquals(Integer.MAX_VALUE + 11L, edges.getLength());
+    final TapeEdges.Cursor cursor = new TapeEdges.Cursor(edges);
+    assertFalse(cursor.isHi());
+    assertTrue(cursor.advance(Integer.MAX_VALUE + 5L));
+    assertFalse(cursor.isHi());
+    assertEquals(5L, cursor.getTstatesTillEdge());
+    assertTrue(cursor.advance(5L));
+    assertTrue(cursor.isHi());
+    assertFalse(cursor.advance(1L));
+  }
+
+  @Test
+  public void testFindRunAndCursor() {
+    final Random rnd = new Random(12345L);
+    final int runs = 3000;
+    final int[] lengths = new int[runs];
+    final TapeEdges.Builder builder = new TapeEdges.Builder();
+    boolean level = true;
+    for (int i = 0; i < runs; i++) {
+      lengths[i] = 1 + rnd.nextInt(3000);
+      builder.add(level, lengths[i]);
+      level = !level;
+    }
+    final TapeEdges edges = builder.build();
+    assertEquals(runs, edges.size());
+
+    long start = 0L;
+    for (int i = 0; i < runs; i++) {
+      assertEquals(start, edges.getRunStart(i));
+      assertEquals(i, edges.findRun(start));
+      assertEquals(i, edges.findRun(start + lengths[i] - 1));
+      start += lengths[i];
+    }
+    assertEquals(runs, edges.findRun(start));
+
+    final TapeEdges.Cursor cursor = new TapeEdges.Cursor(edges);
+    long position = 0L;
+    while (!cursor.isEnd()) {
+      final int run = edges.findRun(position);
+      assertEquals(run, cursor.getRunIndex());
+      assertEquals(position, cursor.getPosition());
+      assertEquals(edges.getLevel(run), cursor.isHi());
+      assertEquals(edges.getRunStart(run) + lengths[run] - position,
+          cursor.getTstatesTillEdge());
+      final int step = 1 + rnd.nextInt(5000);
+      cursor.advance(step);
+      position = Math.min(start, position + step);
+    }
+    assertEquals(start, cursor.getPosition());
+
+    cursor.seek(lengths[0] + 1L);
+    assertEquals(1, cursor.getRunIndex());
+    assertEquals(lengths[1] - 1L, cursor.getTstatesTillEdge());
+  }
+}
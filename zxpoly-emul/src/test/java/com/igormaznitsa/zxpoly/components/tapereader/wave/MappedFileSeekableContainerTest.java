@@ -0,0 +1,118 @@
+package com.igormaznitsa.zxpoly.components.tapereader.wave;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MappedFileSeekableContainerTest {
+
+  private static final int SAMPLES = 1000;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private static byte[] makeWav(final int dataLength) {
+    final ByteBuffer buffer =
+        ByteBuffer.allocate(12 + 24 + 12 + 8 + SAMPLES * 4).order(ByteOrder.LITTLE_ENDIAN);
+    buffer.putInt(0x46464952).putInt(buffer.capacity() - 8).putInt(0x45564157);
+    // 16 bit stereo PCM
+    buffer.putInt(0x20746D66).putInt(16)
+        .putShort((short) 1).putShort((short) 2).putInt(44100).putInt(176400)
+        .putShort((short) 4).putShort((short) 16);
+    // chunk to be skipped
+    buffer.putInt(0x5453494C).putInt(4).putInt(0x12345678);
+    buffer.putInt(0x61746164).putInt(dataLength);
+    for (int i = 0; i < SAMPLES; i++) {
+      buffer.putShort((short) (i * 67 - 30000)).putShort((short) (-i * 13));
+    }
+    return buffer.array();
+  }
+
+  private File writeFile(final byte[] data) throws Exception {
+    final File file = folder.newFile();
+    Files.write(file.toPath(), data);
+    return file;
+  }
+
+  @Test
+  public void testSamplesAcrossWindows() throws Exception {
+    final byte[] wav = makeWav(SAMPLES * 4);
+    final InMemoryWavFile expected = new InMemoryWavFile(new ByteArraySeekableContainer(wav));
+    final InMemoryWavFile mapped;
+    // odd window size to split samples between windows
+    try (final MappedFileSeekableContainer container =
+             new MappedFileSeekableContainer(writeFile(wav), 7)) {
+      mapped = new InMemoryWavFile(container);
+    }
+
+    assertEquals(SAMPLES, mapped.getSampleCount());
+    assertEquals(expected.size(), mapped.size());
+    assertEquals(2, mapped.getNumChannels());
+    assertEquals(44100, mapped.getSampleRate());
+    for (int i = 0; i < SAMPLES; i++) {
+      assertEquals(expected.readSample(i), mapped.readSample(i), 0.0f);
+    }
+  }
+
+  @Test
+  public void testTruncatedData() throws Exception {
+    final InMemoryWavFile expected =
+        new InMemoryWavFile(new ByteArraySeekableContainer(makeWav(SAMPLES * 4)));
+    try (final MappedFileSeekableContainer container =
+             new MappedFileSeekableContainer(writeFile(makeWav(Integer.MAX_VALUE)))) {
+      final InMemoryWavFile mapped = new InMemoryWavFile(container);
+      assertEquals(SAMPLES, mapped.getSampleCount());
+      assertEquals(expected.readSample(SAMPLES - 1), mapped.readSample(SAMPLES - 1), 0.0f);
+    }
+  }
+
+  @Test
+  public void testReadHeaderValues() throws Exception {
+    try (final MappedFileSeekableContainer container =
+             new MappedFileSeekableContainer(writeFile(new byte[] {1, 2, 3, 4, 5, 6, 7}))) {
+      assertEquals(7L, container.length());
+      assertEquals(0x01020304, container.readInt());
+      assertEquals(0x0506, container.readUnsignedShort());
+      assertEquals(6L, container.getFilePointer());
+      assertEquals(1, container.skipBytes(10));
+      container.seek(1L);
+      final byte[] data = new byte[3];
+      container.readFully(data);
+      assertEquals(3, data[1]);
+      assertEquals(4L, container.getFilePointer());
+    }
+  }
+
+  @Test
+  public void testChunkSizesAboveSignedInt() throws Exception {
+    final byte[] wav = makeWav(SAMPLES * 4);
+    final long skippedChunkSize = 0x80000000L;
+    final File file = folder.newFile();
+    // sparse file, only headers and samples are written
+    try (final RandomAccessFile access = new RandomAccessFile(file, "rw")) {
+      final ByteBuffer header = ByteBuffer.allocate(12 + 24 + 8).order(ByteOrder.LITTLE_ENDIAN);
+      header.put(wav, 0, 36);
+      header.putInt(4, (int) (wav.length - 8 + 8 + skippedChunkSize));
+      header.putInt(0x4B4E554A).putInt((int) skippedChunkSize);
+      access.write(header.array());
+      access.seek(header.capacity() + skippedChunkSize);
+      access.write(wav, 48, wav.length - 48);
+    }
+
+    final InMemoryWavFile expected = new InMemoryWavFile(new ByteArraySeekableContainer(wav));
+    try (final MappedFileSeekableContainer container = new MappedFileSeekableContainer(file)) {
+      final InMemoryWavFile mapped = new InMemoryWavFile(container);
+      assertEquals(SAMPLES, mapped.getSampleCount());
+      for (int i = 0; i < SAMPLES; i++) {
+        assertEquals(expected.readSample(i), mapped.readSample(i), 0.0f);
+      }
+    }
+  }
+}
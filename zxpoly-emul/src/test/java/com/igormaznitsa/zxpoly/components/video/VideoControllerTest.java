@@ -0,0 +1,107 @@
+package com.igormaznitsa.zxpoly.components.video;
+
+import static com.igormaznitsa.zxpoly.components.video.VideoController.SCREEN_HEIGHT;
+import static com.igormaznitsa.zxpoly.components.video.VideoController.SCREEN_WIDTH;
+import static org.junit.Assert.assertArrayEquals;
+
+import com.igormaznitsa.zxpoly.components.video.tvfilters.TvFilterChain;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+public class VideoControllerTest {
+
+  private static int[] makeFrame() {
+    final Random random = new Random(777L);
+    final int[] result = new int[SCREEN_WIDTH * SCREEN_HEIGHT];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = 0xFF000000 | random.nextInt(0x1000000);
+    }
+    return result;
+  }
+
+  private static void changePixel(final int[] frame, final int row, final int column) {
+    frame[row * SCREEN_WIDTH + column] ^= 0x00FFFFFF;
+  }
+
+  private static int[] findRuns(final int[] frame, final int[] uploaded, final boolean all) {
+    final int[] runs = new int[SCREEN_HEIGHT];
+    final int count = VideoController.findChangedRowRuns(frame, uploaded, all, runs);
+    assertArrayEquals(frame, uploaded);
+    return Arrays.copyOf(runs, count * 2);
+  }
+
+  @Test
+  public void testFullUploadAndUnchangedFrame() {
+    final int[] frame = makeFrame();
+    final int[] uploaded = new int[frame.length];
+
+    assertArrayEquals(new int[] {0, SCREEN_HEIGHT}, findRuns(frame, uploaded, true));
+    assertArrayEquals(new int[0], findRuns(frame, uploaded, false));
+    assertArrayEquals(new int[0], findRuns(frame.clone(), uploaded, false));
+  }
+
+  @Test
+  public void testSingleRowChanges() {
+    final int[] frame = makeFrame();
+    final int[] uploaded = frame.clone();
+
+    changePixel(frame, 0, 0);
+    assertArrayEquals(new int[] {0, 1}, findRuns(frame, uploaded, false));
+
+    changePixel(frame, 100, SCREEN_WIDTH - 1);
+    assertArrayEquals(new int[] {100, 101}, findRuns(frame, uploaded, false));
+
+    changePixel(frame, SCREEN_HEIGHT - 1, 17);
+    assertArrayEquals(new int[] {SCREEN_HEIGHT - 1, SCREEN_HEIGHT},
+        findRuns(frame, uploaded, false));
+  }
+
+  @Test
+  public void testAdjacentRowsMergedIntoRun() {
+    final int[] frame = makeFrame();
+    final int[] uploaded = frame.clone();
+
+    changePixel(frame, 10, 1);
+    changePixel(frame, 11, 2);
+    changePixel(frame, 12, 3);
+    changePixel(frame, 14, 4);
+    assertArrayEquals(new int[] {10, 13, 14, 15}, findRuns(frame, uploaded, false));
+  }
+
+  @Test
+  public void testSkippedFramesComparedWithUploaded() {
+    final int[] frame = makeFrame();
+    final int[] uploaded = frame.clone();
+
+    // the first frame is not uploaded
+    changePixel(frame, 5, 5);
+    changePixel(frame, 50, 50);
+    // the second frame returns row 50 back and changes row 200
+    changePixel(frame, 50, 50);
+    changePixel(frame, 200, 0);
+
+    assertArrayEquals(new int[] {5, 6, 200, 201}, findRuns(frame, uploaded, false));
+  }
+
+  @Test
+  public void testFilteredFrame() {
+    final int[] frame = makeFrame();
+    final int[] uploaded = frame.clone();
+
+    final int[] filtered = frame.clone();
+    TvFilterChain.GRAYSCALE.apply(filtered, 0xFF000000, false);
+    assertArrayEquals(new int[] {0, SCREEN_HEIGHT}, findRuns(filtered, uploaded, false));
+
+    // the same frame filtered again must not be uploaded
+    final int[] filteredAgain = frame.clone();
+    TvFilterChain.GRAYSCALE.apply(filteredAgain, 0xFF000000, false);
+    assertArrayEquals(new int[0], findRuns(filteredAgain, uploaded, false));
+
+    // change of one row of source changes only the row of filter output
+    changePixel(frame, 77, 33);
+    final int[] filteredChanged = frame.clone();
+    TvFilterChain.GRAYSCALE.apply(filteredChanged, 0xFF000000, false);
+    assertArrayEquals(new int[] {77, 78}, findRuns(filteredChanged, uploaded, false));
+  }
+}
@@ -0,0 +1,59 @@
+package com.igormaznitsa.zxpoly.components.video.tvfilters;
+
+import static com.igormaznitsa.zxpoly.components.video.tvfilters.TvFilter.RASTER_HEIGHT;
+import static com.igormaznitsa.zxpoly.components.video.tvfilters.TvFilter.RASTER_WIDTH_ARGB_INT;
+import static org.junit.Assert.assertArrayEquals;
+
+import java.util.Random;
+import org.junit.Test;
+
+public class TvFilterChainTest {
+
+  private static int[] makeRandomRaster() {
+    final Random random = new Random(12345L);
+    final int[] result = new int[RASTER_WIDTH_ARGB_INT * RASTER_HEIGHT];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = 0xFF000000 | random.nextInt(0x1000000);
+    }
+    return result;
+  }
+
+  @Test
+  public void testGaussianSameAsTwoDimensionalKernel() {
+    final int[] kernel = {1, 2, 1, 2, 4, 2, 1, 2, 1};
+    final int[] source = makeRandomRaster();
+    final int[] expected = source.clone();
+    for (int y = 1; y < RASTER_HEIGHT - 1; y++) {
+      for (int x = 1; x < RASTER_WIDTH_ARGB_INT - 1; x++) {
+        int r = 0;
+        int g = 0;
+        int b = 0;
+        for (int k = 0; k < kernel.length; k++) {
+          final int argb =
+              source[(y + k / 3 - 1) * RASTER_WIDTH_ARGB_INT + x + k % 3 - 1];
+          r += ((argb >>> 16) & 0xFF) * kernel[k];
+          g += ((argb >>> 8) & 0xFF) * kernel[k];
+          b += (argb & 0xFF) * kernel[k];
+        }
+        expected[y * RASTER_WIDTH_ARGB_INT + x] =
+            0xFF000000 | ((r / 16) << 16) | ((g / 16) << 8) | (b / 16);
+      }
+    }
+
+    final int[] result = source.clone();
+    TvFilterChain.GAUSSIAN_BLUR.apply(result, 0xFF0000BE, false);
+    assertArrayEquals(expected, result);
+  }
+
+  @Test
+  public void testParallelSameAsSequential() {
+    final int[] source = makeRandomRaster();
+    for (final TvFilterChain chain : TvFilterChain.values()) {
+      final int[] sequential = source.clone();
+      chain.apply(sequential, 0xFF0000BE, false);
+      final int[] parallel = source.clone();
+      chain.apply(parallel, 0xFF0000BE, true);
+      assertArrayEquals(chain.name(), sequential, parallel);
+    }
+  }
+}
@@ -111,6 +111,116 @@ public final class Z80 {
     FTABLE_SZYXP[0] |= FLAG_Z;
   }
 
+  private static final int DECODE_TABLE_MAIN = 0x000;
+  private static final int DECODE_TABLE_CB = 0x100;
+  private static final int DECODE_TABLE_XYCB = 0x200;
+  private static final int DECODE_TABLE_ED = 0x300;
+
+  private static final int OP_NOP = 0;
+  private static final int OP_EX_AF_AF = 1;
+  private static final int OP_DJNZ = 2;
+  private static final int OP_JR = 3;
+  private static final int OP_JR_CC = 4;
+  private static final int OP_LD_RP_NN = 5;
+  private static final int OP_ADD_HL_RP = 6;
+  private static final int OP_LD_MBC_A = 7;
+  private static final int OP_LD_MDE_A = 8;
+  private static final int OP_LD_MNN_HL = 9;
+  private static final int OP_LD_MNN_A = 10;
+  private static final int OP_LD_A_MBC = 11;
+  private static final int OP_LD_A_MDE = 12;
+  private static final int OP_LD_HL_MNN = 13;
+  private static final int OP_LD_A_MNN = 14;
+  private static final int OP_INC_RP = 15;
+  private static final int OP_DEC_RP = 16;
+  private static final int OP_INC_R = 17;
+  private static final int OP_DEC_R = 18;
+  private static final int OP_LD_R_N = 19;
+  private static final int OP_RLCA = 20;
+  private static final int OP_RRCA = 21;
+  private static final int OP_RLA = 22;
+  private static final int OP_RRA = 23;
+  private static final int OP_DAA = 24;
+  private static final int OP_CPL = 25;
+  private static final int OP_SCF = 26;
+  private static final int OP_CCF = 27;
+  private static final int OP_HALT = 28;
+  private static final int OP_LD_R_R = 29;
+  private static final int OP_ALU_A_R = 30;
+  private static final int OP_RET_CC = 31;
+  private static final int OP_POP_RP = 32;
+  private static final int OP_RET = 33;
+  private static final int OP_EXX = 34;
+  private static final int OP_JP_HL = 35;
+  private static final int OP_LD_SP_HL = 36;
+  private static final int OP_JP_CC = 37;
+  private static final int OP_JP = 38;
+  private static final int OP_PREFIX_CB = 39;
+  private static final int OP_OUT_N_A = 40;
+  private static final int OP_IN_A_N = 41;
+  private static final int OP_EX_MSP_HL = 42;
+  private static final int OP_EX_DE_HL = 43;
+  private static final int OP_DI = 44;
+  private static final int OP_EI = 45;
+  private static final int OP_CALL_CC = 46;
+  private static final int OP_PUSH_RP = 47;
+  private static final int OP_CALL = 48;
+  private static final int OP_PREFIX_DD = 49;
+  private static final int OP_PREFIX_ED = 50;
+  private static final int OP_PREFIX_FD = 51;
+  private static final int OP_ALU_A_N = 52;
+  private static final int OP_RST = 53;
+  private static final int OP_CB_ROT = 54;
+  private static final int OP_CB_BIT = 55;
+  private static final int OP_CB_RES = 56;
+  private static final int OP_CB_SET = 57;
+  private static final int OP_XYCB_ROT_LD = 58;
+  private static final int OP_XYCB_RES_LD = 59;
+  private static final int OP_XYCB_SET_LD = 60;
+  private static final int OP_NONI = 61;
+  private static final int OP_PREFIX_EDCB = 62;
+  private static final int OP_IN_F_MC = 63;
+  private static final int OP_IN_R_MC = 64;
+  private static final int OP_OUT_MC_0 = 65;
+  private static final int OP_OUT_MC_R = 66;
+  private static final int OP_SBC_HL_RP = 67;
+  private static final int OP_ADC_HL_RP = 68;
+  private static final int OP_LD_MNN_RP = 69;
+  private static final int OP_LD_RP_MNN = 70;
+  private static final int OP_NEG = 71;
+  private static final int OP_RETI = 72;
+  private static final int OP_RETN = 73;
+  private static final int OP_IM = 74;
+  private static final int OP_LD_I_A = 75;
+  private static final int OP_LD_R_A = 76;
+  private static final int OP_LD_A_I = 77;
+  private static final int OP_LD_A_R = 78;
+  private static final int OP_RRD = 79;
+  private static final int OP_RLD = 80;
+  private static final int OP_LDI = 81;
+  private static final int OP_CPI = 82;
+  private static final int OP_INI = 83;
+  private static final int OP_OUTI = 84;
+  private static final int OP_LDD = 85;
+  private static final int OP_CPD = 86;
+  private static final int OP_IND = 87;
+  private static final int OP_OUTD = 88;
+  private static final int OP_LDIR = 89;
+  private static final int OP_CPIR = 90;
+  private static final int OP_INIR = 91;
+  private static final int OP_OTIR = 92;
+  private static final int OP_LDDR = 93;
+  private static final int OP_CPDR = 94;
+  private static final int OP_INDR = 95;
+  private static final int OP_OTDR = 96;
+
+  /**
+   * Precomputed decode table for all prefix states, 256 entries for each of
+   * the 0x00(DD,FD), CB, DDCB(FDCB) and ED sub-tables. Every entry packs
+   * handler id in bits 16..31 and two pre-extracted operands in bits 8..15 and 0..7.
+   */
+  private static final int[] DECODE_TABLE = makeDecodeTable();
+
   private final Z80CPUBus bus;
   private final byte[] regSet = new byte[8];
   private final byte[] altRegSet = new byte[8];
@@ -138,6 +248,10 @@ public final class Z80 {
   private int internalRegQ;
   private int internalRegLastQ;
 
+  private boolean tableDecoder = true;
+  private Z80FetchCache fetchCache;
+  private boolean runExitRequested;
+
   public Z80(final Z80CPUBus bus) {
     if (bus == null) {
       throw new NullPointerException("The CPU BUS must not be null");
@@ -179,6 +293,8 @@ public final class Z80 {
     this.prevInSignals = cpu.prevInSignals;
     this.stepAllowsInterruption = cpu.stepAllowsInterruption;
     this.nmiTrigger = cpu.nmiTrigger;
+    this.tableDecoder = cpu.tableDecoder;
+    this.fetchCache = cpu.fetchCache;
     this.bus = cpu.bus;
   }
 
@@ -202,6 +318,177 @@ public final class Z80 {
     return (cmndByte >>> 3) & 1;
   }
 
+  private static int decodeEntry(final int handler, final int a, final int b) {
+    return (handler << 16) | (a << 8) | b;
+  }
+
+  private static int[] makeDecodeTable() {
+    final int[] result = new int[0x400];
+    for (int i = 0; i < 0x100; i++) {
+      result[DECODE_TABLE_MAIN + i] = decodeMain(i);
+      result[DECODE_TABLE_CB + i] = decodeCb(i);
+      result[DECODE_TABLE_XYCB + i] = decodeXyCb(i);
+      result[DECODE_TABLE_ED + i] = decodeEd(i);
+    }
+    return result;
+  }
+
+  private static int decodeMain(final int code) {
+    final int y = extractY(code);
+    final int z = extractZ(code);
+    final int p = extractP(code);
+    final int q = extractQ(code);
+    switch (extractX(code)) {
+      case 0: {
+        switch (z) {
+          case 0: {
+            switch (y) {
+              case 0:
+                return decodeEntry(OP_NOP, 0, 0);
+              case 1:
+                return decodeEntry(OP_EX_AF_AF, 0, 0);
+              case 2:
+                return decodeEntry(OP_DJNZ, 0, 0);
+              case 3:
+                return decodeEntry(OP_JR, 0, 0);
+              default:
+                return decodeEntry(OP_JR_CC, y - 4, 0);
+            }
+          }
+          case 1:
+            return decodeEntry(q == 0 ? OP_LD_RP_NN : OP_ADD_HL_RP, p, 0);
+          case 2: {
+            if (q == 0) {
+              return decodeEntry(
+                  new int[] {OP_LD_MBC_A, OP_LD_MDE_A, OP_LD_MNN_HL, OP_LD_MNN_A}[p], 0, 0);
+            } else {
+              return decodeEntry(
+                  new int[] {OP_LD_A_MBC, OP_LD_A_MDE, OP_LD_HL_MNN, OP_LD_A_MNN}[p], 0, 0);
+            }
+          }
+          case 3:
+            return decodeEntry(q == 0 ? OP_INC_RP : OP_DEC_RP, p, 0);
+          case 4:
+            return decodeEntry(OP_INC_R, y, 0);
+          case 5:
+            return decodeEntry(OP_DEC_R, y, 0);
+          case 6:
+            return decodeEntry(OP_LD_R_N, y, 0);
+          default:
+            return decodeEntry(
+                new int[] {OP_RLCA, OP_RRCA, OP_RLA, OP_RRA, OP_DAA, OP_CPL, OP_SCF, OP_CCF}[y],
+                0, 0);
+        }
+      }
+      case 1:
+        return z == 6 && y == 6 ? decodeEntry(OP_HALT, 0, 0) : decodeEntry(OP_LD_R_R, y, z);
+      case 2:
+        return decodeEntry(OP_ALU_A_R, y, z);
+      default: {
+        switch (z) {
+          case 0:
+            return decodeEntry(OP_RET_CC, y, 0);
+          case 1: {
+            if (q == 0) {
+              return decodeEntry(OP_POP_RP, p, 0);
+            } else {
+              return decodeEntry(new int[] {OP_RET, OP_EXX, OP_JP_HL, OP_LD_SP_HL}[p], 0, 0);
+            }
+          }
+          case 2:
+            return decodeEntry(OP_JP_CC, y, 0);
+          case 3:
+            return decodeEntry(
+                new int[] {OP_JP, OP_PREFIX_CB, OP_OUT_N_A, OP_IN_A_N, OP_EX_MSP_HL, OP_EX_DE_HL,
+                    OP_DI, OP_EI}[y], 0, 0);
+          case 4:
+            return decodeEntry(OP_CALL_CC, y, 0);
+          case 5: {
+            if (q == 0) {
+              return decodeEntry(OP_PUSH_RP, p, 0);
+            } else {
+              return decodeEntry(
+                  new int[] {OP_CALL, OP_PREFIX_DD, OP_PREFIX_ED, OP_PREFIX_FD}[p], 0, 0);
+            }
+          }
+          case 6:
+            return decodeEntry(OP_ALU_A_N, y, 0);
+          default:
+            return decodeEntry(OP_RST, y << 3, 0);
+        }
+      }
+    }
+  }
+
+  private static int decodeCb(final int code) {
+    final int y = extractY(code);
+    final int z = extractZ(code);
+    return decodeEntry(
+        new int[] {OP_CB_ROT, OP_CB_BIT, OP_CB_RES, OP_CB_SET}[extractX(code)], y, z);
+  }
+
+  private static int decodeXyCb(final int code) {
+    final int y = extractY(code);
+    final int z = extractZ(code);
+    switch (extractX(code)) {
+      case 0:
+        return z == 6 ? decodeEntry(OP_CB_ROT, y, 6) : decodeEntry(OP_XYCB_ROT_LD, z, y);
+      case 1:
+        return decodeEntry(OP_CB_BIT, y, 6);
+      case 2:
+        return z == 6 ? decodeEntry(OP_CB_RES, y, 6) : decodeEntry(OP_XYCB_RES_LD, z, y);
+      default:
+        return z == 6 ? decodeEntry(OP_CB_SET, y, 6) : decodeEntry(OP_XYCB_SET_LD, z, y);
+    }
+  }
+
+  private static int decodeEd(final int code) {
+    if (code == 0xCB) {
+      return decodeEntry(OP_PREFIX_EDCB, 0, 0);
+    }
+    final int y = extractY(code);
+    final int z = extractZ(code);
+    final int p = extractP(code);
+    final int q = extractQ(code);
+    switch (extractX(code)) {
+      case 1: {
+        switch (z) {
+          case 0:
+            return y == 6 ? decodeEntry(OP_IN_F_MC, 0, 0) : decodeEntry(OP_IN_R_MC, y, 0);
+          case 1:
+            return y == 6 ? decodeEntry(OP_OUT_MC_0, 0, 0) : decodeEntry(OP_OUT_MC_R, y, 0);
+          case 2:
+            return decodeEntry(q == 0 ? OP_SBC_HL_RP : OP_ADC_HL_RP, p, 0);
+          case 3:
+            return decodeEntry(q == 0 ? OP_LD_MNN_RP : OP_LD_RP_MNN, p, 0);
+          case 4:
+            return decodeEntry(OP_NEG, 0, 0);
+          case 5:
+            return decodeEntry(y == 1 ? OP_RETI : OP_RETN, 0, 0);
+          case 6:
+            return decodeEntry(OP_IM, y, 0);
+          default:
+            return decodeEntry(
+                new int[] {OP_LD_I_A, OP_LD_R_A, OP_LD_A_I, OP_LD_A_R, OP_RRD, OP_RLD, OP_NOP,
+                    OP_NOP}[y], 0, 0);
+        }
+      }
+      case 2: {
+        if (z <= 3 && y >= 4) {
+          return decodeEntry(new int[] {
+              OP_LDI, OP_CPI, OP_INI, OP_OUTI,
+              OP_LDD, OP_CPD, OP_IND, OP_OUTD,
+              OP_LDIR, OP_CPIR, OP_INIR, OP_OTIR,
+              OP_LDDR, OP_CPDR, OP_INDR, OP_OTDR}[((y - 4) << 2) | z], 0, 0);
+        } else {
+          return decodeEntry(OP_NONI, 0, 0);
+        }
+      }
+      default:
+        return decodeEntry(OP_NONI, 0, 0);
+    }
+  }
+
   /**
    * Parse string with id of registers and prepare bit vector for it.
    * main set: <b>A,F,B,C,D,E,H,L,1(F without C)</b>
@@ -269,6 +556,43 @@ public final class Z80 {
     return this;
   }
 
+  /**
+   * Select instruction decoder. The table decoder dispatches every opcode
+   * through precomputed per-prefix tables, the legacy decoder extracts opcode
+   * fields through nested switches for every executed instruction. Both
+   * decoders produce the same results.
+   *
+   * @param flag true to use the table decoder (default), false to use the legacy decoder
+   * @return the instance
+   * @since 2.3.4
+   */
+  public Z80 setTableDecoder(final boolean flag) {
+    this.tableDecoder = flag;
+    return this;
+  }
+
+  public boolean isTableDecoder() {
+    return this.tableDecoder;
+  }
+
+  /**
+   * Set cache to share instruction bytes with other CPUs executing the same instruction stream.
+   * Bytes found in the cache are taken without bus call, so that bus doesn't get memory read
+   * notification for them.
+   *
+   * @param cache cache of instruction bytes, can be null to read all bytes through bus
+   * @return the instance
+   * @since 2.3.4
+   */
+  public Z80 setFetchCache(final Z80FetchCache cache) {
+    this.fetchCache = cache;
+    return this;
+  }
+
+  public Z80FetchCache getFetchCache() {
+    return this.fetchCache;
+  }
+
   public int getMemPtr() {
     return this.memptr;
   }
@@ -404,6 +728,18 @@ public final class Z80 {
     return this.outSignals;
   }
 
+  void storeRegisters(final byte[][] registers, final int lane) {
+    for (int i = REG_A; i <= REG_L; i++) {
+      registers[i][lane] = this.regSet[i];
+    }
+  }
+
+  void loadRegisters(final byte[][] registers, final int lane) {
+    for (int i = REG_A; i <= REG_L; i++) {
+      this.regSet[i] = registers[i][lane];
+    }
+  }
+
   public Z80CPUBus getBus() {
     return this.bus;
   }
@@ -477,11 +813,11 @@ public final class Z80 {
 
     switch (this.im) {
       case 0: {
-        _step(ctx, this.bus.onCPURequestDataLines(this, ctx) & 0xFF, true);
+        _decode(ctx, this.bus.onCPURequestDataLines(this, ctx) & 0xFF, true);
       }
       break;
       case 1: {
-        _step(ctx, 0xFF, true);
+        _decode(ctx, 0xFF, true);
       }
       break;
       case 2: {
@@ -555,10 +891,12 @@ public final class Z80 {
 
   private int _readport(final int ctx, final int port) {
     this.tiStates += 4;
+    this.runExitRequested = true;
     return this.bus.readPort(this, ctx, port & 0xFFFF) & 0xFF;
   }
 
   private void _writeport(final int ctx, final int port, final int value) {
+    this.runExitRequested = true;
     this.bus.writePort(this, ctx, port & 0xFFFF, (byte) value);
     this.tiStates += 4;
   }
@@ -593,7 +931,14 @@ public final class Z80 {
     this.regPC = (this.regPC + 1) & 0xFFFF;
     this.outSignals =
         (m1 ? this.outSignals & (~SIGNAL_OUT_nM1) : this.outSignals | SIGNAL_OUT_nM1) & 0xFF;
-    final int result = this.bus.readMemory(this, ctx, pc, m1 && nonDisplacementByte, true) & 0xFF;
+    final Z80FetchCache cache = this.fetchCache;
+    int result = cache == null ? -1 : cache.get(pc);
+    if (result < 0) {
+      result = this.bus.readMemory(this, ctx, pc, m1 && nonDisplacementByte, true) & 0xFF;
+      if (cache != null) {
+        cache.put(pc, result);
+      }
+    }
     this.outSignals = this.outSignals | SIGNAL_OUT_nM1;
 
     this.tiStates += m1 ? 4 : 3;
@@ -661,7 +1006,13 @@ public final class Z80 {
    * @see #parseAndPackRegAlignValue(String)
    * @since 2.0.1
    */
-  public Z80 alignRegisterValuesWith(final Z80 src, int packedRegisterFlags) {
+  public Z80 alignRegisterValuesWith(final Z80 src, final int packedRegisterFlags) {
+    this.alignStateWith(src);
+    this.alignRegistersWith(src, packedRegisterFlags);
+    return this;
+  }
+
+  void alignStateWith(final Z80 src) {
     this.cbDisplacementByte = src.cbDisplacementByte;
     this.prefix = src.prefix;
     this.iff1 = src.iff1;
@@ -674,61 +1025,60 @@ public final class Z80 {
     this.prevInSignals = src.prevInSignals;
     this.stepAllowsInterruption = src.stepAllowsInterruption;
     this.nmiTrigger = src.nmiTrigger;
+  }
 
+  void alignRegistersWith(final Z80 src, int packedRegisterFlags) {
     if (packedRegisterFlags == 0) {
       this.regPC = src.regPC;
       this.regSP = src.regSP;
     } else {
       //"AFBCDEHL XxYy10PSs afbcdehl"
-      int pos = 0;
       while (packedRegisterFlags != 0) {
-        if ((packedRegisterFlags & 1) != 0) {
-          if (pos < 8) {
-            this.regSet[pos] = src.regSet[pos];
-          } else if (pos < 17) {
-            switch (pos - 8) {
-              case 0:
-                this.regIX = (this.regIX & 0xFF) | (src.regIX & 0xFF00);
-                break;
-              case 1:
-                this.regIX = (this.regIX & 0xFF00) | (src.regIX & 0xFF);
-                break;
-              case 2:
-                this.regIY = (this.regIY & 0xFF) | (src.regIY & 0xFF00);
-                break;
-              case 3:
-                this.regIY = (this.regIY & 0xFF00) | (src.regIY & 0xFF);
-                break;
-              case 4:
-                this.regSet[REG_F] =
-                    (byte) ((this.regSet[REG_F] & FLAG_C) | (src.regSet[REG_F] & ~FLAG_C));
-                break;
-              case 5:
-                this.altRegSet[REG_F] =
-                    (byte) ((this.altRegSet[REG_F] & FLAG_C) | (src.altRegSet[REG_F] & ~FLAG_C));
-                break;
-              case 6:
-                this.regPC = src.regPC;
-                break;
-              case 7:
-                this.regSP = (this.regSP & 0xFF) | (src.regSP & 0xFF00);
-                break;
-              case 8:
-                this.regSP = (this.regSP & 0xFF00) | (src.regSP & 0xFF);
-                break;
-              default:
-                throw new Error("Unexpected state");
-            }
-          } else {
-            final int reg = pos - 17;
-            this.altRegSet[reg] = src.altRegSet[reg];
+        // visit only set bits because the method is called for every GFX core step
+        final int pos = Integer.numberOfTrailingZeros(packedRegisterFlags);
+        packedRegisterFlags &= packedRegisterFlags - 1;
+        if (pos < 8) {
+          this.regSet[pos] = src.regSet[pos];
+        } else if (pos < 17) {
+          switch (pos - 8) {
+            case 0:
+              this.regIX = (this.regIX & 0xFF) | (src.regIX & 0xFF00);
+              break;
+            case 1:
+              this.regIX = (this.regIX & 0xFF00) | (src.regIX & 0xFF);
+              break;
+            case 2:
+              this.regIY = (this.regIY & 0xFF) | (src.regIY & 0xFF00);
+              break;
+            case 3:
+              this.regIY = (this.regIY & 0xFF00) | (src.regIY & 0xFF);
+              break;
+            case 4:
+              this.regSet[REG_F] =
+                  (byte) ((this.regSet[REG_F] & FLAG_C) | (src.regSet[REG_F] & ~FLAG_C));
+              break;
+            case 5:
+              this.altRegSet[REG_F] =
+                  (byte) ((this.altRegSet[REG_F] & FLAG_C) | (src.altRegSet[REG_F] & ~FLAG_C));
+              break;
+            case 6:
+              this.regPC = src.regPC;
+              break;
+            case 7:
+              this.regSP = (this.regSP & 0xFF) | (src.regSP & 0xFF00);
+              break;
+            case 8:
+              this.regSP = (this.regSP & 0xFF00) | (src.regSP & 0xFF);
+              break;
+            default:
+              throw new Error("Unexpected state");
           }
+        } else {
+          final int reg = pos - 17;
+          this.altRegSet[reg] = src.altRegSet[reg];
         }
-        packedRegisterFlags >>>= 1;
-        pos++;
       }
     }
-    return this;
   }
 
   private int readReg8(final int ctx, final int r) {
@@ -1022,6 +1372,48 @@ public final class Z80 {
     return spentTstates;
   }
 
+  /**
+   * Execute instructions until spent T-states reach the budget. Incoming signals are the same
+   * for all steps of the run so that the budget must not cross a moment where external signals
+   * should be changed (for instance start or end of INT). The run is also stopped after an
+   * instruction which has accessed an I/O port, after entering HALT state and after call of
+   * {@link #requestRunExit()}. The run is always stopped on instruction boundary (if nWAIT is not
+   * active) so that spent T-states can be greater than the budget.
+   *
+   * @param ctx          context of method call, will be propagated to all sub-calls
+   * @param tstateBudget number of T-states to be executed
+   * @param signals      external signal states for all steps of the run
+   * @return spent T-states during the run
+   * @since 2.3.4
+   */
+  public int runFor(final int ctx, final int tstateBudget, final int signals) {
+    final boolean wait = (signals & SIGNAL_IN_nWAIT) == 0;
+    this.runExitRequested = false;
+
+    int spentTstates = 0;
+    boolean inProgress;
+    do {
+      final boolean haltBefore = (this.outSignals & SIGNAL_OUT_nHALT) == 0;
+      inProgress = this.step(ctx, signals);
+      spentTstates += this.tiStates;
+      if (!haltBefore && (this.outSignals & SIGNAL_OUT_nHALT) == 0) {
+        this.runExitRequested = true;
+      }
+    } while ((inProgress && !wait) || (spentTstates < tstateBudget && !this.runExitRequested));
+
+    return spentTstates;
+  }
+
+  /**
+   * Request stop of current {@link #runFor(int, int, int)} call after the current instruction,
+   * it can be called from bus methods.
+   *
+   * @since 2.3.4
+   */
+  public void requestRunExit() {
+    this.runExitRequested = true;
+  }
+
   /**
    * Process one step.
    *
@@ -1056,25 +1448,8 @@ public final class Z80 {
         final boolean incomingInterrupt =
             this.nmiTrigger || (this.iff1 && (incomingSignals & SIGNAL_IN_nINT) == 0);
 
-        if (_step(ctx, readInstrOrPrefix(ctx, true), incomingInterrupt)) {
-          // Command completed
-          this.prefix = 0;
-          result = false;
-
-          if (this.stepAllowsInterruption) {
-            // Check interruptions
-            if (this.nmiTrigger) {
-              // NMI
-              this.nmiTrigger = false;
-              _nmi(ctx);
-            } else if (this.iff1 && (incomingSignals & SIGNAL_IN_nINT) == 0) {
-              // INT
-              _int(ctx);
-            }
-          }
-        } else {
-          result = true;
-        }
+        result =
+            _execute(ctx, readInstrOrPrefix(ctx, true), incomingInterrupt, incomingSignals);
       }
 
       return result;
@@ -1083,6 +1458,100 @@ public final class Z80 {
     }
   }
 
+  private boolean _execute(final int ctx, final int commandByte,
+                           final boolean incomingInterrupt, final int incomingSignals) {
+    if (_decode(ctx, commandByte, incomingInterrupt)) {
+      // Command completed
+      this.prefix = 0;
+
+      if (this.stepAllowsInterruption) {
+        // Check interruptions
+        if (this.nmiTrigger) {
+          // NMI
+          this.nmiTrigger = false;
+          _nmi(ctx);
+        } else if (this.iff1 && (incomingSignals & SIGNAL_IN_nINT) == 0) {
+          // INT
+          _int(ctx);
+        }
+      }
+      return false;
+    } else {
+      return true;
+    }
+  }
+
+  /**
+   * Check that the next step with the signals starts new instruction and can't be affected by
+   * signals or interruptions, so that the instruction can be executed in lockstep with other CPUs.
+   *
+   * @param incomingSignals signals of the next step
+   * @return true if the step can be executed in lockstep
+   * @see Z80Lanes
+   */
+  boolean isLockstepReady(final int incomingSignals) {
+    return this.prefix == 0
+        && !this.nmiTrigger
+        && (incomingSignals & (SIGNAL_IN_nWAIT | SIGNAL_IN_nRESET))
+        == (SIGNAL_IN_nWAIT | SIGNAL_IN_nRESET)
+        && !isHiLoFront(this.prevInSignals, incomingSignals, SIGNAL_IN_nNMI)
+        && !(this.iff1 && (incomingSignals & SIGNAL_IN_nINT) == 0);
+  }
+
+  /**
+   * Start step of lockstep ready CPU and fetch its instruction byte.
+   *
+   * @param ctx context of the step
+   * @return fetched instruction byte
+   * @see #isLockstepReady(int)
+   */
+  int beginLockstepStep(final int ctx) {
+    this.tiStates = 0;
+    this.stepAllowsInterruption = true;
+    this.internalRegLastQ = this.internalRegQ;
+    this.internalRegQ = 0;
+    return readInstrOrPrefix(ctx, true);
+  }
+
+  /**
+   * Fetch operand byte of instruction started by {@link #beginLockstepStep(int)}.
+   *
+   * @param ctx context of the step
+   * @return fetched byte
+   */
+  int fetchLockstepOperand(final int ctx) {
+    return readInstrOrPrefix(ctx, false);
+  }
+
+  /**
+   * Execute instruction started by {@link #beginLockstepStep(int)} in regular way and complete
+   * the step.
+   *
+   * @param ctx             context of the step
+   * @param commandByte     instruction byte returned by {@link #beginLockstepStep(int)}
+   * @param incomingSignals signals of the step
+   * @return false if there is not any instruction under processing, true otherwise
+   */
+  boolean continueLockstepStep(final int ctx, final int commandByte, final int incomingSignals) {
+    try {
+      return _execute(ctx, commandByte, false, incomingSignals);
+    } finally {
+      this.prevInSignals = incomingSignals;
+    }
+  }
+
+  /**
+   * Complete step of instruction executed in lockstep outside of the CPU.
+   *
+   * @param regQ            value of internal Q register after the instruction
+   * @param incomingSignals signals of the step
+   */
+  void endLockstepStep(final int regQ, final int incomingSignals) {
+    this.internalRegQ = regQ;
+    this.prefix = 0;
+    this.prevInSignals = incomingSignals;
+  }
+
   private boolean _step(final int ctx, final int commandByte, final boolean incommingInterrupt) {
     this.lastInstructionByte = commandByte;
 
@@ -1512,6 +1981,366 @@ public final class Z80 {
     return commandCompleted;
   }
 
+  private boolean _decode(final int ctx, final int commandByte, final boolean incomingInterrupt) {
+    return this.tableDecoder ? _stepByTable(ctx, commandByte, incomingInterrupt)
+        : _step(ctx, commandByte, incomingInterrupt);
+  }
+
+  private boolean _stepByTable(final int ctx, final int commandByte,
+                               final boolean incomingInterrupt) {
+    this.lastInstructionByte = commandByte;
+
+    final int table;
+    switch (this.prefix) {
+      case 0x00:
+      case 0xDD:
+      case 0xFD:
+        table = DECODE_TABLE_MAIN;
+        break;
+      case 0xCB:
+        table = DECODE_TABLE_CB;
+        break;
+      case 0xDDCB:
+      case 0xFDCB: {
+        if (this.cbDisplacementByte < 0) {
+          this.cbDisplacementByte = commandByte;
+          return false;
+        }
+        table = DECODE_TABLE_XYCB;
+      }
+      break;
+      case 0xED: {
+        table = DECODE_TABLE_ED;
+        this.prefix = 0;
+      }
+      break;
+      default:
+        throw new Error("Illegal prefix state [0x"
+            + Integer.toHexString(this.prefix).toUpperCase(Locale.ENGLISH) + ']');
+    }
+
+    final int entry = DECODE_TABLE[table | commandByte];
+    final int a = (entry >>> 8) & 0xFF;
+    final int b = entry & 0xFF;
+
+    boolean commandCompleted = true;
+
+    switch (entry >>> 16) {
+      case OP_NOP:
+        doNOP();
+        break;
+      case OP_EX_AF_AF:
+        doEX_AF_AF();
+        break;
+      case OP_DJNZ:
+        doDJNZ(ctx);
+        break;
+      case OP_JR:
+        doJR(ctx);
+        break;
+      case OP_JR_CC:
+        doJR(ctx, a);
+        break;
+      case OP_LD_RP_NN:
+        doLDRegPairByNextWord(ctx, a);
+        break;
+      case OP_ADD_HL_RP:
+        doADD_HL_RegPair(a);
+        break;
+      case OP_LD_MBC_A:
+        doLD_mBC_A(ctx);
+        break;
+      case OP_LD_MDE_A:
+        doLD_mDE_A(ctx);
+        break;
+      case OP_LD_MNN_HL:
+        doLD_mNN_HL(ctx);
+        break;
+      case OP_LD_MNN_A:
+        doLD_mNN_A(ctx);
+        break;
+      case OP_LD_A_MBC:
+        doLD_A_mBC(ctx);
+        break;
+      case OP_LD_A_MDE:
+        doLD_A_mDE(ctx);
+        break;
+      case OP_LD_HL_MNN:
+        doLD_HL_mem(ctx);
+        break;
+      case OP_LD_A_MNN:
+        doLD_A_mem(ctx);
+        break;
+      case OP_INC_RP:
+        doINCRegPair(a);
+        break;
+      case OP_DEC_RP:
+        doDECRegPair(a);
+        break;
+      case OP_INC_R:
+        doINCReg(ctx, a);
+        break;
+      case OP_DEC_R:
+        doDECReg(ctx, a);
+        break;
+      case OP_LD_R_N:
+        doLD_Reg_ByValue(ctx, a);
+        break;
+      case OP_RLCA:
+        doRLCA();
+        break;
+      case OP_RRCA:
+        doRRCA();
+        break;
+      case OP_RLA:
+        doRLA();
+        break;
+      case OP_RRA:
+        doRRA();
+        break;
+      case OP_DAA:
+        doDAA();
+        break;
+      case OP_CPL:
+        doCPL();
+        break;
+      case OP_SCF:
+        doSCF();
+        break;
+      case OP_CCF:
+        doCCF();
+        break;
+      case OP_HALT:
+        doHalt();
+        break;
+      case OP_LD_R_R:
+        doLDRegByReg(ctx, a, b);
+        break;
+      case OP_ALU_A_R:
+        doALU_A_Reg(ctx, a, b);
+        break;
+      case OP_RET_CC:
+        doRETByFlag(ctx, a);
+        break;
+      case OP_POP_RP:
+        doPOPRegPair(ctx, a);
+        break;
+      case OP_RET:
+        doRET(ctx);
+        break;
+      case OP_EXX:
+        doEXX();
+        break;
+      case OP_JP_HL:
+        doJP_HL(ctx);
+        break;
+      case OP_LD_SP_HL:
+        doLD_SP_HL(ctx);
+        break;
+      case OP_JP_CC:
+        doJP_cc(ctx, a);
+        break;
+      case OP_JP:
+        doJP(ctx);
+        break;
+      case OP_PREFIX_CB: {
+        this.prefix = (this.prefix << 8) | 0xCB;
+        this.cbDisplacementByte = -1;
+        commandCompleted = false;
+      }
+      break;
+      case OP_OUT_N_A:
+        doOUTnA(ctx);
+        break;
+      case OP_IN_A_N:
+        doIN_A_n(ctx);
+        break;
+      case OP_EX_MSP_HL:
+        doEX_mSP_HL(ctx);
+        break;
+      case OP_EX_DE_HL:
+        doEX_DE_HL();
+        break;
+      case OP_DI:
+        doDI();
+        break;
+      case OP_EI:
+        doEI();
+        break;
+      case OP_CALL_CC:
+        doCALL(ctx, a);
+        break;
+      case OP_PUSH_RP:
+        doPUSH(ctx, a);
+        break;
+      case OP_CALL:
+        doCALL(ctx);
+        break;
+      case OP_PREFIX_DD: {
+        this.prefix = 0xDD;
+        commandCompleted = false;
+      }
+      break;
+      case OP_PREFIX_ED: {
+        this.prefix = 0xED;
+        commandCompleted = false;
+      }
+      break;
+      case OP_PREFIX_FD: {
+        this.prefix = 0xFD;
+        commandCompleted = false;
+      }
+      break;
+      case OP_ALU_A_N:
+        doALU_A_n(ctx, a);
+        break;
+      case OP_RST:
+        doRST(ctx, a);
+        break;
+      case OP_CB_ROT:
+        doRollShift(ctx, a, b);
+        break;
+      case OP_CB_BIT:
+        doBIT(ctx, a, b);
+        break;
+      case OP_CB_RES:
+        doRES(ctx, a, b);
+        break;
+      case OP_CB_SET:
+        doSET(ctx, a, b);
+        break;
+      case OP_XYCB_ROT_LD:
+        doROTmem_LDreg(ctx, a, b);
+        break;
+      case OP_XYCB_RES_LD:
+        doRESmem_LDreg(ctx, a, b);
+        break;
+      case OP_XYCB_SET_LD:
+        doSETmem_LDreg(ctx, a, b);
+        break;
+      case OP_NONI:
+        doNONI();
+        break;
+      case OP_PREFIX_EDCB:
+        this.prefix = 0xEDCB;
+        break;
+      case OP_IN_F_MC:
+        doIN_C(ctx);
+        break;
+      case OP_IN_R_MC:
+        doIN_C(ctx, a);
+        break;
+      case OP_OUT_MC_0:
+        doOUT_C(ctx);
+        break;
+      case OP_OUT_MC_R:
+        doOUT_C(ctx, a);
+        break;
+      case OP_SBC_HL_RP:
+        doSBC_HL_RegPair(a);
+        break;
+      case OP_ADC_HL_RP:
+        doADC_HL_RegPair(a);
+        break;
+      case OP_LD_MNN_RP:
+        doLD_mNN_RegP(ctx, a);
+        break;
+      case OP_LD_RP_MNN:
+        doLD_RegP_mNN(ctx, a);
+        break;
+      case OP_NEG:
+        doNEG();
+        break;
+      case OP_RETI:
+        doRETI(ctx);
+        break;
+      case OP_RETN:
+        doRETN(ctx);
+        break;
+      case OP_IM:
+        doIM(a);
+        break;
+      case OP_LD_I_A:
+        doLD_I_A();
+        break;
+      case OP_LD_R_A:
+        doLD_R_A();
+        break;
+      case OP_LD_A_I:
+        doLD_A_I(incomingInterrupt);
+        break;
+      case OP_LD_A_R:
+        doLD_A_R(incomingInterrupt);
+        break;
+      case OP_RRD:
+        doRRD(ctx);
+        break;
+      case OP_RLD:
+        doRLD(ctx);
+        break;
+      case OP_LDI:
+        doLDI(ctx);
+        break;
+      case OP_CPI:
+        doCPI(ctx);
+        break;
+      case OP_INI:
+        doINI_IND(ctx, true);
+        break;
+      case OP_OUTI:
+        doOUTI_OUTD(ctx, true);
+        break;
+      case OP_LDD:
+        doLDD(ctx);
+        break;
+      case OP_CPD:
+        doCPD(ctx);
+        break;
+      case OP_IND:
+        doINI_IND(ctx, false);
+        break;
+      case OP_OUTD:
+        doOUTI_OUTD(ctx, false);
+        break;
+      case OP_LDIR:
+        doLDIR(ctx);
+        break;
+      case OP_CPIR:
+        doCPIR(ctx);
+        break;
+      case OP_INIR:
+        doINIR(ctx);
+        break;
+      case OP_OTIR:
+        doOTIR(ctx);
+        break;
+      case OP_LDDR:
+        doLDDR(ctx);
+        break;
+      case OP_CPDR:
+        doCPDR(ctx);
+        break;
+      case OP_INDR:
+        doINDR(ctx);
+        break;
+      case OP_OTDR:
+        doOTDR(ctx);
+        break;
+      default:
+        throw new Error("Unexpected decode table entry [0x"
+            + Integer.toHexString(entry).toUpperCase(Locale.ENGLISH) + ']');
+    }
+
+    if (table == DECODE_TABLE_CB) {
+      this.prefix = 0;
+    } else if (table == DECODE_TABLE_XYCB) {
+      this.prefix = 0;
+      this.cbDisplacementByte = -1;
+    }
+
+    return commandCompleted;
+  }
+
   private void doNONI() {
     this.prefix = 0;
     this.stepAllowsInterruption = false;
@@ -1837,18 +2666,47 @@ public final class Z80 {
     this.tiStates += 2;
   }
 
-  private void doINCReg(final int ctx, final int y) {
-    final int x = readReg8(ctx, y);
+  /**
+   * Calculate flags of INC 8 bit register.
+   *
+   * @param x     unsigned value before increment
+   * @param flags current flags
+   * @return new flags
+   */
+  static int flagsOfInc8(final int x, final int flags) {
+    final int z = x + 1;
+    final int c = x ^ z;
 
-    int z = x + 1;
-    int c = x ^ z;
+    int f = flags & FLAG_C;
+    f |= (c & FLAG_H);
+    f |= FTABLE_SZYX[z & 0xff];
+    f |= FTABLE_OVERFLOW[(c >>> 7) & 0x03];
+    return f;
+  }
 
-    int f = this.regSet[REG_F] & FLAG_C;
+  /**
+   * Calculate flags of DEC 8 bit register.
+   *
+   * @param x     unsigned value before decrement
+   * @param flags current flags
+   * @return new flags
+   */
+  static int flagsOfDec8(final int x, final int flags) {
+    final int z = x - 1;
+    final int c = x ^ z;
+
+    int f = FLAG_N | (flags & FLAG_C);
     f |= (c & FLAG_H);
     f |= FTABLE_SZYX[z & 0xff];
     f |= FTABLE_OVERFLOW[(c >>> 7) & 0x03];
+    return f;
+  }
+
+  private void doINCReg(final int ctx, final int y) {
+    final int x = readReg8(ctx, y);
+    final int f = flagsOfInc8(x, this.regSet[REG_F]);
 
-    writeReg8_UseCachedInstructionByte(ctx, y, z);
+    writeReg8_UseCachedInstructionByte(ctx, y, x + 1);
     this.internalRegQ = f;
     this.regSet[REG_F] = (byte) f;
   }
@@ -1856,16 +2714,9 @@ public final class Z80 {
   private void doDECReg(final int ctx, final int y) {
     final int x = readReg8(ctx, y);
 
-    final int z = x - 1;
-    final int c = x ^ z;
-
-    writeReg8_UseCachedInstructionByte(ctx, y, z);
-
-    int f = FLAG_N | (this.regSet[REG_F] & FLAG_C);
-    f |= (c & FLAG_H);
-    f |= FTABLE_SZYX[z & 0xff];
-    f |= FTABLE_OVERFLOW[(c >>> 7) & 0x03];
+    writeReg8_UseCachedInstructionByte(ctx, y, x - 1);
 
+    final int f = flagsOfDec8(x, this.regSet[REG_F]);
     this.internalRegQ = f;
     this.regSet[REG_F] = (byte) f;
   }
@@ -2118,90 +2969,112 @@ public final class Z80 {
     _aluAccumulatorOp(ctx, op, REG_UNKNOWN, readInstrOrPrefix(ctx, false));
   }
 
-  private void _aluAccumulatorOp(final int ctx, final int op, final int regIndex, final int value) {
-    final int a = this.regSet[REG_A] & 0xFF;
-    final int flagC = this.regSet[REG_F] & FLAG_C;
-
-    final int result;
+  /**
+   * Calculate result of 8 bit ALU operation over accumulator.
+   *
+   * @param op    ALU operation (ADD, ADC, SUB, SBC, AND, XOR, OR, CP)
+   * @param a     unsigned accumulator value
+   * @param value unsigned operand
+   * @param flagC carry flag, 0 or 1
+   * @return not masked result of operation
+   */
+  static int resultOfAlu8(final int op, final int a, final int value, final int flagC) {
+    switch (op) {
+      case 0: // ADD
+        return a + value;
+      case 1: // ADC
+        return a + value + flagC;
+      case 2: // SUB
+      case 7: // CP
+        return a - value;
+      case 3: // SBC
+        return a - value - flagC;
+      case 4: // AND
+        return a & value;
+      case 5: // XOR
+        return a ^ value;
+      case 6: // OR
+        return a | value;
+      default:
+        throw new Error("Detected unexpected ALU operation [" + op + ']');
+    }
+  }
 
+  /**
+   * Calculate flags of 8 bit ALU operation over accumulator.
+   *
+   * @param op     ALU operation (ADD, ADC, SUB, SBC, AND, XOR, OR, CP)
+   * @param a      unsigned accumulator value
+   * @param value  unsigned operand
+   * @param result result of {@link #resultOfAlu8(int, int, int, int)}, for logical operations
+   *               must be unsigned byte
+   * @return new flags
+   */
+  static int flagsOfAlu8(final int op, final int a, final int value, final int result) {
     int f;
-
     switch (op) {
-      case 0: { // ADD
-        int z = a + value;
-        int c = a ^ value ^ z;
-        f = c & FLAG_H;
-        f |= FTABLE_SZYX[z & 0xff];
-        f |= FTABLE_OVERFLOW[c >>> 7];
-        f |= z >>> (8 - FLAG_C_SHIFT);
-        result = z;
-      }
-      break;
+      case 0: // ADD
       case 1: { // ADC
-        int z = a + value + flagC;
-        int c = a ^ value ^ z;
+        final int c = a ^ value ^ result;
         f = c & FLAG_H;
-        f |= FTABLE_SZYX[z & 0xff];
+        f |= FTABLE_SZYX[result & 0xff];
         f |= FTABLE_OVERFLOW[c >>> 7];
-        f |= z >>> (8 - FLAG_C_SHIFT);
-        result = z;
-      }
-      break;
-      case 2: { // SUB
-        int z = a - value;
-        int c = a ^ value ^ z;
-        f = FLAG_N | (c & FLAG_H);
-        f |= FTABLE_SZYX[z & 0xff];
-        c &= 0x0180;
-        f |= FTABLE_OVERFLOW[c >>> 7];
-        f |= c >>> (8 - FLAG_C_SHIFT);
-        result = z;
+        f |= result >>> (8 - FLAG_C_SHIFT);
       }
       break;
+      case 2: // SUB
       case 3: { // SBC
-        int z = a - value - flagC;
-        int c = a ^ value ^ z;
+        int c = a ^ value ^ result;
         f = FLAG_N | (c & FLAG_H);
-        f |= FTABLE_SZYX[z & 0xff];
+        f |= FTABLE_SZYX[result & 0xff];
         c &= 0x0180;
         f |= FTABLE_OVERFLOW[c >>> 7];
         f |= c >>> (8 - FLAG_C_SHIFT);
-        result = z;
       }
       break;
-      case 4: { // AND
-        result = this.bus.postProcessAnd(this, ctx, regIndex, a, value, a & value);
+      case 4: // AND
         f = FTABLE_SZYXP[result] | FLAG_H;
-      }
-      break;
-      case 5: { // XOR
-        result = this.bus.postProcessXor(this, ctx, regIndex, a, value, a ^ value);
-        f = FTABLE_SZYXP[result];
-      }
-      break;
-      case 6: { // OR
-        result = this.bus.postProcessOr(this, ctx, regIndex, a, value, a | value);
+        break;
+      case 5: // XOR
+      case 6: // OR
         f = FTABLE_SZYXP[result];
-      }
-      break;
+        break;
       case 7: { // CP
-        int z = a - value;
-
-        int c = a ^ value ^ z;
+        int c = a ^ value ^ result;
         f = FLAG_N | (c & FLAG_H);
-        f |= FTABLE_SZYX[z & 0xff] & FLAG_SZ;
+        f |= FTABLE_SZYX[result & 0xff] & FLAG_SZ;
         f |= value & FLAG_XY;
         c &= 0x0180;
         f |= FTABLE_OVERFLOW[c >>> 7];
         f |= c >>> (8 - FLAG_C_SHIFT);
-
-        result = a;
       }
       break;
       default:
         throw new Error("Detected unexpected ALU operation [" + op + ']');
     }
-    this.regSet[REG_A] = (byte) result;
+    return f;
+  }
+
+  private void _aluAccumulatorOp(final int ctx, final int op, final int regIndex, final int value) {
+    final int a = this.regSet[REG_A] & 0xFF;
+
+    int result = resultOfAlu8(op, a, value, this.regSet[REG_F] & FLAG_C);
+    switch (op) {
+      case 4: // AND
+        result = this.bus.postProcessAnd(this, ctx, regIndex, a, value, result);
+        break;
+      case 5: // XOR
+        result = this.bus.postProcessXor(this, ctx, regIndex, a, value, result);
+        break;
+      case 6: // OR
+        result = this.bus.postProcessOr(this, ctx, regIndex, a, value, result);
+        break;
+      default:
+        break;
+    }
+
+    final int f = flagsOfAlu8(op, a, value, result);
+    this.regSet[REG_A] = (byte) (op == 7 ? a : result);
     this.internalRegQ = f;
     this.regSet[REG_F] = (byte) f;
   }
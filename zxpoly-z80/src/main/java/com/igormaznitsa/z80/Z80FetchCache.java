@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2014-2024 Igor Maznitsa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.igormaznitsa.z80;
+
+import java.util.Arrays;
+
+/**
+ * Small direct mapped cache of instruction bytes which can be shared between several CPUs
+ * executing the same instruction stream in lockstep (for instance Spec256 GFX cores). The first
+ * CPU makes real bus read and other ones get the same bytes without bus calls. The cache must be
+ * reset by the owner before every step and every time when memory under instructions can be
+ * changed.
+ *
+ * @see Z80#setFetchCache(Z80FetchCache)
+ * @since 2.3.4
+ */
+public final class Z80FetchCache {
+
+  private static final int SIZE = 16;
+  private static final int MASK = SIZE - 1;
+
+  private final int[] addresses = new int[SIZE];
+  private final byte[] values = new byte[SIZE];
+
+  public Z80FetchCache() {
+    this.reset();
+  }
+
+  /**
+   * Remove all cached bytes.
+   */
+  public void reset() {
+    Arrays.fill(this.addresses, -1);
+  }
+
+  /**
+   * Get cached byte.
+   *
+   * @param address memory address
+   * @return cached unsigned byte or -1 if there is not cached value for the address
+   */
+  public int get(final int address) {
+    final int index = address & MASK;
+    return this.addresses[index] == address ? this.values[index] & 0xFF : -1;
+  }
+
+  /**
+   * Put byte into cache.
+   *
+   * @param address memory address
+   * @param value   byte read from the address
+   */
+  public void put(final int address, final int value) {
+    final int index = address & MASK;
+    this.addresses[index] = address;
+    this.values[index] = (byte) value;
+  }
+}
@@ -0,0 +1,367 @@
+/*
+ * Copyright (C) 2014-2024 Igor Maznitsa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.igormaznitsa.z80;
+
+import static com.igormaznitsa.z80.Z80.FLAG_C;
+import static com.igormaznitsa.z80.Z80.REG_A;
+import static com.igormaznitsa.z80.Z80.REG_F;
+import static com.igormaznitsa.z80.Z80.REG_L;
+import static com.igormaznitsa.z80.Z80.REG_PC;
+import static com.igormaznitsa.z80.Z80.REG_UNKNOWN;
+
+import java.util.Arrays;
+
+/**
+ * Group of CPUs executing the same instruction stream with own data (for instance Spec256 GFX
+ * cores). If all CPUs are at the same address and the instruction is a simple register operation
+ * (NOP, LD r,r', LD r,n, INC r, DEC r, ALU A,r, ALU A,n) then the instruction is decoded once and
+ * executed for all lanes over register file kept as structure of arrays, other instructions are
+ * executed by every CPU in regular way. Registers A,F,B,C,D,E,H,L are moved between the lane
+ * register file and CPUs only when execution mode changes.
+ *
+ * @since 2.3.4
+ */
+public final class Z80Lanes {
+
+  private static final int LOCKSTEP_NONE = 0;
+  private static final int LOCKSTEP_NOP = 1;
+  private static final int LOCKSTEP_LD_R_R = 2;
+  private static final int LOCKSTEP_LD_R_N = 3;
+  private static final int LOCKSTEP_INC_R = 4;
+  private static final int LOCKSTEP_DEC_R = 5;
+  private static final int LOCKSTEP_ALU_R = 6;
+  private static final int LOCKSTEP_ALU_N = 7;
+
+  // "AFBCDEHL" and "1" (F without C) bits of packed register align flags
+  private static final int LANE_ALIGN_FLAGS = 0xFF;
+  private static final int LANE_ALIGN_FLAG_F_WITHOUT_C = 1 << 12;
+
+  private static final int[] LOCKSTEP_TABLE = new int[0x100];
+
+  static {
+    for (int i = 0; i < 0x100; i++) {
+      final int x = i >>> 6;
+      final int y = (i >>> 3) & 7;
+      final int z = i & 7;
+
+      final int entry;
+      if (i == 0x00) {
+        entry = LOCKSTEP_NOP << 16;
+      } else if (x == 0 && z == 4 && y != 6) {
+        entry = (LOCKSTEP_INC_R << 16) | (toRegIndex(y) << 8);
+      } else if (x == 0 && z == 5 && y != 6) {
+        entry = (LOCKSTEP_DEC_R << 16) | (toRegIndex(y) << 8);
+      } else if (x == 0 && z == 6 && y != 6) {
+        entry = (LOCKSTEP_LD_R_N << 16) | (toRegIndex(y) << 8);
+      } else if (x == 1 && y != 6 && z != 6) {
+        entry = (LOCKSTEP_LD_R_R << 16) | (toRegIndex(y) << 8) | toRegIndex(z);
+      } else if (x == 2 && z != 6) {
+        entry = (LOCKSTEP_ALU_R << 16) | (y << 8) | z;
+      } else if (x == 3 && z == 6) {
+        entry = (LOCKSTEP_ALU_N << 16) | (y << 8);
+      } else {
+        entry = LOCKSTEP_NONE;
+      }
+      LOCKSTEP_TABLE[i] = entry;
+    }
+  }
+
+  private final Z80[] cores;
+  private final byte[][] registers;
+  private final int[] commands;
+  private final int[] operands;
+  private final int[] regQ;
+  private boolean registersInLanes;
+  private long lockstepCounter;
+
+  /**
+   * Constructor.
+   *
+   * @param cores CPUs of lanes, must not be null or empty
+   */
+  public Z80Lanes(final Z80[] cores) {
+    if (cores.length == 0) {
+      throw new IllegalArgumentException("Lanes must contain at least one CPU");
+    }
+    this.cores = cores.clone();
+    this.registers = new byte[REG_L + 1][cores.length];
+    this.commands = new int[cores.length];
+    this.operands = new int[cores.length];
+    this.regQ = new int[cores.length];
+  }
+
+  private static int toRegIndex(final int r) {
+    return r == 7 ? REG_A : r + 2;
+  }
+
+  /**
+   * Get number of lanes.
+   *
+   * @return number of lanes
+   */
+  public int size() {
+    return this.cores.length;
+  }
+
+  /**
+   * Get CPU of lane with actual register values.
+   *
+   * @param lane index of lane
+   * @return CPU of the lane
+   */
+  public Z80 getCore(final int lane) {
+    this.syncToCores();
+    return this.cores[lane];
+  }
+
+  /**
+   * Get number of steps executed in lockstep over lane register file.
+   *
+   * @return number of lockstep steps
+   */
+  public long getLockstepCounter() {
+    return this.lockstepCounter;
+  }
+
+  /**
+   * Call {@link Z80#fillByState(Z80)} for all lanes.
+   *
+   * @param source source CPU, must not be null
+   * @return the instance
+   */
+  public Z80Lanes fillByState(final Z80 source) {
+    this.registersInLanes = false;
+    for (final Z80 core : this.cores) {
+      core.fillByState(source);
+    }
+    return this;
+  }
+
+  /**
+   * Call {@link Z80#alignRegisterValuesWith(Z80, int)} for all lanes.
+   *
+   * @param source              source CPU, must not be null
+   * @param packedRegisterFlags bit flags describe needed registers
+   * @return the instance
+   * @see Z80#parseAndPackRegAlignValue(String)
+   */
+  public Z80Lanes alignRegisterValuesWith(final Z80 source, final int packedRegisterFlags) {
+    if (!this.registersInLanes) {
+      for (final Z80 core : this.cores) {
+        core.alignRegisterValuesWith(source, packedRegisterFlags);
+      }
+      return this;
+    }
+
+    final int coreFlags =
+        packedRegisterFlags & ~(LANE_ALIGN_FLAGS | LANE_ALIGN_FLAG_F_WITHOUT_C);
+    for (final Z80 core : this.cores) {
+      core.alignStateWith(source);
+      // zero flags means PC and SP for CPU, so call only if there is anything for the CPU
+      if (packedRegisterFlags == 0 || coreFlags != 0) {
+        core.alignRegistersWith(source, coreFlags);
+      }
+    }
+
+    int laneFlags = packedRegisterFlags & LANE_ALIGN_FLAGS;
+    while (laneFlags != 0) {
+      final int reg = Integer.numberOfTrailingZeros(laneFlags);
+      laneFlags &= laneFlags - 1;
+      Arrays.fill(this.registers[reg], (byte) source.getRegister(reg));
+    }
+    if ((packedRegisterFlags & LANE_ALIGN_FLAG_F_WITHOUT_C) != 0) {
+      final int flags = source.getRegister(REG_F) & ~FLAG_C;
+      final byte[] laneF = this.registers[REG_F];
+      for (int i = 0; i < laneF.length; i++) {
+        laneF[i] = (byte) ((laneF[i] & FLAG_C) | flags);
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Make step of all lanes, every lane gets own context.
+   *
+   * @param firstCtx        context of the first lane, next lanes get next values
+   * @param incomingSignals external signal states for all lanes
+   */
+  public void step(final int firstCtx, final int incomingSignals) {
+    final Z80[] lanes = this.cores;
+    final int pc = lanes[0].getRegister(REG_PC);
+    for (final Z80 core : lanes) {
+      if (!core.isLockstepReady(incomingSignals) || core.getRegister(REG_PC) != pc) {
+        this.syncToCores();
+        for (int i = 0; i < lanes.length; i++) {
+          lanes[i].step(firstCtx + i, incomingSignals);
+        }
+        return;
+      }
+    }
+
+    final int command = lanes[0].beginLockstepStep(firstCtx);
+    final int entry = LOCKSTEP_TABLE[command];
+    if (entry == LOCKSTEP_NONE) {
+      this.syncToCores();
+      lanes[0].continueLockstepStep(firstCtx, command, incomingSignals);
+      for (int i = 1; i < lanes.length; i++) {
+        lanes[i].step(firstCtx + i, incomingSignals);
+      }
+      return;
+    }
+
+    final int[] laneCommands = this.commands;
+    laneCommands[0] = command;
+    boolean sameCommand = true;
+    for (int i = 1; i < lanes.length; i++) {
+      laneCommands[i] = lanes[i].beginLockstepStep(firstCtx + i);
+      sameCommand &= laneCommands[i] == command;
+    }
+    if (!sameCommand) {
+      // memory under instruction is not the same for lanes
+      this.syncToCores();
+      for (int i = 0; i < lanes.length; i++) {
+        lanes[i].continueLockstepStep(firstCtx + i, laneCommands[i], incomingSignals);
+      }
+      return;
+    }
+
+    final int kind = entry >>> 16;
+    if (kind == LOCKSTEP_LD_R_N || kind == LOCKSTEP_ALU_N) {
+      for (int i = 0; i < lanes.length; i++) {
+        this.operands[i] = lanes[i].fetchLockstepOperand(firstCtx + i);
+      }
+    }
+
+    this.syncToLanes();
+    this.executeLockstep(firstCtx, kind, (entry >>> 8) & 0xFF, entry & 0xFF);
+
+    for (int i = 0; i < lanes.length; i++) {
+      lanes[i].endLockstepStep(this.regQ[i], incomingSignals);
+    }
+    this.lockstepCounter++;
+  }
+
+  private void executeLockstep(final int firstCtx, final int kind, final int a, final int b) {
+    final byte[][] regs = this.registers;
+    final int[] q = this.regQ;
+    switch (kind) {
+      case LOCKSTEP_NOP: {
+        Arrays.fill(q, 0);
+      }
+      break;
+      case LOCKSTEP_LD_R_R: {
+        System.arraycopy(regs[b], 0, regs[a], 0, q.length);
+        Arrays.fill(q, 0);
+      }
+      break;
+      case LOCKSTEP_LD_R_N: {
+        final byte[] target = regs[a];
+        for (int i = 0; i < target.length; i++) {
+          target[i] = (byte) this.operands[i];
+        }
+        Arrays.fill(q, 0);
+      }
+      break;
+      case LOCKSTEP_INC_R: {
+        final byte[] target = regs[a];
+        final byte[] flags = regs[REG_F];
+        for (int i = 0; i < target.length; i++) {
+          final int x = target[i] & 0xFF;
+          final int f = Z80.flagsOfInc8(x, flags[i]);
+          target[i] = (byte) (x + 1);
+          flags[i] = (byte) f;
+          q[i] = f;
+        }
+      }
+      break;
+      case LOCKSTEP_DEC_R: {
+        final byte[] target = regs[a];
+        final byte[] flags = regs[REG_F];
+        for (int i = 0; i < target.length; i++) {
+          final int x = target[i] & 0xFF;
+          final int f = Z80.flagsOfDec8(x, flags[i]);
+          target[i] = (byte) (x - 1);
+          flags[i] = (byte) f;
+          q[i] = f;
+        }
+      }
+      break;
+      case LOCKSTEP_ALU_R: {
+        final byte[] source = regs[toRegIndex(b)];
+        for (int i = 0; i < source.length; i++) {
+          this.aluAccumulatorOp(firstCtx + i, i, a, b, source[i] & 0xFF);
+        }
+      }
+      break;
+      case LOCKSTEP_ALU_N: {
+        for (int i = 0; i < q.length; i++) {
+          this.aluAccumulatorOp(firstCtx + i, i, a, REG_UNKNOWN, this.operands[i]);
+        }
+      }
+      break;
+      default:
+        throw new Error("Unexpected lockstep operation [" + kind + ']');
+    }
+  }
+
+  private void aluAccumulatorOp(final int ctx, final int lane, final int op, final int regIndex,
+                                final int value) {
+    final byte[] laneA = this.registers[REG_A];
+    final byte[] laneF = this.registers[REG_F];
+    final int a = laneA[lane] & 0xFF;
+
+    int result = Z80.resultOfAlu8(op, a, value, laneF[lane] & FLAG_C);
+    final Z80 core = this.cores[lane];
+    switch (op) {
+      case 4: // AND
+        result = core.getBus().postProcessAnd(core, ctx, regIndex, a, value, result);
+        break;
+      case 5: // XOR
+        result = core.getBus().postProcessXor(core, ctx, regIndex, a, value, result);
+        break;
+      case 6: // OR
+        result = core.getBus().postProcessOr(core, ctx, regIndex, a, value, result);
+        break;
+      default:
+        break;
+    }
+
+    final int f = Z80.flagsOfAlu8(op, a, value, result);
+    laneA[lane] = (byte) (op == 7 ? a : result);
+    laneF[lane] = (byte) f;
+    this.regQ[lane] = f;
+  }
+
+  private void syncToLanes() {
+    if (!this.registersInLanes) {
+      for (int i = 0; i < this.cores.length; i++) {
+        this.cores[i].storeRegisters(this.registers, i);
+      }
+      this.registersInLanes = true;
+    }
+  }
+
+  private void syncToCores() {
+    if (this.registersInLanes) {
+      for (int i = 0; i < this.cores.length; i++) {
+        this.cores[i].loadRegisters(this.registers, i);
+      }
+      this.registersInLanes = false;
+    }
+  }
+}
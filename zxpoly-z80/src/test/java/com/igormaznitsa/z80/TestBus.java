@@ -126,6 +126,10 @@ public final class TestBus implements Z80CPUBus {
 
   }
 
+  public boolean isSameMemoryAndPorts(final TestBus other) {
+    return Arrays.equals(this.memory, other.memory) && Arrays.equals(this.ports, other.ports);
+  }
+
   public int getPortValue(final int port) {
     return this.ports[port] & 0xFF;
   }
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2024 Igor Maznitsa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.igormaznitsa.z80;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class Z80FetchCacheTest {
+
+  @Test
+  public void testCacheGetPut() {
+    final Z80FetchCache cache = new Z80FetchCache();
+    assertEquals(-1, cache.get(0x1234));
+    cache.put(0x1234, 0xFE);
+    assertEquals(0xFE, cache.get(0x1234));
+    assertEquals(-1, cache.get(0x1244));
+    cache.put(0x1244, 0x00);
+    assertEquals(0x00, cache.get(0x1244));
+    assertEquals(-1, cache.get(0x1234));
+    cache.reset();
+    assertEquals(-1, cache.get(0x1244));
+  }
+
+  @Test
+  public void testSharedBetweenCpus() {
+    // LD BC,#1234
+    final TestBus bus = new TestBus(0xFF, 0, 0x01, 0x34, 0x12);
+    final Z80FetchCache cache = new Z80FetchCache();
+
+    final Z80 first = new Z80(bus).setFetchCache(cache);
+    final Z80 second = new Z80(first);
+    assertSame(cache, second.getFetchCache());
+
+    first.step(0, Z80.SIGNAL_IN_ALL_INACTIVE);
+    assertEquals(0x1234, first.getRegisterPair(Z80.REGPAIR_BC));
+
+    // LD BC,#5678, the second CPU must get bytes from cache
+    bus.block(0, 0x01, 0x78, 0x56);
+    second.step(0, Z80.SIGNAL_IN_ALL_INACTIVE);
+    assertEquals(0x1234, second.getRegisterPair(Z80.REGPAIR_BC));
+    assertEquals(first.getStepTstates(), second.getStepTstates());
+    assertEquals(first.getPC(), second.getPC());
+
+    cache.reset();
+    final Z80 third = new Z80(bus).setFetchCache(cache);
+    third.step(0, Z80.SIGNAL_IN_ALL_INACTIVE);
+    assertEquals(0x5678, third.getRegisterPair(Z80.REGPAIR_BC));
+  }
+}
@@ -0,0 +1,304 @@
+/*
+ * Copyright (C) 2024 Igor Maznitsa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.igormaznitsa.z80;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import org.junit.Test;
+
+public class Z80LanesTest {
+
+  private static final int LANES = 8;
+
+  private static final int[][] NOT_LOCKSTEP_CODES = new int[][] {
+      {0x7E}, // LD A,(HL)
+      {0x77}, // LD (HL),A
+      {0x34}, // INC (HL)
+      {0xB6}, // OR (HL)
+      {0xAE}, // XOR (HL)
+      {0x18, 0x02}, // JR +2
+      {0x20, 0x01}, // JR NZ,+1
+      {0x10, 0x00}, // DJNZ +0
+      {0xF5}, // PUSH AF
+      {0xC1}, // POP BC
+      {0x08}, // EX AF,AF'
+      {0xD9}, // EXX
+      {0xF3}, // DI
+      {0xFB}, // EI
+      {0x37}, // SCF
+      {0x3F}, // CCF
+      {0x27}, // DAA
+      {0x76}, // HALT
+      {0xDD, 0x7C}, // LD A,IXH
+      {0xFD, 0x2C}, // INC IYL
+      {0xCB, 0x07}, // RLC A
+      {0xED, 0x44}, // NEG
+      {0x21, 0x00, 0x80}, // LD HL,#8000
+  };
+
+  private static void assertSameState(final int step, final Z80 expected, final Z80 actual) {
+    final String message = "Step " + step + ": " + expected.getStateAsString() + " <> "
+        + actual.getStateAsString();
+    assertTrue(message, expected.compareState(actual, true));
+    assertEquals(message, expected.getMemPtr(), actual.getMemPtr());
+    assertEquals(message, expected.getStepTstates(), actual.getStepTstates());
+    assertEquals(message, expected.getState(), actual.getState());
+    assertEquals(message, expected.getPrefixInProcessing(), actual.getPrefixInProcessing());
+  }
+
+  private static int makeLockstepCode(final Random rnd, final PlaneBus bus, final int address) {
+    // register index 6 is (HL), it is not executed in lockstep
+    final int randomY = rnd.nextInt(8);
+    final int randomZ = rnd.nextInt(8);
+    final int y = randomY == 6 ? 7 : randomY;
+    final int z = randomZ == 6 ? 0 : randomZ;
+    switch (rnd.nextInt(7)) {
+      case 0:
+        bus.put(0, address, 0x00);
+        return 1;
+      case 1:
+        bus.put(0, address, 0x04 | (y << 3));
+        return 1;
+      case 2:
+        bus.put(0, address, 0x05 | (y << 3));
+        return 1;
+      case 3:
+        bus.put(0, address, 0x06 | (y << 3));
+        bus.put(0, address + 1, rnd.nextInt(0x100));
+        return 2;
+      case 4:
+        bus.put(0, address, 0x40 | (y << 3) | z);
+        return 1;
+      case 5:
+        bus.put(0, address, 0x80 | (rnd.nextInt(8) << 3) | z);
+        return 1;
+      default:
+        bus.put(0, address, 0xC6 | (rnd.nextInt(8) << 3));
+        bus.put(0, address + 1, rnd.nextInt(0x100));
+        return 2;
+    }
+  }
+
+  private static PlaneBus makeBus(final long seed) {
+    final Random rnd = new Random(seed);
+    final PlaneBus bus = new PlaneBus();
+    int address = 0;
+    while (address < 0x10000) {
+      if (rnd.nextInt(5) == 0) {
+        final int[] codes = NOT_LOCKSTEP_CODES[rnd.nextInt(NOT_LOCKSTEP_CODES.length)];
+        for (final int c : codes) {
+          bus.put(0, address++, c);
+        }
+      } else {
+        address += makeLockstepCode(rnd, bus, address);
+      }
+    }
+    for (int plane = 1; plane <= LANES; plane++) {
+      for (int i = 0; i < 0x10000; i++) {
+        bus.put(plane, i, rnd.nextInt(0x100));
+      }
+    }
+    return bus;
+  }
+
+  private static Z80[] makeCores(final Z80 master) {
+    final Z80FetchCache cache = new Z80FetchCache();
+    final Z80[] result = new Z80[LANES];
+    for (int i = 0; i < LANES; i++) {
+      result[i] = new Z80(master).setFetchCache(cache);
+    }
+    return result;
+  }
+
+  private static int makeSignals(final Random rnd) {
+    int result = Z80.SIGNAL_IN_ALL_INACTIVE;
+    final int chance = rnd.nextInt(100);
+    if (chance < 3) {
+      result &= ~Z80.SIGNAL_IN_nINT;
+    } else if (chance < 4) {
+      result &= ~Z80.SIGNAL_IN_nNMI;
+    } else if (chance < 5) {
+      result &= ~Z80.SIGNAL_IN_nWAIT;
+    }
+    return result;
+  }
+
+  @Test
+  public void testLockstepGivesSameStateAsSeparateSteps() {
+    final String[] alignVariants = new String[] {"", "PS", "PSs", "AFBCDEHLPSs", "1P", "HLP", "Aa",
+        "FP0"};
+
+    for (long seed = 1; seed <= 8; seed++) {
+      final PlaneBus expectedBus = makeBus(seed);
+      final PlaneBus actualBus = makeBus(seed);
+
+      final Z80 expectedMaster = new Z80(expectedBus);
+      final Z80 actualMaster = new Z80(actualBus);
+      final Z80[] expectedCores = makeCores(expectedMaster);
+      final Z80FetchCache expectedCache = expectedCores[0].getFetchCache();
+      final Z80[] actualCores = makeCores(actualMaster);
+      final Z80FetchCache actualCache = actualCores[0].getFetchCache();
+      final Z80Lanes lanes = new Z80Lanes(actualCores);
+
+      final Random rnd = new Random(seed);
+      int alignFlags = 0;
+      for (int step = 0; step < 20000; step++) {
+        if (step % 500 == 0) {
+          alignFlags = Z80.parseAndPackRegAlignValue(
+              alignVariants[rnd.nextInt(alignVariants.length)]);
+        }
+        final int signals = makeSignals(rnd);
+
+        expectedCache.reset();
+        for (int i = 0; i < LANES; i++) {
+          expectedCores[i].alignRegisterValuesWith(expectedMaster, alignFlags);
+          expectedCores[i].step(i + 1, signals);
+        }
+        expectedMaster.step(0, signals);
+
+        actualCache.reset();
+        lanes.alignRegisterValuesWith(actualMaster, alignFlags);
+        lanes.step(1, signals);
+        actualMaster.step(0, signals);
+
+        assertSameState(step, expectedMaster, actualMaster);
+        if (rnd.nextInt(16) == 0) {
+          for (int i = 0; i < LANES; i++) {
+            assertSameState(step, expectedCores[i], lanes.getCore(i));
+          }
+        }
+      }
+
+      for (int i = 0; i < LANES; i++) {
+        assertSameState(-1, expectedCores[i], lanes.getCore(i));
+      }
+      for (int plane = 0; plane <= LANES; plane++) {
+        assertArrayEquals(expectedBus.memory[plane], actualBus.memory[plane]);
+      }
+      assertTrue("Lockstep must be used", lanes.getLockstepCounter() > 2000L);
+    }
+  }
+
+  @Test
+  public void testFillByStateResetsLaneRegisters() {
+    // LD A,#12 ; INC A
+    final PlaneBus bus = new PlaneBus();
+    bus.put(0, 0, 0x3E);
+    bus.put(0, 1, 0x12);
+    bus.put(0, 2, 0x3C);
+
+    final Z80 master = new Z80(bus);
+    final Z80Lanes lanes = new Z80Lanes(makeCores(master));
+    lanes.step(1, Z80.SIGNAL_IN_ALL_INACTIVE);
+    lanes.step(1, Z80.SIGNAL_IN_ALL_INACTIVE);
+    assertEquals(2L, lanes.getLockstepCounter());
+
+    master.setRegister(Z80.REG_A, 0x55);
+    lanes.fillByState(master);
+    for (int i = 0; i < lanes.size(); i++) {
+      assertEquals(0x55, lanes.getCore(i).getRegister(Z80.REG_A));
+      assertEquals(0, lanes.getCore(i).getPC());
+    }
+  }
+
+  private static final class PlaneBus implements Z80CPUBus {
+
+    private final byte[][] memory = new byte[LANES + 1][0x10000];
+
+    void put(final int plane, final int address, final int value) {
+      this.memory[plane][address & 0xFFFF] = (byte) value;
+    }
+
+    @Override
+    public byte readMemory(final Z80 cpu, final int ctx, final int address, final boolean m1,
+                           final boolean cmdOrPrefix) {
+      return this.memory[cmdOrPrefix ? 0 : ctx][address];
+    }
+
+    @Override
+    public void writeMemory(final Z80 cpu, final int ctx, final int address, final byte data) {
+      this.memory[ctx][address] = data;
+    }
+
+    @Override
+    public int readPtr(final Z80 cpu, final int ctx, final int reg, final int valueInReg) {
+      return valueInReg;
+    }
+
+    @Override
+    public int readSpecRegValue(final Z80 cpu, final int ctx, final int reg,
+                                final int origValue) {
+      return origValue;
+    }
+
+    @Override
+    public int readSpecRegPairValue(final Z80 cpu, final int ctx, final int regPair,
+                                    final int origValue) {
+      return origValue;
+    }
+
+    @Override
+    public int readRegPortAddr(final Z80 cpu, final int ctx, final int reg,
+                               final int valueInReg) {
+      return valueInReg;
+    }
+
+    @Override
+    public int postProcessXor(final Z80 cpu, final int ctx, final int regIndex,
+                              final int valueA, final int value, final int result) {
+      return ctx == 0 ? result : regIndex == Z80.REG_A ? 0 : Math.max(valueA, value);
+    }
+
+    @Override
+    public int postProcessAnd(final Z80 cpu, final int ctx, final int regIndex,
+                              final int valueA, final int value, final int result) {
+      return ctx == 0 ? result : Math.min(valueA, value);
+    }
+
+    @Override
+    public int postProcessOr(final Z80 cpu, final int ctx, final int regIndex, final int valueA,
+                             final int value, final int result) {
+      return ctx == 0 ? result : Math.max(valueA, value);
+    }
+
+    @Override
+    public byte readPort(final Z80 cpu, final int ctx, final int port) {
+      return (byte) port;
+    }
+
+    @Override
+    public void writePort(final Z80 cpu, final int ctx, final int port, final byte data) {
+    }
+
+    @Override
+    public byte onCPURequestDataLines(final Z80 cpu, final int ctx) {
+      return (byte) 0xFF;
+    }
+
+    @Override
+    public void onRETI(final Z80 cpu, final int ctx) {
+    }
+
+    @Override
+    public void onInterrupt(final Z80 cpu, final int ctx, final boolean nmi) {
+    }
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2019 Igor Maznitsa
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.igormaznitsa.z80;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import org.junit.Test;
+
+public class Z80TableDecoderTest {
+
+  private static void assertSameState(final int step, final Z80 legacy, final Z80 table) {
+    final String message = "Step " + step + ": " + legacy.getStateAsString() + " <> "
+        + table.getStateAsString();
+    assertTrue(message, legacy.compareState(table, true));
+    assertEquals(message, legacy.getMemPtr(), table.getMemPtr());
+    assertEquals(message, legacy.getStepTstates(), table.getStepTstates());
+    assertEquals(message, legacy.getState(), table.getState());
+    assertEquals(message, legacy.getPrefixInProcessing(), table.getPrefixInProcessing());
+  }
+
+  @Test
+  public void testTableDecoderIsDefault() {
+    assertTrue(new Z80(new TestBus(0, 0)).isTableDecoder());
+    assertFalse(new Z80(new Z80(new TestBus(0, 0)).setTableDecoder(false)).isTableDecoder());
+  }
+
+  @Test
+  public void testAllOpcodesInAllPrefixes() {
+    final int[] prefixes = {-1, 0xCB, 0xDD, 0xFD, 0xED};
+    for (final int prefix : prefixes) {
+      for (int code = 0; code < 0x100; code++) {
+        for (int displacement = 0; displacement < 0x100; displacement += 0x55) {
+          final int[] block = prefix < 0 ? new int[] {code, displacement, 0x34, 0x12}
+              : new int[] {prefix, code, displacement, 0x34, 0x12};
+          assertLockstep(block, 0xFF, 8, 0L);
+          if (prefix == 0xDD || prefix == 0xFD) {
+            assertLockstep(new int[] {prefix, 0xCB, displacement, code}, 0xFF, 8, 0L);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testRandomCodeBlocks() {
+    final Random rnd = new Random(8962L);
+    for (int i = 0; i < 64; i++) {
+      final int[] block = new int[0x10000];
+      for (int j = 0; j < block.length; j++) {
+        block[j] = rnd.nextInt(0x100);
+      }
+      assertLockstep(block, rnd.nextInt(0x100), 2000, rnd.nextLong());
+    }
+  }
+
+  private void assertLockstep(final int[] code, final int dataBus, final int steps,
+                              final long signalSeed) {
+    final TestBus legacyBus = new TestBus(dataBus, 0, code);
+    final TestBus tableBus = new TestBus(dataBus, 0, code);
+    legacyBus.fillPortsBy((byte) 0x5A);
+    tableBus.fillPortsBy((byte) 0x5A);
+
+    final Z80 legacy = new Z80(legacyBus).setTableDecoder(false);
+    final Z80 table = new Z80(tableBus).setTableDecoder(true);
+
+    final Random signals = new Random(signalSeed);
+
+    for (int i = 0; i < steps; i++) {
+      int signal = Z80.SIGNAL_IN_ALL_INACTIVE;
+      if (signalSeed != 0L) {
+        final int next = signals.nextInt(1000);
+        if (next < 10) {
+          signal &= ~Z80.SIGNAL_IN_nINT;
+        } else if (next < 12) {
+          signal &= ~Z80.SIGNAL_IN_nNMI;
+        } else if (next < 14) {
+          signal &= ~Z80.SIGNAL_IN_nWAIT;
+        } else if (next < 15) {
+          signal &= ~Z80.SIGNAL_IN_nRESET;
+        }
+      }
+      legacy.step(111, signal);
+      table.step(111, signal);
+      assertSameState(i, legacy, table);
+      assertTrue("Step " + i, legacyBus.isSameMemoryAndPorts(tableBus));
+      legacyBus.resetRETIFlag();
+      tableBus.resetRETIFlag();
+    }
+  }
+
+}
@@ -17,6 +17,7 @@
 
 package com.igormaznitsa.z80;
 
+import java.util.Random;
 import org.junit.Test;
 
 import static com.igormaznitsa.z80.Z80.FLAG_H;
@@ -6062,4 +6063,105 @@ public class Z80Test extends AbstractZ80Test {
     assertEquals(0xFFFD, cpu.getSP());
   }
 
+
+  @Test
+  public void testRunFor_Budget() {
+    final TestBus testBus = new TestBus(0xFF, 0);
+    final Z80 cpu = new Z80(testBus);
+
+    assertEquals(100, cpu.runFor(111, 100, Z80.SIGNAL_IN_ALL_INACTIVE));
+    assertEquals(25, cpu.getPC());
+
+    assertEquals(12, cpu.runFor(111, 10, Z80.SIGNAL_IN_ALL_INACTIVE));
+    assertEquals(28, cpu.getPC());
+  }
+
+  @Test
+  public void testRunFor_CompletesPrefixedInstruction() {
+    final TestBus testBus = new TestBus(0xFF, 0, 0xDD, 0x21, 0x34, 0x12);
+    final Z80 cpu = new Z80(testBus);
+
+    assertEquals(14, cpu.runFor(111, 1, Z80.SIGNAL_IN_ALL_INACTIVE));
+    assertEquals(0x1234, cpu.getRegister(Z80.REG_IX));
+    assertEquals(4, cpu.getPC());
+    assertEquals(0, cpu.getPrefixInProcessing());
+  }
+
+  @Test
+  public void testRunFor_ExitAfterIo() {
+    final TestBus testBus = new TestBus(0xFF, 0, 0x00, 0x00, 0xD3, 0xFE, 0x00, 0xDB, 0xFE);
+    final Z80 cpu = new Z80(testBus);
+
+    assertEquals(19, cpu.runFor(111, 1000, Z80.SIGNAL_IN_ALL_INACTIVE));
+    assertEquals(4, cpu.getPC());
+
+    assertEquals(15, cpu.runFor(111, 1000, Z80.SIGNAL_IN_ALL_INACTIVE));
+    assertEquals(7, cpu.getPC());
+  }
+
+  @Test
+  public void testRunFor_ExitOnHalt() {
+    final TestBus testBus = new TestBus(0xFF, 0, 0x00, 0x76);
+    final Z80 cpu = new Z80(testBus);
+
+    assertEquals(8, cpu.runFor(111, 1000, Z80.SIGNAL_IN_ALL_INACTIVE));
+    assertEquals(0, cpu.getState() & Z80.SIGNAL_OUT_nHALT);
+
+    assertEquals(100, cpu.runFor(111, 100, Z80.SIGNAL_IN_ALL_INACTIVE));
+    assertEquals(0, cpu.getState() & Z80.SIGNAL_OUT_nHALT);
+  }
+
+  @Test
+  public void testRunFor_SameAsSteps() {
+    final Random rnd = new Random(12345L);
+    final int[] code = new int[0x10000];
+    for (int i = 0; i < code.length; i++) {
+      int value = rnd.nextInt(0x100);
+      while (value == 0x76 || value == 0xD3 || value == 0xDB || value == 0xED) {
+        value = rnd.nextInt(0x100);
+      }
+      code[i] = value;
+    }
+
+    final TestBus busSteps = new TestBus(0xFF, 0, code);
+    final TestBus busRun = new TestBus(0xFF, 0, code);
+    final Z80 cpuSteps = new Z80(busSteps);
+    final Z80 cpuRun = new Z80(busRun);
+
+    for (int i = 0; i < 100; i++) {
+      int spent = 0;
+      while (spent < 1000) {
+        spent += cpuSteps.nextInstruction(111, false, false, false);
+      }
+      assertEquals(spent, cpuRun.runFor(111, 1000, Z80.SIGNAL_IN_ALL_INACTIVE));
+      assertTrue(cpuSteps.compareState(cpuRun, true));
+    }
+  }
+
+  @Test
+  public void testAlignRegisterValuesWith() {
+    final Z80 src = new Z80(new TestBus(0, 0));
+    src.setRegister(Z80.REG_A, 0x11);
+    src.setRegister(Z80.REG_F, 0xFE);
+    src.setRegister(Z80.REG_IX, 0x2233);
+    src.setRegister(Z80.REG_SP, 0x4455);
+    src.setRegister(Z80.REG_PC, 0x6677);
+    src.setRegister(Z80.REG_L, 0x88, true);
+
+    final Z80 dst = new Z80(new TestBus(0, 0));
+    dst.setRegister(Z80.REG_F, 0x01);
+    dst.setRegister(Z80.REG_IX, 0xAABB);
+    dst.setRegister(Z80.REG_SP, 0xCCDD);
+    dst.setRegister(Z80.REG_PC, 0xEEFF);
+
+    dst.alignRegisterValuesWith(src, Z80.parseAndPackRegAlignValue("AX1Psl"));
+
+    assertEquals(0x11, dst.getRegister(Z80.REG_A));
+    assertEquals(0xFF, dst.getRegister(Z80.REG_F));
+    assertEquals(0x22BB, dst.getRegister(Z80.REG_IX));
+    assertEquals(0xCC55, dst.getRegister(Z80.REG_SP));
+    assertEquals(0x6677, dst.getRegister(Z80.REG_PC));
+    assertEquals(0x88, dst.getRegister(Z80.REG_L, true));
+    assertEquals(0, dst.getRegister(Z80.REG_B));
+  }
 }